@@ -0,0 +1,140 @@
+package com.firstperson;
+
+import com.firstperson.detachedcamera.CameraPose;
+import com.firstperson.detachedcamera.CameraWriteBack;
+import com.firstperson.detachedcamera.DetachedCameraMovementHandler;
+import com.firstperson.fake.FakeClient;
+import com.firstperson.fake.FakeWorldEntity;
+import com.firstperson.fake.FakeWorldView;
+import com.firstperson.fake.Stubs;
+import com.firstperson.input.InputHandler;
+import java.awt.Canvas;
+import java.awt.Component;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.util.concurrent.TimeUnit;
+import net.runelite.api.coords.LocalPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-frame cost of the camera handlers against a fake client. Run with {@code ./gradlew jmh}, which adds the GC
+ * profiler so allocation rate is reported next to ns/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CameraFrameBenchmark
+{
+	private static final int BOAT_INDEX = 3;
+
+	public enum Scenario
+	{
+		IDLE,
+		KEY_ROTATION,
+		MIDDLE_MOUSE_DRAG,
+		WORLD_ENTITY,
+	}
+
+	@Param
+	public Scenario scenario;
+
+	private final CameraPose pose = new CameraPose();
+	private final Component source = new Canvas();
+	private final MouseEvent[] drags = {
+		new MouseEvent(source, MouseEvent.MOUSE_DRAGGED, 0, MouseEvent.BUTTON2_DOWN_MASK, 210, 195, 0, false, MouseEvent.NOBUTTON),
+		new MouseEvent(source, MouseEvent.MOUSE_DRAGGED, 0, MouseEvent.BUTTON2_DOWN_MASK, 190, 205, 0, false, MouseEvent.NOBUTTON),
+	};
+
+	private FakeClient client;
+	private InputHandler inputHandler;
+	private DetachedCameraMovementHandler detachedCameraMovementHandler;
+	private CameraWriteBack cameraWriteBack;
+	private CameraPipeline cameraPipeline;
+	private int dragIndex;
+
+	@Setup
+	public void setUp()
+	{
+		client = FakeClient.create();
+		FirstPersonConfig config = new FirstPersonConfig()
+		{
+		};
+		inputHandler = new InputHandler(client, new FirstPersonPlugin(), config, System.nanoTime());
+		detachedCameraMovementHandler = new DetachedCameraMovementHandler(client, config, inputHandler);
+		cameraWriteBack = new CameraWriteBack(client);
+		cameraPipeline = new CameraPipeline(client, inputHandler, detachedCameraMovementHandler);
+
+		switch (scenario)
+		{
+			case KEY_ROTATION:
+				inputHandler.keyPressed(new KeyEvent(source, KeyEvent.KEY_PRESSED, 0, 0, KeyEvent.VK_RIGHT, KeyEvent.CHAR_UNDEFINED));
+				inputHandler.keyPressed(new KeyEvent(source, KeyEvent.KEY_PRESSED, 0, 0, KeyEvent.VK_UP, KeyEvent.CHAR_UNDEFINED));
+				break;
+			case MIDDLE_MOUSE_DRAG:
+				inputHandler.mousePressed(new MouseEvent(source, MouseEvent.MOUSE_PRESSED, 0, 0, 200, 200, 1, false, MouseEvent.BUTTON2));
+				break;
+			case WORLD_ENTITY:
+				FakeWorldView boatView = Stubs.create(FakeWorldView.class);
+				boatView.id = BOAT_INDEX;
+				client.topLevelWorldView.addEntityWorldView(boatView);
+				FakeWorldEntity boat = Stubs.create(FakeWorldEntity.class);
+				boat.worldView = boatView;
+				boat.offsetX = 2048;
+				boat.offsetY = 1024;
+				client.topLevelWorldView.worldEntities().put(BOAT_INDEX, boat);
+				client.fakePlayer().localLocation = new LocalPoint(640, 640, BOAT_INDEX);
+				detachedCameraMovementHandler.getWorldEntityTransforms().onGameTick(System.nanoTime());
+				break;
+			default:
+				break;
+		}
+	}
+
+	@Benchmark
+	public CameraPose updateCameraPosition()
+	{
+		drag();
+		pose.frameNanos = System.nanoTime();
+		cameraWriteBack.read(pose);
+		inputHandler.updateCameraPosition(pose);
+		return pose;
+	}
+
+	@Benchmark
+	public CameraPose updateDetachedCameraPosition()
+	{
+		pose.frameNanos = System.nanoTime();
+		cameraWriteBack.read(pose);
+		detachedCameraMovementHandler.updateDetachedCameraPosition(pose);
+		return pose;
+	}
+
+	@Benchmark
+	public FakeClient frame()
+	{
+		drag();
+		cameraPipeline.run();
+		return client;
+	}
+
+	private void drag()
+	{
+		if (scenario == Scenario.MIDDLE_MOUSE_DRAG)
+		{
+			inputHandler.mouseDragged(drags[dragIndex++ & 1]);
+		}
+	}
+}
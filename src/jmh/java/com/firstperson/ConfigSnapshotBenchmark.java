@@ -0,0 +1,77 @@
+package com.firstperson;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import net.runelite.client.config.ConfigItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The config reads updateCameraPosition makes every frame, through a config proxy and through the snapshot.
+ * <p>
+ * The proxy stands in for the one the config manager hands out: each call is reflective, looks the stored value up
+ * by group and key, and parses it from its string form.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigSnapshotBenchmark
+{
+	private FirstPersonConfig proxyConfig;
+	private volatile FirstPersonConfigSnapshot snapshot;
+
+	@Setup
+	public void setUp()
+	{
+		Map<String, String> stored = new ConcurrentHashMap<>();
+		stored.put(FirstPersonConfig.GROUP + ".keyCameraSpeed", "0.5");
+		stored.put(FirstPersonConfig.GROUP + ".inverseKeys", "true");
+
+		proxyConfig = (FirstPersonConfig) Proxy.newProxyInstance(FirstPersonConfig.class.getClassLoader(),
+			new Class<?>[]{ FirstPersonConfig.class }, (proxy, method, args) -> read(stored, method));
+		snapshot = FirstPersonConfigSnapshot.from(proxyConfig);
+	}
+
+	private static Object read(Map<String, String> stored, Method method)
+	{
+		String value = stored.get(FirstPersonConfig.GROUP + "." + method.getAnnotation(ConfigItem.class).keyName());
+		if (method.getReturnType() == double.class)
+		{
+			return Double.parseDouble(value);
+		}
+		if (method.getReturnType() == boolean.class)
+		{
+			return Boolean.parseBoolean(value);
+		}
+		return null;
+	}
+
+	@Benchmark
+	public double perFrameProxyReads()
+	{
+		double speed = proxyConfig.keyCameraSpeed();
+		return proxyConfig.inverseKeys() ? speed : -speed;
+	}
+
+	@Benchmark
+	public double perFrameSnapshotReads()
+	{
+		FirstPersonConfigSnapshot settings = snapshot;
+		double speed = settings.getKeyCameraSpeed();
+		return settings.isInverseKeys() ? speed : -speed;
+	}
+}
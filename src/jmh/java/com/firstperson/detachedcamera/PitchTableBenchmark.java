@@ -0,0 +1,55 @@
+package com.firstperson.detachedcamera;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of looking up the focal table, stepping through every pitch so the branch predictor can't settle on one index,
+ * and of sampling it for a new zoom.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PitchTableBenchmark
+{
+	private final FocalTable focalTable = new FocalTable();
+	private int pitch;
+	private int zoom = FocalTable.DEFAULT_ZOOM;
+
+	private int nextPitch()
+	{
+		pitch = (pitch + 37) % PreCalculatedTransformations.MAX_PITCH;
+		return pitch;
+	}
+
+	@Benchmark
+	public int yAxisAbsoluteChange()
+	{
+		return focalTable.yAxisAbsoluteChange(nextPitch());
+	}
+
+	@Benchmark
+	public int horizontalDistance()
+	{
+		return focalTable.horizontalDistance(nextPitch());
+	}
+
+	@Benchmark
+	public int selectZoom()
+	{
+		zoom = zoom == FocalTable.DEFAULT_ZOOM ? FocalTable.DEFAULT_ZOOM + 1 : FocalTable.DEFAULT_ZOOM;
+		focalTable.select(zoom);
+		return focalTable.horizontalDistance(PreCalculatedTransformations.MAX_PITCH);
+	}
+}
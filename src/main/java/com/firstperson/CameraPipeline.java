@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson;
+
+import com.firstperson.detachedcamera.CameraPose;
+import com.firstperson.detachedcamera.CameraWriteBack;
+import com.firstperson.detachedcamera.DetachedCameraMovementHandler;
+import com.firstperson.input.InputHandler;
+import com.firstperson.projection.FirstPersonProjection;
+import com.firstperson.session.SessionRecorder;
+import com.firstperson.timing.FrameTimings;
+import lombok.Getter;
+import lombok.Setter;
+import net.runelite.api.Client;
+
+/**
+ * The work done for the camera on every drawn frame: read the client's camera state, apply input, place the focal
+ * point, and write back whatever changed. All stages share one {@link CameraPose}.
+ */
+public class CameraPipeline implements Runnable
+{
+	private final InputHandler inputHandler;
+	private final DetachedCameraMovementHandler detachedCameraMovementHandler;
+	private final CameraWriteBack cameraWriteBack;
+	@Getter
+	private final CameraPose pose = new CameraPose();
+
+	private SessionRecorder sessionRecorder;
+
+	// Told about every view drawn, null to not publish them
+	@Setter
+	private FirstPersonProjection projection;
+
+	// Told how long each stage of every full frame took, null to not time them
+	@Setter
+	private FrameTimings frameTimings;
+
+	/**
+	 * Whether the last frame changed nothing and nothing is left in motion, so the next would do the same
+	 */
+	@Getter
+	private boolean settled;
+
+	public CameraPipeline(Client client, InputHandler inputHandler, DetachedCameraMovementHandler detachedCameraMovementHandler)
+	{
+		this.inputHandler = inputHandler;
+		this.detachedCameraMovementHandler = detachedCameraMovementHandler;
+		this.cameraWriteBack = new CameraWriteBack(client);
+	}
+
+	@Override
+	public void run()
+	{
+		run(System.nanoTime());
+	}
+
+	/**
+	 * Runs a frame at the given time, which replays use to reproduce a recorded session's timing.
+	 */
+	public void run(long nowNanos)
+	{
+		FrameTimings timings = frameTimings;
+		long start = timings != null ? System.nanoTime() : 0;
+		pose.frameNanos = nowNanos;
+		boolean hasPlayer = cameraWriteBack.read(pose);
+		inputHandler.updateCameraPosition(pose);
+		if (!hasPlayer)
+		{
+			settled = inputHandler.isIdle();
+			return;
+		}
+
+		long inputEnd = timings != null ? System.nanoTime() : 0;
+		detachedCameraMovementHandler.updateDetachedCameraPosition(pose);
+		long focalPointEnd = timings != null ? System.nanoTime() : 0;
+		boolean written = cameraWriteBack.write(pose);
+		long writeBackEnd = timings != null ? System.nanoTime() : 0;
+		if (projection != null)
+		{
+			projection.publish(pose, pose.focalX, pose.focalY, pose.focalZ);
+		}
+		settled = !written
+			&& inputHandler.isIdle()
+			&& detachedCameraMovementHandler.getEyePositionFilter().isSettled()
+			&& !detachedCameraMovementHandler.getWorldEntityTransforms().isMoving();
+		if (sessionRecorder != null)
+		{
+			sessionRecorder.recordFrame(pose);
+		}
+		if (timings != null)
+		{
+			timings.recordFrame(inputEnd - start, focalPointEnd - inputEnd, writeBackEnd - focalPointEnd,
+				System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Moves the focal point without running a frame, for frames in between capped updates.
+	 */
+	public void writeFocalPoint(double x, double y, double z)
+	{
+		cameraWriteBack.writeFocalPoint(x, y, z);
+		if (projection != null && pose.localPlayer != null)
+		{
+			projection.publish(pose, x, y, z);
+		}
+	}
+
+	/**
+	 * Records every frame and the input it applied to the recorder, or stops recording when null.
+	 */
+	public void setSessionRecorder(SessionRecorder sessionRecorder)
+	{
+		this.sessionRecorder = sessionRecorder;
+		inputHandler.setInputTap(sessionRecorder);
+		detachedCameraMovementHandler.getCameraCollision().setListener(sessionRecorder);
+	}
+
+	/**
+	 * Makes the next frame write the full camera state from an unfiltered position, for when first person is switched
+	 * back on.
+	 */
+	public void invalidate()
+	{
+		cameraWriteBack.invalidate();
+		detachedCameraMovementHandler.getEyePositionFilter().reset();
+	}
+}
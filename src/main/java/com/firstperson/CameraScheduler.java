@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson;
+
+import com.firstperson.detachedcamera.CameraPose;
+import com.firstperson.detachedcamera.FocalTable;
+import com.firstperson.input.InputHandler;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.api.Player;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.LocalPoint;
+
+/**
+ * Decides on each drawn frame whether the {@link CameraPipeline} needs to run.
+ * <p>
+ * Once a frame changes nothing and nothing is left moving, the pipeline is put to sleep. While asleep, a frame only
+ * checks a handful of values for a reason to wake: queued input, the player moving or changing plane, the client's
+ * camera being changed or zoomed from elsewhere, or {@link #wake()} being called for events such as world entities changing or
+ * a scene loading.
+ * <p>
+ * With {@link FirstPersonConfigSnapshot#getCameraUpdateRate()} set, the pipeline runs at most that many times a
+ * second and frames in between move the focal point along between the last two updates.
+ */
+@Slf4j
+public class CameraScheduler implements Runnable
+{
+	private static final int OCULUS_CAMERA_MODE = 1;
+	private static final long SECOND_NANOS = 1_000_000_000L;
+
+	private final Client client;
+	private final FirstPersonPlugin firstPersonPlugin;
+	private final InputHandler inputHandler;
+	private final CameraPipeline cameraPipeline;
+
+	private volatile boolean wakeRequested;
+	private boolean sleeping;
+	// How many frames ran the pipeline, for tests
+	int pipelineRuns;
+
+	// Set when the camera is switched on, until the next frame has run the pipeline
+	private volatile long activatedNanos;
+
+	/**
+	 * How long the pipeline took on the first frame after the camera was last switched on
+	 */
+	@Getter
+	private long activationFrameNanos;
+
+	/*
+	 * What the camera was looking at when it went to sleep
+	 */
+	private boolean sleptWithPlayer;
+	private int sleptX;
+	private int sleptY;
+	private int sleptWorldView;
+	private int sleptPlane;
+	private int sleptYawTarget;
+	private int sleptPitchTarget;
+	private int sleptZoom;
+
+	/*
+	 * The last two focal points the pipeline placed, interpolated between when the update rate is capped
+	 */
+	private boolean updated;
+	private long lastUpdateNanos;
+	private double previousFocalX;
+	private double previousFocalY;
+	private double previousFocalZ;
+	private double focalX;
+	private double focalY;
+	private double focalZ;
+
+	public CameraScheduler(Client client, FirstPersonPlugin firstPersonPlugin, InputHandler inputHandler, CameraPipeline cameraPipeline)
+	{
+		this.client = client;
+		this.firstPersonPlugin = firstPersonPlugin;
+		this.inputHandler = inputHandler;
+		this.cameraPipeline = cameraPipeline;
+	}
+
+	/**
+	 * Makes the next frame run the pipeline. Safe to call from any thread.
+	 */
+	public void wake()
+	{
+		wakeRequested = true;
+	}
+
+	/**
+	 * Wakes the pipeline for the camera being switched on, and times the frame that follows. Safe to call from any
+	 * thread.
+	 */
+	public void activated()
+	{
+		activatedNanos = System.nanoTime();
+		wake();
+	}
+
+	@Override
+	public void run()
+	{
+		run(System.nanoTime());
+	}
+
+	void run(long nowNanos)
+	{
+		boolean woken = wakeRequested;
+		if (woken)
+		{
+			wakeRequested = false;
+		}
+
+		if (sleeping)
+		{
+			if (!woken && !changedSinceSleep())
+			{
+				return;
+			}
+			sleeping = false;
+			updated = false;
+		}
+
+		int updateRate = firstPersonPlugin.getConfigSnapshot().getCameraUpdateRate();
+		if (updateRate > 0 && updated && !woken)
+		{
+			long updateNanos = SECOND_NANOS / updateRate;
+			long sinceUpdate = nowNanos - lastUpdateNanos;
+			if (sinceUpdate < updateNanos)
+			{
+				double progress = (double) sinceUpdate / updateNanos;
+				cameraPipeline.writeFocalPoint(
+					previousFocalX + (focalX - previousFocalX) * progress,
+					previousFocalY + (focalY - previousFocalY) * progress,
+					previousFocalZ + (focalZ - previousFocalZ) * progress);
+				return;
+			}
+		}
+
+		long activated = activatedNanos;
+		long pipelineStart = activated != 0 ? System.nanoTime() : 0;
+		cameraPipeline.run(nowNanos);
+		pipelineRuns++;
+		if (activated != 0)
+		{
+			activatedNanos = 0;
+			long pipelineEnd = System.nanoTime();
+			activationFrameNanos = pipelineEnd - pipelineStart;
+			log.debug("First camera frame after switching on took {} us, {} us after the switch",
+				activationFrameNanos / 1000, (pipelineEnd - activated) / 1000);
+		}
+		recordUpdate(nowNanos);
+
+		if (cameraPipeline.isSettled())
+		{
+			sleep();
+		}
+	}
+
+	private void recordUpdate(long nowNanos)
+	{
+		CameraPose pose = cameraPipeline.getPose();
+		if (updated)
+		{
+			previousFocalX = focalX;
+			previousFocalY = focalY;
+			previousFocalZ = focalZ;
+		}
+		else
+		{
+			previousFocalX = pose.focalX;
+			previousFocalY = pose.focalY;
+			previousFocalZ = pose.focalZ;
+		}
+		focalX = pose.focalX;
+		focalY = pose.focalY;
+		focalZ = pose.focalZ;
+		lastUpdateNanos = nowNanos;
+		updated = true;
+	}
+
+	private void sleep()
+	{
+		CameraPose pose = cameraPipeline.getPose();
+		sleeping = true;
+		sleptWithPlayer = pose.localPlayer != null;
+		if (sleptWithPlayer)
+		{
+			LocalPoint lp = pose.localPlayer.getLocalLocation();
+			sleptX = lp.getX();
+			sleptY = lp.getY();
+			sleptWorldView = lp.getWorldView();
+			sleptPlane = pose.plane;
+			sleptYawTarget = pose.yawTarget;
+			sleptPitchTarget = pose.pitchTarget;
+			sleptZoom = pose.zoom;
+		}
+	}
+
+	private boolean changedSinceSleep()
+	{
+		if (inputHandler.hasPendingInput())
+		{
+			return true;
+		}
+
+		Player player = client.getLocalPlayer();
+		if (player == null || !sleptWithPlayer)
+		{
+			return (player == null) == sleptWithPlayer;
+		}
+
+		LocalPoint lp = player.getLocalLocation();
+		WorldView topLevel = client.getTopLevelWorldView();
+		return lp.getX() != sleptX
+			|| lp.getY() != sleptY
+			|| lp.getWorldView() != sleptWorldView
+			|| topLevel.getPlane() != sleptPlane
+			|| client.getCameraMode() != OCULUS_CAMERA_MODE
+			|| client.getCameraYawTarget() != sleptYawTarget
+			|| client.getCameraPitchTarget() != sleptPitchTarget
+			|| FocalTable.clientZoom(client) != sleptZoom;
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson;
+
+import com.firstperson.detachedcamera.CameraPose;
+import com.firstperson.detachedcamera.DetachedCameraMovementHandler;
+import com.firstperson.detachedcamera.EyeHeightCache;
+import com.firstperson.detachedcamera.EyePositionFilter;
+import com.firstperson.detachedcamera.FocalTable;
+import com.firstperson.detachedcamera.PreCalculatedTransformations;
+import com.firstperson.input.InputEventRing;
+import com.firstperson.input.InputHandler;
+import com.firstperson.input.Keymap;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the camera math through synthetic frames on a low priority background thread when the plugin starts, so the
+ * pitch tables are loaded and the JIT has compiled the per-frame path before the first toggle needs it.
+ * <p>
+ * Only the parts of a frame that don't touch the client run here: input being turned into yaw and pitch, the eye
+ * position filter and the focal point lookup. Each runs on instances of its own, so nothing the draw thread uses is
+ * shared.
+ */
+@Slf4j
+public class CameraWarmUp implements Runnable
+{
+	static final int FRAMES = 5000;
+	private static final long FRAME_NANOS = 1_000_000_000L / 144;
+
+	/*
+	 * The synthetic input repeats every cycle: held keys, then a middle mouse drag, then nothing so the camera settles
+	 */
+	private static final int INPUT_CYCLE = 240;
+	private static final int DRAG_START = 120;
+	private static final int DRAG_END = 180;
+
+	private final FirstPersonPlugin firstPersonPlugin;
+
+	@Getter
+	private volatile int framesRun;
+
+	@Getter
+	private volatile long durationNanos;
+
+	public CameraWarmUp(FirstPersonPlugin firstPersonPlugin)
+	{
+		this.firstPersonPlugin = firstPersonPlugin;
+	}
+
+	/**
+	 * Starts warming up on a new daemon thread, interrupt it to stop early.
+	 */
+	public static Thread start(FirstPersonPlugin firstPersonPlugin)
+	{
+		Thread thread = new Thread(new CameraWarmUp(firstPersonPlugin), "first-person-warm-up");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+		return thread;
+	}
+
+	@Override
+	public void run()
+	{
+		long start = System.nanoTime();
+
+		// Loads the pitch tables here rather than on the draw thread's first frame
+		FocalTable focalTable = new FocalTable();
+
+		InputHandler inputHandler = new InputHandler(null, firstPersonPlugin, null, 0);
+		EyePositionFilter eyePositionFilter = new EyePositionFilter();
+		CameraPose pose = new CameraPose();
+		pose.pitchTarget = PreCalculatedTransformations.MAX_PITCH / 2;
+		pose.clientPitch = pose.pitchTarget;
+
+		int frame = 0;
+		for (; frame < FRAMES && !Thread.currentThread().isInterrupted(); frame++)
+		{
+			pose.frameNanos = frame * FRAME_NANOS;
+			queueInput(inputHandler, frame % INPUT_CYCLE);
+
+			// Drains the input, then returns as there's no player
+			inputHandler.updateCameraPosition(pose);
+			inputHandler.rotateCamera(pose);
+			pose.clientPitch = pose.pitchTarget;
+
+			// Walk along a line, jumping back now and then so the filter snaps too
+			pose.eyeX = 3200 + (frame % 1000) * 2.0;
+			pose.eyeY = -EyeHeightCache.DEFAULT_EYE_HEIGHT;
+			pose.eyeZ = 3200 + (frame % 1000) * 1.5;
+			pose.rawEyeX = pose.eyeX;
+			pose.rawEyeZ = pose.eyeZ;
+			eyePositionFilter.filter(pose, 0, pose.frameNanos);
+
+			DetachedCameraMovementHandler.updateFocalPoint(pose, focalTable);
+		}
+
+		framesRun = frame;
+		durationNanos = System.nanoTime() - start;
+		log.debug("Camera warm-up ran {} frames in {} ms", frame, durationNanos / 1_000_000);
+	}
+
+	private static void queueInput(InputHandler inputHandler, int step)
+	{
+		switch (step)
+		{
+			case 0:
+				inputHandler.queueInputEvent(InputEventRing.KEY_PRESSED, Keymap.ROTATE_RIGHT, 0);
+				inputHandler.queueInputEvent(InputEventRing.KEY_PRESSED, Keymap.ROTATE_UP, 0);
+				break;
+			case 30:
+				inputHandler.queueInputEvent(InputEventRing.KEY_PRESSED, Keymap.ROTATE_LEFT, 0);
+				inputHandler.queueInputEvent(InputEventRing.KEY_PRESSED, Keymap.ROTATE_DOWN, 0);
+				break;
+			case 60:
+				inputHandler.queueInputEvent(InputEventRing.KEY_RELEASED, Keymap.ROTATE_RIGHT, 0);
+				inputHandler.queueInputEvent(InputEventRing.KEY_RELEASED, Keymap.ROTATE_UP, 0);
+				break;
+			case 90:
+				inputHandler.queueInputEvent(InputEventRing.KEY_RELEASED, Keymap.ROTATE_LEFT, 0);
+				inputHandler.queueInputEvent(InputEventRing.KEY_RELEASED, Keymap.ROTATE_DOWN, 0);
+				break;
+			case DRAG_START:
+				inputHandler.queueInputEvent(InputEventRing.MOUSE_PRESSED, 400, 300);
+				break;
+			case DRAG_END:
+				inputHandler.queueInputEvent(InputEventRing.MOUSE_RELEASED, 400, 300);
+				break;
+			default:
+				if (step > DRAG_START && step < DRAG_END)
+				{
+					// Out and back, so the drag ends where it started
+					int offset = step < (DRAG_START + DRAG_END) / 2 ? step - DRAG_START : DRAG_END - step;
+					inputHandler.queueInputEvent(InputEventRing.MOUSE_DRAGGED, 400 + offset * 3, 300 + offset);
+				}
+		}
+	}
+}
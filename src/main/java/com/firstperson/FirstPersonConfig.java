@@ -24,14 +24,19 @@
  */
 package com.firstperson;
 
+import java.awt.event.KeyEvent;
 import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
 import net.runelite.client.config.Keybind;
+import net.runelite.client.config.Range;
+import net.runelite.client.config.Units;
 
-@ConfigGroup("firstperson")
+@ConfigGroup(FirstPersonConfig.GROUP)
 public interface FirstPersonConfig extends Config
 {
+	String GROUP = "firstperson";
+
 	@ConfigItem(
 		keyName = "inverseKeys",
 		name = "Inverse keys for camera movement",
@@ -55,4 +60,99 @@ public interface FirstPersonConfig extends Config
 	{
 		return null;
 	}
+
+	@ConfigItem(
+		keyName = "rotateLeftKey",
+		name = "Rotate left key",
+		description = "Key held to turn the camera left"
+	)
+	default Keybind rotateLeftKey()
+	{
+		return new Keybind(KeyEvent.VK_LEFT, 0);
+	}
+
+	@ConfigItem(
+		keyName = "rotateRightKey",
+		name = "Rotate right key",
+		description = "Key held to turn the camera right"
+	)
+	default Keybind rotateRightKey()
+	{
+		return new Keybind(KeyEvent.VK_RIGHT, 0);
+	}
+
+	@ConfigItem(
+		keyName = "rotateUpKey",
+		name = "Rotate up key",
+		description = "Key held to tilt the camera up"
+	)
+	default Keybind rotateUpKey()
+	{
+		return new Keybind(KeyEvent.VK_UP, 0);
+	}
+
+	@ConfigItem(
+		keyName = "rotateDownKey",
+		name = "Rotate down key",
+		description = "Key held to tilt the camera down"
+	)
+	default Keybind rotateDownKey()
+	{
+		return new Keybind(KeyEvent.VK_DOWN, 0);
+	}
+
+	@ConfigItem(
+		keyName = "consumedKeys",
+		name = "Blocked keys",
+		description = "Comma separated keys kept from the game while in first person, such as SPACE, F1 or W"
+	)
+	default String consumedKeys()
+	{
+		return "E, R, F1, F, SPACE, PAGE_UP, PAGE_DOWN, ESCAPE, SHIFT, W, A, S, D";
+	}
+
+	@ConfigItem(
+		keyName = "firstPersonMenu",
+		name = "Menu for what you see",
+		description = "Offer the options for whatever is under the mouse in the first person view"
+	)
+	default boolean firstPersonMenu() { return true; }
+
+	@ConfigItem(
+		keyName = "cullOutOfView",
+		name = "Skip drawing out of view",
+		description = "Don't draw NPCs, players and spell effects behind or beside the first person camera"
+	)
+	default boolean cullOutOfView() { return true; }
+
+	@Range(max = 512)
+	@ConfigItem(
+		keyName = "nearCullRadius",
+		name = "Hide models closer than",
+		description = "NPCs and players this close to your eyes aren't drawn, in local units (128 per tile). Hides your own model unless 0."
+	)
+	default int nearCullRadius() { return 64; }
+
+	@Range(max = 240)
+	@Units(Units.FPS)
+	@ConfigItem(
+		keyName = "cameraUpdateRate",
+		name = "Camera update rate cap",
+		description = "Limits how many times a second the camera is recalculated, with frames in between interpolated. 0 updates every frame."
+	)
+	default int cameraUpdateRate() { return 0; }
+
+	@ConfigItem(
+		keyName = "showFrameTimings",
+		name = "Show camera timings",
+		description = "Show how long the camera takes each frame to apply input, place the focal point and update the client"
+	)
+	default boolean showFrameTimings() { return false; }
+
+	@ConfigItem(
+		keyName = "recordSession",
+		name = "Record camera session",
+		description = "Record camera input and state to .runelite/first-person/sessions, for replaying camera issues offline"
+	)
+	default boolean recordSession() { return false; }
 }
\ No newline at end of file
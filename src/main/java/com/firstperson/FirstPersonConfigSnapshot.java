@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson;
+
+import com.firstperson.input.Keymap;
+import lombok.Getter;
+import net.runelite.client.config.Keybind;
+
+/**
+ * Immutable copy of {@link FirstPersonConfig}. Each config call goes through the config manager's proxy, so the
+ * plugin rebuilds one of these when the config changes and the per-frame and per-key paths read its fields instead.
+ */
+public final class FirstPersonConfigSnapshot
+{
+	/**
+	 * The config's defaults, used until the plugin has read the real config
+	 */
+	public static final FirstPersonConfigSnapshot DEFAULTS = from(new FirstPersonConfig()
+	{
+	});
+
+	@Getter
+	private final boolean inverseKeys;
+
+	@Getter
+	private final double keyCameraSpeed;
+
+	@Getter
+	private final Keymap keymap;
+
+	@Getter
+	private final int cameraUpdateRate;
+
+	@Getter
+	private final boolean firstPersonMenu;
+
+	@Getter
+	private final boolean cullOutOfView;
+
+	@Getter
+	private final int nearCullRadius;
+
+	private FirstPersonConfigSnapshot(FirstPersonConfig config)
+	{
+		this.inverseKeys = config.inverseKeys();
+		this.keyCameraSpeed = config.keyCameraSpeed();
+		Keybind toggle = config.toggleKeybind();
+		this.keymap = Keymap.compile(config.rotateLeftKey(), config.rotateRightKey(), config.rotateUpKey(), config.rotateDownKey(),
+			toggle == null ? Keybind.NOT_SET : toggle, config.consumedKeys());
+		this.cameraUpdateRate = config.cameraUpdateRate();
+		this.firstPersonMenu = config.firstPersonMenu();
+		this.cullOutOfView = config.cullOutOfView();
+		this.nearCullRadius = config.nearCullRadius();
+	}
+
+	public static FirstPersonConfigSnapshot from(FirstPersonConfig config)
+	{
+		return new FirstPersonConfigSnapshot(config);
+	}
+}
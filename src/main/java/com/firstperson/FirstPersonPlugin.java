@@ -25,17 +25,56 @@
  */
 package com.firstperson;
 
+import com.firstperson.collision.CameraCollision;
+import com.firstperson.collision.DistanceFieldStore;
+import com.firstperson.culling.RenderableCuller;
 import com.firstperson.detachedcamera.DetachedCameraMovementHandler;
 import com.firstperson.input.InputHandler;
 import com.firstperson.input.ToggleInputHandler;
+import com.firstperson.picking.PickingEngine;
+import com.firstperson.picking.PickingMenu;
+import com.firstperson.projection.FirstPersonProjection;
+import com.firstperson.projection.FirstPersonView;
+import com.firstperson.session.SessionRecorder;
+import com.firstperson.timing.CameraToggleEvent;
+import com.firstperson.timing.FrameTimings;
+import com.firstperson.timing.FrameTimingsOverlay;
 import com.google.inject.Provides;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
 import javax.inject.Inject;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.Client;
+import net.runelite.api.GameState;
+import net.runelite.api.Player;
+import net.runelite.api.Point;
+import net.runelite.api.events.AnimationChanged;
+import net.runelite.api.events.DecorativeObjectDespawned;
+import net.runelite.api.events.DecorativeObjectSpawned;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.GameObjectDespawned;
+import net.runelite.api.events.GameObjectSpawned;
+import net.runelite.api.events.GameTick;
+import net.runelite.api.events.GroundObjectDespawned;
+import net.runelite.api.events.GroundObjectSpawned;
+import net.runelite.api.events.NpcDespawned;
+import net.runelite.api.events.NpcSpawned;
+import net.runelite.api.events.PlayerChanged;
+import net.runelite.api.events.PlayerDespawned;
+import net.runelite.api.events.PlayerSpawned;
+import net.runelite.api.events.PostMenuSort;
+import net.runelite.api.events.WallObjectDespawned;
+import net.runelite.api.events.WallObjectSpawned;
+import net.runelite.api.events.WorldEntityDespawned;
+import net.runelite.api.events.WorldEntitySpawned;
+import net.runelite.client.RuneLite;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.callback.Hooks;
 import net.runelite.client.config.ConfigManager;
+import net.runelite.client.eventbus.Subscribe;
+import net.runelite.client.events.ConfigChanged;
 import net.runelite.client.input.KeyManager;
 import net.runelite.client.input.MouseManager;
 import net.runelite.client.plugins.Plugin;
@@ -46,10 +85,16 @@ import net.runelite.client.ui.overlay.OverlayManager;
 @Slf4j
 @PluginDescriptor(
 	name = "First Person",
-	description = "Allows for a first-person experience without the ability to interact with anything"
+	description = "Allows for a first-person experience"
 )
 public class FirstPersonPlugin extends Plugin
 {
+	private static final File PLUGIN_DIR = new File(RuneLite.RUNELITE_DIR, "first-person");
+	private static final File SESSION_DIR = new File(PLUGIN_DIR, "sessions");
+	private static final File COLLISION_DIR = new File(PLUGIN_DIR, "collision");
+	// About five seconds of frames at 50 fps
+	private static final int TIMED_FRAMES = 256;
+
 	@Inject
 	private Client client;
 
@@ -68,6 +113,12 @@ public class FirstPersonPlugin extends Plugin
 	@Inject
 	private DrawManager drawManager;
 
+	@Inject
+	private ScheduledExecutorService executor;
+
+	@Inject
+	private FirstPersonProjection projection;
+
 	@Inject
 	KeyManager keyManager;
 
@@ -80,53 +131,371 @@ public class FirstPersonPlugin extends Plugin
 
 	DetachedCameraMovementHandler detachedCameraMovementHandler;
 
+	CameraPipeline cameraPipeline;
+
+	CameraScheduler cameraMovementHandler;
+
+	PickingEngine pickingEngine;
+
+	PickingMenu pickingMenu;
+
+	RenderableCuller renderableCuller;
+
+	private Thread warmUpThread;
+
 	@Getter
 	boolean active;
 
+	private GameState lastGameState = GameState.UNKNOWN;
+
+	// Set when objects that may block line of sight change after the scene loaded, the collision is rebuilt next tick
+	private boolean collisionChanged;
+
+	// Only touched on the client thread
+	private SessionRecorder sessionRecorder;
+
+	// Only touched on the client thread, null while the camera timings aren't shown
+	private FrameTimingsOverlay frameTimingsOverlay;
+
+	/**
+	 * Read by the camera and key handlers instead of calling the config directly
+	 */
+	@Getter
+	private volatile FirstPersonConfigSnapshot configSnapshot = FirstPersonConfigSnapshot.DEFAULTS;
+
 	@Override
 	protected void startUp() throws Exception
 	{
-		inputHandler = new InputHandler(client, this, config, System.currentTimeMillis());
+		long start = System.nanoTime();
+		configSnapshot = FirstPersonConfigSnapshot.from(config);
+		warmUpThread = CameraWarmUp.start(this);
+		inputHandler = new InputHandler(client, this, config, System.nanoTime());
 		toggleInputHandler = new ToggleInputHandler(this, config);
-		detachedCameraMovementHandler = new DetachedCameraMovementHandler(client, config, inputHandler);
+		CameraCollision cameraCollision = new CameraCollision(client, executor, new DistanceFieldStore(COLLISION_DIR));
+		detachedCameraMovementHandler = new DetachedCameraMovementHandler(client, config, inputHandler, cameraCollision);
+		cameraPipeline = new CameraPipeline(client, inputHandler, detachedCameraMovementHandler);
+		cameraPipeline.setProjection(projection);
+		cameraMovementHandler = new CameraScheduler(client, this, inputHandler, cameraPipeline);
+		pickingEngine = new PickingEngine(client, detachedCameraMovementHandler.getHeightfieldCache());
+		pickingMenu = new PickingMenu(client);
+		renderableCuller = new RenderableCuller(client, this, projection, detachedCameraMovementHandler.getHeightfieldCache());
 
 		activate();
 		keyManager.registerKeyListener(toggleInputHandler);
+		clientThread.invoke(() ->
+		{
+			if (client.getGameState() == GameState.LOGGED_IN)
+			{
+				cameraCollision.rebuild().thenRun(cameraMovementHandler::wake);
+				pickingEngine.rebuild();
+			}
+		});
+		clientThread.invoke(this::updateSessionRecording);
+		clientThread.invoke(this::updateFrameTimings);
+		log.debug("Started in {} ms", (System.nanoTime() - start) / 1_000_000);
 	}
 
 	@Override
 	protected void shutDown() throws Exception
 	{
+		warmUpThread.interrupt();
 		deactivate();
 		keyManager.unregisterKeyListener(toggleInputHandler);
+		clientThread.invoke(this::stopSessionRecording);
+		clientThread.invoke(this::hideFrameTimings);
 	}
 
 	public void activate()
 	{
+		CameraToggleEvent event = new CameraToggleEvent(true);
+		event.begin();
 		active = true;
 
 		keyManager.registerKeyListener(inputHandler);
 		mouseManager.registerMouseListener(inputHandler);
 
+		cameraPipeline.invalidate();
+		cameraMovementHandler.activated();
         drawManager.registerEveryFrameListener(cameraMovementHandler);
+		hooks.registerRenderableDrawListener(renderableCuller);
 		client.setCameraPitchRelaxerEnabled(true);
+		event.commit();
 	}
 
 	public void deactivate()
 	{
+		CameraToggleEvent event = new CameraToggleEvent(false);
+		event.begin();
 		active = false;
 		keyManager.unregisterKeyListener(inputHandler);
 		mouseManager.unregisterMouseListener(inputHandler);
 		client.setCameraMode(0);
         drawManager.unregisterEveryFrameListener(cameraMovementHandler);
+		hooks.unregisterRenderableDrawListener(renderableCuller);
+		projection.clear();
 		client.setCameraPitchRelaxerEnabled(false);
+		event.commit();
+	}
+
+	@Subscribe
+	public void onConfigChanged(ConfigChanged event)
+	{
+		if (!FirstPersonConfig.GROUP.equals(event.getGroup()))
+		{
+			return;
+		}
+
+		configSnapshot = FirstPersonConfigSnapshot.from(config);
+		cameraMovementHandler.wake();
+		clientThread.invoke(this::updateSessionRecording);
+		clientThread.invoke(this::updateFrameTimings);
+	}
+
+	@Subscribe
+	public void onGameStateChanged(GameStateChanged event)
+	{
+		GameState gameState = event.getGameState();
+		if (lastGameState == GameState.LOADING && gameState == GameState.LOGGED_IN)
+		{
+			detachedCameraMovementHandler.getHeightfieldCache().rebuild();
+			collisionChanged = false;
+			detachedCameraMovementHandler.getCameraCollision().rebuild().thenRun(cameraMovementHandler::wake);
+			pickingEngine.rebuild();
+			cameraMovementHandler.wake();
+			if (sessionRecorder != null)
+			{
+				sessionRecorder.recordScene(client.getTopLevelWorldView());
+			}
+		}
+		lastGameState = gameState;
+	}
+
+	@Subscribe
+	public void onGameTick(GameTick event)
+	{
+		long now = System.nanoTime();
+		if (collisionChanged)
+		{
+			collisionChanged = false;
+			detachedCameraMovementHandler.getCameraCollision().update().thenRun(cameraMovementHandler::wake);
+		}
+		if (detachedCameraMovementHandler.getWorldEntityTransforms().onGameTick(now))
+		{
+			cameraMovementHandler.wake();
+		}
+		if (sessionRecorder != null)
+		{
+			sessionRecorder.recordTick(now);
+		}
+	}
+
+	@Subscribe
+	public void onWorldEntitySpawned(WorldEntitySpawned event)
+	{
+		cameraMovementHandler.wake();
+	}
+
+	@Subscribe
+	public void onWorldEntityDespawned(WorldEntityDespawned event)
+	{
+		detachedCameraMovementHandler.getWorldEntityTransforms().invalidate();
+		cameraMovementHandler.wake();
+	}
+
+	@Subscribe
+	public void onWallObjectSpawned(WallObjectSpawned event)
+	{
+		collisionChanged = true;
+		pickingEngine.add(event.getWallObject());
+	}
+
+	@Subscribe
+	public void onWallObjectDespawned(WallObjectDespawned event)
+	{
+		collisionChanged = true;
+		pickingEngine.remove(event.getWallObject());
+	}
+
+	@Subscribe
+	public void onGameObjectSpawned(GameObjectSpawned event)
+	{
+		collisionChanged = true;
+		pickingEngine.add(event.getGameObject());
+	}
+
+	@Subscribe
+	public void onGameObjectDespawned(GameObjectDespawned event)
+	{
+		collisionChanged = true;
+		pickingEngine.remove(event.getGameObject());
+	}
+
+	@Subscribe
+	public void onDecorativeObjectSpawned(DecorativeObjectSpawned event)
+	{
+		pickingEngine.add(event.getDecorativeObject());
+	}
+
+	@Subscribe
+	public void onDecorativeObjectDespawned(DecorativeObjectDespawned event)
+	{
+		pickingEngine.remove(event.getDecorativeObject());
+	}
+
+	@Subscribe
+	public void onGroundObjectSpawned(GroundObjectSpawned event)
+	{
+		pickingEngine.add(event.getGroundObject());
+	}
+
+	@Subscribe
+	public void onGroundObjectDespawned(GroundObjectDespawned event)
+	{
+		pickingEngine.remove(event.getGroundObject());
+	}
+
+	@Subscribe
+	public void onNpcSpawned(NpcSpawned event)
+	{
+		pickingEngine.add(event.getNpc());
+	}
+
+	@Subscribe
+	public void onNpcDespawned(NpcDespawned event)
+	{
+		pickingEngine.remove(event.getNpc());
+	}
+
+	@Subscribe
+	public void onPlayerSpawned(PlayerSpawned event)
+	{
+		pickingEngine.add(event.getPlayer());
+	}
+
+	@Subscribe
+	public void onPlayerDespawned(PlayerDespawned event)
+	{
+		pickingEngine.remove(event.getPlayer());
 	}
 
-	private final Runnable cameraMovementHandler = () -> {
-		inputHandler.updateCameraPosition();
-        if (client.getCameraMode() != 1) client.setCameraMode(1);
-        detachedCameraMovementHandler.updateDetachedCameraPosition();
-	};
+	@Subscribe
+	public void onPlayerChanged(PlayerChanged event)
+	{
+		if (event.getPlayer() == client.getLocalPlayer())
+		{
+			detachedCameraMovementHandler.getEyeHeightCache().onAppearanceChanged(event.getPlayer());
+			cameraMovementHandler.wake();
+		}
+	}
+
+	@Subscribe
+	public void onAnimationChanged(AnimationChanged event)
+	{
+		Player localPlayer = client.getLocalPlayer();
+		if (event.getActor() == localPlayer)
+		{
+			detachedCameraMovementHandler.getEyeHeightCache().onAnimationChanged(localPlayer);
+			cameraMovementHandler.wake();
+		}
+	}
+
+	/**
+	 * The client can't pick anything from the detached camera, so offers the options for what is under the mouse in
+	 * the first person view instead. The menu is built again every frame, and sorted just before this.
+	 */
+	@Subscribe
+	public void onPostMenuSort(PostMenuSort event)
+	{
+		if (!active || !configSnapshot.isFirstPersonMenu() || client.isMenuOpen())
+		{
+			return;
+		}
+
+		Point mouse = client.getMouseCanvasPosition();
+		FirstPersonView view = projection.getView();
+		Object picked = mouse == null || view == null ? null : pickingEngine.pick(view, mouse.getX(), mouse.getY());
+		if (picked != null)
+		{
+			pickingMenu.addEntries(picked);
+		}
+	}
+
+	private void updateSessionRecording()
+	{
+		if (!config.recordSession())
+		{
+			stopSessionRecording();
+			return;
+		}
+
+		if (sessionRecorder == null)
+		{
+			try
+			{
+				sessionRecorder = SessionRecorder.create(client, SESSION_DIR);
+			}
+			catch (IOException e)
+			{
+				log.warn("Unable to start recording camera session", e);
+				return;
+			}
+			log.debug("Recording camera session to {}", sessionRecorder.getPath());
+			if (client.getTopLevelWorldView() != null)
+			{
+				sessionRecorder.recordScene(client.getTopLevelWorldView());
+			}
+			cameraPipeline.setSessionRecorder(sessionRecorder);
+		}
+		sessionRecorder.recordConfig(configSnapshot);
+	}
+
+	private void updateFrameTimings()
+	{
+		if (!config.showFrameTimings())
+		{
+			hideFrameTimings();
+			return;
+		}
+
+		if (frameTimingsOverlay == null)
+		{
+			FrameTimings frameTimings = new FrameTimings(TIMED_FRAMES);
+			frameTimingsOverlay = new FrameTimingsOverlay(frameTimings);
+			cameraPipeline.setFrameTimings(frameTimings);
+			overlayManager.add(frameTimingsOverlay);
+		}
+	}
+
+	private void hideFrameTimings()
+	{
+		if (frameTimingsOverlay == null)
+		{
+			return;
+		}
+
+		cameraPipeline.setFrameTimings(null);
+		overlayManager.remove(frameTimingsOverlay);
+		frameTimingsOverlay = null;
+	}
+
+	private void stopSessionRecording()
+	{
+		if (sessionRecorder == null)
+		{
+			return;
+		}
+
+		cameraPipeline.setSessionRecorder(null);
+		try
+		{
+			sessionRecorder.close();
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to finish camera session {}", sessionRecorder.getPath(), e);
+		}
+		sessionRecorder = null;
+	}
 
 	@Provides
 	FirstPersonConfig provideConfig(ConfigManager configManager)
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.collision;
+
+import com.firstperson.detachedcamera.CameraPose;
+import com.firstperson.projection.FirstPersonView;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.api.CollisionData;
+import net.runelite.api.Constants;
+import net.runelite.api.WorldView;
+
+/**
+ * Keeps the camera on the player's side of walls and other geometry that blocks line of sight.
+ * <p>
+ * When a scene loads, its collision flags are copied on the client thread and turned into a {@link DistanceField} on
+ * the executor, or mapped from the {@link DistanceFieldStore} if the same scene was seen before. Later changes, such
+ * as doors opening, are built in memory only. A built field goes into use at the start of the next frame's
+ * {@link #clip}, and until the first one does the camera isn't clipped.
+ * <p>
+ * Each frame sphere traces from the player towards the camera's near plane through the field, a read per step, and
+ * moves the camera back by however far the near plane would reach past wherever the trace meets geometry.
+ */
+@Slf4j
+public class CameraCollision
+{
+	/**
+	 * Sees the collision flags of every field as it goes into use, and null flags when clipping stops. Used to record
+	 * sessions.
+	 */
+	public interface Listener
+	{
+		void onCollision(int[][][] flags, int sizeX, int sizeY);
+	}
+
+	private static final int MAX_STEPS = 32;
+	private static final int MIN_STEP = DistanceField.CELL_SIZE / 4;
+	// How close the trace gets to geometry before it counts as a hit
+	private static final int SURFACE_DISTANCE = DistanceField.CELL_SIZE / 2;
+
+	private final Client client;
+	private final Executor executor;
+	// Null keeps fields in memory only
+	private final DistanceFieldStore store;
+
+	// Bumped whenever the scene changes, so a build that finishes after a newer one started is dropped
+	private final AtomicInteger generation = new AtomicInteger();
+	// Built on the executor, waiting for the draw thread to take it into use
+	private final AtomicReference<Built> pending = new AtomicReference<>();
+	// Hash of the flags the newest field was built from, only touched on the executor
+	private long builtHash;
+
+	/*
+	 * Only touched on the client thread
+	 */
+	private Built current;
+	private Listener listener;
+
+	public CameraCollision(Client client, Executor executor, DistanceFieldStore store)
+	{
+		this.client = client;
+		this.executor = executor;
+		this.store = store;
+	}
+
+	/**
+	 * Stops clipping until a new field is ready, then starts building one for the current scene. Must be called on the
+	 * client thread once the scene has loaded.
+	 *
+	 * @return completes once the new field is waiting to go into use
+	 */
+	public CompletableFuture<Void> rebuild()
+	{
+		clear();
+		return build(true);
+	}
+
+	/**
+	 * Rebuilds the field in memory if the scene's collision flags changed since it was built, keeping the current field
+	 * until the new one is ready. Must be called on the client thread.
+	 *
+	 * @return completes once the field is up to date
+	 */
+	public CompletableFuture<Void> update()
+	{
+		return build(false);
+	}
+
+	/**
+	 * Stops clipping. Must be called on the client thread.
+	 */
+	public void clear()
+	{
+		generation.incrementAndGet();
+		pending.set(null);
+		if (current != null)
+		{
+			current = null;
+			if (listener != null)
+			{
+				listener.onCollision(null, 0, 0);
+			}
+		}
+	}
+
+	/**
+	 * Builds a field from recorded flags on the calling thread, in use from the next frame. Used to replay sessions.
+	 */
+	public void load(int[][][] flags, int sizeX, int sizeY)
+	{
+		generation.incrementAndGet();
+		pending.set(new Built(buildInMemory(flags, sizeX, sizeY), flags, sizeX, sizeY));
+	}
+
+	/**
+	 * Sets the listener and tells it about the field in use now, if any. Must be called on the client thread.
+	 */
+	public void setListener(Listener listener)
+	{
+		this.listener = listener;
+		if (listener != null && current != null)
+		{
+			listener.onCollision(current.flags, current.sizeX, current.sizeY);
+		}
+	}
+
+	/**
+	 * @return whether a field is in use or waiting to be
+	 */
+	public boolean isReady()
+	{
+		return current != null || pending.get() != null;
+	}
+
+	/**
+	 * Moves the camera back from geometry its near plane would cut into. The client puts the camera the focal table's
+	 * orbit offset behind the focal point, which is the eye, so the eye and the focal point move back together and the
+	 * offset is left as the table made it.
+	 */
+	public void clip(CameraPose pose)
+	{
+		Built ready = pending.getAndSet(null);
+		if (ready != null)
+		{
+			current = ready;
+			if (listener != null)
+			{
+				listener.onCollision(ready.flags, ready.sizeX, ready.sizeY);
+			}
+		}
+		if (current == null)
+		{
+			return;
+		}
+
+		double offsetX = pose.focalX - pose.eyeX;
+		double offsetY = pose.focalY - pose.eyeY;
+		double offsetZ = pose.focalZ - pose.eyeZ;
+		double offsetLength = Math.sqrt(offsetX * offsetX + offsetY * offsetY + offsetZ * offsetZ);
+		if (offsetLength == 0)
+		{
+			return;
+		}
+
+		// Trace from where the player stands to the middle of the near plane, so a filtered eye that has run ahead of
+		// the player is caught as well
+		double nearX = pose.eyeX + offsetX / offsetLength * FirstPersonView.NEAR;
+		double nearZ = pose.eyeZ + offsetZ / offsetLength * FirstPersonView.NEAR;
+		double dx = nearX - pose.rawEyeX;
+		double dz = nearZ - pose.rawEyeZ;
+		double length = Math.sqrt(dx * dx + dz * dz);
+		if (length < MIN_STEP)
+		{
+			return;
+		}
+
+		DistanceField field = current.field;
+		int plane = pose.plane;
+		double directionX = dx / length;
+		double directionZ = dz / length;
+		// Clipped into something already, nothing sensible to stop at
+		int startDistance = field.distance(plane, (int) pose.rawEyeX, (int) pose.rawEyeZ);
+		if (startDistance < 0)
+		{
+			return;
+		}
+		// Right beside a wall the player is already closer than the usual margin, so only stop on getting closer still
+		int surfaceDistance = Math.min(SURFACE_DISTANCE, startDistance - DistanceField.DISTANCE_UNIT);
+
+		double travelled = 0;
+		for (int step = 0; step < MAX_STEPS; step++)
+		{
+			int distance = field.distance(plane, (int) (pose.rawEyeX + directionX * travelled), (int) (pose.rawEyeZ + directionZ * travelled));
+			if (distance <= surfaceDistance)
+			{
+				double back = length - travelled;
+				pose.eyeX -= directionX * back;
+				pose.eyeZ -= directionZ * back;
+				pose.focalX -= directionX * back;
+				pose.focalZ -= directionZ * back;
+				return;
+			}
+
+			travelled += Math.max(distance - surfaceDistance, MIN_STEP);
+			if (travelled >= length)
+			{
+				return;
+			}
+		}
+	}
+
+	private CompletableFuture<Void> build(boolean sceneLoaded)
+	{
+		int buildGeneration = generation.get();
+		WorldView topLevel = client.getTopLevelWorldView();
+		CollisionData[] collisionMaps = topLevel == null ? null : topLevel.getCollisionMaps();
+		if (collisionMaps == null)
+		{
+			return CompletableFuture.completedFuture(null);
+		}
+
+		int sizeX = topLevel.getSizeX();
+		int sizeY = topLevel.getSizeY();
+		int regionId = (topLevel.getBaseX() >> 6) << 8 | topLevel.getBaseY() >> 6;
+		int[][][] flags = new int[Constants.MAX_Z][][];
+		for (int plane = 0; plane < flags.length && plane < collisionMaps.length; plane++)
+		{
+			if (collisionMaps[plane] != null)
+			{
+				int[][] planeFlags = collisionMaps[plane].getFlags();
+				flags[plane] = new int[planeFlags.length][];
+				for (int x = 0; x < planeFlags.length; x++)
+				{
+					flags[plane][x] = planeFlags[x].clone();
+				}
+			}
+		}
+
+		return CompletableFuture.runAsync(() ->
+		{
+			long hash = DistanceFieldStore.hash(flags, sizeX, sizeY);
+			if (!sceneLoaded && hash == builtHash)
+			{
+				return;
+			}
+
+			DistanceField field = sceneLoaded && store != null
+				? buildCached(regionId, hash, flags, sizeX, sizeY)
+				: buildInMemory(flags, sizeX, sizeY);
+			if (generation.get() == buildGeneration)
+			{
+				builtHash = hash;
+				pending.set(new Built(field, flags, sizeX, sizeY));
+			}
+		}, executor);
+	}
+
+	private DistanceField buildCached(int regionId, long hash, int[][][] flags, int sizeX, int sizeY)
+	{
+		long start = System.nanoTime();
+		try
+		{
+			DistanceField stored = store.load(regionId, hash, sizeX, sizeY);
+			if (stored != null)
+			{
+				log.debug("Mapped collision field for region {} in {} us", regionId, (System.nanoTime() - start) / 1000);
+				return stored;
+			}
+
+			DistanceField built = store.build(regionId, hash, flags, sizeX, sizeY);
+			log.debug("Built collision field for region {} in {} us", regionId, (System.nanoTime() - start) / 1000);
+			return built;
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to cache the collision field for region {}", regionId, e);
+			return buildInMemory(flags, sizeX, sizeY);
+		}
+	}
+
+	private static DistanceField buildInMemory(int[][][] flags, int sizeX, int sizeY)
+	{
+		return DistanceField.build(flags, sizeX, sizeY, ByteBuffer.allocate(DistanceField.bytes(sizeX, sizeY)));
+	}
+
+	private static final class Built
+	{
+		private final DistanceField field;
+		private final int[][][] flags;
+		private final int sizeX;
+		private final int sizeY;
+
+		Built(DistanceField field, int[][][] flags, int sizeX, int sizeY)
+		{
+			this.field = field;
+			this.flags = flags;
+			this.sizeX = sizeX;
+			this.sizeY = sizeY;
+		}
+	}
+}
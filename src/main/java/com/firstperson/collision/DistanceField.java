@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.collision;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import net.runelite.api.CollisionDataFlag;
+import net.runelite.api.Constants;
+import net.runelite.api.Perspective;
+
+/**
+ * Signed distance from every point of the top level scene to the nearest geometry that blocks line of sight, one
+ * field per plane.
+ * <p>
+ * Each tile is split into {@value #CELLS_PER_TILE}x{@value #CELLS_PER_TILE} cells so walls, which sit on tile edges,
+ * only fill the edge cells of their tile. A cell holds one signed byte in steps of {@value #DISTANCE_UNIT} local units,
+ * positive in the open and negative inside geometry, clamped to {@link #MAX_DISTANCE}. Sampling is a single read.
+ * <p>
+ * The cells live in a {@link ByteBuffer} so the field can be memory mapped from the disk cache. A field is immutable
+ * once built and safe to share between threads.
+ */
+public final class DistanceField
+{
+	public static final int CELLS_PER_TILE = 4;
+	public static final int CELL_SHIFT = Perspective.LOCAL_COORD_BITS - 2;
+	public static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+	public static final int DISTANCE_UNIT = 8;
+	public static final int MAX_DISTANCE = Byte.MAX_VALUE * DISTANCE_UNIT;
+
+	private static final int WALL_NORTH = CollisionDataFlag.BLOCK_LINE_OF_SIGHT_NORTH;
+	private static final int WALL_EAST = CollisionDataFlag.BLOCK_LINE_OF_SIGHT_EAST;
+	private static final int WALL_SOUTH = CollisionDataFlag.BLOCK_LINE_OF_SIGHT_SOUTH;
+	private static final int WALL_WEST = CollisionDataFlag.BLOCK_LINE_OF_SIGHT_WEST;
+	private static final int SOLID = CollisionDataFlag.BLOCK_LINE_OF_SIGHT_FULL;
+
+	private static final float FAR = Float.MAX_VALUE / 4;
+
+	private final ByteBuffer cells;
+	private final int cellsX;
+	private final int cellsY;
+
+	private DistanceField(ByteBuffer cells, int cellsX, int cellsY)
+	{
+		this.cells = cells;
+		this.cellsX = cellsX;
+		this.cellsY = cellsY;
+	}
+
+	/**
+	 * @return how many bytes a field over a scene of this many tiles takes
+	 */
+	public static int bytes(int sizeX, int sizeY)
+	{
+		return Constants.MAX_Z * sizeX * CELLS_PER_TILE * sizeY * CELLS_PER_TILE;
+	}
+
+	/**
+	 * Wraps cells written by an earlier {@link #build}.
+	 */
+	static DistanceField wrap(ByteBuffer cells, int sizeX, int sizeY)
+	{
+		return new DistanceField(cells, sizeX * CELLS_PER_TILE, sizeY * CELLS_PER_TILE);
+	}
+
+	/**
+	 * Computes the field from the scene's collision flags into {@code cells}, which must hold {@link #bytes} bytes from
+	 * its position.
+	 *
+	 * @param flags collision flags per plane, indexed [plane][tileX][tileY], null for a plane without any
+	 */
+	public static DistanceField build(int[][][] flags, int sizeX, int sizeY, ByteBuffer cells)
+	{
+		ByteBuffer slice = cells.slice();
+		int cellsX = sizeX * CELLS_PER_TILE;
+		int cellsY = sizeY * CELLS_PER_TILE;
+		int planeCells = cellsX * cellsY;
+
+		boolean[] solid = new boolean[planeCells];
+		float[] outside = new float[planeCells];
+		float[] inside = new float[planeCells];
+		Transform transform = new Transform(Math.max(cellsX, cellsY));
+
+		for (int plane = 0; plane < Constants.MAX_Z; plane++)
+		{
+			rasterize(plane < flags.length ? flags[plane] : null, sizeX, sizeY, cellsY, solid);
+			for (int i = 0; i < planeCells; i++)
+			{
+				outside[i] = solid[i] ? 0 : FAR;
+				inside[i] = solid[i] ? FAR : 0;
+			}
+			transform.apply(outside, cellsX, cellsY);
+			transform.apply(inside, cellsX, cellsY);
+
+			int offset = plane * planeCells;
+			for (int i = 0; i < planeCells; i++)
+			{
+				// Cell centres are half a cell from the boundary between open and blocked cells
+				double distance = solid[i]
+					? -(Math.sqrt(inside[i]) * CELL_SIZE - CELL_SIZE / 2.0)
+					: Math.sqrt(outside[i]) * CELL_SIZE - CELL_SIZE / 2.0;
+				double steps = Math.max(-Byte.MAX_VALUE, Math.min(distance / DISTANCE_UNIT, Byte.MAX_VALUE));
+				slice.put(offset + i, (byte) Math.round(steps));
+			}
+		}
+		return new DistanceField(slice, cellsX, cellsY);
+	}
+
+	/**
+	 * @return how far a top level local point is from the nearest blocking geometry on the plane, negative inside it
+	 * and {@link #MAX_DISTANCE} outside the scene
+	 */
+	public int distance(int plane, int localX, int localY)
+	{
+		int cellX = localX >> CELL_SHIFT;
+		int cellY = localY >> CELL_SHIFT;
+		if (cellX < 0 || cellY < 0 || cellX >= cellsX || cellY >= cellsY || plane < 0 || plane >= Constants.MAX_Z)
+		{
+			return MAX_DISTANCE;
+		}
+		return cells.get((plane * cellsX + cellX) * cellsY + cellY) * DISTANCE_UNIT;
+	}
+
+	/**
+	 * Marks the cells covered by blocking tiles and walls.
+	 */
+	private static void rasterize(int[][] flags, int sizeX, int sizeY, int cellsY, boolean[] solid)
+	{
+		Arrays.fill(solid, false);
+		if (flags == null)
+		{
+			return;
+		}
+
+		int last = CELLS_PER_TILE - 1;
+		for (int tileX = 0; tileX < sizeX && tileX < flags.length; tileX++)
+		{
+			for (int tileY = 0; tileY < sizeY && tileY < flags[tileX].length; tileY++)
+			{
+				int flag = flags[tileX][tileY];
+				if ((flag & (SOLID | WALL_NORTH | WALL_EAST | WALL_SOUTH | WALL_WEST)) == 0)
+				{
+					continue;
+				}
+
+				int cellX = tileX * CELLS_PER_TILE;
+				int cellY = tileY * CELLS_PER_TILE;
+				for (int dx = 0; dx < CELLS_PER_TILE; dx++)
+				{
+					for (int dy = 0; dy < CELLS_PER_TILE; dy++)
+					{
+						if ((flag & SOLID) != 0
+							|| dy == last && (flag & WALL_NORTH) != 0
+							|| dx == last && (flag & WALL_EAST) != 0
+							|| dy == 0 && (flag & WALL_SOUTH) != 0
+							|| dx == 0 && (flag & WALL_WEST) != 0)
+						{
+							solid[(cellX + dx) * cellsY + cellY + dy] = true;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Exact squared euclidean distance transform, one pass along each axis using the lower envelope of parabolas
+	 * (Felzenszwalb and Huttenlocher). Cells start at 0 where the distance is measured to and {@link #FAR} elsewhere.
+	 */
+	private static final class Transform
+	{
+		private final float[] line;
+		private final float[] result;
+		private final int[] vertices;
+		private final float[] bounds;
+
+		Transform(int length)
+		{
+			line = new float[length];
+			result = new float[length];
+			vertices = new int[length];
+			bounds = new float[length + 1];
+		}
+
+		void apply(float[] grid, int cellsX, int cellsY)
+		{
+			// Along y, each x is a contiguous run
+			for (int x = 0; x < cellsX; x++)
+			{
+				int start = x * cellsY;
+				System.arraycopy(grid, start, line, 0, cellsY);
+				transform(cellsY);
+				System.arraycopy(result, 0, grid, start, cellsY);
+			}
+
+			// Along x, strided
+			for (int y = 0; y < cellsY; y++)
+			{
+				for (int x = 0; x < cellsX; x++)
+				{
+					line[x] = grid[x * cellsY + y];
+				}
+				transform(cellsX);
+				for (int x = 0; x < cellsX; x++)
+				{
+					grid[x * cellsY + y] = result[x];
+				}
+			}
+		}
+
+		private void transform(int length)
+		{
+			int k = 0;
+			vertices[0] = 0;
+			bounds[0] = -Float.MAX_VALUE;
+			bounds[1] = Float.MAX_VALUE;
+			for (int q = 1; q < length; q++)
+			{
+				float s = intersection(q, vertices[k]);
+				while (s <= bounds[k])
+				{
+					k--;
+					s = intersection(q, vertices[k]);
+				}
+				k++;
+				vertices[k] = q;
+				bounds[k] = s;
+				bounds[k + 1] = Float.MAX_VALUE;
+			}
+
+			k = 0;
+			for (int q = 0; q < length; q++)
+			{
+				while (bounds[k + 1] < q)
+				{
+					k++;
+				}
+				int v = vertices[k];
+				result[q] = (q - v) * (q - v) + line[v];
+			}
+		}
+
+		private float intersection(int q, int v)
+		{
+			return ((line[q] + q * q) - (line[v] + v * v)) / (2f * (q - v));
+		}
+	}
+}
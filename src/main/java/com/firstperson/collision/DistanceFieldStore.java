@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.collision;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps built {@link DistanceField}s on disk, one file per region and set of collision flags, so a scene that has been
+ * loaded before maps its field instead of computing it again.
+ * <p>
+ * Files are memory mapped, both when written and when read back, so a field is never copied onto the heap. Each file
+ * is written under a temporary name and only moved into place once complete, and a file is never written again once
+ * it could be mapped. Only the most recently used {@value #MAX_FILES} files are kept, and temporary files left by a
+ * build that failed or was killed are removed once they are stale.
+ */
+@Slf4j
+public class DistanceFieldStore
+{
+	static final int MAGIC = 0x46505344; // "FPSD"
+	static final int VERSION = 1;
+	static final String EXTENSION = ".fpsd";
+	static final String TEMPORARY_EXTENSION = ".tmp";
+	static final int MAX_FILES = 32;
+	// Older than any build takes, so a temporary file this old was left by a failed or killed one
+	static final long STALE_TEMPORARY_MILLIS = 60_000;
+
+	private static final int HEADER_BYTES = 4 + 4 + 4 + 4 + 8;
+
+	private final Path directory;
+
+	public DistanceFieldStore(File directory)
+	{
+		this.directory = directory.toPath();
+	}
+
+	/**
+	 * @return the field stored for the region if one was built from flags with this hash, otherwise null
+	 */
+	public DistanceField load(int regionId, long flagsHash, int sizeX, int sizeY) throws IOException
+	{
+		Path path = path(regionId, flagsHash);
+		if (!Files.exists(path))
+		{
+			return null;
+		}
+
+		long size = HEADER_BYTES + DistanceField.bytes(sizeX, sizeY);
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			if (channel.size() != size)
+			{
+				return null;
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != sizeX
+			|| buffer.getInt(12) != sizeY || buffer.getLong(16) != flagsHash)
+		{
+			return null;
+		}
+
+		// Keeps it at the front when pruning
+		Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+		buffer.position(HEADER_BYTES);
+		return DistanceField.wrap(buffer.slice(), sizeX, sizeY);
+	}
+
+	/**
+	 * Builds the field into a new file for the region.
+	 */
+	public DistanceField build(int regionId, long flagsHash, int[][][] flags, int sizeX, int sizeY) throws IOException
+	{
+		Files.createDirectories(directory);
+		Path temporary = Files.createTempFile(directory, regionId + "-", TEMPORARY_EXTENSION);
+		long size = HEADER_BYTES + DistanceField.bytes(sizeX, sizeY);
+
+		DistanceField field;
+		try
+		{
+			MappedByteBuffer buffer;
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE))
+			{
+				buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			}
+
+			buffer.putInt(0, MAGIC);
+			buffer.putInt(4, VERSION);
+			buffer.putInt(8, sizeX);
+			buffer.putInt(12, sizeY);
+			buffer.position(HEADER_BYTES);
+			field = DistanceField.build(flags, sizeX, sizeY, buffer);
+			// Stores to a mapping can reach the disk in any order, so the field is forced out before the hash that
+			// makes the file match is written, and the hash before the file is moved into place
+			buffer.force();
+			buffer.putLong(16, flagsHash);
+			buffer.force();
+
+			Files.move(temporary, path(regionId, flagsHash), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e)
+		{
+			Files.deleteIfExists(temporary);
+			throw e;
+		}
+
+		prune();
+		return field;
+	}
+
+	/**
+	 * @return a hash of the collision flags a field is built from, to tell whether a stored field is still current
+	 */
+	public static long hash(int[][][] flags, int sizeX, int sizeY)
+	{
+		// 64 bit FNV-1a over every flag
+		long hash = 0xcbf29ce484222325L;
+		hash = (hash ^ sizeX) * 0x100000001b3L;
+		hash = (hash ^ sizeY) * 0x100000001b3L;
+		for (int[][] plane : flags)
+		{
+			if (plane == null)
+			{
+				hash = (hash ^ -1) * 0x100000001b3L;
+				continue;
+			}
+			for (int[] column : plane)
+			{
+				for (int flag : column)
+				{
+					hash = (hash ^ flag) * 0x100000001b3L;
+				}
+			}
+		}
+		return hash;
+	}
+
+	private Path path(int regionId, long flagsHash)
+	{
+		return directory.resolve(regionId + "-" + Long.toHexString(flagsHash) + EXTENSION);
+	}
+
+	private void prune()
+	{
+		long staleBefore = System.currentTimeMillis() - STALE_TEMPORARY_MILLIS;
+		List<Path> temporaries = list("*" + TEMPORARY_EXTENSION);
+		temporaries.removeIf(file -> file.toFile().lastModified() >= staleBefore);
+		delete(temporaries);
+
+		List<Path> files = list("*" + EXTENSION);
+		if (files.size() <= MAX_FILES)
+		{
+			return;
+		}
+
+		files.sort((a, b) -> Long.compare(b.toFile().lastModified(), a.toFile().lastModified()));
+		delete(files.subList(MAX_FILES, files.size()));
+	}
+
+	private List<Path> list(String glob)
+	{
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob))
+		{
+			stream.forEach(files::add);
+		}
+		catch (IOException e)
+		{
+			log.debug("Unable to list {}", directory, e);
+		}
+		return files;
+	}
+
+	private static void delete(List<Path> files)
+	{
+		for (Path file : files)
+		{
+			try
+			{
+				Files.deleteIfExists(file);
+			}
+			catch (IOException e)
+			{
+				// Still mapped on some platforms, it goes next time
+				log.debug("Unable to remove {}", file, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.culling;
+
+import com.firstperson.FirstPersonConfigSnapshot;
+import com.firstperson.FirstPersonPlugin;
+import com.firstperson.detachedcamera.HeightfieldCache;
+import com.firstperson.projection.FirstPersonProjection;
+import com.firstperson.projection.FirstPersonView;
+import net.runelite.api.Actor;
+import net.runelite.api.Client;
+import net.runelite.api.GraphicsObject;
+import net.runelite.api.NPC;
+import net.runelite.api.NPCComposition;
+import net.runelite.api.Perspective;
+import net.runelite.api.Projectile;
+import net.runelite.api.Renderable;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.LocalPoint;
+import net.runelite.client.callback.Hooks;
+
+/**
+ * Stops the client drawing actors, projectiles and graphics objects the first person camera can't see.
+ * <p>
+ * Each is tested as a sphere against the {@link ViewFrustum} of the view the frame is drawn with. The spheres are
+ * generous, since animations reach past an actor's tile and its logical height. Actors closer to the eye than the
+ * near radius aren't drawn either. Any near radius takes in the local player, whose model the camera sits inside.
+ * Actors on world entities and any other renderables are always drawn.
+ * <p>
+ * Called by the client for every renderable it is about to draw, on the client thread.
+ */
+public class RenderableCuller implements Hooks.RenderableDrawListener
+{
+	// How far animations may reach outside an actor's tile and height
+	private static final int ANIMATION_REACH = Perspective.LOCAL_TILE_SIZE;
+	// Spell effects aren't sized, this covers the large ones
+	private static final int EFFECT_RADIUS = 2 * Perspective.LOCAL_TILE_SIZE;
+
+	private final Client client;
+	private final FirstPersonPlugin firstPersonPlugin;
+	private final FirstPersonProjection projection;
+	private final HeightfieldCache heightfieldCache;
+	private final ViewFrustum frustum = new ViewFrustum();
+
+	public RenderableCuller(Client client, FirstPersonPlugin firstPersonPlugin, FirstPersonProjection projection,
+		HeightfieldCache heightfieldCache)
+	{
+		this.client = client;
+		this.firstPersonPlugin = firstPersonPlugin;
+		this.projection = projection;
+		this.heightfieldCache = heightfieldCache;
+	}
+
+	@Override
+	public boolean draw(Renderable renderable, boolean drawingUi)
+	{
+		FirstPersonView view = projection.getView();
+		if (drawingUi || view == null)
+		{
+			return true;
+		}
+
+		FirstPersonConfigSnapshot settings = firstPersonPlugin.getConfigSnapshot();
+		boolean cullOutOfView = settings.isCullOutOfView();
+		if (cullOutOfView)
+		{
+			frustum.set(view);
+		}
+
+		if (renderable instanceof Actor)
+		{
+			return drawActor((Actor) renderable, view, settings.getNearCullRadius(), cullOutOfView);
+		}
+		if (!cullOutOfView)
+		{
+			return true;
+		}
+		if (renderable instanceof Projectile)
+		{
+			Projectile projectile = (Projectile) renderable;
+			return frustum.intersectsSphere(projectile.getX(), projectile.getY(), projectile.getZ(), EFFECT_RADIUS);
+		}
+		if (renderable instanceof GraphicsObject)
+		{
+			GraphicsObject graphicsObject = (GraphicsObject) renderable;
+			LocalPoint location = graphicsObject.getLocation();
+			return location == null || location.getWorldView() != WorldView.TOPLEVEL
+				|| frustum.intersectsSphere(location.getX(), location.getY(), graphicsObject.getZ(), EFFECT_RADIUS);
+		}
+		return true;
+	}
+
+	private boolean drawActor(Actor actor, FirstPersonView view, int nearRadius, boolean cullOutOfView)
+	{
+		LocalPoint location = actor.getLocalLocation();
+		if (location == null || location.getWorldView() != WorldView.TOPLEVEL)
+		{
+			return true;
+		}
+
+		int x = location.getX();
+		int y = location.getY();
+		if (nearRadius > 0)
+		{
+			double dx = x - view.getEyeX();
+			double dy = y - view.getEyeZ();
+			if (dx * dx + dy * dy < (double) nearRadius * nearRadius)
+			{
+				return false;
+			}
+		}
+		if (!cullOutOfView)
+		{
+			return true;
+		}
+
+		int size = 1;
+		if (actor instanceof NPC)
+		{
+			NPCComposition composition = ((NPC) actor).getTransformedComposition();
+			size = composition == null ? 1 : composition.getSize();
+		}
+		double halfHeight = (actor.getLogicalHeight() + ANIMATION_REACH) / 2.0;
+		// Corner of the footprint, plus the reach
+		double halfWidth = size * Perspective.LOCAL_HALF_TILE_SIZE * Math.sqrt(2) + ANIMATION_REACH;
+		double radius = Math.sqrt(halfWidth * halfWidth + halfHeight * halfHeight);
+
+		int ground = heightfieldCache.getHeight(client.getTopLevelWorldView(), x, y);
+		return frustum.intersectsSphere(x, y, ground - halfHeight, radius);
+	}
+}
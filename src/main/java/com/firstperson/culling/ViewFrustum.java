@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.culling;
+
+import com.firstperson.projection.FirstPersonView;
+
+/**
+ * The volume a {@link FirstPersonView} can see: in front of the eye and inside the four planes through the eye and
+ * the edges of the viewport.
+ * <p>
+ * The planes are worked out into plain fields when the view changes, so testing a sphere against them is a handful
+ * of multiplies. The viewport is centred on the view axis, so each pair of opposite planes is tested at once
+ * against the sphere's distance either side of the axis.
+ */
+public final class ViewFrustum
+{
+	private FirstPersonView view;
+
+	private double eyeX;
+	private double eyeY;
+	private double eyeZ;
+
+	private double forwardX;
+	private double forwardY;
+	private double forwardZ;
+	private double rightX;
+	private double rightZ;
+	private double downX;
+	private double downY;
+	private double downZ;
+
+	/*
+	 * Unit normals of the left and right planes in camera space, (±sideAcross, 0, -sideDepth), and of the top and
+	 * bottom planes, (0, ±edgeAcross, -edgeDepth)
+	 */
+	private double sideAcross;
+	private double sideDepth;
+	private double edgeAcross;
+	private double edgeDepth;
+
+	/**
+	 * Sets the planes from the view, unless they were already set from it.
+	 */
+	public void set(FirstPersonView view)
+	{
+		if (view == this.view)
+		{
+			return;
+		}
+		this.view = view;
+
+		eyeX = view.getEyeX();
+		eyeY = view.getEyeY();
+		eyeZ = view.getEyeZ();
+		forwardX = view.getForwardX();
+		forwardY = view.getForwardY();
+		forwardZ = view.getForwardZ();
+		rightX = view.getRightX();
+		rightZ = view.getRightZ();
+		downX = view.getDownX();
+		downY = view.getDownY();
+		downZ = view.getDownZ();
+
+		// The right edge is where a point half the viewport's width from the centre projects
+		double halfWidth = view.getViewportWidth() / 2.0;
+		double halfHeight = view.getViewportHeight() / 2.0;
+		double scale = view.getScale();
+		double sideLength = Math.sqrt(scale * scale + halfWidth * halfWidth);
+		sideAcross = scale / sideLength;
+		sideDepth = halfWidth / sideLength;
+		double edgeLength = Math.sqrt(scale * scale + halfHeight * halfHeight);
+		edgeAcross = scale / edgeLength;
+		edgeDepth = halfHeight / edgeLength;
+	}
+
+	/**
+	 * @param height height of the centre, negative upwards
+	 * @return whether any of a sphere around a local point could be in view
+	 */
+	public boolean intersectsSphere(double localX, double localY, double height, double radius)
+	{
+		double x = localX - eyeX;
+		double y = height - eyeY;
+		double z = localY - eyeZ;
+
+		double depth = forwardX * x + forwardY * y + forwardZ * z;
+		if (depth < -radius)
+		{
+			return false;
+		}
+
+		double across = Math.abs(rightX * x + rightZ * z);
+		if (sideAcross * across - sideDepth * depth > radius)
+		{
+			return false;
+		}
+
+		double down = Math.abs(downX * x + downY * y + downZ * z);
+		return edgeAcross * down - edgeDepth * depth <= radius;
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2026, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.detachedcamera;
+
+import net.runelite.api.Player;
+
+/**
+ * Mutable camera state for a single frame. One instance is owned by the plugin and reused every frame, so the
+ * per-frame camera path can pass state between the input and detached camera handlers without allocating.
+ */
+public class CameraPose
+{
+	/*
+	 * Client camera state, read once at the start of the frame by CameraWriteBack
+	 */
+	public Player localPlayer;
+	// System.nanoTime() at the start of the frame
+	public long frameNanos;
+	public int cameraMode;
+	public int clientYawTarget;
+	public int clientPitchTarget;
+	// The angles the client's camera has eased to so far
+	public int clientYaw;
+	public int clientPitch;
+	public int gameCycle;
+	// Camera zoom for the viewport mode the client is in
+	public int zoom;
+
+	/**
+	 * Yaw target after input has been applied, 0-16383
+	 */
+	public int yawTarget;
+
+	/**
+	 * Pitch target after input has been applied, 0-{@link PreCalculatedTransformations#MAX_PITCH}
+	 */
+	public int pitchTarget;
+
+	/*
+	 * Where the player stands before filtering: the top level plane, the terrain height under them, how far above it
+	 * their eyes are, and their position in main world local coordinates
+	 */
+	public int plane;
+	public int tileHeight;
+	public int eyeHeight;
+	public double rawEyeX;
+	public double rawEyeZ;
+
+	/*
+	 * Player perspective position in main world local coordinates, after filtering. Y is the height axis.
+	 */
+	public double eyeX;
+	public double eyeY;
+	public double eyeZ;
+
+	/*
+	 * Focal point the camera should look at from the eye position.
+	 */
+	public double focalX;
+	public double focalY;
+	public double focalZ;
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.detachedcamera;
+
+import net.runelite.api.Client;
+
+/**
+ * Moves camera state between the client and a {@link CameraPose}. At the start of a frame each client value the
+ * handlers need is read once into the pose. At the end, only the values that changed are written back, so a player
+ * standing still without rotating costs no client setter calls.
+ */
+public class CameraWriteBack
+{
+	private static final int OCULUS_CAMERA_MODE = 1;
+
+	private final Client client;
+
+	private boolean focalPointWritten;
+	private float lastFocalX;
+	private float lastFocalY;
+	private float lastFocalZ;
+
+	public CameraWriteBack(Client client)
+	{
+		this.client = client;
+	}
+
+	/**
+	 * Reads this frame's client camera state into the pose, and starts its targets from the client's.
+	 *
+	 * @return false if there is no local player to place the camera on
+	 */
+	public boolean read(CameraPose pose)
+	{
+		pose.localPlayer = client.getLocalPlayer();
+		if (pose.localPlayer == null)
+		{
+			return false;
+		}
+
+		pose.cameraMode = client.getCameraMode();
+		pose.clientYawTarget = client.getCameraYawTarget();
+		pose.clientPitchTarget = client.getCameraPitchTarget();
+		pose.clientYaw = client.getCameraYaw();
+		pose.clientPitch = client.getCameraPitch();
+		pose.gameCycle = client.getGameCycle();
+		pose.zoom = FocalTable.clientZoom(client);
+		pose.yawTarget = pose.clientYawTarget;
+		pose.pitchTarget = pose.clientPitchTarget;
+		return true;
+	}
+
+	/**
+	 * @return whether anything was written
+	 */
+	public boolean write(CameraPose pose)
+	{
+		boolean written = false;
+		if (pose.cameraMode != OCULUS_CAMERA_MODE)
+		{
+			client.setCameraMode(OCULUS_CAMERA_MODE);
+			invalidate();
+			written = true;
+		}
+
+		if (pose.yawTarget != pose.clientYawTarget)
+		{
+			client.setCameraYawTarget(pose.yawTarget);
+			written = true;
+		}
+		if (pose.pitchTarget != pose.clientPitchTarget)
+		{
+			client.setCameraPitchTarget(pose.pitchTarget);
+			written = true;
+		}
+
+		return writeFocalPoint(pose.focalX, pose.focalY, pose.focalZ) || written;
+	}
+
+	/**
+	 * Sets whichever parts of the focal point changed.
+	 *
+	 * @return whether anything was written
+	 */
+	public boolean writeFocalPoint(double x, double y, double z)
+	{
+		float focalX = (float) x;
+		float focalY = (float) y;
+		float focalZ = (float) z;
+		boolean written = false;
+		if (!focalPointWritten || focalX != lastFocalX)
+		{
+			client.setCameraFocalPointX(focalX);
+			lastFocalX = focalX;
+			written = true;
+		}
+		if (!focalPointWritten || focalY != lastFocalY)
+		{
+			client.setCameraFocalPointY(focalY);
+			lastFocalY = focalY;
+			written = true;
+		}
+		if (!focalPointWritten || focalZ != lastFocalZ)
+		{
+			client.setCameraFocalPointZ(focalZ);
+			lastFocalZ = focalZ;
+			written = true;
+		}
+		focalPointWritten = true;
+		return written;
+	}
+
+	/**
+	 * Forgets what was last written, so the next frame writes the whole focal point. Used when the client's camera
+	 * may have been moved by something else, such as switching camera mode.
+	 */
+	public void invalidate()
+	{
+		focalPointWritten = false;
+	}
+}
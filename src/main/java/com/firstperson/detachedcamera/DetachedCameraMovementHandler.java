@@ -25,7 +25,11 @@
 package com.firstperson.detachedcamera;
 
 import com.firstperson.FirstPersonConfig;
+import com.firstperson.collision.CameraCollision;
+import com.firstperson.detachedcamera.fixedpoint.FixedPointCameraMath;
 import com.firstperson.input.InputHandler;
+import com.firstperson.timing.FocalPointEvent;
+import lombok.Getter;
 import net.runelite.api.Client;
 import net.runelite.api.Perspective;
 import net.runelite.api.WorldEntity;
@@ -38,81 +42,103 @@ public class DetachedCameraMovementHandler
 	FirstPersonConfig config;
 	InputHandler inputHandler;
 
-	final int[] yAxisAbsoluteChange = PreCalculatedTransformations.yAxisAbsoluteChange;
+	@Getter
+	private final HeightfieldCache heightfieldCache;
 
-	final double[] xAndYAxisChangeWithPitch = PreCalculatedTransformations.xAndYAxisChangeWithPitch;
+	@Getter
+	private final WorldEntityTransformCache worldEntityTransforms;
 
+	@Getter
+	private final EyePositionFilter eyePositionFilter = new EyePositionFilter();
+
+	@Getter
+	private final CameraCollision cameraCollision;
+
+	@Getter
+	private final FocalTable focalTable = new FocalTable();
+
+	@Getter
+	private final EyeHeightCache eyeHeightCache = new EyeHeightCache();
+
+	/**
+	 * Builds collision fields in memory on the calling thread, for tests and replays
+	 */
 	public DetachedCameraMovementHandler(Client client, FirstPersonConfig config, InputHandler inputHandler)
+	{
+		this(client, config, inputHandler, new CameraCollision(client, Runnable::run, null));
+	}
+
+	public DetachedCameraMovementHandler(Client client, FirstPersonConfig config, InputHandler inputHandler, CameraCollision cameraCollision)
 	{
 		this.client = client;
 		this.config = config;
 		this.inputHandler = inputHandler;
+		this.heightfieldCache = new HeightfieldCache(client);
+		this.worldEntityTransforms = new WorldEntityTransformCache(client);
+		this.cameraCollision = cameraCollision;
 	}
 
-	public void updateDetachedCameraPosition()
-	{
-		if (client.getLocalPlayer() == null) return;
-		int yaw = client.getCameraYawTarget();
-		int pitch = client.getCameraPitchTarget();
-
-		double yawRad = Math.toRadians((yaw * 360.0 / 16384.0) - 180.0);
-
-		double pitchIndex = pitch / (double) PreCalculatedTransformations.PITCH_SCALE;
-
-		double distanceAt0Pitch = 750.0;
-		double zRate = sampleTable(yAxisAbsoluteChange, pitchIndex);
-
-		double cosPitch = sampleTable(xAndYAxisChangeWithPitch, pitchIndex);
-
-		double[] playerPos = getPlayerPerspectivePosition();
-
-		double xShift = distanceAt0Pitch * cosPitch * Math.sin(yawRad);
-		double yShift = distanceAt0Pitch * cosPitch * Math.cos(yawRad);
-		double focalPointX = playerPos[0] + xShift;
-		double focalPointY = playerPos[1] - zRate;
-		double focalPointZ = playerPos[2] - yShift;
-
-		client.setCameraFocalPointX((float) focalPointX);
-		client.setCameraFocalPointY((float) focalPointY);
-		client.setCameraFocalPointZ((float) focalPointZ);
-	}
-	
-	private static double sampleTable(int[] table, double index)
+	public void updateDetachedCameraPosition(CameraPose pose)
 	{
-		double clamped = Math.max(0.0, Math.min(index, table.length - 1));
-		int lo = (int) clamped;
-		int hi = Math.min(lo + 1, table.length - 1);
-		return table[lo] + (table[hi] - table[lo]) * (clamped - lo);
+		if (pose.localPlayer == null) return;
+		FocalPointEvent event = FocalPointEvent.start();
+		updatePlayerPerspectivePosition(pose);
+		focalTable.select(pose.zoom);
+		updateFocalPoint(pose, focalTable);
+		cameraCollision.clip(pose);
+		if (event != null)
+		{
+			event.finish(pose);
+		}
 	}
 
-	private static double sampleTable(double[] table, double index)
+	/**
+	 * Places the focal point from the eye position and the yaw and pitch targets, with the offsets for the table's
+	 * zoom. Doesn't touch the client, so {@link com.firstperson.CameraWarmUp} can run it without a player.
+	 */
+	public static void updateFocalPoint(CameraPose pose, FocalTable focalTable)
 	{
-		double clamped = Math.max(0.0, Math.min(index, table.length - 1));
-		int lo = (int) clamped;
-		int hi = Math.min(lo + 1, table.length - 1);
-		return table[lo] + (table[hi] - table[lo]) * (clamped - lo);
-	}
+		int yaw = pose.yawTarget;
+		int pitch = pose.pitchTarget;
 
+		int zRate = focalTable.yAxisAbsoluteChange(pitch);
+		int horizontalDistance = focalTable.horizontalDistance(pitch);
 
-	private double[] getPlayerPerspectivePosition()
+		pose.focalX = pose.eyeX + FixedPointCameraMath.toDouble(FixedPointCameraMath.focalOffsetX(yaw, horizontalDistance));
+		pose.focalY = pose.eyeY - FixedPointCameraMath.toDouble(zRate);
+		pose.focalZ = pose.eyeZ + FixedPointCameraMath.toDouble(FixedPointCameraMath.focalOffsetY(yaw, horizontalDistance));
+	}
+	
+	private void updatePlayerPerspectivePosition(CameraPose pose)
 	{
-		LocalPoint lp = client.getLocalPlayer().getLocalLocation();
+		LocalPoint lp = pose.localPlayer.getLocalLocation();
 		WorldView topLevel = client.getTopLevelWorldView();
 
-		LocalPoint mainWorldPoint = lp;
-		if (lp.getWorldView() != WorldView.TOPLEVEL)
+		// Entity world views can move under the player, so only the static top level terrain is cached
+		int tileHeight = lp.getWorldView() == WorldView.TOPLEVEL
+			? heightfieldCache.getHeight(topLevel, lp.getX(), lp.getY())
+			: Perspective.getTileHeight(client, lp, topLevel.getPlane());
+
+		pose.plane = topLevel.getPlane();
+		pose.tileHeight = tileHeight;
+		pose.eyeHeight = eyeHeightCache.eyeHeight(pose.localPlayer);
+		pose.eyeY = tileHeight - pose.eyeHeight;
+		if (lp.getWorldView() == WorldView.TOPLEVEL)
 		{
+			pose.eyeX = lp.getX();
+			pose.eyeZ = lp.getY();
+		}
+		else if (!worldEntityTransforms.transformToMainWorld(lp, pose.frameNanos, pose))
+		{
+			// Boarded since the last tick, so there's no sample yet
 			WorldEntity worldEntity = topLevel.worldEntities().byIndex(lp.getWorldView());
-			if (worldEntity != null)
-			{
-				mainWorldPoint = worldEntity.transformToMainWorld(lp);
-			}
+			LocalPoint mainWorldPoint = worldEntity == null ? lp : worldEntity.transformToMainWorld(lp);
+			pose.eyeX = mainWorldPoint.getX();
+			pose.eyeZ = mainWorldPoint.getY();
 		}
 
-		double playerX = mainWorldPoint.getX();
-		double playerY = Perspective.getTileHeight(client, lp, topLevel.getPlane()) - 200.0;
-		double playerZ = mainWorldPoint.getY();
-
-		return new double[] { playerX, playerY, playerZ };
+		pose.rawEyeX = pose.eyeX;
+		pose.rawEyeZ = pose.eyeZ;
+		eyePositionFilter.filter(pose, pose.plane, pose.frameNanos);
 	}
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.detachedcamera;
+
+import java.util.Arrays;
+import net.runelite.api.Model;
+import net.runelite.api.Player;
+
+/**
+ * How far above the ground the local player's eyes are, measured from their model.
+ * <p>
+ * Building the player's model is too slow to do every frame, so the height is measured once per animation or pose
+ * and kept in a small open addressing table of ints keyed by its id. Frames look up the player's current animation
+ * or pose, which is a compare while it doesn't change. Their appearance changing clears the table, since every height
+ * may have changed with it. A pose whose model hasn't loaded yet gets the default height, and is measured again a few
+ * frames later.
+ */
+public class EyeHeightCache
+{
+	public static final int DEFAULT_EYE_HEIGHT = 200;
+
+	// How far the top of the head is above the eyes, the same in any pose
+	public static final int HEAD_ABOVE_EYES = 16;
+
+	// Heights outside this are a model that hasn't loaded yet or isn't a person, such as a transformation
+	private static final int MIN_EYE_HEIGHT = 32;
+	private static final int MAX_EYE_HEIGHT = 512;
+
+	private static final int CAPACITY_BITS = 6;
+	private static final int CAPACITY = 1 << CAPACITY_BITS;
+	private static final int MAX_SIZE = CAPACITY * 3 / 4;
+	private static final int NO_KEY = Integer.MIN_VALUE;
+	private static final int UNMEASURED = -1;
+	// Frames to wait before measuring a pose again that couldn't be, so a model that never fits isn't built every frame
+	static final int RETRY_FRAMES = 30;
+
+	private final int[] keys = new int[CAPACITY];
+	private final int[] heights = new int[CAPACITY];
+	private int size;
+
+	private int lastKey = NO_KEY;
+	private int lastHeight = DEFAULT_EYE_HEIGHT;
+
+	// The pose last measured without success, and the frames until it's tried again
+	private int failedKey = NO_KEY;
+	private int retryFrames;
+
+	public EyeHeightCache()
+	{
+		Arrays.fill(keys, NO_KEY);
+	}
+
+	/**
+	 * @return the eye height for the player's current animation or pose, measuring it if it's new. Until the model
+	 * can be measured, the default, measuring again next time.
+	 */
+	public int eyeHeight(Player player)
+	{
+		int key = poseKey(player);
+		if (key == lastKey)
+		{
+			return lastHeight;
+		}
+
+		int slot = slot(key);
+		if (keys[slot] != key)
+		{
+			if (key == failedKey && --retryFrames > 0)
+			{
+				return DEFAULT_EYE_HEIGHT;
+			}
+
+			int height = measure(player);
+			if (height == UNMEASURED)
+			{
+				failedKey = key;
+				retryFrames = RETRY_FRAMES;
+				return DEFAULT_EYE_HEIGHT;
+			}
+			failedKey = NO_KEY;
+			slot = put(key, height);
+		}
+		lastKey = key;
+		lastHeight = heights[slot];
+		return lastHeight;
+	}
+
+	/**
+	 * Forgets every height, for when the player's appearance changed. Measures the current one straight away, on the
+	 * client thread the change came in on.
+	 */
+	public void onAppearanceChanged(Player player)
+	{
+		clear();
+		eyeHeight(player);
+	}
+
+	/**
+	 * Measures the height for an animation the player just started, unless it's known already.
+	 */
+	public void onAnimationChanged(Player player)
+	{
+		eyeHeight(player);
+	}
+
+	public void clear()
+	{
+		Arrays.fill(keys, NO_KEY);
+		size = 0;
+		lastKey = NO_KEY;
+		lastHeight = DEFAULT_EYE_HEIGHT;
+		failedKey = NO_KEY;
+	}
+
+	/**
+	 * An animation overrides the pose, so it keys the height while it plays.
+	 */
+	static int poseKey(Player player)
+	{
+		int animation = player.getAnimation();
+		return animation != -1 ? animation : player.getPoseAnimation();
+	}
+
+	/**
+	 * @return the eye height, or {@link #UNMEASURED} when the model isn't loaded or isn't plausible yet
+	 */
+	static int measure(Player player)
+	{
+		Model model = player.getModel();
+		if (model == null)
+		{
+			return UNMEASURED;
+		}
+
+		int eyeHeight = model.getModelHeight() - HEAD_ABOVE_EYES;
+		return eyeHeight < MIN_EYE_HEIGHT || eyeHeight > MAX_EYE_HEIGHT ? UNMEASURED : eyeHeight;
+	}
+
+	private int slot(int key)
+	{
+		int slot = (key * 0x9E3779B9) >>> (Integer.SIZE - CAPACITY_BITS);
+		while (keys[slot] != NO_KEY && keys[slot] != key)
+		{
+			slot = (slot + 1) & (CAPACITY - 1);
+		}
+		return slot;
+	}
+
+	private int put(int key, int height)
+	{
+		if (size == MAX_SIZE)
+		{
+			// Only this many poses in one appearance is unusual, so start over rather than grow
+			clear();
+		}
+
+		int slot = slot(key);
+		keys[slot] = key;
+		heights[slot] = height;
+		size++;
+		return slot;
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.detachedcamera;
+
+import lombok.Getter;
+import net.runelite.api.Client;
+import net.runelite.api.VarClientInt;
+
+/**
+ * The focal point offsets at every pitch for the client's current camera zoom.
+ * <p>
+ * {@link #select(int)} samples the {@link PreCalculatedTransformations} grid for a zoom only when it differs from the
+ * last, so frames at a steady zoom look offsets up with a single array read.
+ */
+public final class FocalTable
+{
+	/**
+	 * The client's zoom when it hasn't been changed
+	 */
+	public static final int DEFAULT_ZOOM = 512;
+
+	// Two entries per pitch, yAxisAbsoluteChange then horizontalDistance
+	private final int[] table = new int[(PreCalculatedTransformations.MAX_PITCH + 1) * 2];
+
+	@Getter
+	private int zoom;
+
+	public FocalTable()
+	{
+		this.zoom = DEFAULT_ZOOM;
+		PreCalculatedTransformations.expand(zoom, table);
+	}
+
+	/**
+	 * @return the client's camera zoom for the viewport mode it's in
+	 */
+	public static int clientZoom(Client client)
+	{
+		return client.getVarcIntValue(client.isResized()
+			? VarClientInt.CAMERA_ZOOM_RESIZABLE_VIEWPORT
+			: VarClientInt.CAMERA_ZOOM_FIXED_VIEWPORT);
+	}
+
+	/**
+	 * Makes the table hold the offsets for a zoom.
+	 */
+	public void select(int zoom)
+	{
+		if (zoom == this.zoom)
+		{
+			return;
+		}
+
+		this.zoom = zoom;
+		PreCalculatedTransformations.expand(zoom, table);
+	}
+
+	/**
+	 * @return the vertical focal point offset from the eye at the given pitch, 16.16 fixed point
+	 */
+	public int yAxisAbsoluteChange(int pitch)
+	{
+		return table[index(pitch)];
+	}
+
+	/**
+	 * @return the horizontal distance from the eye to the focal point at the given pitch, 16.16 fixed point
+	 */
+	public int horizontalDistance(int pitch)
+	{
+		return table[index(pitch) + 1];
+	}
+
+	private static int index(int pitch)
+	{
+		return Math.max(0, Math.min(pitch, PreCalculatedTransformations.MAX_PITCH)) << 1;
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.detachedcamera;
+
+import java.util.Arrays;
+import net.runelite.api.Client;
+import net.runelite.api.Constants;
+import net.runelite.api.Perspective;
+import net.runelite.api.WorldView;
+
+/**
+ * Terrain heights of the top level scene, copied out of the client once per scene load so the eye height can be
+ * sampled without calling into the client every frame.
+ * <p>
+ * Each plane is one flat array holding the four corner heights of every tile next to each other, with bridge tiles
+ * already pointing at the plane above the way {@link Perspective#getTileHeight} resolves them. A sample is then one
+ * run of four reads and a bilinear blend across the tile.
+ */
+public class HeightfieldCache
+{
+	private static final int CORNERS = 4;
+
+	private final Client client;
+
+	private final int[][] planes = new int[Constants.MAX_Z][];
+	private final boolean[] built = new boolean[Constants.MAX_Z];
+	private int sizeX;
+	private int sizeY;
+
+	// Plane the current array was selected for, -1 when it has to be looked up again
+	private int selectedPlane = -1;
+	private int[] selected;
+
+	public HeightfieldCache(Client client)
+	{
+		this.client = client;
+	}
+
+	/**
+	 * Drops everything cached for the old scene and copies the current plane of the new one. Must be called on the
+	 * client thread once the scene has finished loading.
+	 */
+	public void rebuild()
+	{
+		invalidate();
+		WorldView topLevel = client.getTopLevelWorldView();
+		if (topLevel != null)
+		{
+			select(topLevel, topLevel.getPlane());
+		}
+	}
+
+	/**
+	 * Marks every plane as stale, they are copied again the next time they are sampled.
+	 */
+	public void invalidate()
+	{
+		Arrays.fill(built, false);
+		selectedPlane = -1;
+		selected = null;
+	}
+
+	/**
+	 * @return the terrain height under a top level local point, 0 outside the scene like the client
+	 */
+	public int getHeight(WorldView topLevel, int localX, int localY)
+	{
+		int plane = topLevel.getPlane();
+		if (plane != selectedPlane)
+		{
+			select(topLevel, plane);
+		}
+
+		int tileX = localX >> Perspective.LOCAL_COORD_BITS;
+		int tileY = localY >> Perspective.LOCAL_COORD_BITS;
+		if (tileX < 0 || tileY < 0 || tileX >= sizeX || tileY >= sizeY)
+		{
+			return 0;
+		}
+
+		int[] corners = selected;
+		int i = (tileX * sizeY + tileY) * CORNERS;
+		int fractionX = localX & (Perspective.LOCAL_TILE_SIZE - 1);
+		int fractionY = localY & (Perspective.LOCAL_TILE_SIZE - 1);
+
+		int south = (Perspective.LOCAL_TILE_SIZE - fractionX) * corners[i] + fractionX * corners[i + 1] >> Perspective.LOCAL_COORD_BITS;
+		int north = (Perspective.LOCAL_TILE_SIZE - fractionX) * corners[i + 2] + fractionX * corners[i + 3] >> Perspective.LOCAL_COORD_BITS;
+		return (Perspective.LOCAL_TILE_SIZE - fractionY) * south + fractionY * north >> Perspective.LOCAL_COORD_BITS;
+	}
+
+	private void select(WorldView topLevel, int plane)
+	{
+		selectedPlane = plane;
+		if (!built[plane])
+		{
+			build(topLevel, plane);
+		}
+		selected = planes[plane];
+	}
+
+	private void build(WorldView topLevel, int plane)
+	{
+		int[][][] tileHeights = topLevel.getTileHeights();
+		byte[][][] tileSettings = topLevel.getTileSettings();
+		sizeX = topLevel.getSizeX();
+		sizeY = topLevel.getSizeY();
+
+		int length = sizeX * sizeY * CORNERS;
+		int[] corners = planes[plane];
+		if (corners == null || corners.length != length)
+		{
+			corners = new int[length];
+			planes[plane] = corners;
+		}
+
+		int i = 0;
+		for (int x = 0; x < sizeX; x++)
+		{
+			for (int y = 0; y < sizeY; y++)
+			{
+				int z = plane;
+				if (plane < Constants.MAX_Z - 1 && (tileSettings[1][x][y] & Constants.TILE_FLAG_BRIDGE) == Constants.TILE_FLAG_BRIDGE)
+				{
+					z = plane + 1;
+				}
+
+				int[][] heights = tileHeights[z];
+				corners[i++] = heights[x][y];
+				corners[i++] = heights[x + 1][y];
+				corners[i++] = heights[x][y + 1];
+				corners[i++] = heights[x + 1][y + 1];
+			}
+		}
+		built[plane] = true;
+	}
+}
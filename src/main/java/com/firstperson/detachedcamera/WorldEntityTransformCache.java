@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.detachedcamera;
+
+import com.firstperson.detachedcamera.fixedpoint.FixedPointCameraMath;
+import net.runelite.api.Client;
+import net.runelite.api.Player;
+import net.runelite.api.WorldEntity;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.LocalPoint;
+
+/**
+ * The transform from the world view of the entity the player stands on, such as a boat, to the main world.
+ * <p>
+ * World entities only move on game ticks, so the transform is sampled once a tick as a rotation and translation
+ * and kept in primitives. Between ticks it is carried forward at the velocity of the last two samples, for at most
+ * one tick, so a moving boat doesn't step the camera every 600ms and frames need neither the entity lookup nor the
+ * point {@link WorldEntity#transformToMainWorld} allocates.
+ */
+public class WorldEntityTransformCache
+{
+	private static final int NO_WORLD_VIEW = Integer.MIN_VALUE;
+	private static final long DEFAULT_TICK_NANOS = 600_000_000L;
+	private static final long MIN_TICK_NANOS = DEFAULT_TICK_NANOS / 2;
+	private static final long MAX_TICK_NANOS = DEFAULT_TICK_NANOS * 2;
+	private static final int HALF_TURN = FixedPointCameraMath.ANGLE_RANGE / 2;
+	// A tick moving further than this is a teleport or a new entity, and isn't extrapolated
+	private static final double MAX_TICK_DISTANCE = 8 * 128;
+	// Distance to the second sampled point, long so rounding to whole units barely moves the angle
+	private static final int ARM_LENGTH = 16 * 128;
+
+	private final Client client;
+
+	private int worldView = NO_WORLD_VIEW;
+	private long tickNanos;
+	private long tickLengthNanos = DEFAULT_TICK_NANOS;
+
+	// main = R(angle) * local + translation, angle in camera units
+	private double angle;
+	private double translationX;
+	private double translationY;
+
+	// Change over the last tick
+	private double angleVelocity;
+	private double translationVelocityX;
+	private double translationVelocityY;
+
+	public WorldEntityTransformCache(Client client)
+	{
+		this.client = client;
+	}
+
+	/**
+	 * Samples the transform of the entity the local player is on. Called on the client thread every game tick.
+	 *
+	 * @return whether the transform differs from the last sample
+	 */
+	public boolean onGameTick(long nowNanos)
+	{
+		Player player = client.getLocalPlayer();
+		LocalPoint lp = player == null ? null : player.getLocalLocation();
+		if (lp == null || lp.getWorldView() == WorldView.TOPLEVEL)
+		{
+			return invalidate();
+		}
+
+		WorldEntity worldEntity = client.getTopLevelWorldView().worldEntities().byIndex(lp.getWorldView());
+		if (worldEntity == null)
+		{
+			return invalidate();
+		}
+
+		// The images of the player and of a point further along local x give the whole rigid transform
+		LocalPoint origin = worldEntity.transformToMainWorld(lp);
+		LocalPoint alongX = worldEntity.transformToMainWorld(new LocalPoint(lp.getX() + ARM_LENGTH, lp.getY(), lp.getWorldView()));
+		double angleRadians = Math.atan2(alongX.getY() - origin.getY(), alongX.getX() - origin.getX());
+		double cos = Math.cos(angleRadians);
+		double sin = Math.sin(angleRadians);
+		double newAngle = angleRadians * HALF_TURN / Math.PI;
+		double newTranslationX = origin.getX() - (cos * lp.getX() - sin * lp.getY());
+		double newTranslationY = origin.getY() - (sin * lp.getX() + cos * lp.getY());
+
+		boolean continuing = worldView == lp.getWorldView()
+			&& Math.abs(newTranslationX - translationX) < MAX_TICK_DISTANCE
+			&& Math.abs(newTranslationY - translationY) < MAX_TICK_DISTANCE;
+		if (continuing)
+		{
+			tickLengthNanos = Math.max(MIN_TICK_NANOS, Math.min(MAX_TICK_NANOS, nowNanos - tickNanos));
+			angleVelocity = Math.IEEEremainder(newAngle - angle, FixedPointCameraMath.ANGLE_RANGE);
+			translationVelocityX = newTranslationX - translationX;
+			translationVelocityY = newTranslationY - translationY;
+		}
+		else
+		{
+			angleVelocity = 0;
+			translationVelocityX = 0;
+			translationVelocityY = 0;
+		}
+
+		boolean changed = !continuing || newAngle != angle || newTranslationX != translationX || newTranslationY != translationY;
+		worldView = lp.getWorldView();
+		tickNanos = nowNanos;
+		angle = newAngle;
+		translationX = newTranslationX;
+		translationY = newTranslationY;
+		return changed;
+	}
+
+	/**
+	 * @return whether there was a sample to drop
+	 */
+	public boolean invalidate()
+	{
+		boolean hadSample = worldView != NO_WORLD_VIEW;
+		worldView = NO_WORLD_VIEW;
+		return hadSample;
+	}
+
+	/**
+	 * @return whether frames are extrapolating a moving entity
+	 */
+	public boolean isMoving()
+	{
+		return worldView != NO_WORLD_VIEW && (angleVelocity != 0 || translationVelocityX != 0 || translationVelocityY != 0);
+	}
+
+	/**
+	 * Moves a point in an entity's world view to the main world, writing it to the pose's eye x and z.
+	 *
+	 * @return false if there is no sample for that world view yet
+	 */
+	public boolean transformToMainWorld(LocalPoint lp, long nowNanos, CameraPose pose)
+	{
+		if (lp.getWorldView() != worldView)
+		{
+			return false;
+		}
+
+		double progress = (double) (nowNanos - tickNanos) / tickLengthNanos;
+		progress = Math.max(0, Math.min(1, progress));
+
+		int frameAngle = (int) Math.round(angle + angleVelocity * progress);
+		double cos = FixedPointCameraMath.toDouble(FixedPointCameraMath.cos(frameAngle));
+		double sin = FixedPointCameraMath.toDouble(FixedPointCameraMath.sin(frameAngle));
+
+		pose.eyeX = cos * lp.getX() - sin * lp.getY() + translationX + translationVelocityX * progress;
+		pose.eyeZ = sin * lp.getX() + cos * lp.getY() + translationY + translationVelocityY * progress;
+		return true;
+	}
+}
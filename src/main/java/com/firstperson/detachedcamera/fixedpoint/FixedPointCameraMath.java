@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.detachedcamera.fixedpoint;
+
+import net.runelite.api.Perspective;
+
+/**
+ * Integer focal point math built on the client's own {@link Perspective#SINE} and {@link Perspective#COSINE} tables,
+ * so the render thread doesn't need {@link Math#sin}, {@link Math#cos} or double arithmetic to place the camera.
+ * <p>
+ * Angles are in the camera target's units, {@value #ANGLE_RANGE} per turn. The client tables have 2048 entries,
+ * so the low {@value #TABLE_SHIFT} bits of an angle interpolate linearly between neighbouring entries. Values are
+ * 16.16 fixed point.
+ * <p>
+ * Error bound: the client tables are truncated to 16.16, so each entry is off by under 1/65536. Interpolating
+ * between entries 2&pi;/2048 apart adds at most (2&pi;/2048)&sup2;/8 &asymp; 1.2e-6, and the interpolation and product
+ * shifts each truncate by under 1/65536 more. A sine or cosine is therefore within 3.2e-5 of the exact value, and a
+ * focal offset of length d is within 3.2e-5 &times; d + 1/65536 local units of the double implementation. At the
+ * largest horizontal distance the tables produce (about 1012 units) that is under 0.05 local units, or 1/2500 of
+ * a tile.
+ */
+public final class FixedPointCameraMath
+{
+	public static final int FRACTION_BITS = 16;
+
+	public static final int ANGLE_RANGE = 16384;
+
+	private static final int ANGLE_MASK = ANGLE_RANGE - 1;
+
+	private static final int TABLE_SHIFT = 3;
+
+	private static final int TABLE_MASK = (ANGLE_RANGE >> TABLE_SHIFT) - 1;
+
+	private static final int INTERPOLATION_MASK = (1 << TABLE_SHIFT) - 1;
+
+	private static final int HALF_TURN = ANGLE_RANGE / 2;
+
+	private static final double TO_DOUBLE = 1.0 / (1 << FRACTION_BITS);
+
+	private static final int[] SINE = Perspective.SINE;
+
+	private static final int[] COSINE = Perspective.COSINE;
+
+	private FixedPointCameraMath()
+	{
+	}
+
+	/**
+	 * @param angle angle in camera target units, any value is wrapped into a single turn
+	 * @return sine of the angle, 16.16 fixed point
+	 */
+	public static int sin(int angle)
+	{
+		return interpolate(SINE, angle);
+	}
+
+	/**
+	 * @param angle angle in camera target units, any value is wrapped into a single turn
+	 * @return cosine of the angle, 16.16 fixed point
+	 */
+	public static int cos(int angle)
+	{
+		return interpolate(COSINE, angle);
+	}
+
+	/**
+	 * The focal point sits behind the camera's yaw, half a turn round from it, at the given horizontal distance.
+	 *
+	 * @param yaw camera yaw target
+	 * @param horizontalDistance horizontal distance from the eye to the focal point, 16.16 fixed point
+	 * @return the focal point's x offset from the eye, 16.16 fixed point
+	 */
+	public static int focalOffsetX(int yaw, int horizontalDistance)
+	{
+		return multiply(horizontalDistance, sin(yaw + HALF_TURN));
+	}
+
+	/**
+	 * @param yaw camera yaw target
+	 * @param horizontalDistance horizontal distance from the eye to the focal point, 16.16 fixed point
+	 * @return the focal point's offset from the eye along the local y axis, 16.16 fixed point
+	 */
+	public static int focalOffsetY(int yaw, int horizontalDistance)
+	{
+		return -multiply(horizontalDistance, cos(yaw + HALF_TURN));
+	}
+
+	public static int multiply(int a, int b)
+	{
+		return (int) (((long) a * b) >> FRACTION_BITS);
+	}
+
+	public static double toDouble(int fixed)
+	{
+		return fixed * TO_DOUBLE;
+	}
+
+	private static int interpolate(int[] table, int angle)
+	{
+		int wrapped = angle & ANGLE_MASK;
+		int index = wrapped >> TABLE_SHIFT;
+		int lo = table[index];
+		int hi = table[(index + 1) & TABLE_MASK];
+		return lo + (((hi - lo) * (wrapped & INTERPOLATION_MASK)) >> TABLE_SHIFT);
+	}
+}
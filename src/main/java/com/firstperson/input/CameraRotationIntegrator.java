@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.input;
+
+/**
+ * Turns held rotation keys into yaw and pitch movement that is the same at any frame rate.
+ * <p>
+ * Time comes from {@link System#nanoTime()} and is consumed in fixed {@value #STEP_NANOS}ns steps. Each axis'
+ * velocity follows the requested velocity through a critically damped spring, so rotation eases in and out without
+ * overshoot. Whatever time is left over after the last whole step is used to interpolate between the last two steps,
+ * so a frame that lands between steps still sees smooth motion.
+ * <p>
+ * Angles are in camera target units. Movement is handed out in whole units and the remainder is carried over, so
+ * nothing is lost to truncation.
+ */
+public class CameraRotationIntegrator
+{
+	static final long STEP_NANOS = 1_000_000_000L / 240;
+
+	/*
+	 * Frames longer than this, such as after the client was stalled or the plugin was toggled off, are clamped so a
+	 * single frame never runs more than a bounded number of steps.
+	 */
+	private static final long MAX_FRAME_NANOS = 100_000_000L;
+
+	private static final double STEP_SECONDS = STEP_NANOS / 1e9;
+
+	/*
+	 * Spring angular frequency. Velocity reaches 95% of the requested velocity in about 4.7 / OMEGA seconds.
+	 */
+	private static final double OMEGA = 30.0;
+	private static final double OMEGA_SQUARED = OMEGA * OMEGA;
+	private static final double TWO_OMEGA = 2 * OMEGA;
+
+	private static final double REST_VELOCITY = 0.5;
+
+	private long lastNanos;
+	private long accumulatorNanos;
+
+	private final Axis yaw = new Axis();
+	private final Axis pitch = new Axis();
+
+	public CameraRotationIntegrator(long nowNanos)
+	{
+		reset(nowNanos);
+	}
+
+	public void reset(long nowNanos)
+	{
+		lastNanos = nowNanos;
+		accumulatorNanos = 0;
+		yaw.reset();
+		pitch.reset();
+	}
+
+	/**
+	 * Advances the simulation to the given time.
+	 *
+	 * @param targetYawVelocity requested yaw velocity, camera target units per second
+	 * @param targetPitchVelocity requested pitch velocity, camera target units per second
+	 */
+	public void advance(long nowNanos, double targetYawVelocity, double targetPitchVelocity)
+	{
+		long elapsed = Math.max(0, Math.min(nowNanos - lastNanos, MAX_FRAME_NANOS));
+		lastNanos = nowNanos;
+
+		if (targetYawVelocity == 0 && targetPitchVelocity == 0 && isAtRest())
+		{
+			accumulatorNanos = 0;
+			return;
+		}
+
+		accumulatorNanos += elapsed;
+		while (accumulatorNanos >= STEP_NANOS)
+		{
+			yaw.step(targetYawVelocity);
+			pitch.step(targetPitchVelocity);
+			accumulatorNanos -= STEP_NANOS;
+		}
+
+		double alpha = accumulatorNanos / (double) STEP_NANOS;
+		yaw.interpolate(alpha);
+		pitch.interpolate(alpha);
+	}
+
+	/**
+	 * @return whole units of yaw movement since the last call
+	 */
+	public int takeYaw()
+	{
+		return yaw.take();
+	}
+
+	/**
+	 * @return whole units of pitch movement since the last call
+	 */
+	public int takePitch()
+	{
+		return pitch.take();
+	}
+
+	public boolean isAtRest()
+	{
+		return yaw.isAtRest() && pitch.isAtRest();
+	}
+
+	private static class Axis
+	{
+		// Positions are relative to the movement already handed out
+		double position;
+		double previousPosition;
+		double renderedPosition;
+		double velocity;
+		double acceleration;
+
+		void reset()
+		{
+			position = 0;
+			previousPosition = 0;
+			renderedPosition = 0;
+			velocity = 0;
+			acceleration = 0;
+		}
+
+		void step(double targetVelocity)
+		{
+			previousPosition = position;
+			acceleration += (OMEGA_SQUARED * (targetVelocity - velocity) - TWO_OMEGA * acceleration) * STEP_SECONDS;
+			velocity += acceleration * STEP_SECONDS;
+			if (targetVelocity == 0 && Math.abs(velocity) < REST_VELOCITY && Math.abs(acceleration) < REST_VELOCITY * OMEGA)
+			{
+				velocity = 0;
+				acceleration = 0;
+			}
+			position += velocity * STEP_SECONDS;
+		}
+
+		void interpolate(double alpha)
+		{
+			renderedPosition = previousPosition + (position - previousPosition) * alpha;
+		}
+
+		int take()
+		{
+			int whole = (int) renderedPosition;
+			position -= whole;
+			previousPosition -= whole;
+			renderedPosition -= whole;
+			return whole;
+		}
+
+		boolean isAtRest()
+		{
+			return velocity == 0 && acceleration == 0;
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.input;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed size, single producer, single consumer ring of input events stored as primitives. The AWT event thread
+ * offers events as the key and mouse listeners receive them, and the draw thread drains them once per frame.
+ * <p>
+ * Slots are written before the tail is published with a release store, and the consumer reads the tail before the
+ * slots, so every drained event is fully visible without locks. Neither side allocates.
+ */
+public class InputEventRing
+{
+	public static final int KEY_PRESSED = 1;
+	public static final int KEY_RELEASED = 2;
+	public static final int MOUSE_PRESSED = 3;
+	public static final int MOUSE_DRAGGED = 4;
+	public static final int MOUSE_RELEASED = 5;
+
+	public interface Handler
+	{
+		void onInputEvent(int type, int a, int b);
+	}
+
+	private final int capacity;
+	private final int mask;
+	private final int[] types;
+	private final int[] firstArgs;
+	private final int[] secondArgs;
+
+	/*
+	 * Next sequence to write, only advanced by the producer
+	 */
+	private final AtomicLong tail = new AtomicLong();
+
+	/*
+	 * Next sequence to read, only advanced by the consumer
+	 */
+	private final AtomicLong head = new AtomicLong();
+
+	/*
+	 * Producer's last view of head, so a non-full ring doesn't read the consumer's counter on every offer
+	 */
+	private long cachedHead;
+
+	private volatile boolean overflowed;
+
+	/**
+	 * @param capacity maximum undrained events, must be a power of two
+	 */
+	public InputEventRing(int capacity)
+	{
+		if (Integer.bitCount(capacity) != 1)
+		{
+			throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+		}
+
+		this.capacity = capacity;
+		this.mask = capacity - 1;
+		this.types = new int[capacity];
+		this.firstArgs = new int[capacity];
+		this.secondArgs = new int[capacity];
+	}
+
+	/**
+	 * Called from the producer thread only.
+	 *
+	 * @return false if the ring was full and the event was dropped
+	 */
+	public boolean offer(int type, int a, int b)
+	{
+		long sequence = tail.get();
+		if (sequence - cachedHead >= capacity)
+		{
+			cachedHead = head.get();
+			if (sequence - cachedHead >= capacity)
+			{
+				overflowed = true;
+				return false;
+			}
+		}
+
+		int slot = (int) sequence & mask;
+		types[slot] = type;
+		firstArgs[slot] = a;
+		secondArgs[slot] = b;
+		tail.lazySet(sequence + 1);
+		return true;
+	}
+
+	/**
+	 * Called from the consumer thread only. Passes every published event to the handler in order.
+	 *
+	 * @return the number of events drained
+	 */
+	public int drain(Handler handler)
+	{
+		long sequence = head.get();
+		long end = tail.get();
+		for (long next = sequence; next < end; next++)
+		{
+			int slot = (int) next & mask;
+			handler.onInputEvent(types[slot], firstArgs[slot], secondArgs[slot]);
+		}
+		head.lazySet(end);
+		return (int) (end - sequence);
+	}
+
+	/**
+	 * Called from the consumer thread.
+	 *
+	 * @return whether no events are waiting to be drained
+	 */
+	public boolean isEmpty()
+	{
+		return head.get() == tail.get();
+	}
+
+	/**
+	 * Called from the consumer thread. Returns whether any events were dropped since the last call, so the consumer
+	 * can reset state that a lost release would otherwise leave stuck.
+	 */
+	public boolean clearOverflow()
+	{
+		if (!overflowed)
+		{
+			return false;
+		}
+		overflowed = false;
+		return true;
+	}
+}
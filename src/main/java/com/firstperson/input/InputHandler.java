@@ -25,12 +25,15 @@
 package com.firstperson.input;
 
 import com.firstperson.FirstPersonConfig;
+import com.firstperson.FirstPersonConfigSnapshot;
 import com.firstperson.FirstPersonPlugin;
+import com.firstperson.detachedcamera.CameraPose;
 import com.firstperson.detachedcamera.PreCalculatedTransformations;
+import com.firstperson.timing.CameraInputEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
+import lombok.Setter;
 import net.runelite.api.Client;
-import net.runelite.api.Point;
 import net.runelite.client.input.KeyListener;
 import net.runelite.client.input.MouseListener;
 
@@ -43,103 +46,231 @@ public class InputHandler implements KeyListener, MouseListener
 	FirstPersonPlugin firstPersonPlugin;
 	FirstPersonConfig config;
 
+	private static final int INPUT_RING_CAPACITY = 1024;
+
+	/*
+	 * Written by the key and mouse listeners on the AWT event thread, drained by the draw thread every frame
+	 */
+	final InputEventRing inputEvents = new InputEventRing(INPUT_RING_CAPACITY);
+	private final InputEventRing.Handler applyInputEvent = this::applyInputEvent;
+	// Rotations whose press was taken from the client, indexed by Keymap action. Only touched on the AWT event thread.
+	private final boolean[] heldRotations = new boolean[Keymap.ROTATE_DOWN + 1];
+
+	/*
+	 * Input state below is only touched by the draw thread, from events drained off the ring
+	 */
 	boolean rightKeyPressed;
 	boolean leftKeyPressed;
 	boolean upKeyPressed;
 	boolean downKeyPressed;
 	boolean middleMousePressed;
-	int xPosOfMouseDown;
-	int yPosOfMouseDown;
+	int lastMouseX;
+	int lastMouseY;
+	// Mouse movement while middle dragging since the last frame, summed from every drag event
+	int dragDeltaX;
+	int dragDeltaY;
 
 	int lastPitch = -1;
 
-	long lastMillis;
+	final CameraRotationIntegrator rotationIntegrator;
+
+	// Sees every input event as the draw thread applies it, used to record sessions
+	@Setter
+	private InputEventRing.Handler inputTap;
 
-	public InputHandler(Client client, FirstPersonPlugin firstPersonPlugin, FirstPersonConfig config, long lastMillis)
+	public InputHandler(Client client, FirstPersonPlugin firstPersonPlugin, FirstPersonConfig config, long nowNanos)
 	{
 		this.client = client;
 		this.firstPersonPlugin = firstPersonPlugin;
 		this.config = config;
-		this.lastMillis = lastMillis;
+		this.rotationIntegrator = new CameraRotationIntegrator(nowNanos);
 	}
 
-	public void updateCameraPosition()
+	public void updateCameraPosition(CameraPose pose)
 	{
-		if (client.getLocalPlayer() == null) return;
+		CameraInputEvent event = CameraInputEvent.start(pose);
+		drainInputEvents();
+		if (pose.localPlayer != null)
+		{
+			rotateCamera(pose);
+		}
+		if (event != null)
+		{
+			event.finish(pose);
+		}
+	}
 
-		final long before = lastMillis;
-		final long now = System.currentTimeMillis();
-		lastMillis = now;
-		final long diff = now - before;
-		// Assume free camera speed of 1
+	/**
+	 * Turns the pose's yaw and pitch targets for the input drained so far. Doesn't touch the client, so
+	 * {@link com.firstperson.CameraWarmUp} can run it without a player.
+	 */
+	public void rotateCamera(CameraPose pose)
+	{
+		// Mouse drag moves the camera directly, held keys set a rotation velocity for the integrator
 		double addedYaw = 0;
 		double addedPitch = 0;
-		double cameraSpeed = config.keyCameraSpeed();
-
-		Point currentMousePos = client.getMouseCanvasPosition();
+		int keyYawDirection = 0;
+		int keyPitchDirection = 0;
+		FirstPersonConfigSnapshot settings = firstPersonPlugin.getConfigSnapshot();
 
-		if (middleMousePressed)
+		if (middleMousePressed || dragDeltaX != 0 || dragDeltaY != 0)
 		{
-			if (yPosOfMouseDown != -1 && xPosOfMouseDown != -1)
-			{
-				addedPitch = currentMousePos.getY() - yPosOfMouseDown;
-				addedYaw = currentMousePos.getX() - xPosOfMouseDown;
-			}
-			xPosOfMouseDown = currentMousePos.getX();
-			yPosOfMouseDown = currentMousePos.getY();
+			addedPitch = dragDeltaY;
+			addedYaw = dragDeltaX;
+			dragDeltaX = 0;
+			dragDeltaY = 0;
 		}
-		else if (diff < 10000)
+		else
 		{
 			if (rightKeyPressed)
 			{
-				addedYaw = diff * cameraSpeed;
+				keyYawDirection = 1;
 			}
 			if (leftKeyPressed)
 			{
-				addedYaw += -diff * cameraSpeed;
+				keyYawDirection -= 1;
 			}
 
 			if (upKeyPressed)
 			{
-				addedPitch = -diff * cameraSpeed;
+				keyPitchDirection = -1;
 			}
 			if (downKeyPressed)
 			{
-				addedPitch += diff * cameraSpeed;
+				keyPitchDirection += 1;
 			}
 		}
 
-		if (config.inverseKeys())
+		if (settings.isInverseKeys())
 		{
 			addedPitch *= -1;
+			keyPitchDirection *= -1;
 		}
 		else
 		{
 			addedYaw *= -1;
+			keyYawDirection *= -1;
 		}
 
-		if (addedYaw != 0)
+		// keyCameraSpeed is in drag pixels per millisecond
+		double keySpeed = settings.getKeyCameraSpeed() * 1000;
+		rotationIntegrator.advance(pose.frameNanos,
+			keyYawDirection * keySpeed * YAW_UNIT_SCALE,
+			keyPitchDirection * keySpeed * PreCalculatedTransformations.PITCH_SCALE);
+
+		int yawChange = (int) (addedYaw * YAW_UNIT_SCALE) + rotationIntegrator.takeYaw();
+		int scaledPitch = (int) (addedPitch * PreCalculatedTransformations.PITCH_SCALE) + rotationIntegrator.takePitch();
+
+		// Targets and pitch were read from the client once this frame, CameraWriteBack sets whatever changed
+		if (yawChange != 0)
 		{
-			client.setCameraYawTarget(Math.floorMod(client.getCameraYawTarget() + (int) (addedYaw * YAW_UNIT_SCALE), CAMERA_YAW_RANGE));
+			pose.yawTarget = Math.floorMod(pose.yawTarget + yawChange, CAMERA_YAW_RANGE);
 		}
 
-		double scaledPitch = addedPitch * PreCalculatedTransformations.PITCH_SCALE;
-
-		if (scaledPitch != 0 && client.getCameraPitchTarget() + scaledPitch < PreCalculatedTransformations.MAX_PITCH && client.getCameraPitchTarget() + scaledPitch >= 0)
+		int pitchTarget = pose.pitchTarget;
+		if (scaledPitch != 0 && pitchTarget + scaledPitch < PreCalculatedTransformations.MAX_PITCH && pitchTarget + scaledPitch >= 0)
 		{
-			int currentPitch = client.getCameraPitch();
+			int currentPitch = pose.clientPitch;
 
 			// If we've gone below the current pitch limit, thus the adjusting pitch got stuck, shift back to it
-			if (lastPitch == currentPitch && currentPitch >= client.getCameraPitchTarget() && scaledPitch < 0)
+			if (lastPitch == currentPitch && currentPitch >= pitchTarget && scaledPitch < 0)
 			{
-				client.setCameraPitchTarget(client.getCameraPitch());
+				pitchTarget = currentPitch;
 			}
 			else
 			{
-				client.setCameraPitchTarget(client.getCameraPitchTarget() + (int) scaledPitch);
+				pitchTarget += scaledPitch;
 			}
 			lastPitch = currentPitch;
 		}
+		pose.pitchTarget = pitchTarget;
+	}
+
+	/**
+	 * @return whether no input is waiting, held or still turning the camera, so another frame would change nothing
+	 */
+	public boolean isIdle()
+	{
+		return inputEvents.isEmpty()
+			&& !rightKeyPressed && !leftKeyPressed && !upKeyPressed && !downKeyPressed
+			&& !middleMousePressed && dragDeltaX == 0 && dragDeltaY == 0
+			&& rotationIntegrator.isAtRest();
+	}
+
+	/**
+	 * @return whether the listeners have queued input the draw thread hasn't applied yet
+	 */
+	public boolean hasPendingInput()
+	{
+		return !inputEvents.isEmpty();
+	}
+
+	void drainInputEvents()
+	{
+		inputEvents.drain(applyInputEvent);
+		if (inputEvents.clearOverflow())
+		{
+			// A release may have been dropped, so don't leave the camera spinning
+			rightKeyPressed = false;
+			leftKeyPressed = false;
+			upKeyPressed = false;
+			downKeyPressed = false;
+			middleMousePressed = false;
+		}
+	}
+
+	private void applyInputEvent(int type, int a, int b)
+	{
+		if (inputTap != null)
+		{
+			inputTap.onInputEvent(type, a, b);
+		}
+
+		switch (type)
+		{
+			case InputEventRing.KEY_PRESSED:
+			case InputEventRing.KEY_RELEASED:
+				setKeyState(a, type == InputEventRing.KEY_PRESSED);
+				break;
+			case InputEventRing.MOUSE_PRESSED:
+				middleMousePressed = true;
+				lastMouseX = a;
+				lastMouseY = b;
+				break;
+			case InputEventRing.MOUSE_DRAGGED:
+			case InputEventRing.MOUSE_RELEASED:
+				if (middleMousePressed)
+				{
+					dragDeltaX += a - lastMouseX;
+					dragDeltaY += b - lastMouseY;
+				}
+				lastMouseX = a;
+				lastMouseY = b;
+				if (type == InputEventRing.MOUSE_RELEASED)
+				{
+					middleMousePressed = false;
+				}
+				break;
+		}
+	}
+
+	private void setKeyState(int action, boolean pressed)
+	{
+		switch (action)
+		{
+			case Keymap.ROTATE_RIGHT:
+				rightKeyPressed = pressed;
+				break;
+			case Keymap.ROTATE_LEFT:
+				leftKeyPressed = pressed;
+				break;
+			case Keymap.ROTATE_UP:
+				upKeyPressed = pressed;
+				break;
+			case Keymap.ROTATE_DOWN:
+				downKeyPressed = pressed;
+				break;
+		}
 	}
 
 	/*
@@ -154,66 +285,43 @@ public class InputHandler implements KeyListener, MouseListener
 	@Override
 	public void keyPressed(KeyEvent e)
 	{
-		switch (e.getKeyCode())
+		Keymap keymap = firstPersonPlugin.getConfigSnapshot().getKeymap();
+		int keyCode = e.getKeyCode();
+		int action = keymap.action(keyCode, e.getModifiersEx());
+		if (keymap.isConsumed(keyCode) || Keymap.isRotation(action))
 		{
-			case KeyEvent.VK_RIGHT:
-				e.consume();
-				rightKeyPressed = true;
-				break;
-			case KeyEvent.VK_LEFT:
-				e.consume();
-				leftKeyPressed = true;
-				break;
-			case KeyEvent.VK_UP:
-				e.consume();
-				upKeyPressed = true;
-				break;
-			case KeyEvent.VK_DOWN:
-				e.consume();
-				downKeyPressed = true;
-				break;
-			case KeyEvent.VK_E:
-			case KeyEvent.VK_R:
-			case KeyEvent.VK_F1:
-			case KeyEvent.VK_F:
-			case KeyEvent.VK_SPACE:
-			case KeyEvent.VK_PAGE_UP:
-			case KeyEvent.VK_PAGE_DOWN:
-			case KeyEvent.VK_ESCAPE:
-			case KeyEvent.VK_SHIFT:
-			case KeyEvent.VK_D:
-			case KeyEvent.VK_A:
-			case KeyEvent.VK_W:
-			case KeyEvent.VK_S:
-                e.consume();
-				break;
+			e.consume();
+		}
+
+		if (Keymap.isRotation(action))
+		{
+			heldRotations[action] = true;
+			inputEvents.offer(InputEventRing.KEY_PRESSED, action, 0);
 		}
 	}
 
 	@Override
 	public void keyReleased(KeyEvent e)
 	{
-		switch (e.getKeyCode())
+		int action = firstPersonPlugin.getConfigSnapshot().getKeymap().action(e.getKeyCode());
+		// A press without the binding's modifiers went to the client, so its release does too
+		if (Keymap.isRotation(action) && heldRotations[action])
 		{
-			case KeyEvent.VK_RIGHT:
-				e.consume();
-				rightKeyPressed = false;
-				break;
-			case KeyEvent.VK_LEFT:
-				e.consume();
-				leftKeyPressed = false;
-				break;
-			case KeyEvent.VK_UP:
-				e.consume();
-				upKeyPressed = false;
-				break;
-			case KeyEvent.VK_DOWN:
-				e.consume();
-				downKeyPressed = false;
-				break;
+			heldRotations[action] = false;
+			e.consume();
+			inputEvents.offer(InputEventRing.KEY_RELEASED, action, 0);
 		}
 	}
 
+	/**
+	 * Queues an event as the listeners would, with key events carrying a {@link Keymap} action. Used to replay
+	 * recorded sessions.
+	 */
+	public void queueInputEvent(int type, int a, int b)
+	{
+		inputEvents.offer(type, a, b);
+	}
+
 	@Override
 	public MouseEvent mouseClicked(MouseEvent mouseEvent)
 	{
@@ -225,9 +333,7 @@ public class InputHandler implements KeyListener, MouseListener
 	{
 		if (mouseEvent.getButton() == MouseEvent.BUTTON2)
 		{
-			middleMousePressed = true;
-			xPosOfMouseDown = mouseEvent.getX();
-			yPosOfMouseDown = mouseEvent.getY();
+			inputEvents.offer(InputEventRing.MOUSE_PRESSED, mouseEvent.getX(), mouseEvent.getY());
 			mouseEvent.consume();
 		}
 		return mouseEvent;
@@ -238,9 +344,7 @@ public class InputHandler implements KeyListener, MouseListener
 	{
 		if (mouseEvent.getButton() == MouseEvent.BUTTON2)
 		{
-			middleMousePressed = false;
-			xPosOfMouseDown = mouseEvent.getX();
-			yPosOfMouseDown = mouseEvent.getY();
+			inputEvents.offer(InputEventRing.MOUSE_RELEASED, mouseEvent.getX(), mouseEvent.getY());
 			mouseEvent.consume();
 		}
 		return mouseEvent;
@@ -261,6 +365,10 @@ public class InputHandler implements KeyListener, MouseListener
 	@Override
 	public MouseEvent mouseDragged(MouseEvent mouseEvent)
 	{
+		if ((mouseEvent.getModifiersEx() & MouseEvent.BUTTON2_DOWN_MASK) != 0)
+		{
+			inputEvents.offer(InputEventRing.MOUSE_DRAGGED, mouseEvent.getX(), mouseEvent.getY());
+		}
 		return mouseEvent;
 	}
 
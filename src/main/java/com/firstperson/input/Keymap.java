@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.input;
+
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.config.Keybind;
+
+/**
+ * The configured key bindings, compiled into a table indexed by key code so a key event is handled with one array
+ * read. Built with the config snapshot, so only when the config changes.
+ * <p>
+ * Each key code maps to at most one action. If the toggle shares a key with a rotation, the toggle wins. A binding to
+ * a modifier on its own, such as Shift, is entered under that modifier's key code. The modifiers a binding is held
+ * with are kept with its action, so Ctrl+Left rotates but a plain Left is left to the client.
+ */
+@Slf4j
+public final class Keymap
+{
+	public static final int NONE = 0;
+	public static final int ROTATE_LEFT = 1;
+	public static final int ROTATE_RIGHT = 2;
+	public static final int ROTATE_UP = 3;
+	public static final int ROTATE_DOWN = 4;
+	public static final int TOGGLE = 5;
+
+	// Covers every KeyEvent.VK_ constant, extended key codes above it are never bound
+	private static final int KEY_CODES = 1 << 16;
+	private static final int MODIFIERS = InputEvent.SHIFT_DOWN_MASK | InputEvent.CTRL_DOWN_MASK | InputEvent.ALT_DOWN_MASK
+		| InputEvent.META_DOWN_MASK;
+
+	private final byte[] actions = new byte[KEY_CODES];
+	// Modifiers that must be held for each action, indexed by action
+	private final int[] actionModifiers = new int[TOGGLE + 1];
+	private final long[] consumed = new long[KEY_CODES / Long.SIZE];
+
+	/**
+	 * Checked in full after the table finds a toggle candidate, so modifiers are matched the same way as everywhere
+	 * else in the client
+	 */
+	@Getter
+	private final Keybind toggleKeybind;
+
+	private Keymap(Keybind toggleKeybind)
+	{
+		this.toggleKeybind = toggleKeybind;
+	}
+
+	/**
+	 * @param consumedKeys comma separated {@link KeyEvent} key names, such as {@code SPACE} or {@code VK_F1}, kept
+	 *                     from the client while first person is on. Unknown names are skipped.
+	 */
+	public static Keymap compile(Keybind rotateLeft, Keybind rotateRight, Keybind rotateUp, Keybind rotateDown, Keybind toggle, String consumedKeys)
+	{
+		Keymap keymap = new Keymap(toggle);
+		keymap.bind(rotateLeft, ROTATE_LEFT);
+		keymap.bind(rotateRight, ROTATE_RIGHT);
+		keymap.bind(rotateUp, ROTATE_UP);
+		keymap.bind(rotateDown, ROTATE_DOWN);
+		keymap.bind(toggle, TOGGLE);
+
+		if (consumedKeys != null)
+		{
+			for (String name : consumedKeys.split(","))
+			{
+				name = name.trim();
+				if (name.isEmpty())
+				{
+					continue;
+				}
+				int keyCode = parseKeyCode(name);
+				if (keyCode == KeyEvent.VK_UNDEFINED)
+				{
+					log.debug("Ignoring unknown key {} in consumed keys", name);
+					continue;
+				}
+				keymap.consume(keyCode);
+			}
+		}
+		return keymap;
+	}
+
+	/**
+	 * Matches a key press, with the modifiers held as {@link KeyEvent#getModifiersEx()} gives them.
+	 *
+	 * @return the action bound to the key with exactly those modifiers, {@link #NONE} if there is none
+	 */
+	public int action(int keyCode, int modifiersEx)
+	{
+		int action = action(keyCode);
+		return action != NONE && (modifiersEx & MODIFIERS) == actionModifiers[action] ? action : NONE;
+	}
+
+	/**
+	 * Matches on the key code alone, for releases, since a binding's modifiers may be let go before its key.
+	 *
+	 * @return the action bound to the key, {@link #NONE} if there is none
+	 */
+	public int action(int keyCode)
+	{
+		return (keyCode & ~(KEY_CODES - 1)) == 0 ? actions[keyCode] : NONE;
+	}
+
+	/**
+	 * @return whether the key is kept from the client while first person is on
+	 */
+	public boolean isConsumed(int keyCode)
+	{
+		return (keyCode & ~(KEY_CODES - 1)) == 0 && (consumed[keyCode >>> 6] & 1L << keyCode) != 0;
+	}
+
+	public static boolean isRotation(int action)
+	{
+		return action >= ROTATE_LEFT && action <= ROTATE_DOWN;
+	}
+
+	private void bind(Keybind keybind, int action)
+	{
+		int keyCode = keyCodeOf(keybind);
+		if (keyCode == KeyEvent.VK_UNDEFINED)
+		{
+			return;
+		}
+
+		actions[keyCode] = (byte) action;
+		// Pressing a modifier sets its own mask, so a modifier bound on its own matches like any other binding
+		actionModifiers[action] = keybind.getModifiers() & MODIFIERS;
+		// Rotations held with modifiers are only kept from the client when those modifiers are down too
+		boolean modifierOnly = keybind.getKeyCode() == KeyEvent.VK_UNDEFINED;
+		if (isRotation(action) && (modifierOnly || actionModifiers[action] == 0))
+		{
+			consume(keyCode);
+		}
+	}
+
+	private void consume(int keyCode)
+	{
+		if ((keyCode & ~(KEY_CODES - 1)) == 0)
+		{
+			consumed[keyCode >>> 6] |= 1L << keyCode;
+		}
+	}
+
+	private static int keyCodeOf(Keybind keybind)
+	{
+		if (keybind == null)
+		{
+			return KeyEvent.VK_UNDEFINED;
+		}
+		if (keybind.getKeyCode() != KeyEvent.VK_UNDEFINED)
+		{
+			return (keybind.getKeyCode() & ~(KEY_CODES - 1)) == 0 ? keybind.getKeyCode() : KeyEvent.VK_UNDEFINED;
+		}
+
+		switch (keybind.getModifiers())
+		{
+			case InputEvent.SHIFT_DOWN_MASK:
+				return KeyEvent.VK_SHIFT;
+			case InputEvent.CTRL_DOWN_MASK:
+				return KeyEvent.VK_CONTROL;
+			case InputEvent.ALT_DOWN_MASK:
+				return KeyEvent.VK_ALT;
+			case InputEvent.META_DOWN_MASK:
+				return KeyEvent.VK_META;
+			default:
+				return KeyEvent.VK_UNDEFINED;
+		}
+	}
+
+	static int parseKeyCode(String name)
+	{
+		String field = name.toUpperCase();
+		if (!field.startsWith("VK_"))
+		{
+			field = "VK_" + field;
+		}
+
+		try
+		{
+			return KeyEvent.class.getField(field).getInt(null);
+		}
+		catch (NoSuchFieldException | IllegalAccessException e)
+		{
+			return KeyEvent.VK_UNDEFINED;
+		}
+	}
+}
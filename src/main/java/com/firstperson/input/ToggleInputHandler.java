@@ -27,7 +27,6 @@ package com.firstperson.input;
 import com.firstperson.FirstPersonConfig;
 import com.firstperson.FirstPersonPlugin;
 import java.awt.event.KeyEvent;
-import net.runelite.client.config.Keybind;
 import net.runelite.client.input.KeyListener;
 
 public class ToggleInputHandler implements KeyListener
@@ -50,8 +49,8 @@ public class ToggleInputHandler implements KeyListener
 	@Override
 	public void keyPressed(KeyEvent e)
 	{
-		Keybind keybind = firstPersonConfig.toggleKeybind();
-		if (keybind.matches(e))
+		Keymap keymap = firstPersonPlugin.getConfigSnapshot().getKeymap();
+		if (keymap.action(e.getKeyCode()) == Keymap.TOGGLE && keymap.getToggleKeybind().matches(e))
 		{
 			if (firstPersonPlugin.isActive())
 			{
@@ -0,0 +1,545 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.picking;
+
+import java.util.Arrays;
+import lombok.Getter;
+
+/**
+ * Dynamic bounding volume hierarchy of axis aligned boxes, for finding the nearest box a ray hits without testing
+ * every box.
+ * <p>
+ * Items are added and removed one at a time as they spawn and despawn. Each leaf keeps the item's exact box and a
+ * box grown by a margin around it, and only the grown box is in the tree, so an item moving a little doesn't change
+ * the tree at all. Inserts pick the sibling that grows the tree's surface area the least, and rotations keep it
+ * balanced, so inserts, removals and ray casts take logarithmic time in the number of items.
+ * <p>
+ * Nodes live in flat arrays indexed by node id, and a leaf's node id is the handle returned for its item. Not
+ * thread safe.
+ */
+public final class BoundingVolumeHierarchy<T>
+{
+	public static final int NULL = -1;
+
+	private static final int STRIDE = 6;
+	private static final int INITIAL_CAPACITY = 64;
+
+	// How far the tree's box of a leaf reaches past its item's box
+	private final float margin;
+
+	// [minX, minY, minZ, maxX, maxY, maxZ] per node, grown by the margin for leaves
+	private float[] bounds;
+	// The item's own box, for leaves
+	private float[] itemBounds;
+	private int[] parent;
+	private int[] left;
+	private int[] right;
+	// 0 for leaves, -1 for free nodes
+	private int[] height;
+	private int[] tag;
+	private Object[] items;
+
+	private int root = NULL;
+	// Free nodes are chained through parent
+	private int free = NULL;
+
+	private int[] stack = new int[64];
+
+	/**
+	 * Items in the tree
+	 */
+	@Getter
+	private int size;
+
+	/**
+	 * How far along the ray the last {@link #raycast} hit
+	 */
+	@Getter
+	private float hitDistance;
+
+	public BoundingVolumeHierarchy(float margin)
+	{
+		this.margin = margin;
+		this.bounds = new float[0];
+		this.itemBounds = new float[0];
+		this.parent = new int[0];
+		this.left = new int[0];
+		this.right = new int[0];
+		this.height = new int[0];
+		this.tag = new int[0];
+		this.items = new Object[0];
+		grow(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Adds an item with its box.
+	 *
+	 * @param tag matched by {@link #raycast}, such as the plane the item is on
+	 * @return the item's handle
+	 */
+	public int insert(T item, int tag, float minX, float minY, float minZ, float maxX, float maxY, float maxZ)
+	{
+		int leaf = allocate();
+		items[leaf] = item;
+		this.tag[leaf] = tag;
+		setItemBounds(leaf, minX, minY, minZ, maxX, maxY, maxZ);
+		fatten(leaf);
+		insertLeaf(leaf);
+		size++;
+		return leaf;
+	}
+
+	public void remove(int proxy)
+	{
+		removeLeaf(proxy);
+		release(proxy);
+		size--;
+	}
+
+	/**
+	 * Updates an item's box and tag.
+	 *
+	 * @return whether the item had moved out of its grown box and was reinserted
+	 */
+	public boolean move(int proxy, int tag, float minX, float minY, float minZ, float maxX, float maxY, float maxZ)
+	{
+		this.tag[proxy] = tag;
+		setItemBounds(proxy, minX, minY, minZ, maxX, maxY, maxZ);
+		int b = proxy * STRIDE;
+		if (bounds[b] <= minX && bounds[b + 1] <= minY && bounds[b + 2] <= minZ
+			&& bounds[b + 3] >= maxX && bounds[b + 4] >= maxY && bounds[b + 5] >= maxZ)
+		{
+			return false;
+		}
+
+		removeLeaf(proxy);
+		fatten(proxy);
+		insertLeaf(proxy);
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T get(int proxy)
+	{
+		return (T) items[proxy];
+	}
+
+	public void clear()
+	{
+		Arrays.fill(items, null);
+		root = NULL;
+		free = NULL;
+		size = 0;
+		for (int node = parent.length - 1; node >= 0; node--)
+		{
+			parent[node] = free;
+			height[node] = -1;
+			free = node;
+		}
+	}
+
+	/**
+	 * @return the height of the tree, 0 for a single leaf and -1 when empty
+	 */
+	public int height()
+	{
+		return root == NULL ? -1 : height[root];
+	}
+
+	/**
+	 * Finds the nearest item with the tag whose box the ray enters from outside. Items whose box holds the ray's
+	 * origin are passed over, since the ray starts inside them.
+	 *
+	 * @return the item's handle, or {@link #NULL} if the ray hits nothing within {@code maxDistance} direction lengths
+	 */
+	public int raycast(float originX, float originY, float originZ, float directionX, float directionY, float directionZ,
+		float maxDistance, int tag)
+	{
+		int best = NULL;
+		float bestDistance = maxDistance;
+		if (root == NULL)
+		{
+			hitDistance = bestDistance;
+			return best;
+		}
+
+		float inverseX = 1 / directionX;
+		float inverseY = 1 / directionY;
+		float inverseZ = 1 / directionZ;
+
+		if (stack.length < 2 * height[root] + 2)
+		{
+			stack = new int[2 * height[root] + 2];
+		}
+		int top = 0;
+		stack[top++] = root;
+		while (top > 0)
+		{
+			int node = stack[--top];
+			if (height[node] == 0)
+			{
+				if (this.tag[node] != tag)
+				{
+					continue;
+				}
+				float distance = entry(itemBounds, node, originX, originY, originZ, inverseX, inverseY, inverseZ);
+				if (distance > 0 && distance < bestDistance)
+				{
+					best = node;
+					bestDistance = distance;
+				}
+				continue;
+			}
+
+			// Visit the nearer child first, so farther ones are more often skipped
+			int near = left[node];
+			int far = right[node];
+			float nearDistance = Math.max(0, entry(bounds, near, originX, originY, originZ, inverseX, inverseY, inverseZ));
+			float farDistance = Math.max(0, entry(bounds, far, originX, originY, originZ, inverseX, inverseY, inverseZ));
+			if (farDistance < nearDistance)
+			{
+				int swap = near;
+				near = far;
+				far = swap;
+				float swapDistance = nearDistance;
+				nearDistance = farDistance;
+				farDistance = swapDistance;
+			}
+			if (farDistance < bestDistance)
+			{
+				stack[top++] = far;
+			}
+			if (nearDistance < bestDistance)
+			{
+				stack[top++] = near;
+			}
+		}
+
+		hitDistance = bestDistance;
+		return best;
+	}
+
+	/**
+	 * @return how far along the ray it enters the box, negative when it starts inside, and positive infinity on a miss
+	 */
+	private static float entry(float[] boxes, int node, float originX, float originY, float originZ,
+		float inverseX, float inverseY, float inverseZ)
+	{
+		int b = node * STRIDE;
+		float x1 = (boxes[b] - originX) * inverseX;
+		float x2 = (boxes[b + 3] - originX) * inverseX;
+		float y1 = (boxes[b + 1] - originY) * inverseY;
+		float y2 = (boxes[b + 4] - originY) * inverseY;
+		float z1 = (boxes[b + 2] - originZ) * inverseZ;
+		float z2 = (boxes[b + 5] - originZ) * inverseZ;
+
+		float near = Math.max(Math.max(Math.min(x1, x2), Math.min(y1, y2)), Math.min(z1, z2));
+		float far = Math.min(Math.min(Math.max(x1, x2), Math.max(y1, y2)), Math.max(z1, z2));
+		return near <= far && far >= 0 ? near : Float.POSITIVE_INFINITY;
+	}
+
+	private void insertLeaf(int leaf)
+	{
+		if (root == NULL)
+		{
+			root = leaf;
+			parent[leaf] = NULL;
+			return;
+		}
+
+		// Walk down towards the sibling that adds the least surface area to the tree
+		int index = root;
+		while (height[index] > 0)
+		{
+			int l = left[index];
+			int r = right[index];
+			float area = area(index);
+			float combined = combinedArea(index, leaf);
+			float cost = 2 * combined;
+			// Everything below here grows by at least this much
+			float inheritance = 2 * (combined - area);
+			float leftCost = combinedArea(l, leaf) - (height[l] == 0 ? 0 : area(l)) + inheritance;
+			float rightCost = combinedArea(r, leaf) - (height[r] == 0 ? 0 : area(r)) + inheritance;
+			if (cost < leftCost && cost < rightCost)
+			{
+				break;
+			}
+			index = leftCost < rightCost ? l : r;
+		}
+
+		int sibling = index;
+		int oldParent = parent[sibling];
+		int newParent = allocate();
+		parent[newParent] = oldParent;
+		if (oldParent == NULL)
+		{
+			root = newParent;
+		}
+		else if (left[oldParent] == sibling)
+		{
+			left[oldParent] = newParent;
+		}
+		else
+		{
+			right[oldParent] = newParent;
+		}
+		left[newParent] = sibling;
+		right[newParent] = leaf;
+		parent[sibling] = newParent;
+		parent[leaf] = newParent;
+
+		refit(newParent);
+	}
+
+	private void removeLeaf(int leaf)
+	{
+		if (leaf == root)
+		{
+			root = NULL;
+			return;
+		}
+
+		int oldParent = parent[leaf];
+		int grandParent = parent[oldParent];
+		int sibling = left[oldParent] == leaf ? right[oldParent] : left[oldParent];
+		release(oldParent);
+		parent[sibling] = grandParent;
+		if (grandParent == NULL)
+		{
+			root = sibling;
+			return;
+		}
+
+		if (left[grandParent] == oldParent)
+		{
+			left[grandParent] = sibling;
+		}
+		else
+		{
+			right[grandParent] = sibling;
+		}
+		refit(grandParent);
+	}
+
+	/**
+	 * Rebalances and recomputes boxes and heights from a node up to the root.
+	 */
+	private void refit(int index)
+	{
+		while (index != NULL)
+		{
+			index = balance(index);
+			union(index, left[index], right[index]);
+			height[index] = 1 + Math.max(height[left[index]], height[right[index]]);
+			index = parent[index];
+		}
+	}
+
+	/**
+	 * Rotates the taller child of {@code a} up when its children's heights differ by more than one.
+	 *
+	 * @return the node now where {@code a} was
+	 */
+	private int balance(int a)
+	{
+		if (height[a] < 2)
+		{
+			return a;
+		}
+
+		int b = left[a];
+		int c = right[a];
+		int difference = height[c] - height[b];
+		if (difference > 1)
+		{
+			int f = left[c];
+			int g = right[c];
+			left[c] = a;
+			replaceChild(a, c);
+			parent[a] = c;
+			if (height[f] > height[g])
+			{
+				right[c] = f;
+				right[a] = g;
+				parent[g] = a;
+			}
+			else
+			{
+				right[c] = g;
+				right[a] = f;
+				parent[f] = a;
+			}
+			union(a, left[a], right[a]);
+			height[a] = 1 + Math.max(height[left[a]], height[right[a]]);
+			union(c, left[c], right[c]);
+			height[c] = 1 + Math.max(height[left[c]], height[right[c]]);
+			return c;
+		}
+		if (difference < -1)
+		{
+			int d = left[b];
+			int e = right[b];
+			left[b] = a;
+			replaceChild(a, b);
+			parent[a] = b;
+			if (height[d] > height[e])
+			{
+				right[b] = d;
+				left[a] = e;
+				parent[e] = a;
+			}
+			else
+			{
+				right[b] = e;
+				left[a] = d;
+				parent[d] = a;
+			}
+			union(a, left[a], right[a]);
+			height[a] = 1 + Math.max(height[left[a]], height[right[a]]);
+			union(b, left[b], right[b]);
+			height[b] = 1 + Math.max(height[left[b]], height[right[b]]);
+			return b;
+		}
+		return a;
+	}
+
+	/**
+	 * Puts {@code replacement} where {@code node} hangs from its parent.
+	 */
+	private void replaceChild(int node, int replacement)
+	{
+		int nodeParent = parent[node];
+		parent[replacement] = nodeParent;
+		if (nodeParent == NULL)
+		{
+			root = replacement;
+		}
+		else if (left[nodeParent] == node)
+		{
+			left[nodeParent] = replacement;
+		}
+		else
+		{
+			right[nodeParent] = replacement;
+		}
+	}
+
+	private void union(int node, int a, int b)
+	{
+		int n = node * STRIDE;
+		int i = a * STRIDE;
+		int j = b * STRIDE;
+		bounds[n] = Math.min(bounds[i], bounds[j]);
+		bounds[n + 1] = Math.min(bounds[i + 1], bounds[j + 1]);
+		bounds[n + 2] = Math.min(bounds[i + 2], bounds[j + 2]);
+		bounds[n + 3] = Math.max(bounds[i + 3], bounds[j + 3]);
+		bounds[n + 4] = Math.max(bounds[i + 4], bounds[j + 4]);
+		bounds[n + 5] = Math.max(bounds[i + 5], bounds[j + 5]);
+	}
+
+	private float area(int node)
+	{
+		int n = node * STRIDE;
+		return surfaceArea(bounds[n + 3] - bounds[n], bounds[n + 4] - bounds[n + 1], bounds[n + 5] - bounds[n + 2]);
+	}
+
+	private float combinedArea(int a, int b)
+	{
+		int i = a * STRIDE;
+		int j = b * STRIDE;
+		return surfaceArea(
+			Math.max(bounds[i + 3], bounds[j + 3]) - Math.min(bounds[i], bounds[j]),
+			Math.max(bounds[i + 4], bounds[j + 4]) - Math.min(bounds[i + 1], bounds[j + 1]),
+			Math.max(bounds[i + 5], bounds[j + 5]) - Math.min(bounds[i + 2], bounds[j + 2]));
+	}
+
+	private static float surfaceArea(float x, float y, float z)
+	{
+		return 2 * (x * y + y * z + z * x);
+	}
+
+	private void setItemBounds(int leaf, float minX, float minY, float minZ, float maxX, float maxY, float maxZ)
+	{
+		int b = leaf * STRIDE;
+		itemBounds[b] = minX;
+		itemBounds[b + 1] = minY;
+		itemBounds[b + 2] = minZ;
+		itemBounds[b + 3] = maxX;
+		itemBounds[b + 4] = maxY;
+		itemBounds[b + 5] = maxZ;
+	}
+
+	private void fatten(int leaf)
+	{
+		int b = leaf * STRIDE;
+		for (int i = 0; i < 3; i++)
+		{
+			bounds[b + i] = itemBounds[b + i] - margin;
+			bounds[b + 3 + i] = itemBounds[b + 3 + i] + margin;
+		}
+	}
+
+	private int allocate()
+	{
+		if (free == NULL)
+		{
+			grow(parent.length * 2);
+		}
+		int node = free;
+		free = parent[node];
+		parent[node] = NULL;
+		left[node] = NULL;
+		right[node] = NULL;
+		height[node] = 0;
+		return node;
+	}
+
+	private void release(int node)
+	{
+		items[node] = null;
+		height[node] = -1;
+		parent[node] = free;
+		free = node;
+	}
+
+	private void grow(int capacity)
+	{
+		int oldCapacity = parent.length;
+		bounds = Arrays.copyOf(bounds, capacity * STRIDE);
+		itemBounds = Arrays.copyOf(itemBounds, capacity * STRIDE);
+		parent = Arrays.copyOf(parent, capacity);
+		left = Arrays.copyOf(left, capacity);
+		right = Arrays.copyOf(right, capacity);
+		height = Arrays.copyOf(height, capacity);
+		tag = Arrays.copyOf(tag, capacity);
+		items = Arrays.copyOf(items, capacity);
+		for (int node = capacity - 1; node >= oldCapacity; node--)
+		{
+			height[node] = -1;
+			parent[node] = free;
+			free = node;
+		}
+	}
+}
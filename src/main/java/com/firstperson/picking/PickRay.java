@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.picking;
+
+import com.firstperson.projection.FirstPersonView;
+
+/**
+ * The ray from the first person eye through a point on the canvas.
+ * <p>
+ * The view projects a point {@code scale / depth} pixels from the centre of the viewport per unit off its axis, so
+ * the ray leaves the eye along the view direction plus the canvas point's offset from the centre over the scale.
+ */
+public final class PickRay
+{
+	public double originX;
+	public double originY;
+	public double originZ;
+
+	/*
+	 * Scaled so one unit of distance along the ray is one unit of depth in front of the camera
+	 */
+	public double directionX;
+	public double directionY;
+	public double directionZ;
+
+	/**
+	 * Aims the ray from the view's eye through a canvas point.
+	 */
+	public void aim(FirstPersonView view, int canvasX, int canvasY)
+	{
+		double screenX = (double) (canvasX - view.getViewportX() - view.getViewportWidth() / 2) / view.getScale();
+		double screenY = (double) (canvasY - view.getViewportY() - view.getViewportHeight() / 2) / view.getScale();
+
+		originX = view.getEyeX();
+		originY = view.getEyeY();
+		originZ = view.getEyeZ();
+		directionX = view.getForwardX() + view.getRightX() * screenX + view.getDownX() * screenY;
+		directionY = view.getForwardY() + view.getDownY() * screenY;
+		directionZ = view.getForwardZ() + view.getRightZ() * screenX + view.getDownZ() * screenY;
+	}
+}
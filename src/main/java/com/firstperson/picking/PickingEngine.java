@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.picking;
+
+import com.firstperson.detachedcamera.HeightfieldCache;
+import com.firstperson.projection.FirstPersonView;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import net.runelite.api.Actor;
+import net.runelite.api.Client;
+import net.runelite.api.DecorativeObject;
+import net.runelite.api.GameObject;
+import net.runelite.api.GroundObject;
+import net.runelite.api.NPC;
+import net.runelite.api.NPCComposition;
+import net.runelite.api.Perspective;
+import net.runelite.api.Player;
+import net.runelite.api.Renderable;
+import net.runelite.api.Scene;
+import net.runelite.api.Tile;
+import net.runelite.api.TileObject;
+import net.runelite.api.WallObject;
+import net.runelite.api.WorldEntity;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.LocalPoint;
+
+/**
+ * Finds the NPC, player or tile object under the mouse in the first person view.
+ * <p>
+ * Every entity in the scene has a box in a {@link BoundingVolumeHierarchy}, covering its footprint and rising to its
+ * model height. Tile objects are added and removed as they spawn and despawn. NPCs, players, and objects on world
+ * entities move between events, so their boxes are refitted before each pick, which only touches the tree when one
+ * has moved out of the margin its leaf was grown by. A pick then casts the ray through the mouse from the eye and
+ * takes the nearest box it enters, on the player's plane.
+ * <p>
+ * Only used on the client thread.
+ */
+public class PickingEngine
+{
+	// Lets actors walk about half a tile before their leaf is reinserted
+	private static final float MARGIN = Perspective.LOCAL_HALF_TILE_SIZE;
+	// For models that don't report a height
+	private static final int DEFAULT_HEIGHT = Perspective.LOCAL_TILE_SIZE;
+	// Past the farthest the GPU plugins draw
+	private static final float MAX_DEPTH = 100 * Perspective.LOCAL_TILE_SIZE;
+	private static final int SAMPLE_TERRAIN = Integer.MIN_VALUE;
+
+	private final Client client;
+	private final HeightfieldCache heightfieldCache;
+	private final BoundingVolumeHierarchy<Object> tree = new BoundingVolumeHierarchy<>(MARGIN);
+	private final PickRay ray = new PickRay();
+
+	// Tree handle of every entity added
+	private final Map<Object, Integer> proxies = new IdentityHashMap<>();
+
+	// Handles of entities refitted before each pick
+	private int[] moving = new int[64];
+	private int movingCount;
+
+	/*
+	 * Box of the entity being placed, written by bounds()
+	 */
+	private int plane;
+	private float minX;
+	private float minY;
+	private float minZ;
+	private float maxX;
+	private float maxY;
+	private float maxZ;
+
+	public PickingEngine(Client client, HeightfieldCache heightfieldCache)
+	{
+		this.client = client;
+		this.heightfieldCache = heightfieldCache;
+	}
+
+	/**
+	 * Starts tracking an NPC, other player or tile object. Adding one already tracked does nothing.
+	 */
+	public void add(Object entity)
+	{
+		if (entity == null || entity == client.getLocalPlayer() || proxies.containsKey(entity) || !bounds(entity))
+		{
+			return;
+		}
+
+		int proxy = tree.insert(entity, plane, minX, minY, minZ, maxX, maxY, maxZ);
+		proxies.put(entity, proxy);
+		if (isMoving(entity))
+		{
+			if (movingCount == moving.length)
+			{
+				moving = Arrays.copyOf(moving, movingCount * 2);
+			}
+			moving[movingCount++] = proxy;
+		}
+	}
+
+	public void remove(Object entity)
+	{
+		Integer proxy = proxies.remove(entity);
+		if (proxy == null)
+		{
+			return;
+		}
+
+		for (int i = 0; i < movingCount; i++)
+		{
+			if (moving[i] == proxy)
+			{
+				moving[i] = moving[--movingCount];
+				break;
+			}
+		}
+		tree.remove(proxy);
+	}
+
+	public void clear()
+	{
+		tree.clear();
+		proxies.clear();
+		movingCount = 0;
+	}
+
+	/**
+	 * Replaces everything tracked with what is in the top level scene now, for when the plugin starts on a loaded
+	 * scene or a new scene has loaded.
+	 */
+	public void rebuild()
+	{
+		clear();
+		WorldView topLevel = client.getTopLevelWorldView();
+		if (topLevel == null)
+		{
+			return;
+		}
+
+		for (NPC npc : topLevel.npcs())
+		{
+			add(npc);
+		}
+		for (Player player : topLevel.players())
+		{
+			add(player);
+		}
+
+		Scene scene = topLevel.getScene();
+		Tile[][][] tiles = scene == null ? null : scene.getTiles();
+		if (tiles == null)
+		{
+			return;
+		}
+		for (Tile[][] planeTiles : tiles)
+		{
+			for (Tile[] column : planeTiles)
+			{
+				for (Tile tile : column)
+				{
+					if (tile == null)
+					{
+						continue;
+					}
+					add(tile.getWallObject());
+					add(tile.getDecorativeObject());
+					add(tile.getGroundObject());
+					GameObject[] gameObjects = tile.getGameObjects();
+					if (gameObjects != null)
+					{
+						for (GameObject gameObject : gameObjects)
+						{
+							add(gameObject);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return how many entities are tracked
+	 */
+	public int size()
+	{
+		return tree.getSize();
+	}
+
+	/**
+	 * @return the nearest entity under a canvas point in the view, or null
+	 */
+	public Object pick(FirstPersonView view, int canvasX, int canvasY)
+	{
+		if (!view.contains(canvasX, canvasY))
+		{
+			return null;
+		}
+
+		refitMoving();
+		ray.aim(view, canvasX, canvasY);
+		int proxy = tree.raycast((float) ray.originX, (float) ray.originY, (float) ray.originZ,
+			(float) ray.directionX, (float) ray.directionY, (float) ray.directionZ, MAX_DEPTH, view.getPlane());
+		return proxy == BoundingVolumeHierarchy.NULL ? null : tree.get(proxy);
+	}
+
+	private void refitMoving()
+	{
+		for (int i = 0; i < movingCount; i++)
+		{
+			int proxy = moving[i];
+			if (bounds(tree.get(proxy)))
+			{
+				tree.move(proxy, plane, minX, minY, minZ, maxX, maxY, maxZ);
+			}
+		}
+	}
+
+	private static boolean isMoving(Object entity)
+	{
+		if (entity instanceof Actor)
+		{
+			return true;
+		}
+		LocalPoint location = ((TileObject) entity).getLocalLocation();
+		return location != null && location.getWorldView() != WorldView.TOPLEVEL;
+	}
+
+	/**
+	 * Places the entity's box in main world local coordinates, with y as height like the camera pose.
+	 *
+	 * @return false if it has no position in the scene
+	 */
+	private boolean bounds(Object entity)
+	{
+		if (entity instanceof Actor)
+		{
+			Actor actor = (Actor) entity;
+			int size = 1;
+			if (actor instanceof NPC)
+			{
+				NPCComposition composition = ((NPC) actor).getTransformedComposition();
+				size = composition == null ? 1 : composition.getSize();
+			}
+			if (actor.getWorldLocation() == null || !place(actor.getLocalLocation(), size, size, SAMPLE_TERRAIN))
+			{
+				return false;
+			}
+			plane = actor.getWorldLocation().getPlane();
+			minY = maxY - Math.max(actor.getLogicalHeight(), 1);
+			return true;
+		}
+
+		TileObject object = (TileObject) entity;
+		int sizeX = 1;
+		int sizeY = 1;
+		Renderable renderable;
+		if (object instanceof GameObject)
+		{
+			GameObject gameObject = (GameObject) object;
+			sizeX = gameObject.sizeX();
+			sizeY = gameObject.sizeY();
+			renderable = gameObject.getRenderable();
+		}
+		else if (object instanceof WallObject)
+		{
+			renderable = ((WallObject) object).getRenderable1();
+		}
+		else if (object instanceof DecorativeObject)
+		{
+			renderable = ((DecorativeObject) object).getRenderable();
+		}
+		else if (object instanceof GroundObject)
+		{
+			renderable = ((GroundObject) object).getRenderable();
+		}
+		else
+		{
+			return false;
+		}
+
+		if (!place(object.getLocalLocation(), sizeX, sizeY, object.getZ()))
+		{
+			return false;
+		}
+		plane = object.getPlane();
+		int modelHeight = renderable == null ? 0 : renderable.getModelHeight();
+		minY = maxY - (modelHeight > 0 ? modelHeight : DEFAULT_HEIGHT);
+		return true;
+	}
+
+	/**
+	 * Sets the horizontal extent of a footprint centred on a local point, and the ground height under it as maxY.
+	 *
+	 * @param groundHeight the height to stand it on, or {@link #SAMPLE_TERRAIN}
+	 */
+	private boolean place(LocalPoint location, int sizeX, int sizeY, int groundHeight)
+	{
+		if (location == null)
+		{
+			return false;
+		}
+
+		WorldView topLevel = client.getTopLevelWorldView();
+		if (location.getWorldView() == WorldView.TOPLEVEL)
+		{
+			if (groundHeight == SAMPLE_TERRAIN)
+			{
+				groundHeight = heightfieldCache.getHeight(topLevel, location.getX(), location.getY());
+			}
+		}
+		else
+		{
+			if (groundHeight == SAMPLE_TERRAIN)
+			{
+				groundHeight = Perspective.getTileHeight(client, location, topLevel.getPlane());
+			}
+			WorldEntity worldEntity = topLevel.worldEntities().byIndex(location.getWorldView());
+			if (worldEntity == null)
+			{
+				return false;
+			}
+			location = worldEntity.transformToMainWorld(location);
+		}
+
+		float halfX = sizeX * Perspective.LOCAL_HALF_TILE_SIZE;
+		float halfY = sizeY * Perspective.LOCAL_HALF_TILE_SIZE;
+		minX = location.getX() - halfX;
+		maxX = location.getX() + halfX;
+		minZ = location.getY() - halfY;
+		maxZ = location.getY() + halfY;
+		maxY = groundHeight;
+		return true;
+	}
+}
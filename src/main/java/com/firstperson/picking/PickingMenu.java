@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.picking;
+
+import net.runelite.api.Client;
+import net.runelite.api.GameObject;
+import net.runelite.api.MenuAction;
+import net.runelite.api.MenuEntry;
+import net.runelite.api.NPC;
+import net.runelite.api.NPCComposition;
+import net.runelite.api.ObjectComposition;
+import net.runelite.api.Player;
+import net.runelite.api.Point;
+import net.runelite.api.TileObject;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.LocalPoint;
+
+/**
+ * Adds the menu entries the client would have offered for an entity picked by {@link PickingEngine}, on top of the
+ * menu so its first option is the left click.
+ */
+public class PickingMenu
+{
+	private static final MenuAction[] NPC_ACTIONS = {
+		MenuAction.NPC_FIRST_OPTION,
+		MenuAction.NPC_SECOND_OPTION,
+		MenuAction.NPC_THIRD_OPTION,
+		MenuAction.NPC_FOURTH_OPTION,
+		MenuAction.NPC_FIFTH_OPTION,
+	};
+
+	private static final MenuAction[] OBJECT_ACTIONS = {
+		MenuAction.GAME_OBJECT_FIRST_OPTION,
+		MenuAction.GAME_OBJECT_SECOND_OPTION,
+		MenuAction.GAME_OBJECT_THIRD_OPTION,
+		MenuAction.GAME_OBJECT_FOURTH_OPTION,
+		MenuAction.GAME_OBJECT_FIFTH_OPTION,
+	};
+
+	private static final String NPC_COLOUR = "<col=ffff00>";
+	private static final String OBJECT_COLOUR = "<col=00ffff>";
+	private static final String PLAYER_COLOUR = "<col=ffffff>";
+
+	private final Client client;
+
+	public PickingMenu(Client client)
+	{
+		this.client = client;
+	}
+
+	public void addEntries(Object entity)
+	{
+		if (entity instanceof NPC)
+		{
+			NPC npc = (NPC) entity;
+			addNpcEntries(npc, worldViewId(npc.getLocalLocation()));
+		}
+		else if (entity instanceof Player)
+		{
+			Player player = (Player) entity;
+			addPlayerEntries(player, worldViewId(player.getLocalLocation()));
+		}
+		else if (entity instanceof TileObject)
+		{
+			TileObject object = (TileObject) entity;
+			addObjectEntries(object, worldViewId(object.getLocalLocation()));
+		}
+	}
+
+	/**
+	 * Entities on a world entity, such as a boat, are looked up in its world view by the menu action.
+	 */
+	private static int worldViewId(LocalPoint location)
+	{
+		return location == null ? WorldView.TOPLEVEL : location.getWorldView();
+	}
+
+	private void addNpcEntries(NPC npc, int worldViewId)
+	{
+		NPCComposition composition = npc.getTransformedComposition();
+		if (composition == null)
+		{
+			return;
+		}
+
+		String target = NPC_COLOUR + composition.getName();
+		int index = npc.getIndex();
+		// Each entry goes above the last, so the first action is added last
+		add("Examine", target, MenuAction.EXAMINE_NPC, index, 0, 0, worldViewId);
+		String[] actions = composition.getActions();
+		for (int i = Math.min(actions.length, NPC_ACTIONS.length) - 1; i >= 0; i--)
+		{
+			if (actions[i] != null)
+			{
+				add(actions[i], target, NPC_ACTIONS[i], index, 0, 0, worldViewId);
+			}
+		}
+	}
+
+	private void addPlayerEntries(Player player, int worldViewId)
+	{
+		String[] options = client.getPlayerOptions();
+		int[] types = client.getPlayerMenuTypes();
+		if (options == null || types == null)
+		{
+			return;
+		}
+
+		String target = PLAYER_COLOUR + player.getName();
+		for (int i = Math.min(options.length, types.length) - 1; i >= 0; i--)
+		{
+			if (options[i] != null && !options[i].isEmpty())
+			{
+				// Options such as Attack on a lower level player come with an offset that puts them below Walk here
+				int type = types[i];
+				boolean deprioritized = type >= MenuAction.MENU_ACTION_DEPRIORITIZE_OFFSET;
+				if (deprioritized)
+				{
+					type -= MenuAction.MENU_ACTION_DEPRIORITIZE_OFFSET;
+				}
+				add(options[i], target, MenuAction.of(type), player.getId(), 0, 0, worldViewId)
+					.setDeprioritized(deprioritized);
+			}
+		}
+	}
+
+	private void addObjectEntries(TileObject object, int worldViewId)
+	{
+		ObjectComposition composition = client.getObjectDefinition(object.getId());
+		if (composition != null && composition.getImpostorIds() != null)
+		{
+			composition = composition.getImpostor();
+		}
+		// Scenery without a name, such as most walls, has no options
+		if (composition == null || composition.getName() == null || composition.getName().equals("null"))
+		{
+			return;
+		}
+
+		// Multi tile objects are interacted with from their south west tile
+		int sceneX;
+		int sceneY;
+		if (object instanceof GameObject)
+		{
+			Point min = ((GameObject) object).getSceneMinLocation();
+			sceneX = min.getX();
+			sceneY = min.getY();
+		}
+		else
+		{
+			LocalPoint location = object.getLocalLocation();
+			sceneX = location.getSceneX();
+			sceneY = location.getSceneY();
+		}
+
+		String target = OBJECT_COLOUR + composition.getName();
+		int id = object.getId();
+		add("Examine", target, MenuAction.EXAMINE_OBJECT, id, sceneX, sceneY, worldViewId);
+		String[] actions = composition.getActions();
+		for (int i = Math.min(actions.length, OBJECT_ACTIONS.length) - 1; i >= 0; i--)
+		{
+			if (actions[i] != null)
+			{
+				add(actions[i], target, OBJECT_ACTIONS[i], id, sceneX, sceneY, worldViewId);
+			}
+		}
+	}
+
+	private MenuEntry add(String option, String target, MenuAction type, int identifier, int param0, int param1,
+		int worldViewId)
+	{
+		return client.createMenuEntry(-1)
+			.setOption(option)
+			.setTarget(target)
+			.setType(type)
+			.setIdentifier(identifier)
+			.setParam0(param0)
+			.setParam1(param1)
+			.setWorldViewId(worldViewId);
+	}
+}
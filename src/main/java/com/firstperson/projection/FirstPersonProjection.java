@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.projection;
+
+import com.firstperson.detachedcamera.CameraPose;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import net.runelite.api.Client;
+
+/**
+ * Where the first person camera really is, for overlays that need to line up with the first person view.
+ * <p>
+ * Only this plugin knows the eye the client's camera has been moved to, so {@link net.runelite.api.Perspective}
+ * projects as if the camera were still in its usual place. Other plugins can inject this instead, read the current
+ * {@link FirstPersonView} and project their points with it:
+ *
+ * <pre>
+ * FirstPersonView view = projection.getView();
+ * if (view != null &amp;&amp; view.getVersion() != projectedVersion)
+ * {
+ *     view.project(xs, ys, heights, 0, count, canvasXs, canvasYs, null);
+ *     projectedVersion = view.getVersion();
+ * }
+ * </pre>
+ *
+ * A new view is published on the client thread each frame the camera moves, and swapped in whole, so it may be read
+ * from any thread.
+ */
+@Singleton
+public class FirstPersonProjection
+{
+	private final Client client;
+
+	private volatile FirstPersonView view;
+
+	// Only written on the client thread
+	private long version;
+
+	@Inject
+	public FirstPersonProjection(Client client)
+	{
+		this.client = client;
+	}
+
+	/**
+	 * @return the view the last frame was drawn with, or null while first person is off
+	 */
+	public FirstPersonView getView()
+	{
+		return view;
+	}
+
+	/**
+	 * Publishes the view for a frame drawn from the pose's eye towards a focal point, if it differs from the last one.
+	 * Must be called on the client thread.
+	 */
+	public void publish(CameraPose pose, double focalX, double focalY, double focalZ)
+	{
+		int scale = client.getScale();
+		int viewportX = client.getViewportXOffset();
+		int viewportY = client.getViewportYOffset();
+		int viewportWidth = client.getViewportWidth();
+		int viewportHeight = client.getViewportHeight();
+
+		FirstPersonView last = view;
+		if (last != null
+			&& last.getEyeX() == pose.eyeX && last.getEyeY() == pose.eyeY && last.getEyeZ() == pose.eyeZ
+			&& last.getFocalX() == focalX && last.getFocalY() == focalY && last.getFocalZ() == focalZ
+			&& last.getPlane() == pose.plane && last.getScale() == scale
+			&& last.getViewportX() == viewportX && last.getViewportY() == viewportY
+			&& last.getViewportWidth() == viewportWidth && last.getViewportHeight() == viewportHeight)
+		{
+			return;
+		}
+
+		FirstPersonView next = FirstPersonView.of(version + 1, pose.frameNanos, pose.plane,
+			pose.eyeX, pose.eyeY, pose.eyeZ, focalX, focalY, focalZ,
+			scale, viewportX, viewportY, viewportWidth, viewportHeight);
+		if (next != null)
+		{
+			version++;
+			view = next;
+		}
+	}
+
+	/**
+	 * Withdraws the view, for when first person is switched off.
+	 */
+	public void clear()
+	{
+		view = null;
+	}
+}
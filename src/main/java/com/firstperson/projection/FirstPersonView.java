@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.projection;
+
+import lombok.Getter;
+
+/**
+ * The first person camera as it was drawn on one frame, published by {@link FirstPersonProjection}.
+ * <p>
+ * Positions are main world local coordinates with y as the height axis, negative upwards, like the client's camera:
+ * {@code x} is local x and {@code z} is local y. The view holds its camera basis and the matrix taking a point to
+ * camera space, both worked out once when it is published, so projecting with it needs no trig. A view never
+ * changes once published, so it can be kept and read from any thread.
+ */
+public final class FirstPersonView
+{
+	/**
+	 * Closest a point may be in front of the camera and still be projected, as the client clips it
+	 */
+	public static final float NEAR = 50;
+
+	/**
+	 * Written to a projected point's canvas x and y when it is behind the near plane
+	 */
+	public static final int NOT_VISIBLE = Integer.MIN_VALUE;
+
+	/**
+	 * Goes up by one with each view published, so a caller can tell whether anything it projected is out of date
+	 */
+	@Getter
+	private final long version;
+
+	// System.nanoTime() of the frame it was drawn on
+	@Getter
+	private final long frameNanos;
+
+	@Getter
+	private final int plane;
+
+	@Getter
+	private final double eyeX;
+	@Getter
+	private final double eyeY;
+	@Getter
+	private final double eyeZ;
+
+	@Getter
+	private final double focalX;
+	@Getter
+	private final double focalY;
+	@Getter
+	private final double focalZ;
+
+	/*
+	 * Unit camera axes: forward to the focal point, right level with the ground, down towards canvas y
+	 */
+	@Getter
+	private final double forwardX;
+	@Getter
+	private final double forwardY;
+	@Getter
+	private final double forwardZ;
+	@Getter
+	private final double rightX;
+	@Getter
+	private final double rightZ;
+	@Getter
+	private final double downX;
+	@Getter
+	private final double downY;
+	@Getter
+	private final double downZ;
+
+	// Pixels per unit off the view axis at one unit of depth, the client's 3d zoom
+	@Getter
+	private final int scale;
+	@Getter
+	private final int viewportX;
+	@Getter
+	private final int viewportY;
+	@Getter
+	private final int viewportWidth;
+	@Getter
+	private final int viewportHeight;
+
+	/*
+	 * Rows taking local x, local y and height to camera right, down and depth, with the eye's offset folded in
+	 */
+	private final float rightFromX;
+	private final float rightFromY;
+	private final float rightOffset;
+	private final float downFromX;
+	private final float downFromY;
+	private final float downFromHeight;
+	private final float downOffset;
+	private final float depthFromX;
+	private final float depthFromY;
+	private final float depthFromHeight;
+	private final float depthOffset;
+	private final int centreX;
+	private final int centreY;
+
+	/**
+	 * @return the view, or null if the eye and focal point don't give a horizontal direction to look along
+	 */
+	static FirstPersonView of(long version, long frameNanos, int plane,
+		double eyeX, double eyeY, double eyeZ, double focalX, double focalY, double focalZ,
+		int scale, int viewportX, int viewportY, int viewportWidth, int viewportHeight)
+	{
+		double x = focalX - eyeX;
+		double y = focalY - eyeY;
+		double z = focalZ - eyeZ;
+		if (x == 0 && z == 0 || scale <= 0)
+		{
+			return null;
+		}
+		return new FirstPersonView(version, frameNanos, plane, eyeX, eyeY, eyeZ, focalX, focalY, focalZ,
+			scale, viewportX, viewportY, viewportWidth, viewportHeight);
+	}
+
+	private FirstPersonView(long version, long frameNanos, int plane,
+		double eyeX, double eyeY, double eyeZ, double focalX, double focalY, double focalZ,
+		int scale, int viewportX, int viewportY, int viewportWidth, int viewportHeight)
+	{
+		this.version = version;
+		this.frameNanos = frameNanos;
+		this.plane = plane;
+		this.eyeX = eyeX;
+		this.eyeY = eyeY;
+		this.eyeZ = eyeZ;
+		this.focalX = focalX;
+		this.focalY = focalY;
+		this.focalZ = focalZ;
+		this.scale = scale;
+		this.viewportX = viewportX;
+		this.viewportY = viewportY;
+		this.viewportWidth = viewportWidth;
+		this.viewportHeight = viewportHeight;
+
+		double x = focalX - eyeX;
+		double y = focalY - eyeY;
+		double z = focalZ - eyeZ;
+		double length = Math.sqrt(x * x + y * y + z * z);
+		double horizontal = Math.sqrt(x * x + z * z);
+		forwardX = x / length;
+		forwardY = y / length;
+		forwardZ = z / length;
+
+		// A quarter turn clockwise from forward when looking down on the scene
+		rightX = z / horizontal;
+		rightZ = -x / horizontal;
+
+		// Forward crossed with right
+		downX = forwardY * rightZ;
+		downY = forwardZ * rightX - forwardX * rightZ;
+		downZ = -forwardY * rightX;
+
+		rightFromX = (float) rightX;
+		rightFromY = (float) rightZ;
+		rightOffset = (float) -(rightX * eyeX + rightZ * eyeZ);
+		downFromX = (float) downX;
+		downFromY = (float) downZ;
+		downFromHeight = (float) downY;
+		downOffset = (float) -(downX * eyeX + downY * eyeY + downZ * eyeZ);
+		depthFromX = (float) forwardX;
+		depthFromY = (float) forwardZ;
+		depthFromHeight = (float) forwardY;
+		depthOffset = (float) -(forwardX * eyeX + forwardY * eyeY + forwardZ * eyeZ);
+		centreX = viewportX + viewportWidth / 2;
+		centreY = viewportY + viewportHeight / 2;
+	}
+
+	/**
+	 * @return whether a canvas point is inside the 3d viewport
+	 */
+	public boolean contains(int canvasX, int canvasY)
+	{
+		return canvasX >= viewportX && canvasY >= viewportY
+			&& canvasX < viewportX + viewportWidth && canvasY < viewportY + viewportHeight;
+	}
+
+	/**
+	 * Projects a batch of points to the canvas as the first person camera sees them. Points are given as separate
+	 * coordinate arrays in the client's local coordinates, and the results are written to caller owned arrays, so a
+	 * caller can keep its buffers from frame to frame and nothing is allocated.
+	 *
+	 * @param height height of each point, negative upwards like {@link net.runelite.api.Perspective#localToCanvas}
+	 * @param canvasX receives the canvas x of each point, or {@link #NOT_VISIBLE} if it is behind the camera
+	 * @param canvasY receives the canvas y of each point, or {@link #NOT_VISIBLE}
+	 * @param depth receives how far in front of the camera each point is, may be null
+	 * @return how many of the points are in front of the camera
+	 */
+	public int project(float[] localX, float[] localY, float[] height, int offset, int count,
+		int[] canvasX, int[] canvasY, float[] depth)
+	{
+		int visible = 0;
+		float scale = this.scale;
+		for (int i = offset, end = offset + count; i < end; i++)
+		{
+			float x = localX[i];
+			float y = localY[i];
+			float h = height[i];
+			float pointDepth = depthFromX * x + depthFromY * y + depthFromHeight * h + depthOffset;
+			if (depth != null)
+			{
+				depth[i] = pointDepth;
+			}
+			if (pointDepth < NEAR)
+			{
+				canvasX[i] = NOT_VISIBLE;
+				canvasY[i] = NOT_VISIBLE;
+				continue;
+			}
+
+			float perDepth = scale / pointDepth;
+			// Rounded towards the centre like the client's integer projection
+			canvasX[i] = centreX + (int) ((rightFromX * x + rightFromY * y + rightOffset) * perDepth);
+			canvasY[i] = centreY + (int) ((downFromX * x + downFromY * y + downFromHeight * h + downOffset) * perDepth);
+			visible++;
+		}
+		return visible;
+	}
+}
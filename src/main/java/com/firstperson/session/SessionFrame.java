@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.session;
+
+/**
+ * One recorded frame: the client state the camera read going in, and what it worked out. Reused between frames.
+ */
+public class SessionFrame
+{
+	public long frameNanos;
+
+	/*
+	 * Client camera state read at the start of the frame
+	 */
+	public int cameraMode;
+	public int clientYawTarget;
+	public int clientPitchTarget;
+	public int clientPitch;
+	public int clientYaw;
+	public int gameCycle;
+	public int zoom;
+
+	/*
+	 * Where the local player was: their local point and world view, the top level plane, the terrain height under
+	 * them and their eye height above it, and their unfiltered position in the main world
+	 */
+	public int localX;
+	public int localY;
+	public int worldView;
+	public int plane;
+	public int tileHeight;
+	public int eyeHeight;
+	public double mainWorldX;
+	public double mainWorldY;
+
+	/*
+	 * What was written back to the client
+	 */
+	public int yawTarget;
+	public int pitchTarget;
+	public float focalX;
+	public float focalY;
+	public float focalZ;
+}
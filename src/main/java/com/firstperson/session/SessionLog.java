@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.session;
+
+/**
+ * Layout of a recorded camera session.
+ * <p>
+ * A log starts with {@link #MAGIC} and {@link #VERSION} as ints, followed by records that each begin with a type
+ * byte. A type of 0 marks the end. The file carries on past it with the zeroed rest of the last mapped window, which
+ * is also where a log cut short by a crash stops. All values are big endian.
+ * <ul>
+ * <li>{@link #SCENE}: size x and y as ints, then for each of the 4 planes (x + 1) &times; (y + 1) tile height ints
+ * followed by x &times; y tile setting bytes, all x-major. Written when recording starts and on every scene load.</li>
+ * <li>{@link #CONFIG}: inverse keys as a byte, key camera speed as a double.</li>
+ * <li>{@link #TICK}: nanos as a long, then the local player's world view, local x and y, and where that point was in
+ * the main world as x and y ints.</li>
+ * <li>{@link #INPUT}: an {@link com.firstperson.input.InputEventRing} event as type, a and b ints, in the order the
+ * draw thread applied them. Key events carry a {@link com.firstperson.input.Keymap} action rather than a key code.
+ * They belong to the next frame record.</li>
+ * <li>{@link #FRAME}: see {@link SessionFrame}.</li>
+ * <li>{@link #COLLISION}: the collision flags of a {@link com.firstperson.collision.DistanceField} going into use, as
+ * size x and y ints, then for each of the 4 planes a byte saying whether it has flags followed by x &times; y flag
+ * ints, x-major. A size of 0 means clipping stopped. Written before the frame it was first used in.</li>
+ * </ul>
+ */
+public final class SessionLog
+{
+	public static final int MAGIC = 0x46504353; // "FPCS"
+	public static final int VERSION = 5;
+
+	public static final String EXTENSION = ".fpcs";
+
+	public static final byte END = 0;
+	public static final byte SCENE = 1;
+	public static final byte CONFIG = 2;
+	public static final byte TICK = 3;
+	public static final byte INPUT = 4;
+	public static final byte FRAME = 5;
+	public static final byte COLLISION = 6;
+
+	public static final int PLANES = 4;
+
+	static final int HEADER_BYTES = 8;
+	static final int CONFIG_BYTES = 1 + 1 + 8;
+	static final int TICK_BYTES = 1 + 8 + 5 * 4;
+	static final int INPUT_BYTES = 1 + 3 * 4;
+	static final int FRAME_BYTES = 1 + 8 + 7 * 4 + 6 * 4 + 2 * 8 + 2 * 4 + 3 * 4;
+
+	private SessionLog()
+	{
+	}
+
+	static int sceneBytes(int sizeX, int sizeY)
+	{
+		return 1 + 2 * 4 + PLANES * ((sizeX + 1) * (sizeY + 1) * 4 + sizeX * sizeY);
+	}
+
+	static int collisionBytes(int sizeX, int sizeY)
+	{
+		return 1 + 2 * 4 + PLANES * (1 + sizeX * sizeY * 4);
+	}
+}
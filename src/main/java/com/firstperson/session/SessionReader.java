@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.session;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads back a {@link SessionLog} written by {@link SessionRecorder}, handing each record to a {@link Visitor} in
+ * the order it was written.
+ */
+public final class SessionReader
+{
+	public interface Visitor
+	{
+		void onScene(int sizeX, int sizeY, int[][][] tileHeights, byte[][][] tileSettings);
+
+		void onConfig(boolean inverseKeys, double keyCameraSpeed);
+
+		void onTick(long nanos, int worldView, int localX, int localY, int mainWorldX, int mainWorldY);
+
+		void onInput(int type, int a, int b);
+
+		/**
+		 * @param flags null when clipping stopped
+		 */
+		void onCollision(int[][][] flags, int sizeX, int sizeY);
+
+		/**
+		 * @param frame reused for every frame, copy anything that is kept
+		 */
+		void onFrame(SessionFrame frame);
+	}
+
+	private SessionReader()
+	{
+	}
+
+	/**
+	 * Reads the whole log.
+	 *
+	 * @throws IOException if the file can't be read or isn't a session log
+	 */
+	public static void read(Path path, Visitor visitor) throws IOException
+	{
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		try
+		{
+			if (buffer.getInt() != SessionLog.MAGIC)
+			{
+				throw new IOException(path + " is not a camera session");
+			}
+			int version = buffer.getInt();
+			if (version != SessionLog.VERSION)
+			{
+				throw new IOException(path + " is session version " + version + ", expected " + SessionLog.VERSION);
+			}
+
+			SessionFrame frame = new SessionFrame();
+			while (buffer.hasRemaining())
+			{
+				byte type = buffer.get();
+				switch (type)
+				{
+					case SessionLog.END:
+						return;
+					case SessionLog.SCENE:
+						readScene(buffer, visitor);
+						break;
+					case SessionLog.CONFIG:
+						visitor.onConfig(buffer.get() != 0, buffer.getDouble());
+						break;
+					case SessionLog.TICK:
+						visitor.onTick(buffer.getLong(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+						break;
+					case SessionLog.INPUT:
+						visitor.onInput(buffer.getInt(), buffer.getInt(), buffer.getInt());
+						break;
+					case SessionLog.FRAME:
+						readFrame(buffer, frame);
+						visitor.onFrame(frame);
+						break;
+					case SessionLog.COLLISION:
+						readCollision(buffer, visitor);
+						break;
+					default:
+						throw new IOException("Unknown record type " + type + " at " + (buffer.position() - 1) + " in " + path);
+				}
+			}
+		}
+		catch (BufferUnderflowException e)
+		{
+			throw new IOException(path + " ends partway through a record", e);
+		}
+	}
+
+	private static void readScene(MappedByteBuffer buffer, Visitor visitor)
+	{
+		int sizeX = buffer.getInt();
+		int sizeY = buffer.getInt();
+		int[][][] tileHeights = new int[SessionLog.PLANES][sizeX + 1][sizeY + 1];
+		byte[][][] tileSettings = new byte[SessionLog.PLANES][sizeX][sizeY];
+		for (int plane = 0; plane < SessionLog.PLANES; plane++)
+		{
+			for (int x = 0; x <= sizeX; x++)
+			{
+				for (int y = 0; y <= sizeY; y++)
+				{
+					tileHeights[plane][x][y] = buffer.getInt();
+				}
+			}
+			for (int x = 0; x < sizeX; x++)
+			{
+				buffer.get(tileSettings[plane][x]);
+			}
+		}
+		visitor.onScene(sizeX, sizeY, tileHeights, tileSettings);
+	}
+
+	private static void readCollision(MappedByteBuffer buffer, Visitor visitor)
+	{
+		int sizeX = buffer.getInt();
+		int sizeY = buffer.getInt();
+		if (sizeX == 0 && sizeY == 0)
+		{
+			visitor.onCollision(null, 0, 0);
+			return;
+		}
+
+		int[][][] flags = new int[SessionLog.PLANES][][];
+		for (int plane = 0; plane < SessionLog.PLANES; plane++)
+		{
+			boolean present = buffer.get() != 0;
+			int[][] planeFlags = new int[sizeX][sizeY];
+			for (int x = 0; x < sizeX; x++)
+			{
+				for (int y = 0; y < sizeY; y++)
+				{
+					planeFlags[x][y] = buffer.getInt();
+				}
+			}
+			flags[plane] = present ? planeFlags : null;
+		}
+		visitor.onCollision(flags, sizeX, sizeY);
+	}
+
+	private static void readFrame(MappedByteBuffer buffer, SessionFrame frame)
+	{
+		frame.frameNanos = buffer.getLong();
+		frame.cameraMode = buffer.getInt();
+		frame.clientYawTarget = buffer.getInt();
+		frame.clientPitchTarget = buffer.getInt();
+		frame.clientPitch = buffer.getInt();
+		frame.clientYaw = buffer.getInt();
+		frame.gameCycle = buffer.getInt();
+		frame.zoom = buffer.getInt();
+		frame.localX = buffer.getInt();
+		frame.localY = buffer.getInt();
+		frame.worldView = buffer.getInt();
+		frame.plane = buffer.getInt();
+		frame.tileHeight = buffer.getInt();
+		frame.eyeHeight = buffer.getInt();
+		frame.mainWorldX = buffer.getDouble();
+		frame.mainWorldY = buffer.getDouble();
+		frame.yawTarget = buffer.getInt();
+		frame.pitchTarget = buffer.getInt();
+		frame.focalX = buffer.getFloat();
+		frame.focalY = buffer.getFloat();
+		frame.focalZ = buffer.getFloat();
+	}
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.session;
+
+import com.firstperson.FirstPersonConfigSnapshot;
+import com.firstperson.collision.CameraCollision;
+import com.firstperson.detachedcamera.CameraPose;
+import com.firstperson.input.InputEventRing;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.api.Player;
+import net.runelite.api.WorldEntity;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.LocalPoint;
+
+/**
+ * Appends a camera session to a {@link SessionLog} file, for replaying offline.
+ * <p>
+ * The file is written through a memory mapped window that moves along as it fills, so recording a frame is a handful
+ * of puts into memory and leaves writing to disk to the OS. Must only be used from the client thread.
+ * <p>
+ * If the file can't be written the recorder logs it once and drops everything after, rather than disturbing the
+ * camera.
+ */
+@Slf4j
+public class SessionRecorder implements InputEventRing.Handler, CameraCollision.Listener, Closeable
+{
+	private static final int WINDOW_BYTES = 1 << 20;
+
+	private final Client client;
+	@Getter
+	private final Path path;
+	private final FileChannel channel;
+
+	private MappedByteBuffer window;
+	private long windowStart;
+	private boolean failed;
+
+	private SessionRecorder(Client client, Path path, FileChannel channel) throws IOException
+	{
+		this.client = client;
+		this.path = path;
+		this.channel = channel;
+		map(0, WINDOW_BYTES);
+		window.putInt(SessionLog.MAGIC);
+		window.putInt(SessionLog.VERSION);
+	}
+
+	/**
+	 * Starts a new session file in the directory.
+	 */
+	public static SessionRecorder create(Client client, File directory) throws IOException
+	{
+		Files.createDirectories(directory.toPath());
+		Path path = directory.toPath().resolve("session-" + System.currentTimeMillis() + SessionLog.EXTENSION);
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		return new SessionRecorder(client, path, channel);
+	}
+
+	public void recordScene(WorldView topLevel)
+	{
+		int sizeX = topLevel.getSizeX();
+		int sizeY = topLevel.getSizeY();
+		if (!ensure(SessionLog.sceneBytes(sizeX, sizeY)))
+		{
+			return;
+		}
+
+		int[][][] tileHeights = topLevel.getTileHeights();
+		byte[][][] tileSettings = topLevel.getTileSettings();
+		window.put(SessionLog.SCENE);
+		window.putInt(sizeX);
+		window.putInt(sizeY);
+		for (int plane = 0; plane < SessionLog.PLANES; plane++)
+		{
+			for (int x = 0; x <= sizeX; x++)
+			{
+				for (int y = 0; y <= sizeY; y++)
+				{
+					window.putInt(tileHeights[plane][x][y]);
+				}
+			}
+			for (int x = 0; x < sizeX; x++)
+			{
+				window.put(tileSettings[plane][x], 0, sizeY);
+			}
+		}
+	}
+
+	public void recordConfig(FirstPersonConfigSnapshot settings)
+	{
+		if (ensure(SessionLog.CONFIG_BYTES))
+		{
+			window.put(SessionLog.CONFIG);
+			window.put((byte) (settings.isInverseKeys() ? 1 : 0));
+			window.putDouble(settings.getKeyCameraSpeed());
+		}
+	}
+
+	public void recordTick(long nanos)
+	{
+		Player player = client.getLocalPlayer();
+		LocalPoint lp = player == null ? null : player.getLocalLocation();
+		if (lp == null || !ensure(SessionLog.TICK_BYTES))
+		{
+			return;
+		}
+
+		LocalPoint mainWorldPoint = lp;
+		if (lp.getWorldView() != WorldView.TOPLEVEL)
+		{
+			WorldEntity worldEntity = client.getTopLevelWorldView().worldEntities().byIndex(lp.getWorldView());
+			if (worldEntity != null)
+			{
+				mainWorldPoint = worldEntity.transformToMainWorld(lp);
+			}
+		}
+
+		window.put(SessionLog.TICK);
+		window.putLong(nanos);
+		window.putInt(lp.getWorldView());
+		window.putInt(lp.getX());
+		window.putInt(lp.getY());
+		window.putInt(mainWorldPoint.getX());
+		window.putInt(mainWorldPoint.getY());
+	}
+
+	@Override
+	public void onInputEvent(int type, int a, int b)
+	{
+		if (ensure(SessionLog.INPUT_BYTES))
+		{
+			window.put(SessionLog.INPUT);
+			window.putInt(type);
+			window.putInt(a);
+			window.putInt(b);
+		}
+	}
+
+	@Override
+	public void onCollision(int[][][] flags, int sizeX, int sizeY)
+	{
+		if (flags == null)
+		{
+			sizeX = 0;
+			sizeY = 0;
+		}
+		if (!ensure(SessionLog.collisionBytes(sizeX, sizeY)))
+		{
+			return;
+		}
+
+		window.put(SessionLog.COLLISION);
+		window.putInt(sizeX);
+		window.putInt(sizeY);
+		if (flags == null)
+		{
+			return;
+		}
+		for (int plane = 0; plane < SessionLog.PLANES; plane++)
+		{
+			int[][] planeFlags = plane < flags.length ? flags[plane] : null;
+			window.put((byte) (planeFlags != null ? 1 : 0));
+			for (int x = 0; x < sizeX; x++)
+			{
+				for (int y = 0; y < sizeY; y++)
+				{
+					window.putInt(planeFlags != null ? planeFlags[x][y] : 0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Records a frame the camera has finished, with the client state it started from.
+	 */
+	public void recordFrame(CameraPose pose)
+	{
+		if (!ensure(SessionLog.FRAME_BYTES))
+		{
+			return;
+		}
+
+		LocalPoint lp = pose.localPlayer.getLocalLocation();
+		window.put(SessionLog.FRAME);
+		window.putLong(pose.frameNanos);
+		window.putInt(pose.cameraMode);
+		window.putInt(pose.clientYawTarget);
+		window.putInt(pose.clientPitchTarget);
+		window.putInt(pose.clientPitch);
+		window.putInt(pose.clientYaw);
+		window.putInt(pose.gameCycle);
+		window.putInt(pose.zoom);
+		window.putInt(lp.getX());
+		window.putInt(lp.getY());
+		window.putInt(lp.getWorldView());
+		window.putInt(pose.plane);
+		window.putInt(pose.tileHeight);
+		window.putInt(pose.eyeHeight);
+		window.putDouble(pose.rawEyeX);
+		window.putDouble(pose.rawEyeZ);
+		window.putInt(pose.yawTarget);
+		window.putInt(pose.pitchTarget);
+		window.putFloat((float) pose.focalX);
+		window.putFloat((float) pose.focalY);
+		window.putFloat((float) pose.focalZ);
+	}
+
+	/**
+	 * Ends the log. The zeroed rest of the last window stays after the end marker: the windows can't be unmapped
+	 * before they're collected, and Windows refuses to truncate a file that is still mapped.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			if (!failed)
+			{
+				window.put(SessionLog.END);
+				window.force();
+				window = null;
+			}
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+
+	/**
+	 * @return whether there is room for a record of the given size, moving the window along if needed
+	 */
+	private boolean ensure(int bytes)
+	{
+		if (failed)
+		{
+			return false;
+		}
+		// Always leave room for the end marker
+		if (window.remaining() > bytes)
+		{
+			return true;
+		}
+
+		try
+		{
+			map(windowStart + window.position(), Math.max(WINDOW_BYTES, bytes + 1));
+			return true;
+		}
+		catch (IOException e)
+		{
+			log.warn("Stopped recording camera session to {}", path, e);
+			failed = true;
+			return false;
+		}
+	}
+
+	private void map(long start, int bytes) throws IOException
+	{
+		window = channel.map(FileChannel.MapMode.READ_WRITE, start, bytes);
+		windowStart = start;
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.timing;
+
+import com.firstperson.detachedcamera.CameraPose;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for a camera frame applying the input queued since the last.
+ */
+@Name(CameraInputEvent.NAME)
+@Label("Camera Input")
+@Description("Input applied to the first person camera's yaw and pitch targets in a frame")
+@Category({"First Person", "Camera"})
+@Enabled(false)
+@Threshold("100 us")
+@StackTrace(false)
+public class CameraInputEvent extends Event
+{
+	public static final String NAME = "com.firstperson.CameraInput";
+
+	private static final EventType TYPE = EventType.getEventType(CameraInputEvent.class);
+
+	@Label("Yaw Change")
+	@Description("How far input turned the yaw target, 0-16383 is a full turn")
+	int yawChange;
+
+	@Label("Pitch Change")
+	int pitchChange;
+
+	@Label("World View")
+	@Description("The world view the local player stands in, -1 for the top level and -2 without a player")
+	int worldView;
+
+	/*
+	 * Targets before the input was applied
+	 */
+	private transient int yawTarget;
+	private transient int pitchTarget;
+
+	/**
+	 * @return an event timing from now, or null when no recording has the event enabled, so frames don't allocate
+	 */
+	public static CameraInputEvent start(CameraPose pose)
+	{
+		if (!TYPE.isEnabled())
+		{
+			return null;
+		}
+
+		CameraInputEvent event = new CameraInputEvent();
+		event.yawTarget = pose.yawTarget;
+		event.pitchTarget = pose.pitchTarget;
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends the event and commits it if it took longer than the recording's threshold.
+	 */
+	public void finish(CameraPose pose)
+	{
+		end();
+		if (!shouldCommit())
+		{
+			return;
+		}
+
+		yawChange = Math.floorMod(pose.yawTarget - yawTarget + 8192, 16384) - 8192;
+		pitchChange = pose.pitchTarget - pitchTarget;
+		worldView = pose.localPlayer == null ? -2 : pose.localPlayer.getLocalLocation().getWorldView();
+		commit();
+	}
+}
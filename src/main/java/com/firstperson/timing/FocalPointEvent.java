@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.timing;
+
+import com.firstperson.detachedcamera.CameraPose;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for a camera frame placing the eye and focal point.
+ */
+@Name(FocalPointEvent.NAME)
+@Label("Camera Focal Point")
+@Description("Placing the first person camera's eye and focal point in a frame, including the collision clip")
+@Category({"First Person", "Camera"})
+@Enabled(false)
+@Threshold("100 us")
+@StackTrace(false)
+public class FocalPointEvent extends Event
+{
+	public static final String NAME = "com.firstperson.FocalPoint";
+
+	private static final EventType TYPE = EventType.getEventType(FocalPointEvent.class);
+
+	@Label("World View")
+	@Description("The world view the local player stands in, -1 for the top level")
+	int worldView;
+
+	@Label("Plane")
+	int plane;
+
+	@Label("Pitch Target")
+	int pitchTarget;
+
+	@Label("Focal Distance")
+	@Description("Horizontal distance from the eye to the focal point, in local units, after the collision clip")
+	double focalDistance;
+
+	/**
+	 * @return an event timing from now, or null when no recording has the event enabled, so frames don't allocate
+	 */
+	public static FocalPointEvent start()
+	{
+		if (!TYPE.isEnabled())
+		{
+			return null;
+		}
+
+		FocalPointEvent event = new FocalPointEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends the event and commits it if it took longer than the recording's threshold.
+	 */
+	public void finish(CameraPose pose)
+	{
+		end();
+		if (!shouldCommit())
+		{
+			return;
+		}
+
+		worldView = pose.localPlayer.getLocalLocation().getWorldView();
+		plane = pose.plane;
+		pitchTarget = pose.pitchTarget;
+		focalDistance = Math.hypot(pose.focalX - pose.eyeX, pose.focalZ - pose.eyeZ);
+		commit();
+	}
+}
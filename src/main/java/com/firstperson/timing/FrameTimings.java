@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.timing;
+
+import lombok.Getter;
+
+/**
+ * How long each stage of the camera took over the last {@link #getCapacity()} frames, kept in a ring alongside a
+ * {@link LatencyHistogram} per stage of the same frames.
+ * <p>
+ * Frames are recorded by the thread drawing them and read by the overlay, which may see the newest frame part
+ * written. Recording doesn't lock or allocate, so it doesn't show up in what it measures.
+ */
+public final class FrameTimings
+{
+	// Reading the client's camera and applying input
+	public static final int INPUT = 0;
+	// Placing the eye and focal point, including the collision clip
+	public static final int FOCAL_POINT = 1;
+	// Setting what changed back on the client
+	public static final int WRITE_BACK = 2;
+	// The whole camera frame, including publishing the view and recording the session
+	public static final int FRAME = 3;
+	public static final int STAGES = 4;
+
+	@Getter
+	private final int capacity;
+	// STAGES durations per frame, frame n at (n % capacity) * STAGES
+	private final long[] ring;
+	private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES];
+
+	/**
+	 * How many frames were ever recorded, written after the frame's durations
+	 */
+	private volatile long frames;
+
+	public FrameTimings(int capacity)
+	{
+		this.capacity = capacity;
+		this.ring = new long[capacity * STAGES];
+		for (int stage = 0; stage < STAGES; stage++)
+		{
+			histograms[stage] = new LatencyHistogram();
+		}
+	}
+
+	public void recordFrame(long inputNanos, long focalPointNanos, long writeBackNanos, long frameNanos)
+	{
+		long frame = frames;
+		int slot = (int) (frame % capacity) * STAGES;
+		boolean full = frame >= capacity;
+		record(slot, INPUT, inputNanos, full);
+		record(slot, FOCAL_POINT, focalPointNanos, full);
+		record(slot, WRITE_BACK, writeBackNanos, full);
+		record(slot, FRAME, frameNanos, full);
+		frames = frame + 1;
+	}
+
+	private void record(int slot, int stage, long nanos, boolean full)
+	{
+		if (full)
+		{
+			histograms[stage].remove(ring[slot + stage]);
+		}
+		ring[slot + stage] = nanos;
+		histograms[stage].record(nanos);
+	}
+
+	/**
+	 * @return how many frames the ring holds
+	 */
+	public int size()
+	{
+		return (int) Math.min(frames, capacity);
+	}
+
+	public long getFrames()
+	{
+		return frames;
+	}
+
+	/**
+	 * @return the duration of a stage that the fraction of the frames in the ring took at most
+	 */
+	public long percentile(int stage, double fraction)
+	{
+		return histograms[stage].percentile(fraction);
+	}
+
+	/**
+	 * @return the longest a stage took over the frames in the ring
+	 */
+	public long max(int stage)
+	{
+		long max = 0;
+		for (int frame = 0, size = size(); frame < size; frame++)
+		{
+			max = Math.max(max, ring[frame * STAGES + stage]);
+		}
+		return max;
+	}
+
+	/**
+	 * Copies a stage's durations, oldest first, into the start of an array.
+	 *
+	 * @return how many were copied, at most the array's length
+	 */
+	public int copy(int stage, long[] into)
+	{
+		long end = frames;
+		int count = (int) Math.min(Math.min(end, capacity), into.length);
+		for (int i = 0; i < count; i++)
+		{
+			long frame = end - count + i;
+			into[i] = ring[(int) (frame % capacity) * STAGES + stage];
+		}
+		return count;
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.timing;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import net.runelite.client.ui.overlay.Overlay;
+import net.runelite.client.ui.overlay.OverlayPosition;
+
+/**
+ * Shows the p50, p99 and max of each camera stage over the frames in a {@link FrameTimings}, in microseconds, above a
+ * sparkline of the whole camera frame.
+ */
+public class FrameTimingsOverlay extends Overlay
+{
+	private static final String[] STAGE_NAMES = {"Input", "Focal point", "Write back", "Frame"};
+	private static final String[] COLUMNS = {"p50", "p99", "max"};
+	private static final int PADDING = 4;
+	private static final int COLUMN_WIDTH = 48;
+	private static final int SPARKLINE_HEIGHT = 32;
+	private static final Color BACKGROUND = new Color(0, 0, 0, 160);
+	private static final Color SPARKLINE = new Color(80, 200, 120);
+
+	private final FrameTimings timings;
+	private final long[] frameNanos;
+	private final int[] sparklineX;
+	private final int[] sparklineY;
+
+	public FrameTimingsOverlay(FrameTimings timings)
+	{
+		this.timings = timings;
+		this.frameNanos = new long[timings.getCapacity()];
+		this.sparklineX = new int[timings.getCapacity()];
+		this.sparklineY = new int[timings.getCapacity()];
+		setPosition(OverlayPosition.TOP_LEFT);
+	}
+
+	@Override
+	public Dimension render(Graphics2D graphics)
+	{
+		FontMetrics metrics = graphics.getFontMetrics();
+		int lineHeight = metrics.getHeight();
+		int nameWidth = metrics.stringWidth(STAGE_NAMES[1]) + PADDING * 2;
+		int width = PADDING * 2 + nameWidth + COLUMN_WIDTH * COLUMNS.length;
+		int height = PADDING * 3 + lineHeight * (FrameTimings.STAGES + 1) + SPARKLINE_HEIGHT;
+
+		graphics.setColor(BACKGROUND);
+		graphics.fillRect(0, 0, width, height);
+
+		graphics.setColor(Color.WHITE);
+		int baseline = PADDING + metrics.getAscent();
+		graphics.drawString("us", PADDING, baseline);
+		for (int column = 0; column < COLUMNS.length; column++)
+		{
+			drawRightAligned(graphics, metrics, COLUMNS[column], PADDING + nameWidth + COLUMN_WIDTH * (column + 1), baseline);
+		}
+		for (int stage = 0; stage < FrameTimings.STAGES; stage++)
+		{
+			baseline += lineHeight;
+			graphics.drawString(STAGE_NAMES[stage], PADDING, baseline);
+			long[] values = {timings.percentile(stage, 0.5), timings.percentile(stage, 0.99), timings.max(stage)};
+			for (int column = 0; column < values.length; column++)
+			{
+				drawRightAligned(graphics, metrics, micros(values[column]),
+					PADDING + nameWidth + COLUMN_WIDTH * (column + 1), baseline);
+			}
+		}
+
+		drawSparkline(graphics, PADDING, baseline + metrics.getDescent() + PADDING, width - PADDING * 2);
+		return new Dimension(width, height);
+	}
+
+	private void drawSparkline(Graphics2D graphics, int x, int y, int width)
+	{
+		int count = timings.copy(FrameTimings.FRAME, frameNanos);
+		if (count < 2)
+		{
+			return;
+		}
+
+		long max = 1;
+		for (int i = 0; i < count; i++)
+		{
+			max = Math.max(max, frameNanos[i]);
+		}
+		// Newest frame on the right, the full ring spans the width
+		int capacity = frameNanos.length;
+		for (int i = 0; i < count; i++)
+		{
+			sparklineX[i] = x + (int) ((long) (capacity - count + i) * (width - 1) / Math.max(1, capacity - 1));
+			sparklineY[i] = y + SPARKLINE_HEIGHT - 1 - (int) (frameNanos[i] * (SPARKLINE_HEIGHT - 1) / max);
+		}
+		graphics.setColor(SPARKLINE);
+		graphics.drawPolyline(sparklineX, sparklineY, count);
+	}
+
+	private static void drawRightAligned(Graphics2D graphics, FontMetrics metrics, String text, int right, int baseline)
+	{
+		graphics.drawString(text, right - metrics.stringWidth(text), baseline);
+	}
+
+	private static String micros(long nanos)
+	{
+		return nanos < 10_000 ? String.format("%.1f", nanos / 1000.0) : Long.toString(nanos / 1000);
+	}
+}
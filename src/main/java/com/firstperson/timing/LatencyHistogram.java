@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2024, Zoinkwiz <https://github.com/Zoinkwiz>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.firstperson.timing;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Counts durations in fixed buckets: one per nanosecond up to 32, then 16 per power of two, so a bucket is at most
+ * 1/16th of its value wide. Durations of {@link #MAX_TRACKABLE_NANOS} or more share the last bucket.
+ * <p>
+ * Only one thread may record or remove values, but any thread may read percentiles while it does. Neither locks nor
+ * allocates.
+ */
+public final class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// Above a minute nothing needs telling apart
+	private static final int MAX_EXPONENT = 35;
+	static final long MAX_TRACKABLE_NANOS = 1L << (MAX_EXPONENT + 1);
+	static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+	private final AtomicIntegerArray counts = new AtomicIntegerArray(BUCKETS);
+
+	public void record(long nanos)
+	{
+		int bucket = bucket(nanos);
+		counts.lazySet(bucket, counts.get(bucket) + 1);
+	}
+
+	/**
+	 * Takes back a value recorded earlier, for keeping a histogram of a moving window.
+	 */
+	public void remove(long nanos)
+	{
+		int bucket = bucket(nanos);
+		counts.lazySet(bucket, counts.get(bucket) - 1);
+	}
+
+	/**
+	 * @param fraction from 0 to 1, such as 0.99 for p99
+	 * @return the highest duration in the bucket holding that fraction of the values, or 0 when empty
+	 */
+	public long percentile(double fraction)
+	{
+		long count = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++)
+		{
+			count += counts.get(bucket);
+		}
+		if (count <= 0)
+		{
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(fraction * count));
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++)
+		{
+			seen += counts.get(bucket);
+			if (seen >= rank)
+			{
+				return lowestNanos(bucket + 1) - 1;
+			}
+		}
+		return lowestNanos(BUCKETS) - 1;
+	}
+
+	static int bucket(long nanos)
+	{
+		if (nanos < 2 * SUB_BUCKETS)
+		{
+			return (int) Math.max(0, nanos);
+		}
+		if (nanos >= MAX_TRACKABLE_NANOS)
+		{
+			return BUCKETS - 1;
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int mantissa = (int) (nanos >>> (exponent - SUB_BUCKET_BITS));
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + mantissa - SUB_BUCKETS;
+	}
+
+	/**
+	 * @return the lowest duration counted in a bucket
+	 */
+	static long lowestNanos(int bucket)
+	{
+		if (bucket < 2 * SUB_BUCKETS)
+		{
+			return bucket;
+		}
+
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+		return mantissa << (exponent - SUB_BUCKET_BITS);
+	}
+}
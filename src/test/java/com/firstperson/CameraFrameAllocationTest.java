@@ -0,0 +1,150 @@
+package com.firstperson;
+
+import com.firstperson.detachedcamera.DetachedCameraMovementHandler;
+import com.firstperson.fake.FakeClient;
+import com.firstperson.fake.FakeWorldEntity;
+import com.firstperson.fake.FakeWorldView;
+import com.firstperson.fake.Stubs;
+import com.firstperson.input.InputHandler;
+import com.firstperson.timing.FrameTimings;
+import java.awt.Canvas;
+import java.awt.Component;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.lang.management.ManagementFactory;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.LocalPoint;
+import static org.junit.Assert.assertEquals;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CameraFrameAllocationTest
+{
+	private static final int WARMUP_FRAMES = 40_000;
+	private static final int MEASURED_FRAMES = 10_000;
+	private static final int FRAMES_PER_PHASE = 250;
+	private static final int BOAT_INDEX = 3;
+
+	private final Component source = new Canvas();
+	private final KeyEvent rightPressed = key(KeyEvent.KEY_PRESSED, KeyEvent.VK_RIGHT);
+	private final KeyEvent rightReleased = key(KeyEvent.KEY_RELEASED, KeyEvent.VK_RIGHT);
+	private final KeyEvent upPressed = key(KeyEvent.KEY_PRESSED, KeyEvent.VK_UP);
+	private final KeyEvent upReleased = key(KeyEvent.KEY_RELEASED, KeyEvent.VK_UP);
+	private final MouseEvent middlePressed = mouse(MouseEvent.MOUSE_PRESSED, 200, 200);
+	private final MouseEvent middleReleased = mouse(MouseEvent.MOUSE_RELEASED, 200, 200);
+	private final MouseEvent[] drags = {
+		drag(210, 195),
+		drag(190, 205),
+	};
+
+	private FakeClient client;
+	private InputHandler inputHandler;
+	private CameraPipeline cameraPipeline;
+	private LocalPoint onLand;
+	private LocalPoint onBoat;
+
+	@Before
+	public void setUp()
+	{
+		client = FakeClient.create();
+		FirstPersonConfig config = new FirstPersonConfig()
+		{
+		};
+		inputHandler = new InputHandler(client, new FirstPersonPlugin(), config, System.nanoTime());
+		DetachedCameraMovementHandler detachedCameraMovementHandler = new DetachedCameraMovementHandler(client, config, inputHandler);
+		cameraPipeline = new CameraPipeline(client, inputHandler, detachedCameraMovementHandler);
+		// Timing the frames mustn't allocate either
+		cameraPipeline.setFrameTimings(new FrameTimings(256));
+
+		FakeWorldView boatView = Stubs.create(FakeWorldView.class);
+		boatView.id = BOAT_INDEX;
+		client.topLevelWorldView.addEntityWorldView(boatView);
+		FakeWorldEntity boat = Stubs.create(FakeWorldEntity.class);
+		boat.worldView = boatView;
+		boat.offsetX = 2048;
+		boat.offsetY = 1024;
+		client.topLevelWorldView.worldEntities().put(BOAT_INDEX, boat);
+
+		onLand = client.fakePlayer().localLocation;
+		onBoat = new LocalPoint(640, 640, BOAT_INDEX);
+
+		// Sample the boat once, frames on it then use the cached transform
+		client.fakePlayer().localLocation = onBoat;
+		detachedCameraMovementHandler.getWorldEntityTransforms().onGameTick(System.nanoTime());
+		client.fakePlayer().localLocation = onLand;
+	}
+
+	@Test
+	public void steadyStateFramesDoNotAllocate()
+	{
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+		long threadId = Thread.currentThread().getId();
+
+		runFrames(WARMUP_FRAMES);
+
+		long before = threads.getThreadAllocatedBytes(threadId);
+		runFrames(MEASURED_FRAMES);
+		long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+		assertEquals("Bytes allocated over " + MEASURED_FRAMES + " steady-state frames", 0, allocated);
+	}
+
+	/**
+	 * Cycles through idle, key rotation, middle mouse drag and standing on a boat.
+	 */
+	private void runFrames(int frames)
+	{
+		for (int frame = 0; frame < frames; frame++)
+		{
+			int phase = (frame / FRAMES_PER_PHASE) % 4;
+			boolean phaseStart = frame % FRAMES_PER_PHASE == 0;
+			boolean phaseEnd = frame % FRAMES_PER_PHASE == FRAMES_PER_PHASE - 1;
+
+			if (phase == 1 && phaseStart)
+			{
+				inputHandler.keyPressed(rightPressed);
+				inputHandler.keyPressed(upPressed);
+			}
+			else if (phase == 2)
+			{
+				if (phaseStart)
+				{
+					inputHandler.mousePressed(middlePressed);
+				}
+				inputHandler.mouseDragged(drags[frame & 1]);
+			}
+			else if (phase == 3 && phaseStart)
+			{
+				client.fakePlayer().localLocation = onBoat;
+			}
+
+			cameraPipeline.run();
+
+			if (phaseEnd)
+			{
+				inputHandler.keyReleased(rightReleased);
+				inputHandler.keyReleased(upReleased);
+				inputHandler.mouseReleased(middleReleased);
+				client.fakePlayer().localLocation = onLand;
+			}
+		}
+	}
+
+	private KeyEvent key(int id, int keyCode)
+	{
+		return new KeyEvent(source, id, 0, 0, keyCode, KeyEvent.CHAR_UNDEFINED);
+	}
+
+	private MouseEvent mouse(int id, int x, int y)
+	{
+		return new MouseEvent(source, id, 0, 0, x, y, 1, false, MouseEvent.BUTTON2);
+	}
+
+	private MouseEvent drag(int x, int y)
+	{
+		return new MouseEvent(source, MouseEvent.MOUSE_DRAGGED, 0, MouseEvent.BUTTON2_DOWN_MASK, x, y, 0, false, MouseEvent.NOBUTTON);
+	}
+}
@@ -0,0 +1,150 @@
+package com.firstperson;
+
+import com.firstperson.detachedcamera.DetachedCameraMovementHandler;
+import com.firstperson.fake.FakeClient;
+import com.firstperson.input.InputHandler;
+import java.awt.Canvas;
+import java.awt.event.KeyEvent;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.LocalPoint;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CameraSchedulerTest
+{
+	private static final long FRAME = 7_000_000L;
+
+	private FakeClient client;
+	private InputHandler inputHandler;
+	private CameraPipeline cameraPipeline;
+	private CameraScheduler scheduler;
+	private int updateRate;
+	private long now;
+
+	@Before
+	public void setUp()
+	{
+		client = FakeClient.create();
+		FirstPersonConfig config = new FirstPersonConfig()
+		{
+			@Override
+			public int cameraUpdateRate()
+			{
+				return updateRate;
+			}
+		};
+		FirstPersonPlugin plugin = new FirstPersonPlugin()
+		{
+			@Override
+			public FirstPersonConfigSnapshot getConfigSnapshot()
+			{
+				return FirstPersonConfigSnapshot.from(config);
+			}
+		};
+		inputHandler = new InputHandler(client, plugin, config, 0);
+		DetachedCameraMovementHandler detachedCameraMovementHandler = new DetachedCameraMovementHandler(client, config, inputHandler);
+		cameraPipeline = new CameraPipeline(client, inputHandler, detachedCameraMovementHandler);
+		scheduler = new CameraScheduler(client, plugin, inputHandler, cameraPipeline);
+	}
+
+	@Test
+	public void sleepsOnceNothingChanges()
+	{
+		frames(100);
+		int runs = scheduler.pipelineRuns;
+		frames(100);
+
+		assertEquals(runs, scheduler.pipelineRuns);
+	}
+
+	@Test
+	public void wakesOnInputAndSleepsAfterRotationStops()
+	{
+		frames(100);
+		int runs = scheduler.pipelineRuns;
+
+		inputHandler.keyPressed(key(KeyEvent.KEY_PRESSED));
+		frames(50);
+		assertEquals(runs + 50, scheduler.pipelineRuns);
+
+		inputHandler.keyReleased(key(KeyEvent.KEY_RELEASED));
+		frames(200);
+		runs = scheduler.pipelineRuns;
+		frames(50);
+		assertEquals(runs, scheduler.pipelineRuns);
+	}
+
+	@Test
+	public void wakesWhenThePlayerMoves()
+	{
+		frames(100);
+		int runs = scheduler.pipelineRuns;
+
+		client.fakePlayer().localLocation = new LocalPoint(6700, 6656, WorldView.TOPLEVEL);
+		frames(1);
+		assertEquals(runs + 1, scheduler.pipelineRuns);
+	}
+
+	@Test
+	public void wakesWhenTheClientCameraChanges()
+	{
+		frames(100);
+		int runs = scheduler.pipelineRuns;
+
+		client.cameraMode = 0;
+		frames(1);
+		assertEquals(runs + 1, scheduler.pipelineRuns);
+		assertEquals(1, client.cameraMode);
+	}
+
+	@Test
+	public void wakesWhenAsked()
+	{
+		frames(100);
+		int runs = scheduler.pipelineRuns;
+
+		scheduler.wake();
+		frames(1);
+		assertEquals(runs + 1, scheduler.pipelineRuns);
+	}
+
+	@Test
+	public void timesTheFirstFrameAfterActivating()
+	{
+		frames(100);
+		assertEquals(0, scheduler.getActivationFrameNanos());
+		int runs = scheduler.pipelineRuns;
+
+		scheduler.activated();
+		frames(1);
+		assertEquals(runs + 1, scheduler.pipelineRuns);
+		assertTrue(scheduler.getActivationFrameNanos() > 0);
+	}
+
+	@Test
+	public void capLimitsUpdates()
+	{
+		updateRate = 30;
+		inputHandler.keyPressed(key(KeyEvent.KEY_PRESSED));
+		frames(1000);
+
+		// 7s of frames at 30 updates a second, give or take the frame the cap lands on
+		assertTrue("runs " + scheduler.pipelineRuns, scheduler.pipelineRuns <= 7 * 30 + 1 && scheduler.pipelineRuns >= 7 * 30 * 0.8);
+	}
+
+	private void frames(int count)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			now += FRAME;
+			scheduler.run(now);
+		}
+	}
+
+	private KeyEvent key(int id)
+	{
+		return new KeyEvent(new Canvas(), id, 0, 0, KeyEvent.VK_RIGHT, KeyEvent.CHAR_UNDEFINED);
+	}
+}
@@ -0,0 +1,42 @@
+package com.firstperson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class CameraWarmUpTest
+{
+	private final FirstPersonPlugin plugin = new FirstPersonPlugin()
+	{
+		@Override
+		public FirstPersonConfigSnapshot getConfigSnapshot()
+		{
+			return FirstPersonConfigSnapshot.DEFAULTS;
+		}
+	};
+
+	@Test
+	public void runsEveryFrameWithoutAClient()
+	{
+		CameraWarmUp warmUp = new CameraWarmUp(plugin);
+		warmUp.run();
+
+		assertEquals(CameraWarmUp.FRAMES, warmUp.getFramesRun());
+		assertTrue(warmUp.getDurationNanos() > 0);
+	}
+
+	@Test
+	public void stopsWhenInterrupted() throws InterruptedException
+	{
+		CameraWarmUp warmUp = new CameraWarmUp(plugin);
+		Thread thread = new Thread(() ->
+		{
+			Thread.currentThread().interrupt();
+			warmUp.run();
+		});
+		thread.start();
+		thread.join();
+
+		assertEquals(0, warmUp.getFramesRun());
+	}
+}
@@ -0,0 +1,263 @@
+package com.firstperson.calibration;
+
+import com.firstperson.session.SessionFrame;
+import com.firstperson.session.SessionReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Fits how far the client eases the camera towards its targets each game cycle, from the actual angles, game cycles
+ * and targets in recorded sessions.
+ * <p>
+ * Each frame's angles are eased with {@link CameraEasingModel} over the game cycles the client ran until the next
+ * frame, and compared to the angles it had reached by then. The fraction with the least squared error is searched
+ * for separately for yaw and pitch. The RMS error of predicting with the fitted fractions, without knowing the cycles
+ * to come, is reported along with what placing the focal point for the targets would have been off by.
+ * <p>
+ * Run with {@code ./gradlew fitCameraEasing -Psession=<file>[,<file>...]}.
+ */
+public class CameraEasingFit
+{
+	private static final double COARSE_STEP = 0.01;
+	private static final double FINE_STEP = 0.001;
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length == 0)
+		{
+			System.err.println("Usage: CameraEasingFit <session>...");
+			System.exit(2);
+		}
+
+		Path[] sessions = new Path[args.length];
+		for (int i = 0; i < args.length; i++)
+		{
+			sessions[i] = Paths.get(args[i]);
+		}
+		System.out.println(fit(Trace.read(sessions)));
+	}
+
+	public static Result fit(Trace trace)
+	{
+		Result result = new Result();
+		result.frames = trace.size - trace.sessions;
+		double[] errors = new double[2];
+
+		double bestYawError = Double.MAX_VALUE;
+		double bestPitchError = Double.MAX_VALUE;
+		for (double ease = COARSE_STEP; ease < 1; ease += COARSE_STEP)
+		{
+			trace.errors(ease, ease, true, errors);
+			if (errors[0] < bestYawError)
+			{
+				bestYawError = errors[0];
+				result.yawEase = ease;
+			}
+			if (errors[1] < bestPitchError)
+			{
+				bestPitchError = errors[1];
+				result.pitchEase = ease;
+			}
+		}
+
+		// Around the best coarse fractions, fitting each axis on its own as they don't affect each other
+		double coarseYaw = result.yawEase;
+		double coarsePitch = result.pitchEase;
+		for (double offset = -COARSE_STEP; offset <= COARSE_STEP; offset += FINE_STEP)
+		{
+			trace.errors(coarseYaw + offset, coarsePitch + offset, true, errors);
+			if (errors[0] < bestYawError)
+			{
+				bestYawError = errors[0];
+				result.yawEase = coarseYaw + offset;
+			}
+			if (errors[1] < bestPitchError)
+			{
+				bestPitchError = errors[1];
+				result.pitchEase = coarsePitch + offset;
+			}
+		}
+
+		trace.errors(result.yawEase, result.pitchEase, false, errors);
+		result.yawError = Math.sqrt(errors[0]);
+		result.pitchError = Math.sqrt(errors[1]);
+		trace.targetErrors(errors);
+		result.yawTargetError = Math.sqrt(errors[0]);
+		result.pitchTargetError = Math.sqrt(errors[1]);
+		return result;
+	}
+
+	/**
+	 * The frames of one or more sessions, as the client's angles and game cycle read in each and the targets written.
+	 */
+	public static class Trace
+	{
+		int size;
+		int sessions;
+		int[] clientYaw = new int[1024];
+		int[] clientPitch = new int[1024];
+		int[] gameCycle = new int[1024];
+		int[] yawTarget = new int[1024];
+		int[] pitchTarget = new int[1024];
+		// Whether the frame starts a session, and isn't predicted from the one before
+		boolean[] first = new boolean[1024];
+
+		public static Trace read(Path... sessions) throws IOException
+		{
+			Trace trace = new Trace();
+			for (Path session : sessions)
+			{
+				trace.sessions++;
+				boolean[] first = {true};
+				SessionReader.read(session, new FrameVisitor()
+				{
+					@Override
+					public void onFrame(SessionFrame frame)
+					{
+						trace.add(first[0], frame.clientYaw, frame.clientPitch, frame.gameCycle, frame.yawTarget,
+							frame.pitchTarget);
+						first[0] = false;
+					}
+				});
+			}
+			return trace;
+		}
+
+		void add(boolean first, int clientYaw, int clientPitch, int gameCycle, int yawTarget, int pitchTarget)
+		{
+			if (size == this.clientYaw.length)
+			{
+				this.clientYaw = Arrays.copyOf(this.clientYaw, size * 2);
+				this.clientPitch = Arrays.copyOf(this.clientPitch, size * 2);
+				this.gameCycle = Arrays.copyOf(this.gameCycle, size * 2);
+				this.yawTarget = Arrays.copyOf(this.yawTarget, size * 2);
+				this.pitchTarget = Arrays.copyOf(this.pitchTarget, size * 2);
+				this.first = Arrays.copyOf(this.first, size * 2);
+			}
+			this.clientYaw[size] = clientYaw;
+			this.clientPitch[size] = clientPitch;
+			this.gameCycle[size] = gameCycle;
+			this.yawTarget[size] = yawTarget;
+			this.pitchTarget[size] = pitchTarget;
+			this.first[size] = first;
+			size++;
+		}
+
+		/**
+		 * Sets the mean squared yaw and pitch error of predicting each frame's angles from the one before.
+		 *
+		 * @param knownCycles whether to ease over the cycles the client ran until the next frame, rather than the
+		 * cycles it usually runs, which is all the camera could know
+		 */
+		void errors(double yawEase, double pitchEase, boolean knownCycles, double[] into)
+		{
+			CameraEasingModel model = new CameraEasingModel(yawEase, pitchEase);
+			double yawError = 0;
+			double pitchError = 0;
+			int compared = 0;
+			for (int i = 0; i + 1 < size; i++)
+			{
+				if (first[i])
+				{
+					model.reset();
+				}
+				if (first[i + 1])
+				{
+					continue;
+				}
+
+				if (knownCycles)
+				{
+					model.predict(clientYaw[i], clientPitch[i], gameCycle[i], yawTarget[i], pitchTarget[i],
+						Math.max(0, gameCycle[i + 1] - gameCycle[i]));
+				}
+				else
+				{
+					model.predict(clientYaw[i], clientPitch[i], gameCycle[i], yawTarget[i], pitchTarget[i]);
+				}
+				double yaw = CameraEasingModel.yawDistance(model.predictedYaw, clientYaw[i + 1]);
+				double pitch = model.predictedPitch - clientPitch[i + 1];
+				yawError += yaw * yaw;
+				pitchError += pitch * pitch;
+				compared++;
+			}
+			into[0] = compared == 0 ? 0 : yawError / compared;
+			into[1] = compared == 0 ? 0 : pitchError / compared;
+		}
+
+		/**
+		 * Sets the mean squared yaw and pitch error of taking the targets as the angles the next frame is drawn at.
+		 */
+		void targetErrors(double[] into)
+		{
+			double yawError = 0;
+			double pitchError = 0;
+			int compared = 0;
+			for (int i = 1; i < size; i++)
+			{
+				if (!first[i])
+				{
+					double yaw = CameraEasingModel.yawDistance(yawTarget[i - 1], clientYaw[i]);
+					double pitch = pitchTarget[i - 1] - clientPitch[i];
+					yawError += yaw * yaw;
+					pitchError += pitch * pitch;
+					compared++;
+				}
+			}
+			into[0] = compared == 0 ? 0 : yawError / compared;
+			into[1] = compared == 0 ? 0 : pitchError / compared;
+		}
+	}
+
+	public static class Result
+	{
+		int frames;
+		double yawEase;
+		double pitchEase;
+		double yawError;
+		double pitchError;
+		double yawTargetError;
+		double pitchTargetError;
+
+		@Override
+		public String toString()
+		{
+			return String.format(Locale.ROOT,
+				"%d frames predicted%n"
+					+ "yaw:   ease %.3f a cycle, predictions off by rms %.2f, %.2f for the targets%n"
+					+ "pitch: ease %.3f a cycle, predictions off by rms %.2f, %.2f for the targets",
+				frames, yawEase, yawError, yawTargetError, pitchEase, pitchError, pitchTargetError);
+		}
+	}
+
+	private abstract static class FrameVisitor implements SessionReader.Visitor
+	{
+		@Override
+		public void onScene(int sizeX, int sizeY, int[][][] tileHeights, byte[][][] tileSettings)
+		{
+		}
+
+		@Override
+		public void onConfig(boolean inverseKeys, double keyCameraSpeed)
+		{
+		}
+
+		@Override
+		public void onTick(long nanos, int worldView, int localX, int localY, int mainWorldX, int mainWorldY)
+		{
+		}
+
+		@Override
+		public void onInput(int type, int a, int b)
+		{
+		}
+
+		@Override
+		public void onCollision(int[][][] flags, int sizeX, int sizeY)
+		{
+		}
+	}
+}
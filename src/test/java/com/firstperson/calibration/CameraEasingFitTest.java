@@ -0,0 +1,160 @@
+package com.firstperson.calibration;
+
+import com.firstperson.CameraPipeline;
+import com.firstperson.FirstPersonConfig;
+import com.firstperson.FirstPersonPlugin;
+import com.firstperson.detachedcamera.DetachedCameraMovementHandler;
+import com.firstperson.fake.FakeClient;
+import com.firstperson.input.InputHandler;
+import com.firstperson.session.SessionRecorder;
+import java.awt.Canvas;
+import java.awt.Component;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CameraEasingFitTest
+{
+	private static final long FRAME = 7_000_000L;
+	private static final long CYCLE = 20_000_000L;
+
+	private final Component source = new Canvas();
+
+	private File folder;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		folder = Files.createTempDirectory("easing").toFile();
+	}
+
+	@After
+	public void tearDown()
+	{
+		File[] sessions = folder.listFiles();
+		if (sessions != null)
+		{
+			for (File session : sessions)
+			{
+				session.delete();
+			}
+		}
+		folder.delete();
+	}
+
+	@Test
+	public void fitRecoversTheEasingOfARecording() throws IOException
+	{
+		// Eases a quarter of the way each cycle, rather than the fifth the model would start from
+		CameraEasingFit.Result result = CameraEasingFit.fit(CameraEasingFit.Trace.read(recordFastTurns(4000, 4)));
+
+		assertEquals(3999, result.frames);
+		assertEquals(result.toString(), 0.25, result.yawEase, 0.01);
+		assertEquals(result.toString(), 0.25, result.pitchEase, 0.01);
+		assertTrue(result.toString(), result.yawError < result.yawTargetError / 4);
+		assertTrue(result.toString(), result.pitchError < result.pitchTargetError / 4);
+	}
+
+	@Test
+	public void sessionsArePredictedSeparately() throws IOException
+	{
+		CameraEasingFit.Trace trace = CameraEasingFit.Trace.read(recordFastTurns(500, 5), recordFastTurns(500, 5));
+
+		assertEquals(1000, trace.size);
+		assertEquals(998, CameraEasingFit.fit(trace).frames);
+	}
+
+	@Test
+	public void heldPitchStaysWhereTheClientHoldsIt()
+	{
+		CameraEasingModel model = new CameraEasingModel(0.2, 0.2);
+		for (int cycle = 0; cycle < 4; cycle++)
+		{
+			model.predict(0, 300, cycle, 0, 100);
+		}
+		assertEquals(300, model.predictedPitch);
+
+		// Pitching back up isn't held
+		model.predict(0, 300, 4, 0, 500);
+		assertTrue(model.predictedPitch > 300 && model.predictedPitch < 500);
+
+		// Nor is pitching down once the client has let the pitch move
+		model.predict(0, 250, 5, 0, 100);
+		assertTrue(model.predictedPitch < 250 && model.predictedPitch > 100);
+	}
+
+	@Test
+	public void yawEasesTheShortWayAcrossZero()
+	{
+		CameraEasingModel model = new CameraEasingModel(0.2, 0.2);
+		// 584 units to go across zero, a fifth of which is covered in the one cycle a frame assumed at first
+		model.predict(16000, 0, 0, 200, 0);
+		assertEquals(16117, model.predictedYaw);
+
+		model.reset();
+		model.predict(100, 0, 0, 16300, 0);
+		assertEquals(63, model.predictedYaw);
+	}
+
+	private Path recordFastTurns(int frames, int easeDivisor) throws IOException
+	{
+		FakeClient client = FakeClient.create();
+		client.easesCamera = true;
+		client.easeDivisor = easeDivisor;
+		FirstPersonConfig config = new FirstPersonConfig()
+		{
+		};
+		InputHandler inputHandler = new InputHandler(client, new FirstPersonPlugin(), config, 0);
+		DetachedCameraMovementHandler detachedCameraMovementHandler = new DetachedCameraMovementHandler(client, config, inputHandler);
+		CameraPipeline cameraPipeline = new CameraPipeline(client, inputHandler, detachedCameraMovementHandler);
+		SessionRecorder recorder = SessionRecorder.create(client, folder);
+		cameraPipeline.setSessionRecorder(recorder);
+
+		Random random = new Random(5);
+		long now = 0;
+		for (int frame = 0; frame < frames; frame++)
+		{
+			now += FRAME + random.nextInt(3_000_000);
+			client.advanceCycles((int) (now / CYCLE) - client.gameCycle);
+
+			switch (frame % 300)
+			{
+				case 10:
+					inputHandler.keyPressed(new KeyEvent(source, KeyEvent.KEY_PRESSED, 0, 0, KeyEvent.VK_LEFT, KeyEvent.CHAR_UNDEFINED));
+					break;
+				case 60:
+					inputHandler.keyReleased(new KeyEvent(source, KeyEvent.KEY_RELEASED, 0, 0, KeyEvent.VK_LEFT, KeyEvent.CHAR_UNDEFINED));
+					break;
+				case 100:
+					inputHandler.mousePressed(new MouseEvent(source, MouseEvent.MOUSE_PRESSED, 0, 0, 300, 200, 1, false, MouseEvent.BUTTON2));
+					break;
+				case 200:
+					inputHandler.mouseReleased(new MouseEvent(source, MouseEvent.MOUSE_RELEASED, 0, 0, 300, 200, 1, false, MouseEvent.BUTTON2));
+					break;
+			}
+			if (frame % 300 > 100 && frame % 300 < 200)
+			{
+				// Flicks of the mouse back and forth, up and down
+				int x = frame % 40 < 20 ? 340 : 260;
+				int y = frame % 60 < 30 ? 220 : 180;
+				inputHandler.mouseDragged(new MouseEvent(source, MouseEvent.MOUSE_DRAGGED, 0, MouseEvent.BUTTON2_DOWN_MASK,
+					x, y, 0, false, MouseEvent.NOBUTTON));
+			}
+
+			cameraPipeline.run(now);
+		}
+
+		cameraPipeline.setSessionRecorder(null);
+		recorder.close();
+		return recorder.getPath();
+	}
+}
@@ -0,0 +1,128 @@
+package com.firstperson.calibration;
+
+/**
+ * Predicts the yaw and pitch the client will draw the next frame with.
+ * <p>
+ * The client doesn't turn the camera straight to its targets, it eases the actual yaw and pitch a fraction of the way
+ * there every game cycle. Placing the focal point for the targets puts the eye off to the side until the camera
+ * catches up. This model runs the same easing from the actual angles read in a frame for as many cycles as the client
+ * usually runs between frames.
+ * <p>
+ * When the client holds the pitch short of its target, such as when the camera is held above terrain, the pitch is
+ * predicted to stay until the target turns back or the client lets it move.
+ * <p>
+ * The camera doesn't use this yet: the fractions first need fitting by {@link CameraEasingFit} to sessions recorded
+ * in the client.
+ */
+public class CameraEasingModel
+{
+	private static final int YAW_RANGE = 16384;
+
+	// How quickly the cycles per frame estimate follows the cycles seen
+	private static final double CYCLE_SMOOTHING = 0.125;
+
+	/*
+	 * Fraction of the way to the target the client turns the camera each game cycle
+	 */
+	final double yawEase;
+	final double pitchEase;
+
+	int predictedYaw;
+	int predictedPitch;
+
+	private boolean started;
+	private int lastGameCycle;
+	private double cyclesPerFrame = 1;
+
+	private int lastClientPitch;
+	private int lastPitchTarget;
+	// The way the client is holding the pitch back from its target, 0 when it isn't
+	private int heldPitchDirection;
+
+	CameraEasingModel(double yawEase, double pitchEase)
+	{
+		this.yawEase = yawEase;
+		this.pitchEase = pitchEase;
+	}
+
+	/**
+	 * Predicts the angles from a frame's actual angles and game cycle, and the targets written in it, over the cycles
+	 * the client has usually run between frames.
+	 */
+	void predict(int clientYaw, int clientPitch, int gameCycle, int yawTarget, int pitchTarget)
+	{
+		observe(clientPitch, gameCycle, pitchTarget);
+		ease(clientYaw, clientPitch, yawTarget, pitchTarget, cyclesPerFrame);
+	}
+
+	/**
+	 * Predicts the angles as {@link #predict} does, but over a known number of cycles.
+	 */
+	void predict(int clientYaw, int clientPitch, int gameCycle, int yawTarget, int pitchTarget, int cycles)
+	{
+		observe(clientPitch, gameCycle, pitchTarget);
+		ease(clientYaw, clientPitch, yawTarget, pitchTarget, cycles);
+	}
+
+	private void observe(int clientPitch, int gameCycle, int pitchTarget)
+	{
+		if (started)
+		{
+			int cycles = Math.max(0, gameCycle - lastGameCycle);
+			cyclesPerFrame += (cycles - cyclesPerFrame) * CYCLE_SMOOTHING;
+			updateHeldPitch(clientPitch, pitchTarget, cycles);
+		}
+		started = true;
+		lastGameCycle = gameCycle;
+		lastClientPitch = clientPitch;
+		lastPitchTarget = pitchTarget;
+	}
+
+	private void ease(int clientYaw, int clientPitch, int yawTarget, int pitchTarget, double cycles)
+	{
+		int yawRemaining = Math.floorMod(yawTarget - clientYaw + YAW_RANGE / 2, YAW_RANGE) - YAW_RANGE / 2;
+		double yawLeft = yawRemaining * Math.pow(1 - yawEase, cycles);
+		predictedYaw = Math.floorMod(yawTarget - (int) Math.round(yawLeft), YAW_RANGE);
+
+		int pitchRemaining = pitchTarget - clientPitch;
+		if (heldPitchDirection != 0 && Integer.signum(pitchRemaining) == heldPitchDirection)
+		{
+			predictedPitch = clientPitch;
+		}
+		else
+		{
+			double pitchLeft = pitchRemaining * Math.pow(1 - pitchEase, cycles);
+			predictedPitch = pitchTarget - (int) Math.round(pitchLeft);
+		}
+	}
+
+	private void updateHeldPitch(int clientPitch, int pitchTarget, int cycles)
+	{
+		int pitchRemaining = pitchTarget - clientPitch;
+		if (clientPitch != lastClientPitch || Integer.signum(pitchRemaining) != heldPitchDirection)
+		{
+			heldPitchDirection = 0;
+		}
+
+		// Cycles ran towards a target that wasn't reached, yet the pitch didn't move
+		if (cycles > 0 && clientPitch == lastClientPitch && lastPitchTarget != lastClientPitch)
+		{
+			heldPitchDirection = Integer.signum(lastPitchTarget - lastClientPitch);
+		}
+	}
+
+	/**
+	 * Forgets the frames seen so far, for a new session.
+	 */
+	void reset()
+	{
+		started = false;
+		heldPitchDirection = 0;
+		cyclesPerFrame = 1;
+	}
+
+	static int yawDistance(int a, int b)
+	{
+		return Math.abs(Math.floorMod(a - b + YAW_RANGE / 2, YAW_RANGE) - YAW_RANGE / 2);
+	}
+}
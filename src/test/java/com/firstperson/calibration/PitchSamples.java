@@ -0,0 +1,175 @@
+package com.firstperson.calibration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Recorded focal point observations, each the camera pitch and the focal point's offset from the eye that the client
+ * showed at it, sorted by pitch.
+ * <p>
+ * CSV files have one {@code pitch,yOffset,horizontalDistance} row per sample, with {@code #} comments and an optional
+ * header. Binary files are big endian: {@link #MAGIC}, {@link #VERSION} and the sample count, then three floats per
+ * sample in the same order.
+ */
+public class PitchSamples
+{
+	public static final int MAGIC = 0x46504342; // "FPCB"
+	public static final int VERSION = 1;
+
+	// Camera pitch in the client's units, from 0 to PreCalculatedTransformations.MAX_PITCH
+	final double[] pitch;
+	// Vertical focal point offset from the eye, in local units
+	final double[] yOffset;
+	// Horizontal distance from the eye to the focal point, in local units
+	final double[] horizontalDistance;
+
+	PitchSamples(double[] pitch, double[] yOffset, double[] horizontalDistance)
+	{
+		Integer[] order = new Integer[pitch.length];
+		for (int i = 0; i < order.length; i++)
+		{
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(pitch[a], pitch[b]));
+
+		this.pitch = new double[pitch.length];
+		this.yOffset = new double[pitch.length];
+		this.horizontalDistance = new double[pitch.length];
+		for (int i = 0; i < order.length; i++)
+		{
+			this.pitch[i] = pitch[order[i]];
+			this.yOffset[i] = yOffset[order[i]];
+			this.horizontalDistance[i] = horizontalDistance[order[i]];
+		}
+	}
+
+	public int size()
+	{
+		return pitch.length;
+	}
+
+	/**
+	 * Reads samples from every file, as CSV when the name ends in {@code .csv} and binary otherwise.
+	 */
+	public static PitchSamples read(Path... files) throws IOException
+	{
+		Builder builder = new Builder();
+		for (Path file : files)
+		{
+			if (file.getFileName().toString().endsWith(".csv"))
+			{
+				readCsv(file, builder);
+			}
+			else
+			{
+				readBinary(file, builder);
+			}
+		}
+		return builder.build();
+	}
+
+	private static void readCsv(Path file, Builder builder) throws IOException
+	{
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+		{
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null)
+			{
+				lineNumber++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#") || Character.isLetter(line.charAt(0)))
+				{
+					continue;
+				}
+
+				String[] columns = line.split(",");
+				if (columns.length < 3)
+				{
+					throw new IOException(file + ":" + lineNumber + ": expected pitch,yOffset,horizontalDistance");
+				}
+				try
+				{
+					builder.add(Double.parseDouble(columns[0].trim()), Double.parseDouble(columns[1].trim()),
+						Double.parseDouble(columns[2].trim()));
+				}
+				catch (NumberFormatException e)
+				{
+					throw new IOException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+				}
+			}
+		}
+	}
+
+	private static void readBinary(Path file, Builder builder) throws IOException
+	{
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+		{
+			int magic = in.readInt();
+			int version = in.readInt();
+			if (magic != MAGIC || version != VERSION)
+			{
+				throw new IOException(file + " is not a version " + VERSION + " pitch sample file");
+			}
+
+			int count = in.readInt();
+			for (int i = 0; i < count; i++)
+			{
+				builder.add(in.readFloat(), in.readFloat(), in.readFloat());
+			}
+		}
+	}
+
+	public void writeBinary(Path file) throws IOException
+	{
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file))))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(size());
+			for (int i = 0; i < size(); i++)
+			{
+				out.writeFloat((float) pitch[i]);
+				out.writeFloat((float) yOffset[i]);
+				out.writeFloat((float) horizontalDistance[i]);
+			}
+		}
+	}
+
+	public static class Builder
+	{
+		private double[] pitch = new double[256];
+		private double[] yOffset = new double[256];
+		private double[] horizontalDistance = new double[256];
+		private int size;
+
+		public Builder add(double pitch, double yOffset, double horizontalDistance)
+		{
+			if (size == this.pitch.length)
+			{
+				this.pitch = Arrays.copyOf(this.pitch, size * 2);
+				this.yOffset = Arrays.copyOf(this.yOffset, size * 2);
+				this.horizontalDistance = Arrays.copyOf(this.horizontalDistance, size * 2);
+			}
+			this.pitch[size] = pitch;
+			this.yOffset[size] = yOffset;
+			this.horizontalDistance[size] = horizontalDistance;
+			size++;
+			return this;
+		}
+
+		public PitchSamples build()
+		{
+			return new PitchSamples(Arrays.copyOf(pitch, size), Arrays.copyOf(yOffset, size),
+				Arrays.copyOf(horizontalDistance, size));
+		}
+	}
+}
@@ -0,0 +1,269 @@
+package com.firstperson.calibration;
+
+import com.firstperson.detachedcamera.FocalTable;
+import com.firstperson.detachedcamera.PreCalculatedTransformations;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Fits one zoom's rows of the sampled pitch tables in {@code src/main/tables/pitch-transformations.csv} to recorded
+ * focal point observations, reports how far the samples are from the fitted and the current tables, and writes the
+ * tables with the fitted zoom in the same format so generatePitchTables can build them.
+ * <p>
+ * Run with {@code ./gradlew calibratePitchTables -Psamples=<file>[,<file>...]}, see {@link PitchSamples} for the
+ * sample formats. The samples are taken as recorded at {@code --zoom}, which defaults to the client's default zoom. A
+ * zoom not in the tables yet starts from the nearest one.
+ */
+public class PitchTableCalibrator
+{
+	static final int ROWS = PreCalculatedTransformations.ROWS;
+
+	static final int DEFAULT_NEIGHBOURS = 64;
+	static final double DEFAULT_MAX_GAP = 4 * PreCalculatedTransformations.PITCH_SCALE;
+
+	private static final String[] HEADER = {
+		"# generatePitchTables writes the rows of every zoom as a grid that PreCalculatedTransformations loads, and",
+		"# FocalTable samples it bilinearly for the client's zoom. Zooms outside the sampled ones use the nearest.",
+		"#",
+		"# yAxisAbsoluteChange: vertical focal point offset from the eye, in local units.",
+		"# horizontalDistance: horizontal distance from the eye to the focal point, in local units.",
+		"zoom,pitchIndex,yAxisAbsoluteChange,horizontalDistance",
+	};
+
+	public static void main(String[] args) throws IOException
+	{
+		Path baselineFile = Paths.get("src/main/tables/pitch-transformations.csv");
+		Path out = Paths.get("build/calibration/pitch-transformations.csv");
+		int zoom = FocalTable.DEFAULT_ZOOM;
+		int neighbours = DEFAULT_NEIGHBOURS;
+		double maxGap = DEFAULT_MAX_GAP;
+		List<Path> sampleFiles = new ArrayList<>();
+		for (int i = 0; i < args.length; i++)
+		{
+			switch (args[i])
+			{
+				case "--baseline":
+					baselineFile = Paths.get(args[++i]);
+					break;
+				case "--out":
+					out = Paths.get(args[++i]);
+					break;
+				case "--zoom":
+					zoom = Integer.parseInt(args[++i]);
+					break;
+				case "--neighbours":
+					neighbours = Integer.parseInt(args[++i]);
+					break;
+				case "--max-gap":
+					maxGap = Double.parseDouble(args[++i]);
+					break;
+				default:
+					sampleFiles.add(Paths.get(args[i]));
+			}
+		}
+		if (sampleFiles.isEmpty())
+		{
+			System.err.println("Usage: PitchTableCalibrator [--baseline <csv>] [--out <csv>] [--zoom <zoom>]"
+				+ " [--neighbours <n>] [--max-gap <pitch>] <samples.csv|samples.bin>...");
+			System.exit(2);
+		}
+
+		PitchSamples samples = PitchSamples.read(sampleFiles.toArray(new Path[0]));
+		TreeMap<Integer, double[][]> tables = readTable(baselineFile);
+		Result result = calibrate(ForkJoinPool.commonPool(), samples, nearest(tables, zoom), neighbours, maxGap);
+
+		System.out.println("Zoom " + zoom + ": " + result);
+		if (out.getParent() != null)
+		{
+			Files.createDirectories(out.getParent());
+		}
+		tables.put(zoom, new double[][]{result.yAxisAbsoluteChange, result.horizontalDistance});
+		writeTable(out, tables, zoom, samples.size());
+		System.out.println("Wrote " + out);
+	}
+
+	public static Result calibrate(ForkJoinPool pool, PitchSamples samples, double[][] baseline, int neighbours,
+		double maxGap)
+	{
+		ShapeConstrainedFit yFit = new ShapeConstrainedFit(samples.pitch, samples.yOffset, baseline[0],
+			PreCalculatedTransformations.PITCH_SCALE, neighbours, maxGap);
+		ShapeConstrainedFit distanceFit = new ShapeConstrainedFit(samples.pitch, samples.horizontalDistance, baseline[1],
+			PreCalculatedTransformations.PITCH_SCALE, neighbours, maxGap);
+		// Both tables fit their rows on the same pool
+		ForkJoinTask<?> yTask = pool.submit(() -> yFit.fit(pool, ShapeConstrainedFit.Shape.DECREASING));
+		distanceFit.fit(pool, ShapeConstrainedFit.Shape.UNIMODAL);
+		yTask.join();
+
+		Result result = new Result();
+		result.samples = samples.size();
+		result.uncoveredRows = yFit.uncoveredRows;
+		result.yAxisAbsoluteChange = yFit.rows;
+		result.horizontalDistance = distanceFit.rows;
+		result.yFitted = Residuals.of(samples.pitch, samples.yOffset, yFit.rows);
+		result.yBaseline = Residuals.of(samples.pitch, samples.yOffset, baseline[0]);
+		result.distanceFitted = Residuals.of(samples.pitch, samples.horizontalDistance, distanceFit.rows);
+		result.distanceBaseline = Residuals.of(samples.pitch, samples.horizontalDistance, baseline[1]);
+		return result;
+	}
+
+	/**
+	 * @return a copy of the zoom's rows, or of the nearest zoom's when it has none
+	 */
+	static double[][] nearest(TreeMap<Integer, double[][]> tables, int zoom)
+	{
+		Map.Entry<Integer, double[][]> below = tables.floorEntry(zoom);
+		Map.Entry<Integer, double[][]> above = tables.ceilingEntry(zoom);
+		Map.Entry<Integer, double[][]> nearest = below == null
+			|| above != null && above.getKey() - zoom < zoom - below.getKey() ? above : below;
+		return new double[][]{nearest.getValue()[0].clone(), nearest.getValue()[1].clone()};
+	}
+
+	/**
+	 * Samples a table between rows as FocalTable expands it.
+	 */
+	static double sample(double[] table, double pitch)
+	{
+		double position = Math.max(0, Math.min(pitch / PreCalculatedTransformations.PITCH_SCALE, table.length - 1));
+		int lo = (int) position;
+		int hi = Math.min(lo + 1, table.length - 1);
+		return table[lo] + (table[hi] - table[lo]) * (position - lo);
+	}
+
+	/**
+	 * @return the {@code yAxisAbsoluteChange} and {@code horizontalDistance} columns of a pitch table CSV, by zoom
+	 */
+	static TreeMap<Integer, double[][]> readTable(Path file) throws IOException
+	{
+		TreeMap<Integer, double[][]> tables = new TreeMap<>();
+		Map<Integer, Integer> rows = new TreeMap<>();
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#") || line.startsWith("zoom"))
+				{
+					continue;
+				}
+
+				String[] columns = line.split(",");
+				int zoom = Integer.parseInt(columns[0]);
+				int row = rows.merge(zoom, 1, Integer::sum) - 1;
+				if (row == ROWS)
+				{
+					throw new IOException(file + " has more than " + ROWS + " rows for zoom " + zoom);
+				}
+
+				double[][] table = tables.computeIfAbsent(zoom, z -> new double[2][ROWS]);
+				table[0][row] = Double.parseDouble(columns[2]);
+				table[1][row] = Double.parseDouble(columns[3]);
+			}
+		}
+		for (Map.Entry<Integer, Integer> zoomRows : rows.entrySet())
+		{
+			if (zoomRows.getValue() != ROWS)
+			{
+				throw new IOException(file + " has " + zoomRows.getValue() + " rows for zoom " + zoomRows.getKey()
+					+ ", expected " + ROWS);
+			}
+		}
+		if (tables.isEmpty())
+		{
+			throw new IOException(file + " has no rows");
+		}
+		return tables;
+	}
+
+	static void writeTable(Path file, Map<Integer, double[][]> tables, int fittedZoom, int samples) throws IOException
+	{
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+		{
+			writer.write("# Focal point offsets, one row every PITCH_SCALE (8) units of camera pitch. Zoom " + fittedZoom
+				+ " fitted by PitchTableCalibrator to " + samples + " recorded samples.");
+			writer.newLine();
+			for (String line : HEADER)
+			{
+				writer.write(line);
+				writer.newLine();
+			}
+			for (Map.Entry<Integer, double[][]> table : tables.entrySet())
+			{
+				double[] yAxisAbsoluteChange = table.getValue()[0];
+				double[] horizontalDistance = table.getValue()[1];
+				for (int row = 0; row < yAxisAbsoluteChange.length; row++)
+				{
+					writer.write(table.getKey() + "," + row + "," + round(yAxisAbsoluteChange[row]) + ","
+						+ round(horizontalDistance[row]));
+					writer.newLine();
+				}
+			}
+		}
+	}
+
+	private static String round(double value)
+	{
+		double rounded = Math.round(value * 1000) / 1000.0;
+		return rounded == Math.rint(rounded) ? Long.toString((long) rounded) : Double.toString(rounded);
+	}
+
+	static class Residuals
+	{
+		double rms;
+		double max;
+
+		static Residuals of(double[] pitch, double[] observed, double[] table)
+		{
+			Residuals residuals = new Residuals();
+			double sumOfSquares = 0;
+			for (int i = 0; i < pitch.length; i++)
+			{
+				double residual = Math.abs(observed[i] - sample(table, pitch[i]));
+				sumOfSquares += residual * residual;
+				residuals.max = Math.max(residuals.max, residual);
+			}
+			residuals.rms = pitch.length == 0 ? 0 : Math.sqrt(sumOfSquares / pitch.length);
+			return residuals;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format(Locale.ROOT, "rms %.4f max %.4f", rms, max);
+		}
+	}
+
+	public static class Result
+	{
+		int samples;
+		int uncoveredRows;
+		double[] yAxisAbsoluteChange;
+		double[] horizontalDistance;
+		Residuals yFitted;
+		Residuals yBaseline;
+		Residuals distanceFitted;
+		Residuals distanceBaseline;
+
+		@Override
+		public String toString()
+		{
+			return String.format(Locale.ROOT,
+				"%d samples, %d of %d rows kept from the baseline for lack of samples%n"
+					+ "yAxisAbsoluteChange: fitted %s, baseline %s%n"
+					+ "horizontalDistance:  fitted %s, baseline %s",
+				samples, uncoveredRows, ROWS, yFitted, yBaseline, distanceFitted, distanceBaseline);
+		}
+	}
+}
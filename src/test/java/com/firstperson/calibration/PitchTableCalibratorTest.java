@@ -0,0 +1,201 @@
+package com.firstperson.calibration;
+
+import com.firstperson.detachedcamera.FocalTable;
+import com.firstperson.detachedcamera.PreCalculatedTransformations;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PitchTableCalibratorTest
+{
+	private static final Path SHIPPED_TABLE = Paths.get("src/main/tables/pitch-transformations.csv");
+
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+
+	private File folder;
+	private double[][] shipped;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		folder = Files.createTempDirectory("calibration").toFile();
+		shipped = PitchTableCalibrator.readTable(SHIPPED_TABLE).get(FocalTable.DEFAULT_ZOOM);
+	}
+
+	@After
+	public void tearDown()
+	{
+		pool.shutdown();
+		File[] files = folder.listFiles();
+		if (files != null)
+		{
+			for (File file : files)
+			{
+				file.delete();
+			}
+		}
+		folder.delete();
+	}
+
+	@Test
+	public void fitRecoversTablesFromNoisySamples()
+	{
+		PitchSamples samples = noisySamples(new Random(3), 20_000, 0, PreCalculatedTransformations.MAX_PITCH);
+		PitchTableCalibrator.Result result = PitchTableCalibrator.calibrate(pool, samples, flatBaseline(),
+			PitchTableCalibrator.DEFAULT_NEIGHBOURS, PitchTableCalibrator.DEFAULT_MAX_GAP);
+
+		assertEquals(0, result.uncoveredRows);
+		for (int row = 0; row < PitchTableCalibrator.ROWS; row++)
+		{
+			assertEquals("y row " + row, shipped[0][row], result.yAxisAbsoluteChange[row], 2.5);
+			assertEquals("distance row " + row, shipped[1][row], result.horizontalDistance[row], 7.5);
+		}
+
+		// The samples scatter 2 units up and 7.5 across around the shipped tables, the fit shouldn't add much to that
+		assertTrue(result.yFitted.toString(), result.yFitted.rms < 2.1);
+		assertTrue(result.distanceFitted.toString(), result.distanceFitted.rms < 7.9);
+	}
+
+	@Test
+	public void fittedTablesAreMonotoneOnEachSideOfThePeak()
+	{
+		PitchSamples samples = noisySamples(new Random(5), 3_000, 0, PreCalculatedTransformations.MAX_PITCH);
+		PitchTableCalibrator.Result result = PitchTableCalibrator.calibrate(pool, samples, flatBaseline(),
+			PitchTableCalibrator.DEFAULT_NEIGHBOURS, PitchTableCalibrator.DEFAULT_MAX_GAP);
+
+		double[] y = result.yAxisAbsoluteChange;
+		for (int row = 1; row < y.length; row++)
+		{
+			assertTrue("y rises at row " + row, y[row] <= y[row - 1]);
+		}
+
+		double[] distance = result.horizontalDistance;
+		int peak = 0;
+		for (int row = 1; row < distance.length; row++)
+		{
+			if (distance[row] > distance[peak])
+			{
+				peak = row;
+			}
+		}
+		for (int row = 1; row <= peak; row++)
+		{
+			assertTrue("distance falls before the peak at row " + row, distance[row] >= distance[row - 1]);
+		}
+		for (int row = peak + 1; row < distance.length; row++)
+		{
+			assertTrue("distance rises after the peak at row " + row, distance[row] <= distance[row - 1]);
+		}
+	}
+
+	@Test
+	public void rowsWithoutSamplesKeepTheBaseline()
+	{
+		// Only the top half of the pitch range was recorded
+		PitchSamples samples = noisySamples(new Random(7), 5_000, 2048, PreCalculatedTransformations.MAX_PITCH);
+		PitchTableCalibrator.Result result = PitchTableCalibrator.calibrate(pool, samples, shipped,
+			PitchTableCalibrator.DEFAULT_NEIGHBOURS, PitchTableCalibrator.DEFAULT_MAX_GAP);
+
+		int firstSampledRow = 2048 / PreCalculatedTransformations.PITCH_SCALE;
+		assertEquals(firstSampledRow - PitchTableCalibrator.DEFAULT_MAX_GAP / PreCalculatedTransformations.PITCH_SCALE,
+			result.uncoveredRows, 1);
+		for (int row = 0; row < firstSampledRow - 8; row++)
+		{
+			assertEquals(shipped[0][row], result.yAxisAbsoluteChange[row], 0);
+		}
+	}
+
+	@Test
+	public void isotonicRegressionPoolsViolators()
+	{
+		double[] values = {1, 3, 2, 4, 4, 0};
+		ShapeConstrainedFit.increasing(values, 0, 5);
+		assertArrayEquals(new double[]{1, 2.5, 2.5, 4, 4, 0}, values, 1e-12);
+
+		ShapeConstrainedFit.decreasing(values, 3, 6);
+		assertArrayEquals(new double[]{1, 2.5, 2.5, 4, 4, 0}, values, 1e-12);
+
+		double[] rising = {0, 1, 2};
+		ShapeConstrainedFit.decreasing(rising, 0, 3);
+		assertArrayEquals(new double[]{1, 1, 1}, rising, 1e-12);
+	}
+
+	@Test
+	public void csvAndBinarySamplesReadTheSame() throws IOException
+	{
+		PitchSamples samples = noisySamples(new Random(11), 100, 0, PreCalculatedTransformations.MAX_PITCH);
+
+		Path binary = folder.toPath().resolve("samples.bin");
+		samples.writeBinary(binary);
+
+		Path csv = folder.toPath().resolve("samples.csv");
+		StringBuilder text = new StringBuilder("# recorded in a test\npitch,yOffset,horizontalDistance\n");
+		for (int i = 0; i < samples.size(); i++)
+		{
+			text.append((float) samples.pitch[i]).append(',').append((float) samples.yOffset[i]).append(',')
+				.append((float) samples.horizontalDistance[i]).append('\n');
+		}
+		Files.write(csv, text.toString().getBytes());
+
+		PitchSamples fromBinary = PitchSamples.read(binary);
+		PitchSamples fromCsv = PitchSamples.read(csv);
+		assertArrayEquals(fromCsv.pitch, fromBinary.pitch, 1e-3);
+		assertArrayEquals(fromCsv.yOffset, fromBinary.yOffset, 1e-3);
+		assertArrayEquals(fromCsv.horizontalDistance, fromBinary.horizontalDistance, 1e-3);
+		assertEquals(200, PitchSamples.read(csv, binary).size());
+	}
+
+	@Test
+	public void writtenTableReadsBack() throws IOException
+	{
+		TreeMap<Integer, double[][]> tables = PitchTableCalibrator.readTable(SHIPPED_TABLE);
+		double[][] zoomedIn = PitchTableCalibrator.nearest(tables, 900);
+		assertArrayEquals(shipped[1], zoomedIn[1], 0);
+		for (int row = 0; row < PitchTableCalibrator.ROWS; row++)
+		{
+			zoomedIn[1][row] *= 0.75;
+		}
+		tables.put(900, zoomedIn);
+
+		Path out = folder.toPath().resolve("pitch-transformations.csv");
+		PitchTableCalibrator.writeTable(out, tables, 900, 0);
+
+		TreeMap<Integer, double[][]> written = PitchTableCalibrator.readTable(out);
+		assertEquals(tables.keySet(), written.keySet());
+		assertArrayEquals(shipped[0], written.get(FocalTable.DEFAULT_ZOOM)[0], 0);
+		assertArrayEquals(shipped[1], written.get(FocalTable.DEFAULT_ZOOM)[1], 0);
+		assertArrayEquals(zoomedIn[1], written.get(900)[1], 1e-3);
+	}
+
+	/**
+	 * Samples the shipped tables at random pitches, with a little noise as if observed in the client.
+	 */
+	private PitchSamples noisySamples(Random random, int count, int fromPitch, int toPitch)
+	{
+		PitchSamples.Builder builder = new PitchSamples.Builder();
+		for (int i = 0; i < count; i++)
+		{
+			double pitch = fromPitch + random.nextDouble() * (toPitch - fromPitch);
+			double yOffset = PitchTableCalibrator.sample(shipped[0], pitch) + random.nextGaussian() * 2;
+			double distance = PitchTableCalibrator.sample(shipped[1], pitch) + random.nextGaussian() * 7.5;
+			builder.add(pitch, yOffset, distance);
+		}
+		return builder.build();
+	}
+
+	private static double[][] flatBaseline()
+	{
+		return new double[2][PitchTableCalibrator.ROWS];
+	}
+}
@@ -0,0 +1,258 @@
+package com.firstperson.calibration;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fits one pitch table row per {@code rowSpacing} units of pitch to noisy samples.
+ * <p>
+ * Each row is a local linear regression over its nearest samples, weighted with a tricube kernel, so rows are
+ * independent and fitted in parallel on a fork-join pool. Rows too far from any sample keep the baseline value. The
+ * fitted rows are then made monotone with the pool adjacent violators algorithm: the vertical offset only falls as the
+ * camera pitches down, and the horizontal multiplier rises up to its peak and falls after it.
+ */
+public class ShapeConstrainedFit
+{
+	public enum Shape
+	{
+		DECREASING,
+		UNIMODAL,
+	}
+
+	private static final int ROWS_PER_TASK = 32;
+
+	private final double[] x;
+	private final double[] y;
+	private final double rowSpacing;
+	private final int neighbours;
+	private final double maxGap;
+
+	final double[] rows;
+	// Rows without a sample within maxGap, left at the baseline
+	final boolean[] uncovered;
+	int uncoveredRows;
+
+	/**
+	 * @param x sample positions, sorted
+	 * @param neighbours how many of the nearest samples each row is fitted to
+	 * @param maxGap how far the nearest sample may be from a row before the row keeps its baseline value
+	 */
+	ShapeConstrainedFit(double[] x, double[] y, double[] baseline, double rowSpacing, int neighbours, double maxGap)
+	{
+		this.x = x;
+		this.y = y;
+		this.rowSpacing = rowSpacing;
+		this.neighbours = Math.max(2, Math.min(neighbours, x.length));
+		this.maxGap = maxGap;
+		this.rows = baseline.clone();
+		this.uncovered = new boolean[rows.length];
+	}
+
+	public static double[] fit(ForkJoinPool pool, double[] x, double[] y, double[] baseline, double rowSpacing,
+		int neighbours, double maxGap, Shape shape)
+	{
+		ShapeConstrainedFit fit = new ShapeConstrainedFit(x, y, baseline, rowSpacing, neighbours, maxGap);
+		fit.fit(pool, shape);
+		return fit.rows;
+	}
+
+	void fit(ForkJoinPool pool, Shape shape)
+	{
+		if (x.length >= 2)
+		{
+			pool.invoke(new FitRows(0, rows.length));
+		}
+		else
+		{
+			Arrays.fill(uncovered, true);
+		}
+		for (boolean rowUncovered : uncovered)
+		{
+			if (rowUncovered)
+			{
+				uncoveredRows++;
+			}
+		}
+
+		switch (shape)
+		{
+			case DECREASING:
+				decreasing(rows, 0, rows.length);
+				break;
+			case UNIMODAL:
+				int peak = 0;
+				for (int row = 1; row < rows.length; row++)
+				{
+					if (rows[row] > rows[peak])
+					{
+						peak = row;
+					}
+				}
+				increasing(rows, 0, peak + 1);
+				decreasing(rows, peak, rows.length);
+				break;
+		}
+	}
+
+	private class FitRows extends RecursiveAction
+	{
+		private final int from;
+		private final int to;
+
+		FitRows(int from, int to)
+		{
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from <= ROWS_PER_TASK)
+			{
+				for (int row = from; row < to; row++)
+				{
+					fitRow(row);
+				}
+				return;
+			}
+
+			int middle = (from + to) >>> 1;
+			invokeAll(new FitRows(from, middle), new FitRows(middle, to));
+		}
+	}
+
+	private void fitRow(int row)
+	{
+		double at = row * rowSpacing;
+
+		// Grow a window of the nearest samples outwards from where this row would be inserted
+		int hi = lowerBound(at);
+		int lo = hi;
+		while (hi - lo < neighbours)
+		{
+			if (lo == 0)
+			{
+				hi++;
+			}
+			else if (hi == x.length || at - x[lo - 1] <= x[hi] - at)
+			{
+				lo--;
+			}
+			else
+			{
+				hi++;
+			}
+		}
+
+		double nearest = Double.MAX_VALUE;
+		for (int i = lo; i < hi; i++)
+		{
+			nearest = Math.min(nearest, Math.abs(x[i] - at));
+		}
+		if (nearest > maxGap)
+		{
+			uncovered[row] = true;
+			return;
+		}
+
+		// Wide enough that the farthest neighbour still has some weight
+		double bandwidth = Math.max(Math.max(at - x[lo], x[hi - 1] - at) * 1.01, rowSpacing);
+
+		double sumW = 0;
+		double sumWX = 0;
+		double sumWY = 0;
+		double sumWXX = 0;
+		double sumWXY = 0;
+		for (int i = lo; i < hi; i++)
+		{
+			double u = Math.abs(x[i] - at) / bandwidth;
+			double t = 1 - u * u * u;
+			double w = t * t * t;
+			double dx = x[i] - at;
+			sumW += w;
+			sumWX += w * dx;
+			sumWY += w * y[i];
+			sumWXX += w * dx * dx;
+			sumWXY += w * dx * y[i];
+		}
+
+		// With x centred on the row, the intercept is the fitted value there
+		double determinant = sumW * sumWXX - sumWX * sumWX;
+		if (Math.abs(determinant) < 1e-9 * sumW * sumWXX)
+		{
+			rows[row] = sumWY / sumW;
+		}
+		else
+		{
+			rows[row] = (sumWXX * sumWY - sumWX * sumWXY) / determinant;
+		}
+	}
+
+	private int lowerBound(double value)
+	{
+		int lo = 0;
+		int hi = x.length;
+		while (lo < hi)
+		{
+			int middle = (lo + hi) >>> 1;
+			if (x[middle] < value)
+			{
+				lo = middle + 1;
+			}
+			else
+			{
+				hi = middle;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Replaces {@code values[from, to)} with the closest non-decreasing sequence in least squares.
+	 */
+	static void increasing(double[] values, int from, int to)
+	{
+		int n = to - from;
+		double[] blockMean = new double[n];
+		int[] blockSize = new int[n];
+		int blocks = 0;
+		for (int i = from; i < to; i++)
+		{
+			blockMean[blocks] = values[i];
+			blockSize[blocks] = 1;
+			blocks++;
+			while (blocks > 1 && blockMean[blocks - 2] > blockMean[blocks - 1])
+			{
+				int size = blockSize[blocks - 2] + blockSize[blocks - 1];
+				blockMean[blocks - 2] = (blockMean[blocks - 2] * blockSize[blocks - 2]
+					+ blockMean[blocks - 1] * blockSize[blocks - 1]) / size;
+				blockSize[blocks - 2] = size;
+				blocks--;
+			}
+		}
+
+		int i = from;
+		for (int block = 0; block < blocks; block++)
+		{
+			for (int j = 0; j < blockSize[block]; j++)
+			{
+				values[i++] = blockMean[block];
+			}
+		}
+	}
+
+	static void decreasing(double[] values, int from, int to)
+	{
+		for (int i = from; i < to; i++)
+		{
+			values[i] = -values[i];
+		}
+		increasing(values, from, to);
+		for (int i = from; i < to; i++)
+		{
+			values[i] = -values[i];
+		}
+	}
+}
@@ -0,0 +1,219 @@
+package com.firstperson.collision;
+
+import com.firstperson.detachedcamera.CameraPose;
+import com.firstperson.fake.FakeClient;
+import com.firstperson.fake.FakeWorldView;
+import com.firstperson.projection.FirstPersonView;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import net.runelite.api.CollisionData;
+import net.runelite.api.CollisionDataFlag;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CameraCollisionTest
+{
+	private static final int WALL_TILE_X = 56;
+	// Inner face of the wall along the east edge of WALL_TILE_X
+	private static final int WALL_FACE_X = WALL_TILE_X * 128 + 96;
+	// Standing in the middle of the tile with the wall on its east edge
+	private static final double PLAYER_X = WALL_TILE_X * 128 + 64;
+	private static final double PLAYER_Z = 52 * 128 + 64;
+	private static final double ORBIT_X = 750;
+	private static final double ORBIT_Y = -300;
+
+	private final Queue<Runnable> tasks = new ArrayDeque<>();
+	private FakeClient client;
+	private int[][] flags;
+	private CameraCollision collision;
+	private int collisionsSeen;
+
+	@Before
+	public void setUp()
+	{
+		client = FakeClient.create();
+		flags = new int[FakeWorldView.SIZE][FakeWorldView.SIZE];
+		for (int y = 0; y < FakeWorldView.SIZE; y++)
+		{
+			flags[WALL_TILE_X][y] = CollisionDataFlag.BLOCK_LINE_OF_SIGHT_EAST;
+		}
+		CollisionData plane = () -> flags;
+		client.topLevelWorldView.collisionMaps = new CollisionData[]{plane, null, null, null};
+		collision = new CameraCollision(client, tasks::add, null);
+		collision.setListener((flags, sizeX, sizeY) -> collisionsSeen++);
+	}
+
+	@Test
+	public void keepsTheCameraOnThePlayersSideOfWalls()
+	{
+		buildNow();
+		CameraPose pose = lookingEast(1);
+		collision.clip(pose);
+
+		assertCameraClear(pose);
+		assertTrue("eye x " + pose.eyeX, pose.eyeX < PLAYER_X);
+		assertEquals(-200, pose.eyeY, 0);
+		assertEquals(PLAYER_Z, pose.eyeZ, 1e-6);
+	}
+
+	@Test
+	public void catchesAnEyeThatRanAheadOfThePlayer()
+	{
+		buildNow();
+		CameraPose pose = lookingEast(1);
+		pose.rawEyeX -= 128;
+		collision.clip(pose);
+
+		assertCameraClear(pose);
+	}
+
+	@Test
+	public void leavesTheCameraAloneAwayFromWalls()
+	{
+		buildNow();
+		CameraPose pose = lookingEast(1);
+		moveBy(pose, -4 * 128);
+		collision.clip(pose);
+
+		assertEquals(PLAYER_X - 4 * 128, pose.eyeX, 0);
+		assertEquals(PLAYER_X - 4 * 128 + ORBIT_X, pose.focalX, 0);
+	}
+
+	@Test
+	public void clearLinesAreLeftAlone()
+	{
+		buildNow();
+		CameraPose pose = lookingEast(-1);
+		collision.clip(pose);
+
+		assertEquals(PLAYER_X, pose.eyeX, 0);
+		assertEquals(PLAYER_X - ORBIT_X, pose.focalX, 0);
+	}
+
+	@Test
+	public void fieldOnlyGoesIntoUseOnTheNextFrameAfterItIsBuilt()
+	{
+		collision.rebuild();
+		CameraPose pose = lookingEast(1);
+		collision.clip(pose);
+		assertEquals(PLAYER_X, pose.eyeX, 0);
+		assertFalse(collision.isReady());
+
+		runTasks();
+		assertTrue(collision.isReady());
+		assertEquals(0, collisionsSeen);
+		collision.clip(pose);
+		assertCameraClear(pose);
+		assertEquals(1, collisionsSeen);
+	}
+
+	@Test
+	public void buildForAnOldSceneIsDropped()
+	{
+		collision.rebuild();
+		collision.rebuild();
+		tasks.poll().run();
+		assertFalse(collision.isReady());
+
+		runTasks();
+		assertTrue(collision.isReady());
+	}
+
+	@Test
+	public void updatesOnlyWhenTheFlagsChange()
+	{
+		buildNow();
+		collision.clip(lookingEast(1));
+		assertEquals(1, collisionsSeen);
+
+		collision.update();
+		runTasks();
+		collision.clip(lookingEast(1));
+		assertEquals(1, collisionsSeen);
+
+		// A door in the wall opens
+		flags[WALL_TILE_X][52] = 0;
+		collision.update();
+		runTasks();
+		CameraPose pose = lookingEast(1);
+		collision.clip(pose);
+		assertEquals(2, collisionsSeen);
+		assertEquals(PLAYER_X, pose.eyeX, 0);
+	}
+
+	@Test
+	public void listenerHearsTheFieldInUseAndWhenItStops()
+	{
+		buildNow();
+		collision.clip(lookingEast(1));
+
+		int[] sizes = new int[2];
+		collision.setListener((flags, sizeX, sizeY) ->
+		{
+			sizes[0] = sizeX;
+			sizes[1] = flags == null ? -1 : sizeY;
+		});
+		assertEquals(FakeWorldView.SIZE, sizes[0]);
+
+		collision.clear();
+		assertEquals(-1, sizes[1]);
+	}
+
+	private void buildNow()
+	{
+		collision.rebuild();
+		runTasks();
+	}
+
+	private void runTasks()
+	{
+		Runnable task;
+		while ((task = tasks.poll()) != null)
+		{
+			task.run();
+		}
+	}
+
+	/**
+	 * Checks the client's camera, the orbit offset back from the focal point, and its near plane are short of the
+	 * wall, and that the offset is still the one the focal table made.
+	 */
+	private static void assertCameraClear(CameraPose pose)
+	{
+		double cameraX = pose.focalX - ORBIT_X;
+		double nearReach = FirstPersonView.NEAR * ORBIT_X / Math.sqrt(ORBIT_X * ORBIT_X + ORBIT_Y * ORBIT_Y);
+		assertEquals(pose.eyeX, cameraX, 1e-6);
+		assertEquals(ORBIT_Y, pose.focalY - pose.eyeY, 1e-6);
+		assertEquals(pose.eyeZ, pose.focalZ, 1e-6);
+		assertTrue("camera x " + cameraX, cameraX + nearReach <= WALL_FACE_X);
+		// Only moved back as far as it had to be
+		assertTrue("camera x " + cameraX, cameraX + nearReach >= WALL_FACE_X - DistanceField.CELL_SIZE);
+	}
+
+	private static void moveBy(CameraPose pose, double x)
+	{
+		pose.eyeX += x;
+		pose.rawEyeX += x;
+		pose.focalX += x;
+	}
+
+	/**
+	 * @param direction 1 to look east at the wall, -1 to look west away from it
+	 */
+	private static CameraPose lookingEast(int direction)
+	{
+		CameraPose pose = new CameraPose();
+		pose.rawEyeX = PLAYER_X;
+		pose.rawEyeZ = PLAYER_Z;
+		pose.eyeX = PLAYER_X;
+		pose.eyeY = -200;
+		pose.eyeZ = PLAYER_Z;
+		pose.focalX = PLAYER_X + direction * ORBIT_X;
+		pose.focalY = pose.eyeY + ORBIT_Y;
+		pose.focalZ = PLAYER_Z;
+		return pose;
+	}
+}
@@ -0,0 +1,119 @@
+package com.firstperson.collision;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import net.runelite.api.CollisionDataFlag;
+import net.runelite.api.Constants;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DistanceFieldStoreTest
+{
+	private static final int SIZE = 16;
+	private static final int REGION = 12850;
+
+	private File folder;
+	private DistanceFieldStore store;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		folder = Files.createTempDirectory("collision").toFile();
+		store = new DistanceFieldStore(folder);
+	}
+
+	@After
+	public void tearDown()
+	{
+		File[] files = folder.listFiles();
+		if (files != null)
+		{
+			for (File file : files)
+			{
+				file.delete();
+			}
+		}
+		folder.delete();
+	}
+
+	@Test
+	public void storedFieldMapsBackTheSame() throws IOException
+	{
+		int[][][] flags = flags(3);
+		long hash = DistanceFieldStore.hash(flags, SIZE, SIZE);
+		DistanceField built = store.build(REGION, hash, flags, SIZE, SIZE);
+
+		DistanceField loaded = store.load(REGION, hash, SIZE, SIZE);
+		assertNotNull(loaded);
+		for (int x = 0; x < SIZE * 128; x += 16)
+		{
+			for (int y = 0; y < SIZE * 128; y += 16)
+			{
+				assertEquals(built.distance(0, x, y), loaded.distance(0, x, y));
+			}
+		}
+	}
+
+	@Test
+	public void changedFlagsDontMatch() throws IOException
+	{
+		int[][][] flags = flags(3);
+		long hash = DistanceFieldStore.hash(flags, SIZE, SIZE);
+		store.build(REGION, hash, flags, SIZE, SIZE);
+
+		flags[0][3][4] = CollisionDataFlag.BLOCK_LINE_OF_SIGHT_WEST;
+		long changed = DistanceFieldStore.hash(flags, SIZE, SIZE);
+		assertNotEquals(hash, changed);
+		assertNull(store.load(REGION, changed, SIZE, SIZE));
+		assertNull(store.load(REGION + 1, hash, SIZE, SIZE));
+	}
+
+	@Test
+	public void keepsOnlyTheNewestFiles() throws IOException
+	{
+		for (int i = 0; i < DistanceFieldStore.MAX_FILES + 5; i++)
+		{
+			int[][][] flags = flags(i);
+			store.build(REGION + i, DistanceFieldStore.hash(flags, SIZE, SIZE), flags, SIZE, SIZE);
+		}
+
+		assertEquals(DistanceFieldStore.MAX_FILES, folder.listFiles((dir, name) -> name.endsWith(DistanceFieldStore.EXTENSION)).length);
+		assertEquals(0, folder.listFiles((dir, name) -> name.endsWith(DistanceFieldStore.TEMPORARY_EXTENSION)).length);
+	}
+
+	@Test
+	public void removesStaleTemporaryFiles() throws IOException
+	{
+		// Left by a build that was killed, and by one still running
+		File stale = new File(folder, REGION + "-1" + DistanceFieldStore.TEMPORARY_EXTENSION);
+		File running = new File(folder, REGION + "-2" + DistanceFieldStore.TEMPORARY_EXTENSION);
+		assertTrue(stale.createNewFile());
+		assertTrue(running.createNewFile());
+		assertTrue(stale.setLastModified(System.currentTimeMillis() - 2 * DistanceFieldStore.STALE_TEMPORARY_MILLIS));
+
+		int[][][] flags = flags(3);
+		store.build(REGION, DistanceFieldStore.hash(flags, SIZE, SIZE), flags, SIZE, SIZE);
+
+		assertFalse(stale.exists());
+		assertTrue(running.exists());
+	}
+
+	private static int[][][] flags(int wallX)
+	{
+		int[][][] flags = new int[Constants.MAX_Z][][];
+		flags[0] = new int[SIZE][SIZE];
+		for (int y = 0; y < SIZE; y++)
+		{
+			flags[0][wallX % SIZE][y] = CollisionDataFlag.BLOCK_LINE_OF_SIGHT_EAST;
+		}
+		return flags;
+	}
+}
@@ -0,0 +1,119 @@
+package com.firstperson.collision;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import net.runelite.api.CollisionDataFlag;
+import net.runelite.api.Constants;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class DistanceFieldTest
+{
+	private static final int SIZE = 24;
+	private static final int TILE = 128;
+
+	@Test
+	public void openSceneIsFarFromEverything()
+	{
+		DistanceField field = build(new int[Constants.MAX_Z][][]);
+
+		assertEquals(DistanceField.MAX_DISTANCE, field.distance(0, 10 * TILE, 10 * TILE));
+		assertEquals(DistanceField.MAX_DISTANCE, field.distance(0, -5, 10 * TILE));
+	}
+
+	@Test
+	public void blockedTileIsNegativeInsideAndPositiveAround()
+	{
+		int[][][] flags = flags();
+		flags[0][10][10] = CollisionDataFlag.BLOCK_LINE_OF_SIGHT_FULL;
+		DistanceField field = build(flags);
+
+		assertTrue(field.distance(0, 10 * TILE + 64, 10 * TILE + 64) < -32);
+		// Two tiles east of the centre is a tile and a half from the edge
+		assertEquals(192, field.distance(0, 12 * TILE + 64, 10 * TILE + 64), DistanceField.CELL_SIZE / 2.0);
+		assertEquals(DistanceField.MAX_DISTANCE, field.distance(1, 10 * TILE + 64, 10 * TILE + 64));
+	}
+
+	@Test
+	public void onlyLineOfSightFlagsBlock()
+	{
+		int[][][] flags = flags();
+		flags[0][10][10] = CollisionDataFlag.BLOCK_MOVEMENT_FULL | CollisionDataFlag.BLOCK_MOVEMENT_NORTH;
+		DistanceField field = build(flags);
+
+		assertEquals(DistanceField.MAX_DISTANCE, field.distance(0, 10 * TILE + 64, 10 * TILE + 64));
+	}
+
+	@Test
+	public void wallOnlyFillsItsEdgeOfTheTile()
+	{
+		int[][][] flags = flags();
+		flags[0][10][10] = CollisionDataFlag.BLOCK_LINE_OF_SIGHT_NORTH;
+		DistanceField field = build(flags);
+
+		// The south edge of the tile is open, with the wall's inner face three quarters of a tile north
+		assertEquals(80, field.distance(0, 10 * TILE + 64, 10 * TILE + 16), DistanceField.DISTANCE_UNIT);
+		assertTrue(field.distance(0, 10 * TILE + 64, 10 * TILE + 120) < 0);
+	}
+
+	@Test
+	public void matchesBruteForceDistances()
+	{
+		Random random = new Random(9);
+		int[][][] flags = flags();
+		int[] walls = {
+			CollisionDataFlag.BLOCK_LINE_OF_SIGHT_FULL, CollisionDataFlag.BLOCK_LINE_OF_SIGHT_NORTH,
+			CollisionDataFlag.BLOCK_LINE_OF_SIGHT_EAST, CollisionDataFlag.BLOCK_LINE_OF_SIGHT_SOUTH,
+			CollisionDataFlag.BLOCK_LINE_OF_SIGHT_WEST, CollisionDataFlag.BLOCK_MOVEMENT_FLOOR
+		};
+		for (int i = 0; i < 40; i++)
+		{
+			flags[0][random.nextInt(SIZE)][random.nextInt(SIZE)] |= walls[random.nextInt(walls.length)];
+		}
+		DistanceField field = build(flags);
+
+		int cells = SIZE * DistanceField.CELLS_PER_TILE;
+		boolean[][] solid = new boolean[cells][cells];
+		for (int x = 0; x < cells; x++)
+		{
+			for (int y = 0; y < cells; y++)
+			{
+				solid[x][y] = field.distance(0, x * DistanceField.CELL_SIZE, y * DistanceField.CELL_SIZE) < 0;
+			}
+		}
+
+		for (int x = 0; x < cells; x++)
+		{
+			for (int y = 0; y < cells; y++)
+			{
+				double nearest = Double.MAX_VALUE;
+				for (int ox = 0; ox < cells; ox++)
+				{
+					for (int oy = 0; oy < cells; oy++)
+					{
+						if (solid[ox][oy] != solid[x][y])
+						{
+							nearest = Math.min(nearest, Math.hypot(ox - x, oy - y));
+						}
+					}
+				}
+				double expected = Math.min(nearest * DistanceField.CELL_SIZE - DistanceField.CELL_SIZE / 2.0, DistanceField.MAX_DISTANCE);
+				int actual = field.distance(0, x * DistanceField.CELL_SIZE, y * DistanceField.CELL_SIZE);
+				assertEquals("cell " + x + "," + y, solid[x][y] ? -expected : expected, actual, DistanceField.DISTANCE_UNIT / 2.0 + 1e-9);
+			}
+		}
+	}
+
+	private static int[][][] flags()
+	{
+		int[][][] flags = new int[Constants.MAX_Z][][];
+		flags[0] = new int[SIZE][SIZE];
+		return flags;
+	}
+
+	private static DistanceField build(int[][][] flags)
+	{
+		return DistanceField.build(flags, SIZE, SIZE, ByteBuffer.allocate(DistanceField.bytes(SIZE, SIZE)));
+	}
+}
@@ -0,0 +1,102 @@
+package com.firstperson.culling;
+
+import com.firstperson.FirstPersonConfig;
+import com.firstperson.FirstPersonConfigSnapshot;
+import com.firstperson.FirstPersonPlugin;
+import com.firstperson.detachedcamera.CameraPose;
+import com.firstperson.detachedcamera.HeightfieldCache;
+import com.firstperson.fake.FakeClient;
+import com.firstperson.fake.FakeNpc;
+import com.firstperson.projection.FirstPersonProjection;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RenderableCullerTest
+{
+	private static final int EYE = 6656;
+
+	private FirstPersonProjection projection;
+	private RenderableCuller culler;
+	private boolean cullOutOfView = true;
+	private int nearCullRadius = 64;
+
+	@Before
+	public void setUp()
+	{
+		FakeClient client = FakeClient.create();
+		projection = new FirstPersonProjection(client);
+		FirstPersonPlugin plugin = new FirstPersonPlugin()
+		{
+			@Override
+			public FirstPersonConfigSnapshot getConfigSnapshot()
+			{
+				return FirstPersonConfigSnapshot.from(new FirstPersonConfig()
+				{
+					@Override
+					public boolean cullOutOfView()
+					{
+						return cullOutOfView;
+					}
+
+					@Override
+					public int nearCullRadius()
+					{
+						return nearCullRadius;
+					}
+				});
+			}
+		};
+		culler = new RenderableCuller(client, plugin, projection, new HeightfieldCache(client));
+	}
+
+	private void lookNorth()
+	{
+		CameraPose pose = new CameraPose();
+		pose.eyeX = EYE;
+		pose.eyeY = -200;
+		pose.eyeZ = EYE;
+		projection.publish(pose, EYE, -200, EYE + 750);
+	}
+
+	@Test
+	public void drawsWhatIsInFrontAndSkipsWhatIsBehind()
+	{
+		lookNorth();
+		assertTrue(culler.draw(FakeNpc.at(EYE, EYE + 1024), false));
+		assertTrue(culler.draw(FakeNpc.at(EYE + 256, EYE + 512), false));
+		assertFalse(culler.draw(FakeNpc.at(EYE, EYE - 1024), false));
+		assertFalse(culler.draw(FakeNpc.at(EYE + 2048, EYE + 256), false));
+
+		cullOutOfView = false;
+		assertTrue(culler.draw(FakeNpc.at(EYE, EYE - 1024), false));
+	}
+
+	@Test
+	public void actorsBesideTheEyeAreDrawnUnlessInsideTheNearRadius()
+	{
+		lookNorth();
+		// Beside the camera, but its model reaches into view
+		assertTrue(culler.draw(FakeNpc.at(EYE + 128, EYE), false));
+
+		// Where the local player stands
+		assertFalse(culler.draw(FakeNpc.at(EYE, EYE), false));
+		nearCullRadius = 0;
+		assertTrue(culler.draw(FakeNpc.at(EYE, EYE), false));
+	}
+
+	@Test
+	public void drawsEverythingWithoutAViewOrForTheUi()
+	{
+		FakeNpc behind = FakeNpc.at(EYE, EYE - 1024);
+		assertTrue(culler.draw(behind, false));
+
+		lookNorth();
+		assertTrue(culler.draw(behind, true));
+		assertFalse(culler.draw(behind, false));
+
+		projection.clear();
+		assertTrue(culler.draw(behind, false));
+	}
+}
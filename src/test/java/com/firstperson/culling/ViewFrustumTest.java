@@ -0,0 +1,57 @@
+package com.firstperson.culling;
+
+import com.firstperson.detachedcamera.CameraPose;
+import com.firstperson.fake.FakeClient;
+import com.firstperson.projection.FirstPersonProjection;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ViewFrustumTest
+{
+	private static final int EYE = 6656;
+
+	private final ViewFrustum frustum = new ViewFrustum();
+
+	@Before
+	public void setUp()
+	{
+		FakeClient client = FakeClient.create();
+		FirstPersonProjection projection = new FirstPersonProjection(client);
+		CameraPose pose = new CameraPose();
+		pose.eyeX = EYE;
+		pose.eyeY = -200;
+		pose.eyeZ = EYE;
+		// Looking level towards +y
+		projection.publish(pose, EYE, -200, EYE + 750);
+		frustum.set(projection.getView());
+	}
+
+	@Test
+	public void pointsInFrontAreInView()
+	{
+		assertTrue(frustum.intersectsSphere(EYE, EYE + 1000, -200, 0));
+		assertTrue(frustum.intersectsSphere(EYE + 300, EYE + 1000, 0, 0));
+	}
+
+	@Test
+	public void pointsBehindBesideOrAboveAreNot()
+	{
+		assertFalse(frustum.intersectsSphere(EYE, EYE - 200, -200, 0));
+		// 765 pixels across at scale 512 is about 37 degrees either side
+		assertFalse(frustum.intersectsSphere(EYE + 1000, EYE + 500, -200, 0));
+		assertFalse(frustum.intersectsSphere(EYE - 1000, EYE + 500, -200, 0));
+		assertFalse(frustum.intersectsSphere(EYE, EYE + 500, -1000, 0));
+	}
+
+	@Test
+	public void spheresReachingIntoViewAreInView()
+	{
+		// Centre just behind the eye
+		assertTrue(frustum.intersectsSphere(EYE, EYE - 100, -200, 128));
+		// Centre just outside the right edge
+		assertFalse(frustum.intersectsSphere(EYE + 500, EYE + 500, -200, 0));
+		assertTrue(frustum.intersectsSphere(EYE + 500, EYE + 500, -200, 200));
+	}
+}
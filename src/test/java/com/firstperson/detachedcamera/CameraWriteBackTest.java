@@ -0,0 +1,89 @@
+package com.firstperson.detachedcamera;
+
+import com.firstperson.fake.FakeClient;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CameraWriteBackTest
+{
+	private FakeClient client;
+	private CameraWriteBack cameraWriteBack;
+	private final CameraPose pose = new CameraPose();
+
+	@Before
+	public void setUp()
+	{
+		client = FakeClient.create();
+		client.cameraMode = 1;
+		client.cameraYawTarget = 512;
+		client.cameraPitchTarget = 1200;
+		cameraWriteBack = new CameraWriteBack(client);
+	}
+
+	@Test
+	public void unchangedTargetsAreNotWritten()
+	{
+		for (int frame = 0; frame < 10; frame++)
+		{
+			cameraWriteBack.read(pose);
+			cameraWriteBack.write(pose);
+		}
+
+		assertEquals(0, client.yawTargetWrites);
+		assertEquals(0, client.pitchTargetWrites);
+		assertEquals(0, client.cameraModeWrites);
+	}
+
+	@Test
+	public void onlyChangedTargetIsWritten()
+	{
+		cameraWriteBack.read(pose);
+		pose.yawTarget = 600;
+		cameraWriteBack.write(pose);
+
+		assertEquals(1, client.yawTargetWrites);
+		assertEquals(600, client.cameraYawTarget);
+		assertEquals(0, client.pitchTargetWrites);
+
+		cameraWriteBack.read(pose);
+		cameraWriteBack.write(pose);
+		assertEquals(1, client.yawTargetWrites);
+	}
+
+	@Test
+	public void targetMovedByClientIsReadBack()
+	{
+		cameraWriteBack.read(pose);
+		cameraWriteBack.write(pose);
+
+		client.cameraPitchTarget = 900;
+		cameraWriteBack.read(pose);
+		assertEquals(900, pose.pitchTarget);
+		cameraWriteBack.write(pose);
+
+		assertEquals(0, client.pitchTargetWrites);
+	}
+
+	@Test
+	public void cameraModeIsRestored()
+	{
+		client.cameraMode = 0;
+		cameraWriteBack.read(pose);
+		cameraWriteBack.write(pose);
+
+		assertEquals(1, client.cameraMode);
+		assertEquals(1, client.cameraModeWrites);
+	}
+
+	@Test
+	public void nothingIsReadWithoutLocalPlayer()
+	{
+		client.localPlayer = null;
+
+		assertFalse(cameraWriteBack.read(pose));
+		assertNull(pose.localPlayer);
+	}
+}
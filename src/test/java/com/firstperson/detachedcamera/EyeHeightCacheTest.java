@@ -0,0 +1,120 @@
+package com.firstperson.detachedcamera;
+
+import com.firstperson.fake.FakeModel;
+import com.firstperson.fake.FakePlayer;
+import com.firstperson.fake.Stubs;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class EyeHeightCacheTest
+{
+	private static final int IDLE = 808;
+	private static final int WALK = 819;
+	private static final int SIT = 4853;
+
+	private final FakePlayer player = Stubs.create(FakePlayer.class);
+	private final EyeHeightCache cache = new EyeHeightCache();
+
+	@Test
+	public void eachPoseIsMeasuredOnce()
+	{
+		player.model = model(216);
+		player.poseAnimation = IDLE;
+		for (int frame = 0; frame < 100; frame++)
+		{
+			assertEquals(200, cache.eyeHeight(player));
+		}
+		assertEquals(1, player.modelBuilds);
+
+		player.poseAnimation = WALK;
+		player.model.modelHeight = 212;
+		assertEquals(196, cache.eyeHeight(player));
+
+		// Back to a pose that is known
+		player.poseAnimation = IDLE;
+		assertEquals(200, cache.eyeHeight(player));
+		assertEquals(2, player.modelBuilds);
+	}
+
+	@Test
+	public void animationOverridesThePoseUntilItEnds()
+	{
+		player.model = model(216);
+		cache.onAnimationChanged(player);
+
+		player.animation = SIT;
+		player.model.modelHeight = 140;
+		cache.onAnimationChanged(player);
+		assertEquals(124, cache.eyeHeight(player));
+
+		player.animation = -1;
+		cache.onAnimationChanged(player);
+		assertEquals(200, cache.eyeHeight(player));
+		assertEquals(2, player.modelBuilds);
+	}
+
+	@Test
+	public void appearanceChangeMeasuresAgain()
+	{
+		player.model = model(216);
+		cache.onAppearanceChanged(player);
+		assertEquals(200, cache.eyeHeight(player));
+
+		player.model.modelHeight = 236;
+		cache.onAppearanceChanged(player);
+		assertEquals(220, cache.eyeHeight(player));
+		assertEquals(2, player.modelBuilds);
+	}
+
+	@Test
+	public void missingOrImplausibleModelsUseTheDefault()
+	{
+		assertEquals(EyeHeightCache.DEFAULT_EYE_HEIGHT, cache.eyeHeight(player));
+
+		player.model = model(20);
+		cache.onAppearanceChanged(player);
+		assertEquals(EyeHeightCache.DEFAULT_EYE_HEIGHT, cache.eyeHeight(player));
+	}
+
+	@Test
+	public void modelLoadedLaterIsMeasured()
+	{
+		// Just after login, before the client has built the model
+		cache.onAppearanceChanged(player);
+		assertEquals(EyeHeightCache.DEFAULT_EYE_HEIGHT, cache.eyeHeight(player));
+
+		player.model = model(236);
+		int frames = 0;
+		while (cache.eyeHeight(player) != 220)
+		{
+			frames++;
+			assertTrue("still not measured after " + frames + " frames", frames <= EyeHeightCache.RETRY_FRAMES);
+		}
+		assertEquals(220, cache.eyeHeight(player));
+		// Not built on every frame while it was missing
+		assertEquals(2, player.modelBuilds);
+	}
+
+	@Test
+	public void manyPosesStartTheTableOver()
+	{
+		player.model = model(216);
+		for (int pose = 0; pose < 200; pose++)
+		{
+			player.poseAnimation = pose;
+			player.model.modelHeight = 100 + pose;
+			assertEquals(84 + pose, cache.eyeHeight(player));
+		}
+		player.poseAnimation = 199;
+		assertEquals(283, cache.eyeHeight(player));
+		assertEquals(200, player.modelBuilds);
+	}
+
+	private static FakeModel model(int height)
+	{
+		FakeModel model = Stubs.create(FakeModel.class);
+		model.modelHeight = height;
+		return model;
+	}
+}
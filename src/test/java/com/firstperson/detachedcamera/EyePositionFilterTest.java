@@ -0,0 +1,251 @@
+package com.firstperson.detachedcamera;
+
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Runs the filter over position traces shaped like the client's: the player's local location moves in whole-unit
+ * steps once per 20ms client cycle, while frames arrive at an uneven 60-144Hz.
+ */
+public class EyePositionFilterTest
+{
+	private static final long CLIENT_CYCLE_NANOS = 20_000_000L;
+	private static final double WALK_SPEED = 200; // units per second, 4 per client cycle
+	private static final double RUN_SPEED = 400;
+
+	private final EyePositionFilter filter = new EyePositionFilter();
+	private final CameraPose pose = new CameraPose();
+
+	@Test
+	public void walkingIsSmoothedWithLittleLag()
+	{
+		Trace trace = Trace.moving(WALK_SPEED, 0, 4);
+		Result result = run(trace);
+
+		assertTrue("lag " + result.meanLag, result.meanLag < 8);
+		assertTrue("jitter " + result.jitter + " raw " + result.rawJitter, result.jitter < result.rawJitter / 3);
+	}
+
+	@Test
+	public void runningIsSmoothedWithLittleLag()
+	{
+		Trace trace = Trace.moving(RUN_SPEED, 0, 4);
+		Result result = run(trace);
+
+		assertTrue("lag " + result.meanLag, result.meanLag < 12);
+		assertTrue("jitter " + result.jitter + " raw " + result.rawJitter, result.jitter < result.rawJitter / 3);
+	}
+
+	@Test
+	public void lagDoesntDependOnTheFrameRate()
+	{
+		double at60 = smoothLag(60);
+		filter.reset();
+		double at144 = smoothLag(144);
+
+		assertEquals(at60, at144, 0.05);
+		// A first order low-pass trails a steady ramp by the speed over 2 pi times the cutoff
+		double cutoff = EyePositionFilter.MIN_CUTOFF + EyePositionFilter.BETA * WALK_SPEED;
+		assertEquals(WALK_SPEED / (2 * Math.PI * cutoff), at60, 0.1);
+	}
+
+	@Test
+	public void stairStepsAreSmoothed()
+	{
+		// Each tile walked over is 40 units higher, the raw eye height jumps at every tile edge
+		Trace trace = Trace.moving(WALK_SPEED, -40.0 / 128, 4);
+		for (int i = 0; i < trace.frames; i++)
+		{
+			trace.rawY[i] = Math.floor(trace.truthX[i] / 128) * -40;
+		}
+		Result result = run(trace);
+
+		assertTrue("height jitter " + result.heightJitter + " raw " + result.rawHeightJitter, result.heightJitter < result.rawHeightJitter / 4);
+	}
+
+	@Test
+	public void standingStillSettlesOnTheRawPosition()
+	{
+		Trace trace = Trace.moving(WALK_SPEED, 0, 2);
+		run(trace);
+
+		long now = trace.nanos[trace.frames - 1];
+		double stoppedX = trace.rawX[trace.frames - 1];
+		for (int frame = 0; frame < 300; frame++)
+		{
+			now += 7_000_000L;
+			filter(stoppedX, 0, 0, 0, now);
+		}
+		assertEquals(stoppedX, pose.eyeX, 0);
+
+		filter(stoppedX, 0, 0, 0, now + 7_000_000L);
+		assertEquals(stoppedX, pose.eyeX, 0);
+	}
+
+	@Test
+	public void teleportsSnap()
+	{
+		Trace trace = Trace.moving(WALK_SPEED, 0, 2);
+		run(trace);
+
+		long now = trace.nanos[trace.frames - 1] + 7_000_000L;
+		filter(20_000, 0, 9000, 0, now);
+		assertEquals(20_000, pose.eyeX, 0);
+		assertEquals(9000, pose.eyeZ, 0);
+	}
+
+	@Test
+	public void planeChangesSnap()
+	{
+		filter(1000, 0, 1000, 0, 0);
+		filter(1100, -240, 1000, 1, 7_000_000L);
+
+		assertEquals(1100, pose.eyeX, 0);
+		assertEquals(-240, pose.eyeY, 0);
+	}
+
+	@Test
+	public void resetPassesTheNextPositionThrough()
+	{
+		filter(1000, 0, 1000, 0, 0);
+		filter.reset();
+		filter(1200, 0, 1000, 0, 7_000_000L);
+
+		assertEquals(1200, pose.eyeX, 0);
+	}
+
+	/**
+	 * Lag walking along the true path, without the client cycle steps, so only the filter's own lag is measured
+	 */
+	private double smoothLag(int fps)
+	{
+		Trace trace = Trace.moving(WALK_SPEED, 0, 4, fps);
+		System.arraycopy(trace.truthX, 0, trace.rawX, 0, trace.frames);
+		return run(trace).meanLag;
+	}
+
+	private void filter(double x, double y, double z, int plane, long nanos)
+	{
+		pose.eyeX = x;
+		pose.eyeY = y;
+		pose.eyeZ = z;
+		filter.filter(pose, plane, nanos);
+	}
+
+	/**
+	 * Lag is the mean distance behind the true continuous path once the filter has caught up with the motion. Jitter
+	 * is the RMS change in per-frame velocity, in units per second per frame.
+	 */
+	private Result run(Trace trace)
+	{
+		Result result = new Result();
+		double[] outX = new double[trace.frames];
+		double[] outY = new double[trace.frames];
+		int lagSamples = 0;
+		for (int i = 0; i < trace.frames; i++)
+		{
+			filter(trace.rawX[i], trace.rawY[i], 0, 0, trace.nanos[i]);
+			outX[i] = pose.eyeX;
+			outY[i] = pose.eyeY;
+			if (trace.nanos[i] > 1_000_000_000L)
+			{
+				result.meanLag += trace.truthX[i] - pose.eyeX;
+				lagSamples++;
+			}
+		}
+		result.meanLag /= lagSamples;
+		result.jitter = jitter(outX, trace.nanos);
+		result.rawJitter = jitter(trace.rawX, trace.nanos);
+		result.heightJitter = jitter(outY, trace.nanos);
+		result.rawHeightJitter = jitter(trace.rawY, trace.nanos);
+		return result;
+	}
+
+	private static double jitter(double[] positions, long[] nanos)
+	{
+		double sum = 0;
+		int samples = 0;
+		for (int i = 2; i < positions.length; i++)
+		{
+			double v1 = (positions[i - 1] - positions[i - 2]) / ((nanos[i - 1] - nanos[i - 2]) / 1e9);
+			double v2 = (positions[i] - positions[i - 1]) / ((nanos[i] - nanos[i - 1]) / 1e9);
+			sum += (v2 - v1) * (v2 - v1);
+			samples++;
+		}
+		return Math.sqrt(sum / samples);
+	}
+
+	private static final class Result
+	{
+		double meanLag;
+		double jitter;
+		double rawJitter;
+		double heightJitter;
+		double rawHeightJitter;
+	}
+
+	private static final class Trace
+	{
+		final int frames;
+		final long[] nanos;
+		final double[] rawX;
+		final double[] rawY;
+		final double[] truthX;
+
+		private Trace(int frames)
+		{
+			this.frames = frames;
+			nanos = new long[frames];
+			rawX = new double[frames];
+			rawY = new double[frames];
+			truthX = new double[frames];
+		}
+
+		/**
+		 * Moving along x at a constant speed, the raw position only updating on client cycles
+		 */
+		static Trace moving(double speed, double slope, int seconds)
+		{
+			Random random = new Random(11);
+			long end = seconds * 1_000_000_000L;
+			long[] times = new long[(int) (end / 6_900_000L) + 1];
+			int frames = 0;
+			for (long now = 0; now < end; now += 6_900_000L + random.nextInt(9_800_000))
+			{
+				times[frames++] = now;
+			}
+			return moving(speed, slope, times, frames);
+		}
+
+		/**
+		 * Moving as above, with frames arriving at a steady rate
+		 */
+		static Trace moving(double speed, double slope, int seconds, int fps)
+		{
+			int frames = seconds * fps;
+			long[] times = new long[frames];
+			for (int i = 0; i < frames; i++)
+			{
+				times[i] = i * 1_000_000_000L / fps;
+			}
+			return moving(speed, slope, times, frames);
+		}
+
+		private static Trace moving(double speed, double slope, long[] times, int frames)
+		{
+			Trace trace = new Trace(frames);
+			for (int i = 0; i < frames; i++)
+			{
+				long now = times[i];
+				long cycleStart = now - now % CLIENT_CYCLE_NANOS;
+				trace.nanos[i] = now;
+				trace.truthX[i] = 1000 + speed * now / 1e9;
+				trace.rawX[i] = Math.floor(1000 + speed * cycleStart / 1e9);
+				trace.rawY[i] = slope * (trace.rawX[i] - 1000);
+			}
+			return trace;
+		}
+	}
+}
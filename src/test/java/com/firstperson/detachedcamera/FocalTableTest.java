@@ -0,0 +1,138 @@
+package com.firstperson.detachedcamera;
+
+import com.firstperson.CameraPipeline;
+import com.firstperson.FirstPersonConfig;
+import com.firstperson.FirstPersonPlugin;
+import com.firstperson.fake.FakeClient;
+import com.firstperson.input.InputHandler;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class FocalTableTest
+{
+	private static final int ONE = 1 << PreCalculatedTransformations.FRACTION_BITS;
+
+	@Test
+	public void sampledPitchesMatchTheShippedTable() throws IOException
+	{
+		List<String> lines = Files.readAllLines(Paths.get("src/main/tables/pitch-transformations.csv"));
+		FocalTable table = new FocalTable();
+		int rows = 0;
+		for (String line : lines)
+		{
+			if (line.isEmpty() || line.startsWith("#") || line.startsWith("zoom"))
+			{
+				continue;
+			}
+
+			String[] columns = line.split(",");
+			if (Integer.parseInt(columns[0]) != FocalTable.DEFAULT_ZOOM)
+			{
+				continue;
+			}
+			int pitch = Integer.parseInt(columns[1]) * PreCalculatedTransformations.PITCH_SCALE;
+			assertEquals("y at " + pitch, Math.round(Double.parseDouble(columns[2]) * ONE), table.yAxisAbsoluteChange(pitch));
+			assertEquals("distance at " + pitch, Math.round(Double.parseDouble(columns[3]) * ONE), table.horizontalDistance(pitch));
+			rows++;
+		}
+		assertEquals(PreCalculatedTransformations.ROWS, rows);
+	}
+
+	@Test
+	public void checkedInGridMatchesTheCsv() throws IOException
+	{
+		TreeMap<Integer, List<String[]>> columns = new TreeMap<>();
+		for (String line : Files.readAllLines(Paths.get("src/main/tables/pitch-transformations.csv")))
+		{
+			if (!line.isEmpty() && !line.startsWith("#") && !line.startsWith("zoom"))
+			{
+				String[] row = line.split(",");
+				columns.computeIfAbsent(Integer.parseInt(row[0]), zoom -> new ArrayList<>()).add(row);
+			}
+		}
+
+		try (DataInputStream in = new DataInputStream(
+			PreCalculatedTransformations.class.getResourceAsStream("pitch-transformations.bin")))
+		{
+			assertEquals(0x46505054, in.readInt());
+			assertEquals(2, in.readInt());
+			assertEquals(PreCalculatedTransformations.PITCH_SCALE, in.readInt());
+			assertEquals(PreCalculatedTransformations.FRACTION_BITS, in.readInt());
+			assertEquals(PreCalculatedTransformations.ROWS, in.readInt());
+			assertEquals("zooms, run generatePitchTables", columns.size(), in.readInt());
+			for (int zoom : columns.keySet())
+			{
+				assertEquals(zoom, in.readInt());
+			}
+			for (Map.Entry<Integer, List<String[]>> column : columns.entrySet())
+			{
+				for (String[] row : column.getValue())
+				{
+					String at = "zoom " + column.getKey() + " row " + row[1] + ", run generatePitchTables";
+					assertEquals(at, Math.round(Double.parseDouble(row[2]) * ONE), in.readInt());
+					assertEquals(at, Math.round(Double.parseDouble(row[3]) * ONE), in.readInt());
+				}
+			}
+			assertEquals(-1, in.read());
+		}
+	}
+
+	@Test
+	public void gridIsSampledBilinearly()
+	{
+		int[] zooms = {256, 768};
+		int[] grid = new int[zooms.length * PreCalculatedTransformations.ROWS * 2];
+		for (int row = 0; row < PreCalculatedTransformations.ROWS; row++)
+		{
+			grid[row * 2] = row * ONE;
+			grid[row * 2 + 1] = 1000 * ONE;
+			grid[(PreCalculatedTransformations.ROWS + row) * 2] = 2 * row * ONE;
+			grid[(PreCalculatedTransformations.ROWS + row) * 2 + 1] = 500 * ONE;
+		}
+
+		int[] table = new int[(PreCalculatedTransformations.MAX_PITCH + 1) * 2];
+		int halfRow = PreCalculatedTransformations.PITCH_SCALE / 2;
+		PreCalculatedTransformations.expand(zooms, grid, 512, table);
+		// Half way between rows 0 and 1 and half way between the zooms
+		assertEquals(ONE * 3 / 4, table[halfRow * 2]);
+		assertEquals(750 * ONE, table[halfRow * 2 + 1]);
+
+		PreCalculatedTransformations.expand(zooms, grid, 384, table);
+		assertEquals(875 * ONE, table[PreCalculatedTransformations.MAX_PITCH * 2 + 1]);
+
+		// Zooms outside the sampled ones use the nearest
+		PreCalculatedTransformations.expand(zooms, grid, 100, table);
+		assertEquals(ONE / 2, table[halfRow * 2]);
+		assertEquals(1000 * ONE, table[halfRow * 2 + 1]);
+		PreCalculatedTransformations.expand(zooms, grid, 2000, table);
+		assertEquals(ONE, table[halfRow * 2]);
+		assertEquals(500 * ONE, table[halfRow * 2 + 1]);
+	}
+
+	@Test
+	public void framesFollowTheClientsZoom()
+	{
+		FakeClient client = FakeClient.create();
+		FirstPersonConfig config = new FirstPersonConfig()
+		{
+		};
+		InputHandler inputHandler = new InputHandler(client, new FirstPersonPlugin(), config, System.nanoTime());
+		DetachedCameraMovementHandler handler = new DetachedCameraMovementHandler(client, config, inputHandler);
+		CameraPipeline cameraPipeline = new CameraPipeline(client, inputHandler, handler);
+
+		cameraPipeline.run();
+		assertEquals(FocalTable.DEFAULT_ZOOM, handler.getFocalTable().getZoom());
+
+		client.zoom = 700;
+		cameraPipeline.run();
+		assertEquals(700, handler.getFocalTable().getZoom());
+	}
+}
@@ -0,0 +1,85 @@
+package com.firstperson.detachedcamera;
+
+import com.firstperson.fake.FakeClient;
+import com.firstperson.fake.FakeWorldView;
+import java.util.Random;
+import net.runelite.api.Perspective;
+import net.runelite.api.coords.LocalPoint;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HeightfieldCacheTest
+{
+	private static final int BRIDGE = 2;
+
+	private FakeClient client;
+	private FakeWorldView scene;
+	private HeightfieldCache heightfieldCache;
+
+	@Before
+	public void setUp()
+	{
+		client = FakeClient.create();
+		scene = client.topLevelWorldView;
+		Random random = new Random(9);
+		for (int plane = 0; plane < 4; plane++)
+		{
+			for (int x = 0; x <= FakeWorldView.SIZE; x++)
+			{
+				for (int y = 0; y <= FakeWorldView.SIZE; y++)
+				{
+					scene.tileHeights[plane][x][y] = -240 * plane - random.nextInt(400);
+				}
+			}
+		}
+		for (int i = 0; i < 300; i++)
+		{
+			scene.tileSettings[1][random.nextInt(FakeWorldView.SIZE)][random.nextInt(FakeWorldView.SIZE)] = BRIDGE;
+		}
+		heightfieldCache = new HeightfieldCache(client);
+		heightfieldCache.rebuild();
+	}
+
+	@Test
+	public void matchesClientTileHeightOnEveryPlane()
+	{
+		Random random = new Random(4);
+		for (int plane = 0; plane < 4; plane++)
+		{
+			scene.plane = plane;
+			for (int i = 0; i < 20_000; i++)
+			{
+				int x = random.nextInt(FakeWorldView.SIZE * 128);
+				int y = random.nextInt(FakeWorldView.SIZE * 128);
+				assertEquals("plane " + plane + " at " + x + "," + y, clientTileHeight(x, y, plane), heightfieldCache.getHeight(scene, x, y));
+			}
+		}
+	}
+
+	@Test
+	public void outsideSceneIsZero()
+	{
+		assertEquals(0, heightfieldCache.getHeight(scene, -1, 500));
+		assertEquals(0, heightfieldCache.getHeight(scene, 500, FakeWorldView.SIZE * 128));
+	}
+
+	@Test
+	public void keepsOldHeightsUntilRebuilt()
+	{
+		int before = heightfieldCache.getHeight(scene, 640, 640);
+		scene.tileHeights[0][5][5] -= 1000;
+		scene.tileHeights[0][6][5] -= 1000;
+		scene.tileHeights[0][5][6] -= 1000;
+		scene.tileHeights[0][6][6] -= 1000;
+		assertEquals(before, heightfieldCache.getHeight(scene, 640, 640));
+
+		heightfieldCache.rebuild();
+		assertEquals(clientTileHeight(640, 640, 0), heightfieldCache.getHeight(scene, 640, 640));
+	}
+
+	private int clientTileHeight(int localX, int localY, int plane)
+	{
+		return Perspective.getTileHeight(client, new LocalPoint(localX, localY, scene), plane);
+	}
+}
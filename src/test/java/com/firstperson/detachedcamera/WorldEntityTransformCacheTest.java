@@ -0,0 +1,103 @@
+package com.firstperson.detachedcamera;
+
+import com.firstperson.fake.FakeClient;
+import com.firstperson.fake.FakeWorldEntity;
+import com.firstperson.fake.FakeWorldView;
+import com.firstperson.fake.Stubs;
+import net.runelite.api.coords.LocalPoint;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WorldEntityTransformCacheTest
+{
+	private static final int BOAT_INDEX = 5;
+	private static final long TICK = 600_000_000L;
+	private static final double TOLERANCE = 1.0;
+
+	private FakeClient client;
+	private FakeWorldEntity boat;
+	private WorldEntityTransformCache worldEntityTransforms;
+	private final CameraPose pose = new CameraPose();
+	private final LocalPoint onDeck = new LocalPoint(700, 450, BOAT_INDEX);
+
+	@Before
+	public void setUp()
+	{
+		client = FakeClient.create();
+		FakeWorldView boatView = Stubs.create(FakeWorldView.class);
+		boatView.id = BOAT_INDEX;
+		client.topLevelWorldView.addEntityWorldView(boatView);
+		boat = Stubs.create(FakeWorldEntity.class);
+		boat.worldView = boatView;
+		boat.offsetX = 5000;
+		boat.offsetY = 3000;
+		boat.orientation = 300;
+		client.topLevelWorldView.worldEntities().put(BOAT_INDEX, boat);
+		client.fakePlayer().localLocation = onDeck;
+		worldEntityTransforms = new WorldEntityTransformCache(client);
+	}
+
+	@Test
+	public void matchesEntityTransformAtTick()
+	{
+		worldEntityTransforms.onGameTick(0);
+
+		assertTrue(worldEntityTransforms.transformToMainWorld(onDeck, 0, pose));
+		LocalPoint expected = boat.transformToMainWorld(onDeck);
+		assertEquals(expected.getX(), pose.eyeX, TOLERANCE);
+		assertEquals(expected.getY(), pose.eyeZ, TOLERANCE);
+	}
+
+	@Test
+	public void extrapolatesBetweenTicks()
+	{
+		worldEntityTransforms.onGameTick(0);
+		boat.offsetX += 256;
+		boat.orientation += 16;
+		worldEntityTransforms.onGameTick(TICK);
+
+		// Halfway to the next tick the boat should be where the next sample will put it, halfway there
+		boat.offsetX += 128;
+		boat.orientation += 8;
+		LocalPoint expected = boat.transformToMainWorld(onDeck);
+		worldEntityTransforms.transformToMainWorld(onDeck, TICK + TICK / 2, pose);
+		assertEquals(expected.getX(), pose.eyeX, TOLERANCE);
+		assertEquals(expected.getY(), pose.eyeZ, TOLERANCE);
+	}
+
+	@Test
+	public void extrapolatesAtMostOneTick()
+	{
+		worldEntityTransforms.onGameTick(0);
+		boat.offsetY += 256;
+		worldEntityTransforms.onGameTick(TICK);
+
+		worldEntityTransforms.transformToMainWorld(onDeck, TICK * 2, pose);
+		double oneTickAhead = pose.eyeZ;
+		worldEntityTransforms.transformToMainWorld(onDeck, TICK * 10, pose);
+		assertEquals(oneTickAhead, pose.eyeZ, 0);
+	}
+
+	@Test
+	public void teleportIsNotExtrapolated()
+	{
+		worldEntityTransforms.onGameTick(0);
+		boat.offsetX += 100_000;
+		worldEntityTransforms.onGameTick(TICK);
+
+		worldEntityTransforms.transformToMainWorld(onDeck, TICK + TICK / 2, pose);
+		assertEquals(boat.transformToMainWorld(onDeck).getX(), pose.eyeX, TOLERANCE);
+	}
+
+	@Test
+	public void noSampleOffEntity()
+	{
+		client.fakePlayer().localLocation = new LocalPoint(700, 450, -1);
+		worldEntityTransforms.onGameTick(0);
+
+		assertFalse(worldEntityTransforms.transformToMainWorld(onDeck, 0, pose));
+	}
+}
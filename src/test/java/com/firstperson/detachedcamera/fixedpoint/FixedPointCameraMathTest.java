@@ -0,0 +1,76 @@
+package com.firstperson.detachedcamera.fixedpoint;
+
+import com.firstperson.detachedcamera.FocalTable;
+import com.firstperson.detachedcamera.PreCalculatedTransformations;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class FixedPointCameraMathTest
+{
+	/**
+	 * The bound documented on {@link FixedPointCameraMath}
+	 */
+	private static final double MAX_OFFSET_ERROR = 0.05;
+
+	private static final double MAX_TRIG_ERROR = 3.2e-5;
+
+	@Test
+	public void sinAndCosMatchMathWithinBound()
+	{
+		for (int angle = 0; angle < FixedPointCameraMath.ANGLE_RANGE; angle++)
+		{
+			double radians = angle * 2 * Math.PI / FixedPointCameraMath.ANGLE_RANGE;
+			assertEquals("sin " + angle, Math.sin(radians), FixedPointCameraMath.toDouble(FixedPointCameraMath.sin(angle)), MAX_TRIG_ERROR);
+			assertEquals("cos " + angle, Math.cos(radians), FixedPointCameraMath.toDouble(FixedPointCameraMath.cos(angle)), MAX_TRIG_ERROR);
+		}
+	}
+
+	@Test
+	public void anglesWrap()
+	{
+		assertEquals(FixedPointCameraMath.sin(100), FixedPointCameraMath.sin(100 + FixedPointCameraMath.ANGLE_RANGE));
+		assertEquals(FixedPointCameraMath.cos(100), FixedPointCameraMath.cos(100 - FixedPointCameraMath.ANGLE_RANGE));
+	}
+
+	/**
+	 * Compares against the double precision focal offset the detached camera used before, over every yaw and pitch.
+	 */
+	@Test
+	public void focalOffsetsMatchDoubleImplementationOverFullDomain()
+	{
+		int yaws = FixedPointCameraMath.ANGLE_RANGE;
+		double[] sinYaw = new double[yaws];
+		double[] cosYaw = new double[yaws];
+		for (int yaw = 0; yaw < yaws; yaw++)
+		{
+			double yawRad = Math.toRadians((yaw * 360.0 / 16384.0) - 180.0);
+			sinYaw[yaw] = Math.sin(yawRad);
+			cosYaw[yaw] = Math.cos(yawRad);
+		}
+
+		FocalTable focalTable = new FocalTable();
+		double worstX = 0;
+		double worstY = 0;
+		for (int pitch = 0; pitch <= PreCalculatedTransformations.MAX_PITCH; pitch++)
+		{
+			int horizontalDistance = focalTable.horizontalDistance(pitch);
+			double distance = FixedPointCameraMath.toDouble(horizontalDistance);
+
+			for (int yaw = 0; yaw < yaws; yaw++)
+			{
+				double xShift = distance * sinYaw[yaw];
+				double yShift = distance * cosYaw[yaw];
+
+				double x = FixedPointCameraMath.toDouble(FixedPointCameraMath.focalOffsetX(yaw, horizontalDistance));
+				double y = FixedPointCameraMath.toDouble(FixedPointCameraMath.focalOffsetY(yaw, horizontalDistance));
+
+				worstX = Math.max(worstX, Math.abs(x - xShift));
+				worstY = Math.max(worstY, Math.abs(y + yShift));
+			}
+		}
+
+		assertTrue("x offset error " + worstX + " exceeds " + MAX_OFFSET_ERROR, worstX <= MAX_OFFSET_ERROR);
+		assertTrue("y offset error " + worstY + " exceeds " + MAX_OFFSET_ERROR, worstY <= MAX_OFFSET_ERROR);
+	}
+}
@@ -0,0 +1,210 @@
+package com.firstperson.fake;
+
+import com.firstperson.detachedcamera.FocalTable;
+import java.util.ArrayList;
+import java.util.List;
+import net.runelite.api.Client;
+import net.runelite.api.MenuEntry;
+import net.runelite.api.Player;
+import net.runelite.api.VarClientInt;
+import net.runelite.api.WorldView;
+
+/**
+ * Minimal camera-facing {@link Client}. Anything not overridden here is a no-op, see {@link Stubs}.
+ */
+public abstract class FakeClient implements Client
+{
+	public Player localPlayer;
+	public FakeWorldView topLevelWorldView;
+
+	public int cameraYawTarget;
+	public int cameraPitchTarget = 1024;
+	public int cameraYaw;
+	public int cameraPitch = 1024;
+	public int cameraMode;
+	public int gameCycle;
+
+	/*
+	 * Unless set, the camera turns straight to its targets. When set, advanceCycles eases it 1 / easeDivisor of the way
+	 * each game cycle, in whole units, never pitching below pitchFloor.
+	 */
+	public boolean easesCamera;
+	public int easeDivisor = 5;
+	public int pitchFloor;
+
+	public int scale = 512;
+	public int zoom = FocalTable.DEFAULT_ZOOM;
+	public int viewportWidth = 765;
+	public int viewportHeight = 503;
+
+	// Right click options on other players and their menu action ids, as the client has them
+	public String[] playerOptions = new String[8];
+	public int[] playerMenuTypes = new int[8];
+
+	// Entries created, oldest first
+	public final List<FakeMenuEntry> menuEntries = new ArrayList<>();
+
+	// Setter calls, for checking what the camera writes back
+	public int yawTargetWrites;
+	public int pitchTargetWrites;
+	public int cameraModeWrites;
+
+	public static FakeClient create()
+	{
+		FakeClient client = Stubs.create(FakeClient.class);
+		client.topLevelWorldView = Stubs.create(FakeWorldView.class);
+		FakePlayer player = Stubs.create(FakePlayer.class);
+		player.worldView = client.topLevelWorldView;
+		client.localPlayer = player;
+		return client;
+	}
+
+	public FakePlayer fakePlayer()
+	{
+		return (FakePlayer) localPlayer;
+	}
+
+	@Override
+	public Player getLocalPlayer()
+	{
+		return localPlayer;
+	}
+
+	@Override
+	public WorldView getTopLevelWorldView()
+	{
+		return topLevelWorldView;
+	}
+
+	@Override
+	public WorldView getWorldView(int id)
+	{
+		return id == WorldView.TOPLEVEL ? topLevelWorldView : topLevelWorldView.entityWorldView(id);
+	}
+
+	@Override
+	public MenuEntry createMenuEntry(int idx)
+	{
+		FakeMenuEntry entry = Stubs.create(FakeMenuEntry.class);
+		menuEntries.add(entry);
+		return entry;
+	}
+
+	@Override
+	public String[] getPlayerOptions()
+	{
+		return playerOptions;
+	}
+
+	@Override
+	public int[] getPlayerMenuTypes()
+	{
+		return playerMenuTypes;
+	}
+
+	@Override
+	public int getVarcIntValue(int varc)
+	{
+		return varc == VarClientInt.CAMERA_ZOOM_FIXED_VIEWPORT || varc == VarClientInt.CAMERA_ZOOM_RESIZABLE_VIEWPORT ? zoom : 0;
+	}
+
+	@Override
+	public int getScale()
+	{
+		return scale;
+	}
+
+	@Override
+	public int getViewportWidth()
+	{
+		return viewportWidth;
+	}
+
+	@Override
+	public int getViewportHeight()
+	{
+		return viewportHeight;
+	}
+
+	@Override
+	public int getCameraYawTarget()
+	{
+		return cameraYawTarget;
+	}
+
+	@Override
+	public void setCameraYawTarget(int cameraYawTarget)
+	{
+		this.cameraYawTarget = cameraYawTarget;
+		yawTargetWrites++;
+		if (!easesCamera)
+		{
+			cameraYaw = cameraYawTarget;
+		}
+	}
+
+	@Override
+	public int getCameraPitchTarget()
+	{
+		return cameraPitchTarget;
+	}
+
+	@Override
+	public void setCameraPitchTarget(int cameraPitchTarget)
+	{
+		this.cameraPitchTarget = cameraPitchTarget;
+		pitchTargetWrites++;
+		if (!easesCamera)
+		{
+			cameraPitch = cameraPitchTarget;
+		}
+	}
+
+	/**
+	 * Runs game cycles, easing the camera towards its targets when {@link #easesCamera} is set.
+	 */
+	public void advanceCycles(int cycles)
+	{
+		for (int i = 0; i < cycles; i++)
+		{
+			gameCycle++;
+			if (easesCamera)
+			{
+				int yawRemaining = Math.floorMod(cameraYawTarget - cameraYaw + 8192, 16384) - 8192;
+				cameraYaw = Math.floorMod(cameraYaw + yawRemaining / easeDivisor, 16384);
+				cameraPitch = Math.max(pitchFloor, cameraPitch + (cameraPitchTarget - cameraPitch) / easeDivisor);
+			}
+		}
+	}
+
+	@Override
+	public int getCameraYaw()
+	{
+		return cameraYaw;
+	}
+
+	@Override
+	public int getGameCycle()
+	{
+		return gameCycle;
+	}
+
+	@Override
+	public int getCameraPitch()
+	{
+		return cameraPitch;
+	}
+
+	@Override
+	public int getCameraMode()
+	{
+		return cameraMode;
+	}
+
+	@Override
+	public void setCameraMode(int cameraMode)
+	{
+		this.cameraMode = cameraMode;
+		cameraModeWrites++;
+	}
+}
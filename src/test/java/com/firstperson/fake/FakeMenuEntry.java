@@ -0,0 +1,115 @@
+package com.firstperson.fake;
+
+import net.runelite.api.MenuAction;
+import net.runelite.api.MenuEntry;
+import net.runelite.api.WorldView;
+
+public abstract class FakeMenuEntry implements MenuEntry
+{
+	public String option;
+	public String target;
+	public MenuAction type;
+	public int identifier;
+	public int param0;
+	public int param1;
+	public int worldViewId = WorldView.TOPLEVEL;
+	public boolean deprioritized;
+
+	@Override
+	public MenuEntry setOption(String option)
+	{
+		this.option = option;
+		return this;
+	}
+
+	@Override
+	public String getOption()
+	{
+		return option;
+	}
+
+	@Override
+	public MenuEntry setTarget(String target)
+	{
+		this.target = target;
+		return this;
+	}
+
+	@Override
+	public String getTarget()
+	{
+		return target;
+	}
+
+	@Override
+	public MenuEntry setType(MenuAction type)
+	{
+		this.type = type;
+		return this;
+	}
+
+	@Override
+	public MenuAction getType()
+	{
+		return type;
+	}
+
+	@Override
+	public MenuEntry setIdentifier(int identifier)
+	{
+		this.identifier = identifier;
+		return this;
+	}
+
+	@Override
+	public int getIdentifier()
+	{
+		return identifier;
+	}
+
+	@Override
+	public MenuEntry setParam0(int param0)
+	{
+		this.param0 = param0;
+		return this;
+	}
+
+	@Override
+	public int getParam0()
+	{
+		return param0;
+	}
+
+	@Override
+	public MenuEntry setParam1(int param1)
+	{
+		this.param1 = param1;
+		return this;
+	}
+
+	@Override
+	public int getParam1()
+	{
+		return param1;
+	}
+
+	@Override
+	public MenuEntry setWorldViewId(int worldViewId)
+	{
+		this.worldViewId = worldViewId;
+		return this;
+	}
+
+	@Override
+	public int getWorldViewId()
+	{
+		return worldViewId;
+	}
+
+	@Override
+	public MenuEntry setDeprioritized(boolean deprioritized)
+	{
+		this.deprioritized = deprioritized;
+		return this;
+	}
+}
@@ -0,0 +1,14 @@
+package com.firstperson.fake;
+
+import net.runelite.api.Model;
+
+public abstract class FakeModel implements Model
+{
+	public int modelHeight;
+
+	@Override
+	public int getModelHeight()
+	{
+		return modelHeight;
+	}
+}
@@ -0,0 +1,57 @@
+package com.firstperson.fake;
+
+import net.runelite.api.NPC;
+import net.runelite.api.NPCComposition;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.LocalPoint;
+import net.runelite.api.coords.WorldPoint;
+
+/**
+ * A one tile NPC standing on the top level scene.
+ */
+public abstract class FakeNpc implements NPC
+{
+	public LocalPoint localLocation = new LocalPoint(6656, 6656, WorldView.TOPLEVEL);
+	public int plane;
+	public int logicalHeight = 250;
+	public int index;
+	// Null, as for an NPC the client hasn't loaded yet, unless a test gives it one
+	public FakeNpcComposition composition;
+
+	public static FakeNpc at(int localX, int localY)
+	{
+		FakeNpc npc = Stubs.create(FakeNpc.class);
+		npc.localLocation = new LocalPoint(localX, localY, WorldView.TOPLEVEL);
+		return npc;
+	}
+
+	@Override
+	public LocalPoint getLocalLocation()
+	{
+		return localLocation;
+	}
+
+	@Override
+	public WorldPoint getWorldLocation()
+	{
+		return new WorldPoint(localLocation.getSceneX(), localLocation.getSceneY(), plane);
+	}
+
+	@Override
+	public int getLogicalHeight()
+	{
+		return logicalHeight;
+	}
+
+	@Override
+	public int getIndex()
+	{
+		return index;
+	}
+
+	@Override
+	public NPCComposition getTransformedComposition()
+	{
+		return composition;
+	}
+}
@@ -0,0 +1,28 @@
+package com.firstperson.fake;
+
+import net.runelite.api.NPCComposition;
+
+public abstract class FakeNpcComposition implements NPCComposition
+{
+	public String name = "Guard";
+	public String[] actions = {"Talk-to", "Attack", null, null, null};
+	public int size = 1;
+
+	@Override
+	public String getName()
+	{
+		return name;
+	}
+
+	@Override
+	public String[] getActions()
+	{
+		return actions;
+	}
+
+	@Override
+	public int getSize()
+	{
+		return size;
+	}
+}
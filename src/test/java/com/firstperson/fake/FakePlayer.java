@@ -0,0 +1,62 @@
+package com.firstperson.fake;
+
+import net.runelite.api.Model;
+import net.runelite.api.Player;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.LocalPoint;
+
+public abstract class FakePlayer implements Player
+{
+	public String name = "Player";
+	public int id;
+	public LocalPoint localLocation = new LocalPoint(6656, 6656, WorldView.TOPLEVEL);
+	public WorldView worldView;
+	public int animation = -1;
+	public int poseAnimation = 808;
+	// Null until a test gives the player a model, as before the client has built it
+	public FakeModel model;
+	public int modelBuilds;
+
+	@Override
+	public String getName()
+	{
+		return name;
+	}
+
+	@Override
+	public int getId()
+	{
+		return id;
+	}
+
+	@Override
+	public LocalPoint getLocalLocation()
+	{
+		return localLocation;
+	}
+
+	@Override
+	public WorldView getWorldView()
+	{
+		return worldView;
+	}
+
+	@Override
+	public int getAnimation()
+	{
+		return animation;
+	}
+
+	@Override
+	public int getPoseAnimation()
+	{
+		return poseAnimation;
+	}
+
+	@Override
+	public Model getModel()
+	{
+		modelBuilds++;
+		return model;
+	}
+}
@@ -0,0 +1,37 @@
+package com.firstperson.fake;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import net.runelite.api.IndexedObjectSet;
+import net.runelite.api.WorldEntity;
+
+public abstract class FakeWorldEntities implements IndexedObjectSet<WorldEntity>
+{
+	private final WorldEntity[] entities = new WorldEntity[FakeWorldView.MAX_ENTITIES];
+
+	public void put(int index, WorldEntity worldEntity)
+	{
+		entities[index] = worldEntity;
+	}
+
+	@Override
+	public WorldEntity byIndex(int index)
+	{
+		return index >= 0 && index < entities.length ? entities[index] : null;
+	}
+
+	@Override
+	public Iterator<WorldEntity> iterator()
+	{
+		List<WorldEntity> present = new ArrayList<>();
+		for (WorldEntity entity : entities)
+		{
+			if (entity != null)
+			{
+				present.add(entity);
+			}
+		}
+		return present.iterator();
+	}
+}
@@ -0,0 +1,58 @@
+package com.firstperson.fake;
+
+import net.runelite.api.WorldEntity;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.LocalPoint;
+
+/**
+ * An entity whose main world transform is a rotation by its orientation then a translation. The last transformed
+ * point is reused while the same point is passed in, like a stationary boat.
+ */
+public abstract class FakeWorldEntity implements WorldEntity
+{
+	public WorldView worldView;
+	public int offsetX;
+	public int offsetY;
+	// In the client's 2048 units per turn
+	public int orientation;
+
+	private LocalPoint lastSource;
+	private LocalPoint lastTransformed;
+	private int lastOffsetX;
+	private int lastOffsetY;
+	private int lastOrientation;
+
+	@Override
+	public WorldView getWorldView()
+	{
+		return worldView;
+	}
+
+	@Override
+	public int getOrientation()
+	{
+		return orientation;
+	}
+
+	@Override
+	public LocalPoint transformToMainWorld(LocalPoint point)
+	{
+		if (point != lastSource || moved())
+		{
+			double angle = orientation * Math.PI / 1024;
+			double x = Math.cos(angle) * point.getX() - Math.sin(angle) * point.getY() + offsetX;
+			double y = Math.sin(angle) * point.getX() + Math.cos(angle) * point.getY() + offsetY;
+			lastSource = point;
+			lastOffsetX = offsetX;
+			lastOffsetY = offsetY;
+			lastOrientation = orientation;
+			lastTransformed = new LocalPoint((int) Math.round(x), (int) Math.round(y), WorldView.TOPLEVEL);
+		}
+		return lastTransformed;
+	}
+
+	private boolean moved()
+	{
+		return offsetX != lastOffsetX || offsetY != lastOffsetY || orientation != lastOrientation;
+	}
+}
@@ -0,0 +1,87 @@
+package com.firstperson.fake;
+
+import net.runelite.api.CollisionData;
+import net.runelite.api.WorldView;
+
+/**
+ * A flat 104x104 scene. Entity world views are kept here so {@link FakeClient#getWorldView(int)} can resolve them.
+ */
+public abstract class FakeWorldView implements WorldView
+{
+	public static final int SIZE = 104;
+	public static final int MAX_ENTITIES = 2048;
+
+	public int id = WorldView.TOPLEVEL;
+	public int plane;
+	public final int[][][] tileHeights = new int[4][SIZE + 1][SIZE + 1];
+	public final byte[][][] tileSettings = new byte[4][SIZE][SIZE];
+	public final FakeWorldEntities worldEntities = Stubs.create(FakeWorldEntities.class);
+	// Null until a test adds collision
+	public CollisionData[] collisionMaps;
+
+	private final WorldView[] entityWorldViews = new WorldView[MAX_ENTITIES];
+
+	WorldView entityWorldView(int id)
+	{
+		return id >= 0 && id < entityWorldViews.length ? entityWorldViews[id] : null;
+	}
+
+	public void addEntityWorldView(WorldView worldView)
+	{
+		entityWorldViews[worldView.getId()] = worldView;
+	}
+
+	@Override
+	public int getId()
+	{
+		return id;
+	}
+
+	@Override
+	public boolean isTopLevel()
+	{
+		return id == WorldView.TOPLEVEL;
+	}
+
+	@Override
+	public int getPlane()
+	{
+		return plane;
+	}
+
+	@Override
+	public int[][][] getTileHeights()
+	{
+		return tileHeights;
+	}
+
+	@Override
+	public byte[][][] getTileSettings()
+	{
+		return tileSettings;
+	}
+
+	@Override
+	public int getSizeX()
+	{
+		return SIZE;
+	}
+
+	@Override
+	public int getSizeY()
+	{
+		return SIZE;
+	}
+
+	@Override
+	public CollisionData[] getCollisionMaps()
+	{
+		return collisionMaps;
+	}
+
+	@Override
+	public FakeWorldEntities worldEntities()
+	{
+		return worldEntities;
+	}
+}
@@ -0,0 +1,297 @@
+package com.firstperson.fake;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * Turns an abstract fake (such as {@link FakeClient}) into a concrete class by compiling a subclass that implements
+ * every remaining abstract method as a no-op returning the type's default value.
+ * <p>
+ * Unlike a {@link java.lang.reflect.Proxy}, the generated class has real typed methods, so calls don't box their
+ * arguments or allocate argument arrays. That keeps the fakes usable for allocation tests and benchmarks.
+ */
+public final class Stubs
+{
+	private static final Map<Class<?>, Class<?>> COMPILED = new ConcurrentHashMap<>();
+
+	private Stubs()
+	{
+	}
+
+	public static <T> T create(Class<T> base)
+	{
+		Class<?> stubClass = COMPILED.computeIfAbsent(base, Stubs::compile);
+		try
+		{
+			return base.cast(stubClass.getDeclaredConstructor().newInstance());
+		}
+		catch (ReflectiveOperationException e)
+		{
+			throw new IllegalStateException("Unable to instantiate stub for " + base.getName(), e);
+		}
+	}
+
+	private static Class<?> compile(Class<?> base)
+	{
+		String simpleName = base.getSimpleName() + "Stub";
+		String packageName = base.getPackage().getName();
+
+		Map<TypeVariable<?>, Type> bindings = new HashMap<>();
+		collectBindings(base, bindings);
+
+		StringBuilder src = new StringBuilder();
+		src.append("package ").append(packageName).append(";\n");
+		src.append("public class ").append(simpleName).append(" extends ").append(base.getCanonicalName()).append("\n{\n");
+		for (Method method : abstractMethods(base))
+		{
+			appendMethod(src, method, bindings);
+		}
+		src.append("}\n");
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null)
+		{
+			throw new IllegalStateException("Stubs need a JDK to compile fakes, but the tests are running on a JRE");
+		}
+
+		Path dir = null;
+		try
+		{
+			dir = Files.createTempDirectory("firstperson-stubs");
+			Path pkgDir = dir.resolve(packageName.replace('.', File.separatorChar));
+			Files.createDirectories(pkgDir);
+			Path source = pkgDir.resolve(simpleName + ".java");
+			Files.write(source, src.toString().getBytes(StandardCharsets.UTF_8));
+
+			String classPath = System.getProperty("java.class.path") + File.pathSeparator
+				+ new File(base.getProtectionDomain().getCodeSource().getLocation().toURI());
+			int result = compiler.run(null, null, null, "-nowarn", "-proc:none", "-classpath", classPath, "-d", dir.toString(), source.toString());
+			if (result != 0)
+			{
+				throw new IllegalStateException("Unable to compile stub for " + base.getName());
+			}
+
+			// The stub has no nested classes, so once it is loaded nothing else is read from the directory
+			ClassLoader loader = new URLClassLoader(new URL[]{ dir.toUri().toURL() }, base.getClassLoader());
+			return loader.loadClass(packageName + "." + simpleName);
+		}
+		catch (Exception e)
+		{
+			throw new IllegalStateException("Unable to create stub for " + base.getName(), e);
+		}
+		finally
+		{
+			if (dir != null)
+			{
+				delete(dir);
+			}
+		}
+	}
+
+	private static void delete(Path dir)
+	{
+		try (Stream<Path> paths = Files.walk(dir))
+		{
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+		catch (IOException e)
+		{
+			dir.toFile().deleteOnExit();
+		}
+	}
+
+	private static List<Method> abstractMethods(Class<?> base)
+	{
+		Map<String, Method> bySignature = new LinkedHashMap<>();
+		for (Method method : base.getMethods())
+		{
+			String signature = method.getName() + Arrays.toString(method.getParameterTypes());
+			Method existing = bySignature.get(signature);
+			if (existing == null || existing.getReturnType().isAssignableFrom(method.getReturnType()))
+			{
+				bySignature.put(signature, method);
+			}
+		}
+
+		List<Method> methods = new ArrayList<>();
+		for (Method method : bySignature.values())
+		{
+			if (Modifier.isAbstract(method.getModifiers()))
+			{
+				methods.add(method);
+			}
+		}
+		return methods;
+	}
+
+	private static void appendMethod(StringBuilder src, Method method, Map<TypeVariable<?>, Type> bindings)
+	{
+		src.append("\tpublic ");
+		TypeVariable<Method>[] typeParameters = method.getTypeParameters();
+		if (typeParameters.length > 0)
+		{
+			src.append('<');
+			for (int i = 0; i < typeParameters.length; i++)
+			{
+				if (i > 0)
+				{
+					src.append(", ");
+				}
+				src.append(typeParameters[i].getName());
+				Type[] bounds = typeParameters[i].getBounds();
+				if (bounds.length > 0 && bounds[0] != Object.class)
+				{
+					src.append(" extends ");
+					for (int b = 0; b < bounds.length; b++)
+					{
+						if (b > 0)
+						{
+							src.append(" & ");
+						}
+						src.append(typeName(bounds[b], bindings));
+					}
+				}
+			}
+			src.append("> ");
+		}
+
+		Class<?> returnType = method.getReturnType();
+		src.append(typeName(method.getGenericReturnType(), bindings)).append(' ').append(method.getName()).append('(');
+		Type[] parameters = method.getGenericParameterTypes();
+		for (int i = 0; i < parameters.length; i++)
+		{
+			if (i > 0)
+			{
+				src.append(", ");
+			}
+			src.append(typeName(parameters[i], bindings)).append(" arg").append(i);
+		}
+		src.append(")\n\t{\n");
+		if (returnType != void.class)
+		{
+			src.append("\t\treturn ").append(defaultValue(returnType)).append(";\n");
+		}
+		src.append("\t}\n");
+	}
+
+	private static String defaultValue(Class<?> type)
+	{
+		if (type == boolean.class)
+		{
+			return "false";
+		}
+		if (type == char.class)
+		{
+			return "'\\0'";
+		}
+		if (type.isPrimitive())
+		{
+			return "(" + type.getName() + ") 0";
+		}
+		return "null";
+	}
+
+	private static void collectBindings(Type type, Map<TypeVariable<?>, Type> bindings)
+	{
+		Class<?> raw;
+		if (type instanceof ParameterizedType)
+		{
+			ParameterizedType parameterized = (ParameterizedType) type;
+			raw = (Class<?>) parameterized.getRawType();
+			TypeVariable<?>[] variables = raw.getTypeParameters();
+			Type[] arguments = parameterized.getActualTypeArguments();
+			for (int i = 0; i < variables.length; i++)
+			{
+				bindings.put(variables[i], arguments[i]);
+			}
+		}
+		else if (type instanceof Class)
+		{
+			raw = (Class<?>) type;
+		}
+		else
+		{
+			return;
+		}
+
+		if (raw.getGenericSuperclass() != null)
+		{
+			collectBindings(raw.getGenericSuperclass(), bindings);
+		}
+		for (Type iface : raw.getGenericInterfaces())
+		{
+			collectBindings(iface, bindings);
+		}
+	}
+
+	private static String typeName(Type type, Map<TypeVariable<?>, Type> bindings)
+	{
+		if (type instanceof Class)
+		{
+			Class<?> cls = (Class<?>) type;
+			if (cls.isArray())
+			{
+				return typeName(cls.getComponentType(), bindings) + "[]";
+			}
+			return cls.getCanonicalName();
+		}
+		if (type instanceof ParameterizedType)
+		{
+			ParameterizedType parameterized = (ParameterizedType) type;
+			StringBuilder sb = new StringBuilder(typeName(parameterized.getRawType(), bindings)).append('<');
+			Type[] arguments = parameterized.getActualTypeArguments();
+			for (int i = 0; i < arguments.length; i++)
+			{
+				if (i > 0)
+				{
+					sb.append(", ");
+				}
+				sb.append(typeName(arguments[i], bindings));
+			}
+			return sb.append('>').toString();
+		}
+		if (type instanceof GenericArrayType)
+		{
+			return typeName(((GenericArrayType) type).getGenericComponentType(), bindings) + "[]";
+		}
+		if (type instanceof WildcardType)
+		{
+			WildcardType wildcard = (WildcardType) type;
+			if (wildcard.getLowerBounds().length > 0)
+			{
+				return "? super " + typeName(wildcard.getLowerBounds()[0], bindings);
+			}
+			Type upper = wildcard.getUpperBounds()[0];
+			return upper == Object.class ? "?" : "? extends " + typeName(upper, bindings);
+		}
+		if (type instanceof TypeVariable)
+		{
+			Type bound = bindings.get(type);
+			return bound != null ? typeName(bound, bindings) : ((TypeVariable<?>) type).getName();
+		}
+		throw new IllegalArgumentException("Unsupported type " + type);
+	}
+}
@@ -0,0 +1,55 @@
+package com.firstperson.fake;
+
+import java.io.File;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class StubsTest
+{
+	public abstract static class Fake implements Comparable<Fake>
+	{
+		public abstract int count();
+
+		public abstract boolean isReady();
+
+		public abstract List<String> names();
+
+		public int answer()
+		{
+			return 42;
+		}
+	}
+
+	public abstract static class Comparing implements Comparable<Comparing>
+	{
+	}
+
+	@Test
+	public void abstractMethodsReturnDefaults()
+	{
+		Fake fake = Stubs.create(Fake.class);
+
+		assertEquals(0, fake.count());
+		assertFalse(fake.isReady());
+		assertNull(fake.names());
+		assertEquals(0, fake.compareTo(fake));
+		assertEquals(42, fake.answer());
+	}
+
+	@Test
+	public void leavesNoSourcesBehind()
+	{
+		int before = stubDirectories();
+		Stubs.create(Comparing.class);
+		assertEquals(before, stubDirectories());
+	}
+
+	private static int stubDirectories()
+	{
+		File[] dirs = new File(System.getProperty("java.io.tmpdir")).listFiles((dir, name) -> name.startsWith("firstperson-stubs"));
+		return dirs == null ? 0 : dirs.length;
+	}
+}
@@ -0,0 +1,80 @@
+package com.firstperson.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class CameraRotationIntegratorTest
+{
+	private static final long SECOND = 1_000_000_000L;
+	private static final double SPEED = 4000;
+
+	/**
+	 * Holds a key for a second then lets go, returning the yaw handed out by each point in time.
+	 */
+	private static int[] simulate(int fps, long[] sampleTimes)
+	{
+		CameraRotationIntegrator integrator = new CameraRotationIntegrator(0);
+		int[] samples = new int[sampleTimes.length];
+		int total = 0;
+		int sample = 0;
+		for (long frame = 1; sample < sampleTimes.length; frame++)
+		{
+			long now = frame * SECOND / fps;
+			integrator.advance(now, now <= SECOND ? SPEED : 0, 0);
+			total += integrator.takeYaw();
+			if (now == sampleTimes[sample])
+			{
+				samples[sample++] = total;
+			}
+		}
+		return samples;
+	}
+
+	@Test
+	public void motionIsTheSameAtDifferentFrameRates()
+	{
+		// Instants that both 50 and 300 fps land a frame on
+		long[] times = { SECOND / 10, SECOND / 2, SECOND, 3 * SECOND / 2 };
+		int[] at50 = simulate(50, times);
+		int[] at300 = simulate(300, times);
+
+		for (int i = 0; i < times.length; i++)
+		{
+			assertEquals("yaw at " + times[i] + "ns", at50[i], at300[i], 1);
+		}
+	}
+
+	@Test
+	public void easesToTargetVelocityAndStops()
+	{
+		CameraRotationIntegrator integrator = new CameraRotationIntegrator(0);
+		long frame = SECOND / 100;
+		int lastDelta = 0;
+		for (long now = frame; now <= SECOND; now += frame)
+		{
+			integrator.advance(now, SPEED, 0);
+			lastDelta = integrator.takeYaw();
+			assertTrue("rotation never reverses", lastDelta >= 0);
+			assertTrue("rotation never overshoots the requested speed", lastDelta <= SPEED / 100 + 1);
+		}
+		assertEquals("settled at the requested speed", SPEED / 100, lastDelta, 1);
+
+		for (long now = SECOND + frame; now <= 2 * SECOND; now += frame)
+		{
+			integrator.advance(now, 0, 0);
+			integrator.takeYaw();
+		}
+		assertTrue(integrator.isAtRest());
+	}
+
+	@Test
+	public void longStallsAreClamped()
+	{
+		CameraRotationIntegrator integrator = new CameraRotationIntegrator(0);
+		integrator.advance(SECOND / 100, SPEED, 0);
+		integrator.takeYaw();
+		integrator.advance(60 * SECOND, SPEED, 0);
+		assertTrue("a minute long frame moves at most a clamped frame's worth", integrator.takeYaw() <= SPEED / 10);
+	}
+}
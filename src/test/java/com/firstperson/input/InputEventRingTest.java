@@ -0,0 +1,134 @@
+package com.firstperson.input;
+
+import com.firstperson.FirstPersonPlugin;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class InputEventRingTest
+{
+	private static final int CAPACITY = 1024;
+
+	private final InputEventRing ring = new InputEventRing(CAPACITY);
+	private final List<int[]> drained = new ArrayList<>();
+	private final InputEventRing.Handler collect = (type, a, b) -> drained.add(new int[]{ type, a, b });
+
+	@Test
+	public void fillsToCapacity()
+	{
+		assertTrue(ring.isEmpty());
+		for (int i = 0; i < CAPACITY; i++)
+		{
+			assertTrue("event " + i, ring.offer(InputEventRing.MOUSE_DRAGGED, i, -i));
+		}
+		assertFalse(ring.isEmpty());
+		assertFalse(ring.clearOverflow());
+
+		assertEquals(CAPACITY, ring.drain(collect));
+		assertTrue(ring.isEmpty());
+		assertEquals(0, ring.drain(collect));
+	}
+
+	@Test
+	public void overflowDropsNewEventsAndIsReportedOnce()
+	{
+		for (int i = 0; i < CAPACITY; i++)
+		{
+			ring.offer(InputEventRing.MOUSE_DRAGGED, i, 0);
+		}
+		assertFalse(ring.offer(InputEventRing.KEY_RELEASED, Keymap.ROTATE_LEFT, 0));
+		assertTrue(ring.clearOverflow());
+		assertFalse(ring.clearOverflow());
+
+		// The events already queued are kept, the dropped one never shows up
+		assertEquals(CAPACITY, ring.drain(collect));
+		assertEquals(CAPACITY - 1, drained.get(CAPACITY - 1)[1]);
+		assertTrue(ring.offer(InputEventRing.KEY_RELEASED, Keymap.ROTATE_LEFT, 0));
+	}
+
+	@Test
+	public void wrapsAroundInDrainOrder()
+	{
+		int next = 0;
+		int expected = 0;
+		// Partial drains move the head and tail through every slot several times over
+		for (int round = 0; round < 10; round++)
+		{
+			for (int i = 0; i < 700; i++)
+			{
+				assertTrue(ring.offer(InputEventRing.MOUSE_DRAGGED, next, next * 3));
+				next++;
+			}
+			drained.clear();
+			assertEquals(700, ring.drain(collect));
+			for (int[] event : drained)
+			{
+				assertEquals(InputEventRing.MOUSE_DRAGGED, event[0]);
+				assertEquals(expected, event[1]);
+				assertEquals(expected * 3, event[2]);
+				expected++;
+			}
+		}
+		assertTrue(ring.isEmpty());
+		assertFalse(ring.clearOverflow());
+	}
+
+	@Test
+	public void drainsMixedEventsInOfferOrder()
+	{
+		ring.offer(InputEventRing.KEY_PRESSED, Keymap.ROTATE_RIGHT, 0);
+		ring.offer(InputEventRing.MOUSE_PRESSED, 10, 20);
+		ring.offer(InputEventRing.MOUSE_DRAGGED, 15, 22);
+		ring.offer(InputEventRing.MOUSE_RELEASED, 16, 23);
+		ring.offer(InputEventRing.KEY_RELEASED, Keymap.ROTATE_RIGHT, 0);
+
+		ring.drain(collect);
+
+		int[][] expected = {
+			{ InputEventRing.KEY_PRESSED, Keymap.ROTATE_RIGHT, 0 },
+			{ InputEventRing.MOUSE_PRESSED, 10, 20 },
+			{ InputEventRing.MOUSE_DRAGGED, 15, 22 },
+			{ InputEventRing.MOUSE_RELEASED, 16, 23 },
+			{ InputEventRing.KEY_RELEASED, Keymap.ROTATE_RIGHT, 0 },
+		};
+		assertEquals(expected.length, drained.size());
+		for (int i = 0; i < expected.length; i++)
+		{
+			for (int j = 0; j < 3; j++)
+			{
+				assertEquals("event " + i, expected[i][j], drained.get(i)[j]);
+			}
+		}
+	}
+
+	@Test
+	public void overflowReleasesHeldInput()
+	{
+		InputHandler inputHandler = new InputHandler(null, new FirstPersonPlugin(), null, 0);
+		inputHandler.queueInputEvent(InputEventRing.KEY_PRESSED, Keymap.ROTATE_RIGHT, 0);
+		inputHandler.queueInputEvent(InputEventRing.KEY_PRESSED, Keymap.ROTATE_UP, 0);
+		inputHandler.queueInputEvent(InputEventRing.MOUSE_PRESSED, 400, 300);
+		inputHandler.drainInputEvents();
+		assertTrue(inputHandler.rightKeyPressed);
+		assertTrue(inputHandler.upKeyPressed);
+		assertTrue(inputHandler.middleMousePressed);
+
+		// A flood of drags fills the ring so the releases are lost
+		for (int i = 0; i < CAPACITY; i++)
+		{
+			inputHandler.queueInputEvent(InputEventRing.MOUSE_DRAGGED, 400 + i, 300);
+		}
+		inputHandler.queueInputEvent(InputEventRing.KEY_RELEASED, Keymap.ROTATE_RIGHT, 0);
+		inputHandler.queueInputEvent(InputEventRing.KEY_RELEASED, Keymap.ROTATE_UP, 0);
+		inputHandler.queueInputEvent(InputEventRing.MOUSE_RELEASED, 400 + CAPACITY, 300);
+		inputHandler.drainInputEvents();
+
+		assertFalse(inputHandler.rightKeyPressed);
+		assertFalse(inputHandler.upKeyPressed);
+		assertFalse(inputHandler.middleMousePressed);
+		assertTrue(inputHandler.inputEvents.isEmpty());
+	}
+}
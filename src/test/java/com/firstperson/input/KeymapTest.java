@@ -0,0 +1,165 @@
+package com.firstperson.input;
+
+import com.firstperson.FirstPersonConfig;
+import com.firstperson.FirstPersonConfigSnapshot;
+import com.firstperson.FirstPersonPlugin;
+import java.awt.Canvas;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import net.runelite.client.config.Keybind;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class KeymapTest
+{
+	@Test
+	public void defaultsMatchTheOldFixedKeys()
+	{
+		Keymap keymap = FirstPersonConfigSnapshot.DEFAULTS.getKeymap();
+
+		assertEquals(Keymap.ROTATE_LEFT, keymap.action(KeyEvent.VK_LEFT));
+		assertEquals(Keymap.ROTATE_RIGHT, keymap.action(KeyEvent.VK_RIGHT));
+		assertEquals(Keymap.ROTATE_UP, keymap.action(KeyEvent.VK_UP));
+		assertEquals(Keymap.ROTATE_DOWN, keymap.action(KeyEvent.VK_DOWN));
+
+		int[] consumed = {
+			KeyEvent.VK_LEFT, KeyEvent.VK_RIGHT, KeyEvent.VK_UP, KeyEvent.VK_DOWN,
+			KeyEvent.VK_E, KeyEvent.VK_R, KeyEvent.VK_F1, KeyEvent.VK_F, KeyEvent.VK_SPACE, KeyEvent.VK_PAGE_UP,
+			KeyEvent.VK_PAGE_DOWN, KeyEvent.VK_ESCAPE, KeyEvent.VK_SHIFT, KeyEvent.VK_D, KeyEvent.VK_A, KeyEvent.VK_W,
+			KeyEvent.VK_S,
+		};
+		int consumedCount = 0;
+		for (int keyCode = 0; keyCode < 1 << 16; keyCode++)
+		{
+			if (keymap.isConsumed(keyCode))
+			{
+				consumedCount++;
+			}
+		}
+		for (int keyCode : consumed)
+		{
+			assertTrue(KeyEvent.getKeyText(keyCode), keymap.isConsumed(keyCode));
+		}
+		assertEquals(consumed.length, consumedCount);
+	}
+
+	@Test
+	public void rotationCanBeRebound()
+	{
+		Keymap keymap = Keymap.compile(new Keybind(KeyEvent.VK_J, 0), new Keybind(KeyEvent.VK_L, 0), new Keybind(KeyEvent.VK_I, 0),
+			new Keybind(KeyEvent.VK_K, 0), Keybind.NOT_SET, "");
+
+		assertEquals(Keymap.ROTATE_LEFT, keymap.action(KeyEvent.VK_J));
+		assertEquals(Keymap.NONE, keymap.action(KeyEvent.VK_LEFT));
+		assertTrue(keymap.isConsumed(KeyEvent.VK_K));
+		assertFalse(keymap.isConsumed(KeyEvent.VK_DOWN));
+	}
+
+	@Test
+	public void toggleWinsASharedKey()
+	{
+		Keymap keymap = Keymap.compile(new Keybind(KeyEvent.VK_LEFT, 0), null, null, null, new Keybind(KeyEvent.VK_LEFT, 0), null);
+
+		assertEquals(Keymap.TOGGLE, keymap.action(KeyEvent.VK_LEFT));
+	}
+
+	@Test
+	public void modifierOnlyBindingUsesTheModifierKey()
+	{
+		Keymap keymap = Keymap.compile(null, null, null, null, new Keybind(KeyEvent.VK_UNDEFINED, InputEvent.CTRL_DOWN_MASK), null);
+
+		assertEquals(Keymap.TOGGLE, keymap.action(KeyEvent.VK_CONTROL));
+	}
+
+	@Test
+	public void rotationModifiersMustMatch()
+	{
+		Keymap keymap = Keymap.compile(new Keybind(KeyEvent.VK_LEFT, InputEvent.CTRL_DOWN_MASK),
+			new Keybind(KeyEvent.VK_UNDEFINED, InputEvent.SHIFT_DOWN_MASK), null, null, null, "");
+
+		assertEquals(Keymap.ROTATE_LEFT, keymap.action(KeyEvent.VK_LEFT, InputEvent.CTRL_DOWN_MASK));
+		assertEquals(Keymap.NONE, keymap.action(KeyEvent.VK_LEFT, 0));
+		assertEquals(Keymap.NONE, keymap.action(KeyEvent.VK_LEFT, InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK));
+		// Mouse buttons held at the same time don't matter
+		assertEquals(Keymap.ROTATE_LEFT, keymap.action(KeyEvent.VK_LEFT, InputEvent.CTRL_DOWN_MASK | InputEvent.BUTTON1_DOWN_MASK));
+		// Releases match on the key alone
+		assertEquals(Keymap.ROTATE_LEFT, keymap.action(KeyEvent.VK_LEFT));
+		assertFalse(keymap.isConsumed(KeyEvent.VK_LEFT));
+
+		// Pressing Shift sets its own modifier
+		assertEquals(Keymap.ROTATE_RIGHT, keymap.action(KeyEvent.VK_SHIFT, InputEvent.SHIFT_DOWN_MASK));
+		assertTrue(keymap.isConsumed(KeyEvent.VK_SHIFT));
+	}
+
+	@Test
+	public void plainKeyIsLeftToTheClientWhenTheRotationNeedsCtrl()
+	{
+		FirstPersonConfigSnapshot settings = FirstPersonConfigSnapshot.from(new FirstPersonConfig()
+		{
+			@Override
+			public Keybind rotateLeftKey()
+			{
+				return new Keybind(KeyEvent.VK_LEFT, InputEvent.CTRL_DOWN_MASK);
+			}
+		});
+		InputHandler inputHandler = new InputHandler(null, new FirstPersonPlugin()
+		{
+			@Override
+			public FirstPersonConfigSnapshot getConfigSnapshot()
+			{
+				return settings;
+			}
+		}, null, 0);
+
+		KeyEvent plainPress = key(KeyEvent.KEY_PRESSED, 0);
+		KeyEvent plainRelease = key(KeyEvent.KEY_RELEASED, 0);
+		inputHandler.keyPressed(plainPress);
+		inputHandler.keyReleased(plainRelease);
+		assertFalse(plainPress.isConsumed());
+		assertFalse(plainRelease.isConsumed());
+		assertTrue(inputHandler.inputEvents.isEmpty());
+
+		KeyEvent press = key(KeyEvent.KEY_PRESSED, InputEvent.CTRL_DOWN_MASK);
+		inputHandler.keyPressed(press);
+		inputHandler.drainInputEvents();
+		assertTrue(press.isConsumed());
+		assertTrue(inputHandler.leftKeyPressed);
+
+		// Ctrl let go of first
+		KeyEvent release = key(KeyEvent.KEY_RELEASED, 0);
+		inputHandler.keyReleased(release);
+		inputHandler.drainInputEvents();
+		assertTrue(release.isConsumed());
+		assertFalse(inputHandler.leftKeyPressed);
+	}
+
+	@Test
+	public void consumedKeysAreParsedLeniently()
+	{
+		Keymap keymap = Keymap.compile(null, null, null, null, null, " vk_q,TAB, , NOT_A_KEY,f12 ");
+
+		assertTrue(keymap.isConsumed(KeyEvent.VK_Q));
+		assertTrue(keymap.isConsumed(KeyEvent.VK_TAB));
+		assertTrue(keymap.isConsumed(KeyEvent.VK_F12));
+		assertFalse(keymap.isConsumed(KeyEvent.VK_E));
+	}
+
+	@Test
+	public void keyCodesOutsideTheTableAreUnbound()
+	{
+		Keymap keymap = FirstPersonConfigSnapshot.from(new FirstPersonConfig()
+		{
+		}).getKeymap();
+
+		assertEquals(Keymap.NONE, keymap.action(0x01000000 + 'x'));
+		assertFalse(keymap.isConsumed(0x01000000 + 'x'));
+		assertEquals(Keymap.NONE, keymap.action(-1));
+	}
+
+	private static KeyEvent key(int id, int modifiers)
+	{
+		return new KeyEvent(new Canvas(), id, 0, modifiers, KeyEvent.VK_LEFT, KeyEvent.CHAR_UNDEFINED);
+	}
+}
@@ -0,0 +1,207 @@
+package com.firstperson.picking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class BoundingVolumeHierarchyTest
+{
+	private static final float MARGIN = 16;
+
+	private final BoundingVolumeHierarchy<Integer> tree = new BoundingVolumeHierarchy<>(MARGIN);
+	private final List<float[]> boxes = new ArrayList<>();
+	private final List<Integer> proxies = new ArrayList<>();
+	private final Random random = new Random(17);
+
+	@Test
+	public void emptyTreeHitsNothing()
+	{
+		assertEquals(BoundingVolumeHierarchy.NULL, tree.raycast(0, 0, 0, 1, 0, 0, 1000, 0));
+		assertEquals(-1, tree.height());
+	}
+
+	@Test
+	public void findsTheNearestBoxTheRayEnters()
+	{
+		int near = tree.insert(1, 0, 100, -10, -10, 120, 10, 10);
+		tree.insert(2, 0, 200, -10, -10, 220, 10, 10);
+		// Holds the origin, so is passed over
+		tree.insert(3, 0, -50, -50, -50, 50, 50, 50);
+		// On another plane
+		tree.insert(4, 1, 60, -10, -10, 80, 10, 10);
+
+		assertEquals(near, tree.raycast(0, 0, 0, 1, 0, 0, 1000, 0));
+		assertEquals(100, tree.getHitDistance(), 1e-4);
+		assertEquals(1, (int) tree.get(near));
+		assertEquals(BoundingVolumeHierarchy.NULL, tree.raycast(0, 0, 0, 1, 0, 0, 90, 0));
+		assertEquals(BoundingVolumeHierarchy.NULL, tree.raycast(0, 0, 0, -1, 0, 0, 1000, 0));
+	}
+
+	@Test
+	public void smallMovesStayInTheirLeaf()
+	{
+		int proxy = tree.insert(1, 0, 0, 0, 0, 10, 10, 10);
+		tree.insert(2, 0, 100, 0, 0, 110, 10, 10);
+
+		assertFalse(tree.move(proxy, 0, 10, 0, 0, 20, 10, 10));
+		assertEquals(proxy, tree.raycast(15, 5, -100, 0, 0, 1, 1000, 0));
+		// Not where it was any more
+		assertEquals(BoundingVolumeHierarchy.NULL, tree.raycast(5, 5, -100, 0, 0, 1, 1000, 0));
+
+		assertTrue(tree.move(proxy, 0, 50, 0, 0, 60, 10, 10));
+		assertEquals(proxy, tree.raycast(55, 5, -100, 0, 0, 1, 1000, 0));
+	}
+
+	@Test
+	public void matchesBruteForceThroughInsertsRemovesAndMoves()
+	{
+		for (int i = 0; i < 2000; i++)
+		{
+			add();
+		}
+		checkRays();
+
+		for (int i = 0; i < 600; i++)
+		{
+			int index = random.nextInt(proxies.size());
+			tree.remove(proxies.get(index));
+			boxes.remove(index);
+			proxies.remove(index);
+		}
+		for (int i = 0; i < 400; i++)
+		{
+			int index = random.nextInt(proxies.size());
+			float[] box = boxes.get(index);
+			float dx = (random.nextFloat() - 0.5f) * (i % 2 == 0 ? 20 : 500);
+			float dz = (random.nextFloat() - 0.5f) * (i % 2 == 0 ? 20 : 500);
+			box[0] += dx;
+			box[3] += dx;
+			box[2] += dz;
+			box[5] += dz;
+			tree.move(proxies.get(index), (int) box[6], box[0], box[1], box[2], box[3], box[4], box[5]);
+		}
+		for (int i = 0; i < 300; i++)
+		{
+			add();
+		}
+
+		assertEquals(proxies.size(), tree.getSize());
+		checkRays();
+	}
+
+	@Test
+	public void staysBalancedWhenItemsArriveInOrder()
+	{
+		for (int i = 0; i < 4096; i++)
+		{
+			tree.insert(i, 0, i * 128, 0, 0, i * 128 + 100, 100, 100);
+		}
+		// A perfectly balanced tree of 4096 leaves is 12 high
+		assertTrue("height " + tree.height(), tree.height() <= 18);
+	}
+
+	private void add()
+	{
+		float x = random.nextFloat() * 13312;
+		float z = random.nextFloat() * 13312;
+		float width = 32 + random.nextFloat() * 512;
+		float height = 32 + random.nextFloat() * 400;
+		float depth = 32 + random.nextFloat() * 512;
+		int plane = random.nextInt(2);
+		float[] box = {x, -height, z, x + width, 0, z + depth, plane};
+		boxes.add(box);
+		proxies.add(tree.insert(proxies.size(), plane, box[0], box[1], box[2], box[3], box[4], box[5]));
+	}
+
+	private void checkRays()
+	{
+		for (int ray = 0; ray < 300; ray++)
+		{
+			float ox = random.nextFloat() * 13312;
+			float oy = -200 - random.nextFloat() * 300;
+			float oz = random.nextFloat() * 13312;
+			double angle = random.nextDouble() * Math.PI * 2;
+			float dx = (float) Math.cos(angle);
+			float dy = random.nextFloat() * 0.3f;
+			float dz = (float) Math.sin(angle);
+			int plane = ray % 2;
+
+			float expected = Float.MAX_VALUE;
+			for (float[] box : boxes)
+			{
+				if ((int) box[6] == plane)
+				{
+					float distance = entry(box, ox, oy, oz, dx, dy, dz);
+					if (distance > 0)
+					{
+						expected = Math.min(expected, distance);
+					}
+				}
+			}
+
+			int hit = tree.raycast(ox, oy, oz, dx, dy, dz, Float.MAX_VALUE, plane);
+			if (expected == Float.MAX_VALUE)
+			{
+				assertEquals("ray " + ray, BoundingVolumeHierarchy.NULL, hit);
+			}
+			else
+			{
+				assertEquals("ray " + ray, expected, tree.getHitDistance(), 1e-2);
+			}
+		}
+	}
+
+	/**
+	 * Nearest crossing of any of the box's faces, as a check that doesn't share the slab test
+	 */
+	private static float entry(float[] box, float ox, float oy, float oz, float dx, float dy, float dz)
+	{
+		if (inside(box, ox, oy, oz))
+		{
+			return -1;
+		}
+
+		float[] origin = {ox, oy, oz};
+		float[] direction = {dx, dy, dz};
+		float nearest = -1;
+		for (int axis = 0; axis < 3; axis++)
+		{
+			if (direction[axis] == 0)
+			{
+				continue;
+			}
+			for (int side = 0; side < 2; side++)
+			{
+				float t = (box[axis + side * 3] - origin[axis]) / direction[axis];
+				if (t <= 0 || nearest != -1 && t >= nearest)
+				{
+					continue;
+				}
+				// Widen the face a touch for rounding
+				float[] at = {ox + dx * t, oy + dy * t, oz + dz * t};
+				boolean onFace = true;
+				for (int other = 0; other < 3; other++)
+				{
+					if (other != axis && (at[other] < box[other] - 1e-3f || at[other] > box[other + 3] + 1e-3f))
+					{
+						onFace = false;
+					}
+				}
+				if (onFace)
+				{
+					nearest = t;
+				}
+			}
+		}
+		return nearest;
+	}
+
+	private static boolean inside(float[] box, float x, float y, float z)
+	{
+		return x >= box[0] && x <= box[3] && y >= box[1] && y <= box[4] && z >= box[2] && z <= box[5];
+	}
+}
@@ -0,0 +1,81 @@
+package com.firstperson.picking;
+
+import com.firstperson.detachedcamera.CameraPose;
+import com.firstperson.fake.FakeClient;
+import com.firstperson.projection.FirstPersonProjection;
+import com.firstperson.projection.FirstPersonView;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PickRayTest
+{
+	private FakeClient client;
+	private int width;
+	private int height;
+	private final PickRay ray = new PickRay();
+
+	@Before
+	public void setUp()
+	{
+		client = FakeClient.create();
+		width = client.viewportWidth;
+		height = client.viewportHeight;
+	}
+
+	@Test
+	public void centreOfTheViewportLooksAtTheFocalPoint()
+	{
+		FirstPersonView view = view(300, 100, -400);
+		ray.aim(view, width / 2, height / 2);
+
+		double length = Math.sqrt(300 * 300 + 100 * 100 + 400 * 400);
+		assertEquals(view.getEyeX(), ray.originX, 0);
+		assertEquals(300 / length, ray.directionX, 1e-9);
+		assertEquals(100 / length, ray.directionY, 1e-9);
+		assertEquals(-400 / length, ray.directionZ, 1e-9);
+	}
+
+	@Test
+	public void pointsInFrontProjectBackToTheMouse()
+	{
+		// Facing east, so the camera's right is south and down is the height axis
+		FirstPersonView view = view(750, 0, 0);
+		double depth = 1024;
+		double south = 256;
+		double below = 128;
+		int canvasX = width / 2 + (int) (south * client.scale / depth);
+		int canvasY = height / 2 + (int) (below * client.scale / depth);
+		ray.aim(view, canvasX, canvasY);
+
+		assertEquals(view.getEyeX() + depth, ray.originX + ray.directionX * depth, 1e-9);
+		assertEquals(view.getEyeY() + below, ray.originY + ray.directionY * depth, 1e-9);
+		assertEquals(view.getEyeZ() - south, ray.originZ + ray.directionZ * depth, 1e-9);
+	}
+
+	@Test
+	public void screenAxesStayLevelWhenLookingDown()
+	{
+		FirstPersonView view = view(0, 400, 600);
+		ray.aim(view, width / 2, height / 2);
+		double centreY = ray.directionY;
+
+		// Moving the mouse sideways turns the ray east without tilting it
+		ray.aim(view, width / 2 + 100, height / 2);
+		assertEquals(centreY, ray.directionY, 1e-12);
+		assertEquals(100.0 / client.scale, ray.directionX, 1e-9);
+		assertTrue(ray.directionZ > 0);
+	}
+
+	private FirstPersonView view(double forwardX, double forwardY, double forwardZ)
+	{
+		CameraPose pose = new CameraPose();
+		pose.eyeX = 6656;
+		pose.eyeY = -200;
+		pose.eyeZ = 6656;
+		FirstPersonProjection projection = new FirstPersonProjection(client);
+		projection.publish(pose, pose.eyeX + forwardX, pose.eyeY + forwardY, pose.eyeZ + forwardZ);
+		return projection.getView();
+	}
+}
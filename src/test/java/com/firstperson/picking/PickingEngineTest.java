@@ -0,0 +1,99 @@
+package com.firstperson.picking;
+
+import com.firstperson.detachedcamera.CameraPose;
+import com.firstperson.detachedcamera.HeightfieldCache;
+import com.firstperson.fake.FakeClient;
+import com.firstperson.fake.FakeNpc;
+import com.firstperson.projection.FirstPersonProjection;
+import com.firstperson.projection.FirstPersonView;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.LocalPoint;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PickingEngineTest
+{
+	private static final int EYE = 6656;
+	private static final int TILE = 128;
+
+	private FakeClient client;
+	private PickingEngine engine;
+	private FirstPersonView view;
+	private int centreX;
+	private int centreY;
+
+	@Before
+	public void setUp()
+	{
+		client = FakeClient.create();
+		engine = new PickingEngine(client, new HeightfieldCache(client));
+		centreX = client.viewportWidth / 2;
+		centreY = client.viewportHeight / 2;
+
+		// Standing on flat ground looking level to the north
+		CameraPose pose = new CameraPose();
+		pose.eyeX = EYE;
+		pose.eyeY = -200;
+		pose.eyeZ = EYE;
+		FirstPersonProjection projection = new FirstPersonProjection(client);
+		projection.publish(pose, EYE, -200, EYE + 750);
+		view = projection.getView();
+	}
+
+	@Test
+	public void picksTheNearestNpcUnderTheMouse()
+	{
+		FakeNpc near = FakeNpc.at(EYE, EYE + 3 * TILE);
+		FakeNpc far = FakeNpc.at(EYE, EYE + 6 * TILE);
+		engine.add(far);
+		engine.add(near);
+
+		assertSame(near, engine.pick(view, centreX, centreY));
+		engine.remove(near);
+		assertSame(far, engine.pick(view, centreX, centreY));
+		engine.remove(far);
+		assertNull(engine.pick(view, centreX, centreY));
+		assertEquals(0, engine.size());
+	}
+
+	@Test
+	public void followsNpcsAsTheyWalk()
+	{
+		FakeNpc npc = FakeNpc.at(EYE, EYE + 6 * TILE);
+		engine.add(npc);
+		assertSame(npc, engine.pick(view, centreX, centreY));
+
+		// Three tiles east at six tiles deep is half the scale right of the centre
+		npc.localLocation = new LocalPoint(EYE + 3 * TILE, EYE + 6 * TILE, WorldView.TOPLEVEL);
+		assertNull(engine.pick(view, centreX, centreY));
+		assertSame(npc, engine.pick(view, centreX + client.scale / 2, centreY));
+	}
+
+	@Test
+	public void ignoresOtherPlanesTheLocalPlayerAndTheSkyAbove()
+	{
+		FakeNpc upstairs = FakeNpc.at(EYE, EYE + 3 * TILE);
+		upstairs.plane = 1;
+		engine.add(upstairs);
+		engine.add(client.localPlayer);
+		assertEquals(1, engine.size());
+		assertNull(engine.pick(view, centreX, centreY));
+
+		FakeNpc npc = FakeNpc.at(EYE, EYE + 3 * TILE);
+		engine.add(npc);
+		// Aiming well over its head
+		assertNull(engine.pick(view, centreX, centreY - client.scale / 2));
+		assertSame(npc, engine.pick(view, centreX, centreY));
+	}
+
+	@Test
+	public void nothingOutsideTheViewport()
+	{
+		engine.add(FakeNpc.at(EYE, EYE + 3 * TILE));
+		assertNull(engine.pick(view, -1, centreY));
+		assertNull(engine.pick(view, centreX, client.viewportHeight));
+	}
+}
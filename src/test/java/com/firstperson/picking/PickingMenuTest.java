@@ -0,0 +1,132 @@
+package com.firstperson.picking;
+
+import com.firstperson.detachedcamera.CameraPose;
+import com.firstperson.detachedcamera.HeightfieldCache;
+import com.firstperson.fake.FakeClient;
+import com.firstperson.fake.FakeMenuEntry;
+import com.firstperson.fake.FakeNpc;
+import com.firstperson.fake.FakeNpcComposition;
+import com.firstperson.fake.FakePlayer;
+import com.firstperson.fake.FakeWorldEntity;
+import com.firstperson.fake.FakeWorldView;
+import com.firstperson.fake.Stubs;
+import com.firstperson.projection.FirstPersonProjection;
+import com.firstperson.projection.FirstPersonView;
+import net.runelite.api.MenuAction;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.LocalPoint;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PickingMenuTest
+{
+	private static final int EYE = 6656;
+	private static final int TILE = 128;
+	private static final int BOAT_INDEX = 2;
+
+	private FakeClient client;
+	private FakeWorldEntity boat;
+	private PickingEngine engine;
+	private PickingMenu menu;
+	private FirstPersonView view;
+
+	@Before
+	public void setUp()
+	{
+		client = FakeClient.create();
+		FakeWorldView boatView = Stubs.create(FakeWorldView.class);
+		boatView.id = BOAT_INDEX;
+		client.topLevelWorldView.addEntityWorldView(boatView);
+		boat = Stubs.create(FakeWorldEntity.class);
+		boat.worldView = boatView;
+		client.topLevelWorldView.worldEntities().put(BOAT_INDEX, boat);
+
+		engine = new PickingEngine(client, new HeightfieldCache(client));
+		menu = new PickingMenu(client);
+
+		// Standing on flat ground looking level to the north
+		CameraPose pose = new CameraPose();
+		pose.eyeX = EYE;
+		pose.eyeY = -200;
+		pose.eyeZ = EYE;
+		FirstPersonProjection projection = new FirstPersonProjection(client);
+		projection.publish(pose, EYE, -200, EYE + 750);
+		view = projection.getView();
+	}
+
+	@Test
+	public void entriesForAnNpcOnABoatUseTheBoatsWorldView()
+	{
+		// Three tiles ahead once the boat carries it into the main world
+		FakeNpc npc = npc(new LocalPoint(640, 640, BOAT_INDEX));
+		boat.offsetX = EYE - 640;
+		boat.offsetY = EYE + 3 * TILE - 640;
+		engine.add(npc);
+
+		Object picked = engine.pick(view, client.viewportWidth / 2, client.viewportHeight / 2);
+		assertSame(npc, picked);
+		menu.addEntries(picked);
+
+		assertEntries(MenuAction.EXAMINE_NPC, MenuAction.NPC_SECOND_OPTION, MenuAction.NPC_FIRST_OPTION);
+		for (FakeMenuEntry entry : client.menuEntries)
+		{
+			assertEquals(entry.option, BOAT_INDEX, entry.worldViewId);
+			assertEquals(entry.option, 7, entry.identifier);
+		}
+	}
+
+	@Test
+	public void entriesForAnNpcOnTheTopLevelUseTheTopLevel()
+	{
+		FakeNpc npc = npc(new LocalPoint(EYE, EYE + 3 * TILE, WorldView.TOPLEVEL));
+		engine.add(npc);
+
+		menu.addEntries(engine.pick(view, client.viewportWidth / 2, client.viewportHeight / 2));
+
+		assertEntries(MenuAction.EXAMINE_NPC, MenuAction.NPC_SECOND_OPTION, MenuAction.NPC_FIRST_OPTION);
+		for (FakeMenuEntry entry : client.menuEntries)
+		{
+			assertEquals(entry.option, WorldView.TOPLEVEL, entry.worldViewId);
+		}
+	}
+
+	@Test
+	public void deprioritizedPlayerOptionsKeepTheirAction()
+	{
+		client.playerOptions[0] = "Attack";
+		client.playerMenuTypes[0] = MenuAction.PLAYER_FIRST_OPTION.getId() + MenuAction.MENU_ACTION_DEPRIORITIZE_OFFSET;
+		client.playerOptions[2] = "Follow";
+		client.playerMenuTypes[2] = MenuAction.PLAYER_THIRD_OPTION.getId();
+		FakePlayer player = Stubs.create(FakePlayer.class);
+		player.id = 31;
+
+		menu.addEntries(player);
+
+		assertEntries(MenuAction.PLAYER_THIRD_OPTION, MenuAction.PLAYER_FIRST_OPTION);
+		assertFalse(client.menuEntries.get(0).deprioritized);
+		assertTrue(client.menuEntries.get(1).deprioritized);
+		assertEquals(31, client.menuEntries.get(1).identifier);
+	}
+
+	private static FakeNpc npc(LocalPoint location)
+	{
+		FakeNpc npc = Stubs.create(FakeNpc.class);
+		npc.localLocation = location;
+		npc.index = 7;
+		npc.composition = Stubs.create(FakeNpcComposition.class);
+		return npc;
+	}
+
+	private void assertEntries(MenuAction... types)
+	{
+		assertEquals(types.length, client.menuEntries.size());
+		for (int i = 0; i < types.length; i++)
+		{
+			assertEquals(types[i], client.menuEntries.get(i).type);
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package com.firstperson.projection;
+
+import com.firstperson.CameraPipeline;
+import com.firstperson.FirstPersonConfig;
+import com.firstperson.FirstPersonPlugin;
+import com.firstperson.detachedcamera.CameraPose;
+import com.firstperson.detachedcamera.DetachedCameraMovementHandler;
+import com.firstperson.fake.FakeClient;
+import com.firstperson.input.InputHandler;
+import com.firstperson.picking.PickRay;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FirstPersonProjectionTest
+{
+	private static final int EYE = 6656;
+
+	private FakeClient client;
+	private FirstPersonProjection projection;
+	private CameraPose pose;
+
+	@Before
+	public void setUp()
+	{
+		client = FakeClient.create();
+		projection = new FirstPersonProjection(client);
+		pose = new CameraPose();
+		pose.eyeX = EYE;
+		pose.eyeY = -200;
+		pose.eyeZ = EYE;
+	}
+
+	@Test
+	public void publishesANewVersionOnlyWhenTheViewChanges()
+	{
+		projection.publish(pose, EYE, -200, EYE + 750);
+		FirstPersonView first = projection.getView();
+		assertNotNull(first);
+
+		projection.publish(pose, EYE, -200, EYE + 750);
+		assertSame(first, projection.getView());
+
+		projection.publish(pose, EYE + 10, -200, EYE + 750);
+		assertEquals(first.getVersion() + 1, projection.getView().getVersion());
+
+		client.scale = 600;
+		projection.publish(pose, EYE + 10, -200, EYE + 750);
+		assertEquals(first.getVersion() + 2, projection.getView().getVersion());
+
+		// Looking straight down has no way round to face, so the last view stays
+		FirstPersonView last = projection.getView();
+		projection.publish(pose, EYE, 500, EYE);
+		assertSame(last, projection.getView());
+
+		projection.clear();
+		assertNull(projection.getView());
+	}
+
+	@Test
+	public void batchProjectionInvertsThePickRay()
+	{
+		projection.publish(pose, EYE + 400, 150, EYE + 500);
+		FirstPersonView view = projection.getView();
+
+		Random random = new Random(4);
+		int count = 200;
+		float[] localX = new float[count];
+		float[] localY = new float[count];
+		float[] height = new float[count];
+		int[] mouseX = new int[count];
+		int[] mouseY = new int[count];
+		PickRay ray = new PickRay();
+		for (int i = 0; i < count; i++)
+		{
+			mouseX[i] = random.nextInt(client.viewportWidth);
+			mouseY[i] = random.nextInt(client.viewportHeight);
+			double depth = 100 + random.nextInt(3000);
+			ray.aim(view, mouseX[i], mouseY[i]);
+			localX[i] = (float) (ray.originX + ray.directionX * depth);
+			height[i] = (float) (ray.originY + ray.directionY * depth);
+			localY[i] = (float) (ray.originZ + ray.directionZ * depth);
+		}
+
+		int[] canvasX = new int[count];
+		int[] canvasY = new int[count];
+		float[] depth = new float[count];
+		assertEquals(count, view.project(localX, localY, height, 0, count, canvasX, canvasY, depth));
+		for (int i = 0; i < count; i++)
+		{
+			// Within a pixel, as the points were placed through pixel corners in floats
+			assertEquals("x of " + i, mouseX[i], canvasX[i], 1);
+			assertEquals("y of " + i, mouseY[i], canvasY[i], 1);
+		}
+	}
+
+	@Test
+	public void pointsBehindTheCameraAreNotVisible()
+	{
+		projection.publish(pose, EYE, -200, EYE + 750);
+		FirstPersonView view = projection.getView();
+
+		float[] localX = {EYE, EYE, EYE + 100};
+		float[] localY = {EYE + 1000, EYE - 1000, EYE + 10};
+		float[] height = {-200, -200, -200};
+		int[] canvasX = new int[3];
+		int[] canvasY = new int[3];
+		float[] depth = new float[3];
+
+		assertEquals(1, view.project(localX, localY, height, 0, 3, canvasX, canvasY, depth));
+		assertEquals(client.viewportWidth / 2, canvasX[0]);
+		assertEquals(client.viewportHeight / 2, canvasY[0]);
+		assertEquals(1000, depth[0], 1e-3);
+		assertEquals(FirstPersonView.NOT_VISIBLE, canvasX[1]);
+		// In front, but closer than the near plane
+		assertEquals(FirstPersonView.NOT_VISIBLE, canvasY[2]);
+	}
+
+	@Test
+	public void batchProjectionDoesNotAllocate()
+	{
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+		long threadId = Thread.currentThread().getId();
+
+		projection.publish(pose, EYE + 300, -100, EYE + 600);
+		FirstPersonView view = projection.getView();
+		int count = 500;
+		float[] localX = new float[count];
+		float[] localY = new float[count];
+		float[] height = new float[count];
+		for (int i = 0; i < count; i++)
+		{
+			localX[i] = EYE + (i % 25) * 128;
+			localY[i] = EYE + (i / 25) * 128;
+		}
+		int[] canvasX = new int[count];
+		int[] canvasY = new int[count];
+
+		for (int frame = 0; frame < 20_000; frame++)
+		{
+			view.project(localX, localY, height, 0, count, canvasX, canvasY, null);
+		}
+		long before = threads.getThreadAllocatedBytes(threadId);
+		for (int frame = 0; frame < 2_000; frame++)
+		{
+			view.project(localX, localY, height, 0, count, canvasX, canvasY, null);
+		}
+		assertEquals(0, threads.getThreadAllocatedBytes(threadId) - before);
+	}
+
+	@Test
+	public void cameraFramesPublishTheirView()
+	{
+		FirstPersonConfig config = new FirstPersonConfig()
+		{
+		};
+		InputHandler inputHandler = new InputHandler(client, new FirstPersonPlugin(), config, System.nanoTime());
+		CameraPipeline pipeline = new CameraPipeline(client, inputHandler,
+			new DetachedCameraMovementHandler(client, config, inputHandler));
+		pipeline.setProjection(projection);
+
+		pipeline.run(1_000_000L);
+		FirstPersonView view = projection.getView();
+		CameraPose framePose = pipeline.getPose();
+		assertEquals(framePose.eyeX, view.getEyeX(), 0);
+		assertEquals(framePose.focalZ, view.getFocalZ(), 0);
+		assertEquals(1_000_000L, view.getFrameNanos());
+
+		// Frames in between capped updates only move the focal point
+		pipeline.writeFocalPoint(framePose.focalX + 5, framePose.focalY, framePose.focalZ);
+		assertEquals(view.getVersion() + 1, projection.getView().getVersion());
+		assertEquals(framePose.focalX + 5, projection.getView().getFocalX(), 0);
+	}
+}
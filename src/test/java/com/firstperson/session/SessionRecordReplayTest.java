@@ -0,0 +1,213 @@
+package com.firstperson.session;
+
+import com.firstperson.CameraPipeline;
+import com.firstperson.FirstPersonConfig;
+import com.firstperson.FirstPersonConfigSnapshot;
+import com.firstperson.FirstPersonPlugin;
+import com.firstperson.detachedcamera.DetachedCameraMovementHandler;
+import com.firstperson.fake.FakeClient;
+import com.firstperson.fake.FakeWorldEntity;
+import com.firstperson.fake.FakeWorldView;
+import com.firstperson.fake.Stubs;
+import com.firstperson.input.InputHandler;
+import java.awt.Canvas;
+import java.awt.Component;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import net.runelite.api.CollisionData;
+import net.runelite.api.CollisionDataFlag;
+import net.runelite.api.coords.LocalPoint;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SessionRecordReplayTest
+{
+	private static final long FRAME = 7_000_000L;
+	private static final long TICK = 600_000_000L;
+	private static final int BOAT_INDEX = 2;
+
+	private final Component source = new Canvas();
+
+	private File folder;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		folder = Files.createTempDirectory("sessions").toFile();
+	}
+
+	@After
+	public void tearDown()
+	{
+		File[] sessions = folder.listFiles();
+		if (sessions != null)
+		{
+			for (File session : sessions)
+			{
+				session.delete();
+			}
+		}
+		folder.delete();
+	}
+
+	@Test
+	public void replayReproducesRecordedFrames() throws IOException
+	{
+		Path session = record(3000);
+
+		SessionReplayer.Report report = SessionReplayer.replay(session);
+
+		assertEquals(3000, report.frames);
+		assertEquals(report.toString(), 0, report.mismatchedFrames);
+		assertTrue(report.p50Nanos > 0);
+	}
+
+	@Test
+	public void sessionLongerThanOneWindowIsReadBack() throws IOException
+	{
+		// Over a megabyte of frame records, so the recorder has to move its window along
+		Path session = record(20_000);
+
+		assertEquals(20_000, SessionReplayer.replay(session).frames);
+	}
+
+	@Test
+	public void closedLogReopensAndReadsBack() throws IOException
+	{
+		Path session = record(100);
+
+		// The file isn't trimmed, so the end marker is followed by the zeroed rest of the window
+		byte[] bytes = Files.readAllBytes(session);
+		assertEquals(1 << 20, bytes.length);
+		assertEquals(0, bytes[bytes.length - 1]);
+		assertEquals(100, SessionReplayer.replay(session).frames);
+	}
+
+	@Test
+	public void logCutShortStillReplays() throws IOException
+	{
+		Path session = record(500);
+		try (FileChannel channel = FileChannel.open(session, StandardOpenOption.WRITE))
+		{
+			// A crash never writes the end marker, but leaves the zeroed window after the last frame cut short
+			// wherever the file had got to
+			channel.truncate(channel.size() - 4096);
+		}
+
+		assertEquals(500, SessionReplayer.replay(session).frames);
+	}
+
+	private Path record(int frames) throws IOException
+	{
+		FakeClient client = FakeClient.create();
+		Random random = new Random(3);
+		for (int x = 0; x <= FakeWorldView.SIZE; x++)
+		{
+			for (int y = 0; y <= FakeWorldView.SIZE; y++)
+			{
+				client.topLevelWorldView.tileHeights[0][x][y] = -random.nextInt(300);
+			}
+		}
+		FakeWorldView boatView = Stubs.create(FakeWorldView.class);
+		boatView.id = BOAT_INDEX;
+		client.topLevelWorldView.addEntityWorldView(boatView);
+		FakeWorldEntity boat = Stubs.create(FakeWorldEntity.class);
+		boat.worldView = boatView;
+		boat.offsetX = 3000;
+		boat.offsetY = 2000;
+		client.topLevelWorldView.worldEntities().put(BOAT_INDEX, boat);
+
+		// A wall the player walks towards, with a door that opens partway through
+		int[][] flags = new int[FakeWorldView.SIZE][FakeWorldView.SIZE];
+		for (int y = 0; y < FakeWorldView.SIZE; y++)
+		{
+			flags[60][y] = CollisionDataFlag.BLOCK_LINE_OF_SIGHT_WEST;
+		}
+		CollisionData collisionMap = () -> flags;
+		client.topLevelWorldView.collisionMaps = new CollisionData[]{collisionMap, null, null, null};
+
+		FirstPersonConfig config = new FirstPersonConfig()
+		{
+		};
+		InputHandler inputHandler = new InputHandler(client, new FirstPersonPlugin(), config, 0);
+		DetachedCameraMovementHandler detachedCameraMovementHandler = new DetachedCameraMovementHandler(client, config, inputHandler);
+		CameraPipeline cameraPipeline = new CameraPipeline(client, inputHandler, detachedCameraMovementHandler);
+
+		SessionRecorder recorder = SessionRecorder.create(client, folder);
+		recorder.recordScene(client.topLevelWorldView);
+		recorder.recordConfig(FirstPersonConfigSnapshot.DEFAULTS);
+		cameraPipeline.setSessionRecorder(recorder);
+		detachedCameraMovementHandler.getCameraCollision().rebuild();
+
+		long now = 0;
+		long nextTick = 0;
+		for (int frame = 0; frame < frames; frame++)
+		{
+			now += FRAME + random.nextInt(3_000_000);
+			if (now >= nextTick)
+			{
+				nextTick += TICK;
+				LocalPoint lp = client.fakePlayer().localLocation;
+				if (lp.getWorldView() == BOAT_INDEX)
+				{
+					boat.offsetX += 64;
+				}
+				else
+				{
+					client.fakePlayer().localLocation = new LocalPoint(lp.getX() + 128, lp.getY(), lp.getWorldView());
+				}
+				detachedCameraMovementHandler.getWorldEntityTransforms().onGameTick(now);
+				recorder.recordTick(now);
+			}
+
+			if (frame == 1000)
+			{
+				flags[60][52] = 0;
+				detachedCameraMovementHandler.getCameraCollision().update();
+			}
+
+			switch (frame % 400)
+			{
+				case 10:
+					inputHandler.keyPressed(new KeyEvent(source, KeyEvent.KEY_PRESSED, 0, 0, KeyEvent.VK_LEFT, KeyEvent.CHAR_UNDEFINED));
+					break;
+				case 90:
+					inputHandler.keyReleased(new KeyEvent(source, KeyEvent.KEY_RELEASED, 0, 0, KeyEvent.VK_LEFT, KeyEvent.CHAR_UNDEFINED));
+					break;
+				case 150:
+					inputHandler.mousePressed(new MouseEvent(source, MouseEvent.MOUSE_PRESSED, 0, 0, 300, 200, 1, false, MouseEvent.BUTTON2));
+					break;
+				case 200:
+					inputHandler.mouseReleased(new MouseEvent(source, MouseEvent.MOUSE_RELEASED, 0, 0, 340, 180, 1, false, MouseEvent.BUTTON2));
+					break;
+				case 250:
+					client.fakePlayer().localLocation = new LocalPoint(640, 640, BOAT_INDEX);
+					break;
+				case 399:
+					client.fakePlayer().localLocation = new LocalPoint(6656, 6656, -1);
+					break;
+			}
+			if (frame % 400 > 150 && frame % 400 < 200)
+			{
+				inputHandler.mouseDragged(new MouseEvent(source, MouseEvent.MOUSE_DRAGGED, 0, MouseEvent.BUTTON2_DOWN_MASK,
+					300 + frame % 7, 200 - frame % 5, 0, false, MouseEvent.NOBUTTON));
+			}
+
+			cameraPipeline.run(now);
+		}
+
+		cameraPipeline.setSessionRecorder(null);
+		recorder.close();
+		return recorder.getPath();
+	}
+}
@@ -0,0 +1,312 @@
+package com.firstperson.session;
+
+import com.firstperson.CameraPipeline;
+import com.firstperson.FirstPersonConfig;
+import com.firstperson.FirstPersonConfigSnapshot;
+import com.firstperson.FirstPersonPlugin;
+import com.firstperson.collision.CameraCollision;
+import com.firstperson.detachedcamera.CameraPose;
+import com.firstperson.detachedcamera.DetachedCameraMovementHandler;
+import com.firstperson.detachedcamera.EyeHeightCache;
+import com.firstperson.fake.FakeClient;
+import com.firstperson.fake.FakeModel;
+import com.firstperson.fake.FakePlayer;
+import com.firstperson.fake.FakeWorldEntity;
+import com.firstperson.fake.FakeWorldView;
+import com.firstperson.fake.Stubs;
+import com.firstperson.input.InputHandler;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.LocalPoint;
+
+/**
+ * Replays a recorded camera session through the camera pipeline against a {@link FakeClient}, checking each frame's
+ * focal point against the recording and timing every frame.
+ * <p>
+ * Each frame the fake client is set to the recorded camera state and player position, and the input recorded for it
+ * is queued as the listeners would have. World entities are replayed as translations taken from the tick and frame
+ * records, so frames on a turning boat are expected to differ slightly. Collision fields go into use on the frames
+ * they were recorded for.
+ * <p>
+ * Run with {@code ./gradlew replaySession -Psession=<file>}.
+ */
+public class SessionReplayer implements SessionReader.Visitor
+{
+	private static final double MATCH_TOLERANCE = 0.01;
+
+	private final FakeClient client = FakeClient.create();
+	private volatile FirstPersonConfigSnapshot settings = FirstPersonConfigSnapshot.DEFAULTS;
+	private final FirstPersonPlugin plugin = new FirstPersonPlugin()
+	{
+		@Override
+		public FirstPersonConfigSnapshot getConfigSnapshot()
+		{
+			return settings;
+		}
+	};
+
+	private InputHandler inputHandler;
+	private DetachedCameraMovementHandler detachedCameraMovementHandler;
+	private CameraPipeline cameraPipeline;
+
+	// Collision recorded before the first frame or tick
+	private int[][][] pendingCollision;
+	private int pendingCollisionSizeX;
+	private int pendingCollisionSizeY;
+
+	private int[] pendingInput = new int[3 * 64];
+	private int pendingInputCount;
+
+	private final Report report = new Report();
+	private long[] frameNanos = new long[1024];
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length == 0)
+		{
+			System.err.println("Usage: SessionReplayer <session" + SessionLog.EXTENSION + ">...");
+			System.exit(2);
+		}
+
+		boolean matched = true;
+		for (String arg : args)
+		{
+			Report report = replay(Paths.get(arg));
+			System.out.println(arg + ": " + report);
+			matched &= report.mismatchedFrames == 0;
+		}
+		System.exit(matched ? 0 : 1);
+	}
+
+	public static Report replay(Path session) throws IOException
+	{
+		SessionReplayer replayer = new SessionReplayer();
+		SessionReader.read(session, replayer);
+		return replayer.finish();
+	}
+
+	@Override
+	public void onScene(int sizeX, int sizeY, int[][][] tileHeights, byte[][][] tileSettings)
+	{
+		FakeWorldView scene = client.topLevelWorldView;
+		for (int plane = 0; plane < SessionLog.PLANES; plane++)
+		{
+			for (int x = 0; x <= Math.min(sizeX, FakeWorldView.SIZE); x++)
+			{
+				System.arraycopy(tileHeights[plane][x], 0, scene.tileHeights[plane][x], 0, Math.min(sizeY, FakeWorldView.SIZE) + 1);
+			}
+			for (int x = 0; x < Math.min(sizeX, FakeWorldView.SIZE); x++)
+			{
+				System.arraycopy(tileSettings[plane][x], 0, scene.tileSettings[plane][x], 0, Math.min(sizeY, FakeWorldView.SIZE));
+			}
+		}
+		if (detachedCameraMovementHandler != null)
+		{
+			detachedCameraMovementHandler.getHeightfieldCache().rebuild();
+		}
+	}
+
+	@Override
+	public void onConfig(boolean inverseKeys, double keyCameraSpeed)
+	{
+		settings = FirstPersonConfigSnapshot.from(new FirstPersonConfig()
+		{
+			@Override
+			public boolean inverseKeys()
+			{
+				return inverseKeys;
+			}
+
+			@Override
+			public double keyCameraSpeed()
+			{
+				return keyCameraSpeed;
+			}
+		});
+	}
+
+	@Override
+	public void onTick(long nanos, int worldView, int localX, int localY, int mainWorldX, int mainWorldY)
+	{
+		if (cameraPipeline == null)
+		{
+			start(nanos);
+		}
+		if (worldView != WorldView.TOPLEVEL)
+		{
+			FakeWorldEntity worldEntity = worldEntity(worldView);
+			worldEntity.offsetX = mainWorldX - localX;
+			worldEntity.offsetY = mainWorldY - localY;
+			client.fakePlayer().localLocation = new LocalPoint(localX, localY, worldView);
+		}
+		detachedCameraMovementHandler.getWorldEntityTransforms().onGameTick(nanos);
+	}
+
+	@Override
+	public void onInput(int type, int a, int b)
+	{
+		if (pendingInputCount == pendingInput.length)
+		{
+			pendingInput = Arrays.copyOf(pendingInput, pendingInput.length * 2);
+		}
+		pendingInput[pendingInputCount++] = type;
+		pendingInput[pendingInputCount++] = a;
+		pendingInput[pendingInputCount++] = b;
+	}
+
+	@Override
+	public void onCollision(int[][][] flags, int sizeX, int sizeY)
+	{
+		if (cameraPipeline == null)
+		{
+			pendingCollision = flags;
+			pendingCollisionSizeX = sizeX;
+			pendingCollisionSizeY = sizeY;
+			return;
+		}
+
+		CameraCollision cameraCollision = detachedCameraMovementHandler.getCameraCollision();
+		if (flags == null)
+		{
+			cameraCollision.clear();
+		}
+		else
+		{
+			cameraCollision.load(flags, sizeX, sizeY);
+		}
+	}
+
+	@Override
+	public void onFrame(SessionFrame frame)
+	{
+		if (cameraPipeline == null)
+		{
+			start(frame.frameNanos);
+		}
+
+		client.cameraMode = frame.cameraMode;
+		client.cameraYawTarget = frame.clientYawTarget;
+		client.cameraPitchTarget = frame.clientPitchTarget;
+		client.cameraPitch = frame.clientPitch;
+		client.cameraYaw = frame.clientYaw;
+		client.gameCycle = frame.gameCycle;
+		client.zoom = frame.zoom;
+		client.topLevelWorldView.plane = frame.plane;
+		FakePlayer player = client.fakePlayer();
+		if (player.model == null)
+		{
+			player.model = Stubs.create(FakeModel.class);
+		}
+		if (player.poseAnimation != frame.eyeHeight)
+		{
+			// A pose of its own for every recorded eye height, with a model that puts the eyes there
+			player.poseAnimation = frame.eyeHeight;
+			player.model.modelHeight = frame.eyeHeight + EyeHeightCache.HEAD_ABOVE_EYES;
+		}
+		LocalPoint lp = client.fakePlayer().localLocation;
+		if (lp.getX() != frame.localX || lp.getY() != frame.localY || lp.getWorldView() != frame.worldView)
+		{
+			client.fakePlayer().localLocation = new LocalPoint(frame.localX, frame.localY, frame.worldView);
+		}
+		if (frame.worldView != WorldView.TOPLEVEL)
+		{
+			// Only used until the next tick samples the entity, when the frame went through the client's transform
+			FakeWorldEntity worldEntity = worldEntity(frame.worldView);
+			worldEntity.offsetX = (int) Math.round(frame.mainWorldX) - frame.localX;
+			worldEntity.offsetY = (int) Math.round(frame.mainWorldY) - frame.localY;
+		}
+
+		for (int i = 0; i < pendingInputCount; i += 3)
+		{
+			inputHandler.queueInputEvent(pendingInput[i], pendingInput[i + 1], pendingInput[i + 2]);
+		}
+		pendingInputCount = 0;
+
+		long start = System.nanoTime();
+		cameraPipeline.run(frame.frameNanos);
+		long took = System.nanoTime() - start;
+
+		if (report.frames == frameNanos.length)
+		{
+			frameNanos = Arrays.copyOf(frameNanos, frameNanos.length * 2);
+		}
+		frameNanos[report.frames++] = took;
+
+		CameraPose pose = cameraPipeline.getPose();
+		double error = Math.max(Math.abs((float) pose.focalX - frame.focalX),
+			Math.max(Math.abs((float) pose.focalY - frame.focalY), Math.abs((float) pose.focalZ - frame.focalZ)));
+		report.maxFocalError = Math.max(report.maxFocalError, error);
+		if (error > MATCH_TOLERANCE || pose.yawTarget != frame.yawTarget || pose.pitchTarget != frame.pitchTarget)
+		{
+			if (report.mismatchedFrames == 0)
+			{
+				report.firstMismatch = report.frames - 1;
+			}
+			report.mismatchedFrames++;
+		}
+	}
+
+	private void start(long nowNanos)
+	{
+		FirstPersonConfig config = new FirstPersonConfig()
+		{
+		};
+		inputHandler = new InputHandler(client, plugin, config, nowNanos);
+		detachedCameraMovementHandler = new DetachedCameraMovementHandler(client, config, inputHandler);
+		cameraPipeline = new CameraPipeline(client, inputHandler, detachedCameraMovementHandler);
+		if (pendingCollision != null)
+		{
+			detachedCameraMovementHandler.getCameraCollision().load(pendingCollision, pendingCollisionSizeX, pendingCollisionSizeY);
+			pendingCollision = null;
+		}
+	}
+
+	private FakeWorldEntity worldEntity(int id)
+	{
+		FakeWorldEntity worldEntity = (FakeWorldEntity) client.topLevelWorldView.worldEntities().byIndex(id);
+		if (worldEntity == null)
+		{
+			FakeWorldView worldView = Stubs.create(FakeWorldView.class);
+			worldView.id = id;
+			client.topLevelWorldView.addEntityWorldView(worldView);
+			worldEntity = Stubs.create(FakeWorldEntity.class);
+			worldEntity.worldView = worldView;
+			client.topLevelWorldView.worldEntities().put(id, worldEntity);
+		}
+		return worldEntity;
+	}
+
+	private Report finish()
+	{
+		long[] sorted = Arrays.copyOf(frameNanos, report.frames);
+		Arrays.sort(sorted);
+		if (sorted.length > 0)
+		{
+			report.p50Nanos = sorted[sorted.length / 2];
+			report.p99Nanos = sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99))];
+			report.maxNanos = sorted[sorted.length - 1];
+		}
+		return report;
+	}
+
+	public static final class Report
+	{
+		public int frames;
+		public int mismatchedFrames;
+		public int firstMismatch = -1;
+		public double maxFocalError;
+		public long p50Nanos;
+		public long p99Nanos;
+		public long maxNanos;
+
+		@Override
+		public String toString()
+		{
+			return String.format("%d frames, %d mismatched (first %d), max focal error %.4f, frame p50 %dns p99 %dns max %dns",
+				frames, mismatchedFrames, firstMismatch, maxFocalError, p50Nanos, p99Nanos, maxNanos);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package com.firstperson.timing;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Reads the first person camera events out of flight recordings and reports the latency percentiles of each.
+ * <p>
+ * Events are only recorded when they take longer than the recording's threshold, so the percentiles are of the slow
+ * frames unless the recording set the threshold to 0.
+ * <p>
+ * Run with {@code ./gradlew analyzeCameraEvents -Precording=<file>[,<file>...]}.
+ */
+public class CameraEventAnalyzer
+{
+	private static final String PREFIX = "com.firstperson.";
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length == 0)
+		{
+			System.err.println("Usage: CameraEventAnalyzer <recording.jfr>...");
+			System.exit(2);
+		}
+
+		Path[] files = new Path[args.length];
+		for (int i = 0; i < args.length; i++)
+		{
+			files[i] = Paths.get(args[i]);
+		}
+		for (Stage stage : analyze(files).values())
+		{
+			System.out.println(stage);
+		}
+	}
+
+	/**
+	 * @return the events found, by event name
+	 */
+	public static Map<String, Stage> analyze(Path... files) throws IOException
+	{
+		Map<String, Stage> stages = new TreeMap<>();
+		for (Path file : files)
+		{
+			try (RecordingFile recording = new RecordingFile(file))
+			{
+				while (recording.hasMoreEvents())
+				{
+					RecordedEvent event = recording.readEvent();
+					String name = event.getEventType().getName();
+					if (name.startsWith(PREFIX))
+					{
+						stages.computeIfAbsent(name, Stage::new).add(event.getDuration().toNanos());
+					}
+				}
+			}
+		}
+		return stages;
+	}
+
+	public static class Stage
+	{
+		final String name;
+		private long[] durations = new long[256];
+		private int count;
+		private boolean sorted;
+
+		Stage(String name)
+		{
+			this.name = name;
+		}
+
+		void add(long nanos)
+		{
+			if (count == durations.length)
+			{
+				durations = Arrays.copyOf(durations, count * 2);
+			}
+			durations[count++] = nanos;
+			sorted = false;
+		}
+
+		public int count()
+		{
+			return count;
+		}
+
+		/**
+		 * @return the duration that the fraction of the events took at most, by nearest rank
+		 */
+		public long percentile(double fraction)
+		{
+			if (count == 0)
+			{
+				return 0;
+			}
+			if (!sorted)
+			{
+				Arrays.sort(durations, 0, count);
+				sorted = true;
+			}
+			int rank = (int) Math.max(1, Math.ceil(fraction * count));
+			return durations[rank - 1];
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format(Locale.ROOT, "%-32s %8d events  p50 %8.1f us  p90 %8.1f us  p99 %8.1f us  max %8.1f us",
+				name.substring(PREFIX.length()), count, percentile(0.5) / 1000.0, percentile(0.9) / 1000.0,
+				percentile(0.99) / 1000.0, percentile(1) / 1000.0);
+		}
+	}
+}
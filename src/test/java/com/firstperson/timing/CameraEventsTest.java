@@ -0,0 +1,88 @@
+package com.firstperson.timing;
+
+import com.firstperson.CameraPipeline;
+import com.firstperson.FirstPersonConfig;
+import com.firstperson.FirstPersonPlugin;
+import com.firstperson.detachedcamera.CameraPose;
+import com.firstperson.detachedcamera.DetachedCameraMovementHandler;
+import com.firstperson.fake.FakeClient;
+import com.firstperson.input.InputHandler;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import jdk.jfr.Recording;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class CameraEventsTest
+{
+	private static final int FRAMES = 100;
+
+	@Test
+	public void eventsAreOffUnlessARecordingEnablesThem()
+	{
+		CameraPose pose = new CameraPose();
+		assertNull(CameraInputEvent.start(pose));
+		assertNull(FocalPointEvent.start());
+
+		try (Recording recording = new Recording())
+		{
+			// Running, but with the defaults
+			recording.start();
+			assertNull(CameraInputEvent.start(pose));
+			assertNull(FocalPointEvent.start());
+		}
+	}
+
+	@Test
+	public void analyzerReportsEveryRecordedFrame() throws IOException
+	{
+		FakeClient client = FakeClient.create();
+		FirstPersonConfig config = new FirstPersonConfig()
+		{
+		};
+		InputHandler inputHandler = new InputHandler(client, new FirstPersonPlugin(), config, System.nanoTime());
+		CameraPipeline cameraPipeline = new CameraPipeline(client, inputHandler,
+			new DetachedCameraMovementHandler(client, config, inputHandler));
+
+		Path file = Files.createTempFile("camera", ".jfr");
+		try (Recording recording = new Recording())
+		{
+			recording.enable(CameraInputEvent.class).withThreshold(Duration.ZERO);
+			recording.enable(FocalPointEvent.class).withThreshold(Duration.ZERO);
+			recording.enable(CameraToggleEvent.class);
+			recording.start();
+
+			CameraToggleEvent toggle = new CameraToggleEvent(true);
+			toggle.begin();
+			toggle.commit();
+			for (int frame = 0; frame < FRAMES; frame++)
+			{
+				cameraPipeline.run();
+			}
+
+			recording.stop();
+			recording.dump(file);
+		}
+
+		try
+		{
+			Map<String, CameraEventAnalyzer.Stage> stages = CameraEventAnalyzer.analyze(file);
+			assertEquals(FRAMES, stages.get(CameraInputEvent.NAME).count());
+			assertEquals(FRAMES, stages.get(FocalPointEvent.NAME).count());
+			assertEquals(1, stages.get(CameraToggleEvent.NAME).count());
+
+			CameraEventAnalyzer.Stage input = stages.get(CameraInputEvent.NAME);
+			assertTrue(input.percentile(0.5) <= input.percentile(0.99));
+			assertTrue(input.percentile(0.99) <= input.percentile(1));
+		}
+		finally
+		{
+			Files.delete(file);
+		}
+	}
+}
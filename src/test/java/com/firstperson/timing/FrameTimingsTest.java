@@ -0,0 +1,69 @@
+package com.firstperson.timing;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class FrameTimingsTest
+{
+	@Test
+	public void bucketsAreContiguousAndAtMostASixteenthWide()
+	{
+		for (int bucket = 1; bucket < LatencyHistogram.BUCKETS; bucket++)
+		{
+			long lowest = LatencyHistogram.lowestNanos(bucket);
+			assertEquals(bucket, LatencyHistogram.bucket(lowest));
+			assertEquals(bucket - 1, LatencyHistogram.bucket(lowest - 1));
+			long width = LatencyHistogram.lowestNanos(bucket + 1) - lowest;
+			assertTrue("bucket " + bucket, width <= Math.max(1, lowest / 16));
+		}
+		assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void percentilesAreWithinABucketOfTheRecordedValues()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.percentile(0.5));
+		for (int micros = 1; micros <= 1000; micros++)
+		{
+			histogram.record(micros * 1000L);
+		}
+
+		assertWithinBucket(500_000, histogram.percentile(0.5));
+		assertWithinBucket(990_000, histogram.percentile(0.99));
+		assertWithinBucket(1_000_000, histogram.percentile(1));
+	}
+
+	@Test
+	public void onlyTheFramesInTheRingCount()
+	{
+		FrameTimings timings = new FrameTimings(4);
+		for (int frame = 0; frame < 10; frame++)
+		{
+			// A slow first frame that the ring has long since dropped
+			long nanos = frame == 0 ? 5_000_000 : 1000 + frame;
+			timings.recordFrame(nanos, 2 * nanos, 3 * nanos, 6 * nanos);
+		}
+
+		assertEquals(10, timings.getFrames());
+		assertEquals(4, timings.size());
+		assertEquals(1009, timings.max(FrameTimings.INPUT));
+		assertEquals(6054, timings.max(FrameTimings.FRAME));
+		assertWithinBucket(1009, timings.percentile(FrameTimings.INPUT, 1));
+		assertWithinBucket(2 * 1006, timings.percentile(FrameTimings.FOCAL_POINT, 0));
+
+		long[] frames = new long[8];
+		assertEquals(4, timings.copy(FrameTimings.WRITE_BACK, frames));
+		assertArrayEquals(new long[]{3018, 3021, 3024, 3027, 0, 0, 0, 0}, frames);
+		long[] newest = new long[2];
+		assertEquals(2, timings.copy(FrameTimings.WRITE_BACK, newest));
+		assertArrayEquals(new long[]{3024, 3027}, newest);
+	}
+
+	private static void assertWithinBucket(long expected, long actual)
+	{
+		assertEquals(LatencyHistogram.bucket(expected), LatencyHistogram.bucket(actual));
+	}
+}